@@ -1,6 +1,7 @@
 package org.spiderflow;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 表达式引擎
@@ -15,4 +16,13 @@ public interface ExpressionEngine {
 	 */
 	Object execute(String expression, Map<String, Object> variables);
 
+	/**
+	 * 获取表达式中引用的变量名
+	 * @param expression	表达式
+	 * @return	变量名集合,无法分析时返回null
+	 */
+	default Set<String> getVariables(String expression){
+		return null;
+	}
+
 }
@@ -2,8 +2,13 @@ package org.spiderflow.concurrent;
 
 import org.spiderflow.model.SpiderNode;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class SpiderFlowThreadPoolExecutor {
 
@@ -32,6 +37,11 @@ public class SpiderFlowThreadPoolExecutor {
 	 */
 	private static final String THREAD_POOL_NAME_PREFIX = "spider-flow-";
 
+	/**
+	 * 运行中的子线程池,按权重分配总线程数
+	 */
+	private final Set<SubThreadPoolExecutor> subExecutors = ConcurrentHashMap.newKeySet();
+
 	public SpiderFlowThreadPoolExecutor(int maxThreads) {
 		super();
 		this.maxThreads = maxThreads;
@@ -46,6 +56,31 @@ public class SpiderFlowThreadPoolExecutor {
 		return this.executor.submit(runnable);
 	}
 
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	/**
+	 * 正在执行任务的线程数
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * 等待执行的任务数
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * 已执行完毕的任务数
+	 */
+	public long getCompletedTaskCount() {
+		return executor.getCompletedTaskCount();
+	}
+
 
 	/**
 	 * 创建子线程池
@@ -53,7 +88,50 @@ public class SpiderFlowThreadPoolExecutor {
 	 * @return
 	 */
 	public SubThreadPoolExecutor createSubThreadPoolExecutor(int threads,ThreadSubmitStrategy submitStrategy){
-		return new SubThreadPoolExecutor(Math.min(maxThreads, threads),submitStrategy);
+		return createSubThreadPoolExecutor(threads, submitStrategy, 1);
+	}
+
+	/**
+	 * 创建子线程池
+	 * @param threads	线程池大小
+	 * @param weight	权重,多个子线程池同时运行时按权重分配总线程数
+	 * @return
+	 */
+	public SubThreadPoolExecutor createSubThreadPoolExecutor(int threads,ThreadSubmitStrategy submitStrategy,int weight){
+		SubThreadPoolExecutor subExecutor = new SubThreadPoolExecutor(Math.min(maxThreads, threads),submitStrategy,Math.max(weight, 1));
+		subExecutors.add(subExecutor);
+		rebalance();
+		return subExecutor;
+	}
+
+	/**
+	 * 按权重分配各子线程池可同时占用的线程数(加权最大最小公平):
+	 * 需求小于份额的子线程池按需求分配,剩余线程由其他子线程池按权重再分,每个子线程池至少占用1个线程
+	 */
+	private synchronized void rebalance(){
+		List<SubThreadPoolExecutor> pending = new ArrayList<>(subExecutors);
+		int remaining = maxThreads;
+		boolean satisfied = true;
+		while(!pending.isEmpty() && satisfied){
+			satisfied = false;
+			int totalWeight = pending.stream().mapToInt(e -> e.weight).sum();
+			Iterator<SubThreadPoolExecutor> iterator = pending.iterator();
+			while(iterator.hasNext()){
+				SubThreadPoolExecutor subExecutor = iterator.next();
+				if(subExecutor.threads * (long) totalWeight <= remaining * (long) subExecutor.weight){
+					subExecutor.limit = subExecutor.threads;
+					remaining -= subExecutor.threads;
+					iterator.remove();
+					satisfied = true;
+				}
+			}
+		}
+		if(!pending.isEmpty()){
+			int totalWeight = pending.stream().mapToInt(e -> e.weight).sum();
+			for (SubThreadPoolExecutor subExecutor : pending) {
+				subExecutor.limit = Math.max((int) (remaining * (long) subExecutor.weight / totalWeight), 1);
+			}
+		}
 	}
 
 	/**
@@ -66,6 +144,16 @@ public class SpiderFlowThreadPoolExecutor {
 		 */
 		private int threads;
 
+		/**
+		 * 权重
+		 */
+		private int weight;
+
+		/**
+		 * 按权重分配到的可同时占用的线程数
+		 */
+		private volatile int limit;
+
 		/**
 		 * 正在执行中的任务
 		 */
@@ -89,8 +177,14 @@ public class SpiderFlowThreadPoolExecutor {
 		private ThreadSubmitStrategy submitStrategy;
 
 		public SubThreadPoolExecutor(int threads,ThreadSubmitStrategy submitStrategy) {
+			this(threads, submitStrategy, 1);
+		}
+
+		private SubThreadPoolExecutor(int threads,ThreadSubmitStrategy submitStrategy,int weight) {
 			super();
 			this.threads = threads;
+			this.weight = weight;
+			this.limit = threads;
 			this.futures = new Future[threads];
 			this.submitStrategy = submitStrategy;
 		}
@@ -103,19 +197,60 @@ public class SpiderFlowThreadPoolExecutor {
 				removeDoneFuture();
 			}
 			running = false;
+			//归还线程份额给其他子线程池
+			if(subExecutors.remove(this)){
+				rebalance();
+			}
 			//当停止时,唤醒提交任务线程使其结束
 			synchronized (submitStrategy){
 				submitStrategy.notifyAll();
 			}
 		}
 		
+		/**
+		 * 线程池大小
+		 */
+		public int getThreads() {
+			return threads;
+		}
+
+		/**
+		 * 按权重分配到的可同时占用的线程数
+		 */
+		public int getLimit() {
+			return limit;
+		}
+
+		/**
+		 * 正在占用的线程数
+		 */
+		public int getActiveCount() {
+			int count = 0;
+			for (int i = 0; i < threads; i++) {
+				Future<?> future = futures[i];
+				if(future != null && !future.isDone()){
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * 获取空闲位置,占用数达到分配的份额时返回-1
+		 */
 		private int index(){
+			int index = -1;
+			int active = 0;
 			for (int i = 0; i < threads; i++) {
 				if(futures[i] == null || futures[i].isDone()){
-					return i;
+					if(index == -1){
+						index = i;
+					}
+				}else{
+					active++;
 				}
 			}
-			return -1;
+			return active < limit ? index : -1;
 		}
 
 		/**
@@ -146,6 +281,13 @@ public class SpiderFlowThreadPoolExecutor {
 		 * 异步提交任务
 		 */
 		public <T> Future<T> submitAsync(Runnable runnable, T value, SpiderNode node){
+			return submitAsync(runnable, value, node, null);
+		}
+
+		/**
+		 * 异步提交任务,任务结束(完成、异常或取消)时回调
+		 */
+		public <T> Future<T> submitAsync(Runnable runnable, T value, SpiderNode node, Consumer<Future<T>> callback){
 			SpiderFutureTask<T> future = new SpiderFutureTask<>(()-> {
 				try {
 					//执行任务
@@ -154,7 +296,7 @@ public class SpiderFlowThreadPoolExecutor {
 					//正在执行的线程数-1
 					executing.decrementAndGet();
 				}
-			}, value,node,this);
+			}, value,node,this,callback == null ? null : callback::accept);
 
 			submitStrategy.add(future);
 			//如果是第一次调用submitSync方法，则启动提交任务线程
@@ -1,6 +1,8 @@
 package org.spiderflow.concurrent;
 
 import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
 import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor.SubThreadPoolExecutor;
 import org.spiderflow.model.SpiderNode;
 
@@ -10,10 +12,27 @@ public class SpiderFutureTask<V> extends FutureTask {
 
     private SpiderNode node;
 
+    /**
+     * 任务结束(完成、异常或取消)时的回调
+     */
+    private Consumer<SpiderFutureTask<V>> callback;
+
     public SpiderFutureTask(Runnable runnable, V result, SpiderNode node,SubThreadPoolExecutor executor) {
+        this(runnable, result, node, executor, null);
+    }
+
+    public SpiderFutureTask(Runnable runnable, V result, SpiderNode node,SubThreadPoolExecutor executor, Consumer<SpiderFutureTask<V>> callback) {
         super(runnable,result);
         this.executor = executor;
         this.node = node;
+        this.callback = callback;
+    }
+
+    @Override
+    protected void done() {
+        if (callback != null) {
+            callback.accept(this);
+        }
     }
 
     public SubThreadPoolExecutor getExecutor() {
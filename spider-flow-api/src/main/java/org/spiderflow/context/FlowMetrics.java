@@ -0,0 +1,98 @@
+package org.spiderflow.context;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.spiderflow.model.SpiderNode;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+
+/**
+ * 单次运行中各节点的执行统计,用于定位耗时节点及调整线程数
+ * @author jmxd
+ *
+ */
+public class FlowMetrics {
+
+	/**
+	 * 当前线程正在执行的节点的统计,用于记录表达式耗时(并行执行表达式时随TtlCallable传递)
+	 */
+	private static final ThreadLocal<NodeMetrics> CURRENT = new TransmittableThreadLocal<>();
+
+	/**
+	 * 节点ID -> 统计
+	 */
+	private final Map<String, NodeMetrics> nodes = new ConcurrentHashMap<>();
+
+	private final long startTime = System.currentTimeMillis();
+
+	public NodeMetrics getNodeMetrics(SpiderNode node) {
+		return nodes.computeIfAbsent(node.getNodeId(), key -> new NodeMetrics(node.getNodeName()));
+	}
+
+	/**
+	 * 各节点的统计(只读)
+	 * @return 节点ID -> 统计
+	 */
+	public Map<String, NodeMetrics> getNodes() {
+		return Collections.unmodifiableMap(nodes);
+	}
+
+	/**
+	 * 各节点执行次数之和
+	 */
+	public long getExecutions() {
+		long count = 0;
+		for (NodeMetrics metrics : nodes.values()) {
+			count += metrics.getExecutions();
+		}
+		return count;
+	}
+
+	/**
+	 * 各节点出错次数之和
+	 */
+	public long getErrors() {
+		long count = 0;
+		for (NodeMetrics metrics : nodes.values()) {
+			count += metrics.getErrors();
+		}
+		return count;
+	}
+
+	/**
+	 * 统计结果:运行时长(毫秒)及各节点的统计
+	 */
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("duration", System.currentTimeMillis() - startTime);
+		Map<String, Object> values = new LinkedHashMap<>();
+		nodes.forEach((nodeId, metrics) -> values.put(nodeId, metrics.snapshot()));
+		result.put("nodes", values);
+		return result;
+	}
+
+	public static NodeMetrics current() {
+		return CURRENT.get();
+	}
+
+	public static void setCurrent(NodeMetrics metrics) {
+		if (metrics == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(metrics);
+		}
+	}
+
+	/**
+	 * 记录表达式耗时,计入当前线程正在执行的节点
+	 */
+	public static void recordExpression(long nanos) {
+		NodeMetrics metrics = CURRENT.get();
+		if (metrics != null) {
+			metrics.recordExpression(nanos);
+		}
+	}
+}
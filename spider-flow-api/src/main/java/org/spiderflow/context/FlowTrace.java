@@ -0,0 +1,199 @@
+package org.spiderflow.context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+
+/**
+ * 单次运行的调用链,只有被采样的运行才创建,未采样时各埋点只判断当前Span是否为空
+ * @author jmxd
+ *
+ */
+public class FlowTrace {
+
+	/**
+	 * 当前线程所在的Span,随TtlRunnable、TtlCallable传递到子线程
+	 */
+	private static final ThreadLocal<Span> CURRENT = new TransmittableThreadLocal<>();
+
+	private final String traceId;
+
+	/**
+	 * 创建时的系统时间及纳秒计时,用于换算Span的时间
+	 */
+	private final long epochNanos = System.currentTimeMillis() * 1000000L;
+
+	private final long baseNanos = System.nanoTime();
+
+	/**
+	 * 最多保存的Span数量,超过后丢弃并计数
+	 */
+	private final int maxSpans;
+
+	private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final LongAdder dropped = new LongAdder();
+
+	private final Span root;
+
+	public FlowTrace(String name, int maxSpans) {
+		this.traceId = randomId(16);
+		this.maxSpans = maxSpans;
+		this.root = start(name, null, baseNanos);
+	}
+
+	public String getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * 代表整个运行的根Span
+	 */
+	public Span getRoot() {
+		return root;
+	}
+
+	/**
+	 * 创建Span
+	 * @param parent	父Span,为空时为根Span
+	 * @param startNanos	开始时间(System.nanoTime)
+	 */
+	public Span start(String name, Span parent, long startNanos) {
+		return new Span(this, randomId(8), parent == null ? null : parent.getSpanId(), name, startNanos);
+	}
+
+	void finish(Span span) {
+		if (size.incrementAndGet() <= maxSpans || span == root) {
+			spans.add(span);
+		} else {
+			dropped.increment();
+		}
+	}
+
+	long toEpochNanos(long nanos) {
+		return epochNanos + nanos - baseNanos;
+	}
+
+	/**
+	 * 已结束的Span
+	 */
+	public List<Span> getSpans() {
+		return new ArrayList<>(spans);
+	}
+
+	/**
+	 * 超出数量上限被丢弃的Span数量
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * 按OTLP/JSON格式输出
+	 * @param serviceName	服务名称
+	 * @param resource	运行的属性(流程ID、任务ID等)
+	 */
+	public Map<String, Object> toOtlp(String serviceName, Map<String, Object> resource) {
+		List<Map<String, Object>> resourceAttributes = new ArrayList<>();
+		resourceAttributes.add(attribute("service.name", serviceName));
+		resource.forEach((key, value) -> resourceAttributes.add(attribute(key, value)));
+		resourceAttributes.add(attribute("spider.spans.dropped", getDropped()));
+		List<Map<String, Object>> values = new ArrayList<>();
+		for (Span span : getSpans()) {
+			Map<String, Object> value = new LinkedHashMap<>();
+			value.put("traceId", traceId);
+			value.put("spanId", span.getSpanId());
+			if (span.getParentSpanId() != null) {
+				value.put("parentSpanId", span.getParentSpanId());
+			}
+			value.put("name", span.getName());
+			value.put("kind", span == root ? 2 : 1);
+			value.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+			value.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+			List<Map<String, Object>> attributes = new ArrayList<>();
+			span.getAttributes().forEach((key, attributeValue) -> attributes.add(attribute(key, attributeValue)));
+			value.put("attributes", attributes);
+			Map<String, Object> status = new LinkedHashMap<>();
+			if (span.getError() != null) {
+				status.put("code", 2);
+				status.put("message", span.getError());
+			}
+			value.put("status", status);
+			values.add(value);
+		}
+		Map<String, Object> scope = new LinkedHashMap<>();
+		scope.put("name", "spider-flow");
+		Map<String, Object> scopeSpans = new LinkedHashMap<>();
+		scopeSpans.put("scope", scope);
+		scopeSpans.put("spans", values);
+		Map<String, Object> resourceValue = new LinkedHashMap<>();
+		resourceValue.put("attributes", resourceAttributes);
+		Map<String, Object> resourceSpans = new LinkedHashMap<>();
+		resourceSpans.put("resource", resourceValue);
+		resourceSpans.put("scopeSpans", new Object[]{ scopeSpans });
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("resourceSpans", new Object[]{ resourceSpans });
+		return result;
+	}
+
+	private static Map<String, Object> attribute(String key, Object value) {
+		Map<String, Object> attributeValue = new LinkedHashMap<>();
+		if (value instanceof Integer || value instanceof Long) {
+			//OTLP/JSON中int64以字符串表示
+			attributeValue.put("intValue", value.toString());
+		} else if (value instanceof Number) {
+			attributeValue.put("doubleValue", value);
+		} else if (value instanceof Boolean) {
+			attributeValue.put("boolValue", value);
+		} else {
+			attributeValue.put("stringValue", String.valueOf(value));
+		}
+		Map<String, Object> attribute = new LinkedHashMap<>();
+		attribute.put("key", key);
+		attribute.put("value", attributeValue);
+		return attribute;
+	}
+
+	private static String randomId(int bytes) {
+		StringBuilder builder = new StringBuilder(bytes * 2);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < bytes; i++) {
+			String hex = Integer.toHexString(random.nextInt(256));
+			if (hex.length() == 1) {
+				builder.append('0');
+			}
+			builder.append(hex);
+		}
+		return builder.toString();
+	}
+
+	public static Span current() {
+		return CURRENT.get();
+	}
+
+	public static void setCurrent(Span span) {
+		if (span == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(span);
+		}
+	}
+
+	/**
+	 * 在当前Span下创建子Span,当前运行未采样时返回null
+	 */
+	public static Span startSpan(String name) {
+		Span current = CURRENT.get();
+		return current == null ? null : current.child(name);
+	}
+}
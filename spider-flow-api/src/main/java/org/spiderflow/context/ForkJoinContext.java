@@ -0,0 +1,107 @@
+package org.spiderflow.context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.spiderflow.model.SpiderNode;
+
+/**
+ * 等待执行结束(Join)节点的运行状态,每次运行独立
+ * 每个Join节点记录其自身及所有上级节点中未执行完毕的任务数,
+ * 节点与Join节点的关系在加载流程图时计算,判断是否执行完毕时无需遍历流程图
+ * 子流程的每次调用使用独立的实例,同一子流程被并发调用时各调用的Join节点互不影响
+ * @author jmxd
+ *
+ */
+public class ForkJoinContext {
+
+	/**
+	 * 当前线程正在判断的任务所属的Join状态(子流程调用的独立实例)
+	 */
+	private static final ThreadLocal<ForkJoinContext> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * Join节点ID -> 未执行完毕的任务数
+	 */
+	private final Map<String, AtomicInteger> pendings = new ConcurrentHashMap<>();
+
+	/**
+	 * Join节点ID -> 已执行完毕的分支合并后的变量
+	 */
+	private final Map<String, Map<String, Object>> variables = new ConcurrentHashMap<>();
+
+	/**
+	 * 获取当前线程正在判断的任务所属的Join状态,未设置时为运行的Join状态
+	 */
+	public static ForkJoinContext current(SpiderContext context) {
+		ForkJoinContext current = CURRENT.get();
+		return current == null ? context.getForkJoinContext() : current;
+	}
+
+	public static void setCurrent(ForkJoinContext forkJoinContext) {
+		if (forkJoinContext == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(forkJoinContext);
+		}
+	}
+
+	/**
+	 * 节点任务创建时调用
+	 */
+	public void increment(SpiderNode node) {
+		for (String joinNodeId : node.getJoinNodeIds()) {
+			pendings.computeIfAbsent(joinNodeId, key -> new AtomicInteger()).incrementAndGet();
+		}
+	}
+
+	/**
+	 * 节点任务执行完毕时调用
+	 */
+	public void decrement(SpiderNode node) {
+		for (String joinNodeId : node.getJoinNodeIds()) {
+			AtomicInteger pending = pendings.get(joinNodeId);
+			if (pending != null) {
+				pending.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * 判断Join节点及其所有上级节点是否都已执行完毕
+	 */
+	public boolean isDone(SpiderNode joinNode) {
+		AtomicInteger pending = pendings.get(joinNode.getNodeId());
+		return pending == null || pending.get() <= 0;
+	}
+
+	/**
+	 * 获取Join节点合并中的变量
+	 */
+	public Map<String, Object> getVariables(String joinNodeId) {
+		return variables.computeIfAbsent(joinNodeId, key -> new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * 获取所有Join节点合并中的变量
+	 */
+	public Map<String, Map<String, Object>> getVariables() {
+		return variables;
+	}
+
+	/**
+	 * 移除Join节点合并完成的变量
+	 */
+	public Map<String, Object> removeVariables(String joinNodeId) {
+		return variables.remove(joinNodeId);
+	}
+
+	/**
+	 * 运行结束时释放状态
+	 */
+	public void clear() {
+		pendings.clear();
+		variables.clear();
+	}
+}
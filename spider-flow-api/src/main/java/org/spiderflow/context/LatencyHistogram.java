@@ -0,0 +1,99 @@
+package org.spiderflow.context;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时分布,按固定区间(毫秒)计数,各计数器使用LongAdder分段累加,多线程记录时开销较低
+ * @author jmxd
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * 各区间的上限(毫秒),最后一个区间不设上限
+	 */
+	private static final long[] BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+
+	private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder total = new LongAdder();
+
+	private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * 记录一次耗时
+	 * @param nanos	耗时(纳秒)
+	 */
+	public void record(long nanos) {
+		long millis = nanos / 1000000;
+		int index = 0;
+		while (index < BOUNDS.length && millis >= BOUNDS[index]) {
+			index++;
+		}
+		buckets[index].increment();
+		count.increment();
+		total.add(nanos);
+		max.accumulate(nanos);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * 估算百分位耗时(毫秒),在所在区间内按线性分布插值
+	 * @param percentile	百分位,如0.99
+	 */
+	public double getPercentile(double percentile) {
+		long n = count.sum();
+		if (n == 0) {
+			return 0;
+		}
+		double maxMillis = max.get() / 1000000.0;
+		double target = Math.max(percentile * n, 1);
+		long cumulative = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			long value = buckets[i].sum();
+			if (value > 0 && cumulative + value >= target) {
+				double lower = i == 0 ? 0 : BOUNDS[i - 1];
+				double upper = i < BOUNDS.length ? Math.min(BOUNDS[i], maxMillis) : maxMillis;
+				return lower + Math.max(upper - lower, 0) * (target - cumulative) / value;
+			}
+			cumulative += value;
+		}
+		return maxMillis;
+	}
+
+	/**
+	 * 统计结果:次数、平均及最大耗时(毫秒)、各区间次数
+	 */
+	public Map<String, Object> snapshot() {
+		long n = count.sum();
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("count", n);
+		result.put("avg", n == 0 ? 0 : total.sum() / n / 1000000.0);
+		result.put("max", max.get() / 1000000.0);
+		result.put("p50", getPercentile(0.5));
+		result.put("p99", getPercentile(0.99));
+		Map<String, Long> distribution = new LinkedHashMap<>();
+		for (int i = 0; i < buckets.length; i++) {
+			long value = buckets[i].sum();
+			if (value > 0) {
+				distribution.put(i < BOUNDS.length ? "<" + BOUNDS[i] : ">=" + BOUNDS[BOUNDS.length - 1], value);
+			}
+		}
+		result.put("distribution", distribution);
+		return result;
+	}
+}
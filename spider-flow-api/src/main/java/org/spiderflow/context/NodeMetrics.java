@@ -0,0 +1,110 @@
+package org.spiderflow.context;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个节点的执行统计:执行次数、出错次数、排队及执行耗时、表达式耗时、请求状态码及下载字节数
+ * @author jmxd
+ *
+ */
+public class NodeMetrics {
+
+	private final String nodeName;
+
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * 从提交到开始执行的等待时间
+	 */
+	private final LatencyHistogram queueWait = new LatencyHistogram();
+
+	private final LatencyHistogram execution = new LatencyHistogram();
+
+	private final LongAdder expressions = new LongAdder();
+
+	private final LongAdder expressionNanos = new LongAdder();
+
+	/**
+	 * 状态码 -> 请求次数
+	 */
+	private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+	private final LongAdder bytes = new LongAdder();
+
+	public NodeMetrics(String nodeName) {
+		this.nodeName = nodeName;
+	}
+
+	/**
+	 * 记录一次节点执行
+	 * @param waitNanos	排队耗时(纳秒)
+	 * @param executeNanos	执行耗时(纳秒)
+	 * @param error	是否出错
+	 */
+	public void recordExecution(long waitNanos, long executeNanos, boolean error) {
+		queueWait.record(waitNanos);
+		execution.record(executeNanos);
+		if (error) {
+			errors.increment();
+		}
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	/**
+	 * 执行耗时分布
+	 */
+	public LatencyHistogram getExecution() {
+		return execution;
+	}
+
+	public long getExecutions() {
+		return execution.getCount();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public void recordExpression(long nanos) {
+		expressions.increment();
+		expressionNanos.add(nanos);
+	}
+
+	/**
+	 * 记录一次请求
+	 * @param status	状态码
+	 * @param length	下载字节数,未知时小于0
+	 */
+	public void recordResponse(int status, long length) {
+		statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+		if (length > 0) {
+			bytes.add(length);
+		}
+	}
+
+	public Map<String, Object> snapshot() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("nodeName", nodeName);
+		result.put("executions", execution.getCount());
+		result.put("errors", errors.sum());
+		result.put("queueWait", queueWait.snapshot());
+		result.put("execution", execution.snapshot());
+		long count = expressions.sum();
+		result.put("expressions", count);
+		result.put("expressionTime", expressionNanos.sum() / 1000000.0);
+		if (!statuses.isEmpty()) {
+			Map<Integer, Long> values = new TreeMap<>();
+			statuses.forEach((status, adder) -> values.put(status, adder.sum()));
+			result.put("statuses", values);
+			result.put("bytes", bytes.sum());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,118 @@
+package org.spiderflow.context;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 调用链中的一段耗时(运行、节点执行、排队、HTTP请求的各阶段、表达式),时间使用纳秒计时
+ * @author jmxd
+ *
+ */
+public class Span {
+
+	private final FlowTrace trace;
+
+	private final String spanId;
+
+	private final String parentSpanId;
+
+	private final String name;
+
+	private final long startNanos;
+
+	private volatile long endNanos;
+
+	private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+	private volatile String error;
+
+	Span(FlowTrace trace, String spanId, String parentSpanId, String name, long startNanos) {
+		this.trace = trace;
+		this.spanId = spanId;
+		this.parentSpanId = parentSpanId;
+		this.name = name;
+		this.startNanos = startNanos;
+	}
+
+	public FlowTrace getTrace() {
+		return trace;
+	}
+
+	public String getTraceId() {
+		return trace.getTraceId();
+	}
+
+	public String getSpanId() {
+		return spanId;
+	}
+
+	public String getParentSpanId() {
+		return parentSpanId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Span setAttribute(String key, Object value) {
+		if (value != null) {
+			synchronized (attributes) {
+				attributes.put(key, value);
+			}
+		}
+		return this;
+	}
+
+	public Map<String, Object> getAttributes() {
+		synchronized (attributes) {
+			return new LinkedHashMap<>(attributes);
+		}
+	}
+
+	public void setError(Throwable t) {
+		this.error = t == null ? null : t.getClass().getName() + ": " + t.getMessage();
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * 创建子Span
+	 */
+	public Span child(String name) {
+		return trace.start(name, this, System.nanoTime());
+	}
+
+	public void end() {
+		end(System.nanoTime());
+	}
+
+	/**
+	 * 结束并记录到调用链中,重复调用时只记录一次
+	 */
+	public void end(long endNanos) {
+		if (this.endNanos == 0) {
+			this.endNanos = endNanos;
+			trace.finish(this);
+		}
+	}
+
+	public boolean isEnded() {
+		return endNanos != 0;
+	}
+
+	/**
+	 * 开始时间(距1970年的纳秒数)
+	 */
+	public long getStartEpochNanos() {
+		return trace.toEpochNanos(startNanos);
+	}
+
+	/**
+	 * 结束时间(距1970年的纳秒数),未结束时为当前时间
+	 */
+	public long getEndEpochNanos() {
+		return trace.toEpochNanos(endNanos == 0 ? System.nanoTime() : endNanos);
+	}
+}
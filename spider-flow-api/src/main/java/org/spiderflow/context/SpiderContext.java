@@ -45,11 +45,36 @@ public class SpiderContext extends HashMap<String, Object>{
 	 */
 	private LinkedBlockingQueue<Future<?>> futureQueue = new LinkedBlockingQueue<>();
 
+	/**
+	 * 已执行完毕、等待执行下一级的Future队列
+	 */
+	private LinkedBlockingQueue<Future<?>> completedQueue = new LinkedBlockingQueue<>();
+
 	/**
 	 * Cookie上下文
 	 */
 	private CookieContext cookieContext = new CookieContext();
 
+	/**
+	 * Join节点运行状态
+	 */
+	private ForkJoinContext forkJoinContext = new ForkJoinContext();
+
+	/**
+	 * 各节点排队任务数
+	 */
+	private TaskBacklog taskBacklog = new TaskBacklog();
+
+	/**
+	 * 各节点执行统计
+	 */
+	private FlowMetrics metrics = new FlowMetrics();
+
+	/**
+	 * 调用链,未采样时为空
+	 */
+	private volatile FlowTrace trace;
+
 	public List<SpiderOutput> getOutputs() {
 		return Collections.emptyList();
 	}
@@ -75,6 +100,10 @@ public class SpiderContext extends HashMap<String, Object>{
 		return futureQueue;
 	}
 
+	public LinkedBlockingQueue<Future<?>> getCompletedQueue() {
+		return completedQueue;
+	}
+
 	public boolean isRunning() {
 		return running;
 	}
@@ -111,6 +140,26 @@ public class SpiderContext extends HashMap<String, Object>{
 		return cookieContext;
 	}
 
+	public ForkJoinContext getForkJoinContext() {
+		return forkJoinContext;
+	}
+
+	public TaskBacklog getTaskBacklog() {
+		return taskBacklog;
+	}
+
+	public FlowMetrics getMetrics() {
+		return metrics;
+	}
+
+	public FlowTrace getTrace() {
+		return trace;
+	}
+
+	public void setTrace(FlowTrace trace) {
+		this.trace = trace;
+	}
+
 	public void pause(String nodeId,String event,String key,Object value){}
 
 	public void resume(){}
@@ -0,0 +1,82 @@
+package org.spiderflow.context;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.spiderflow.model.SpiderNode;
+
+/**
+ * 单次运行中各节点已创建但未执行完毕的任务数(排队深度),用于背压控制及定位瓶颈
+ * @author jmxd
+ *
+ */
+public class TaskBacklog {
+
+	/**
+	 * 节点ID -> 排队任务数
+	 */
+	private final Map<String, AtomicInteger> depths = new ConcurrentHashMap<>();
+
+	/**
+	 * 节点ID -> 节点名称
+	 */
+	private final Map<String, String> names = new ConcurrentHashMap<>();
+
+	private final AtomicInteger total = new AtomicInteger();
+
+	/**
+	 * 节点任务创建时调用
+	 */
+	public void increment(SpiderNode node) {
+		depths.computeIfAbsent(node.getNodeId(), key -> {
+			if (node.getNodeName() != null) {
+				names.put(key, node.getNodeName());
+			}
+			return new AtomicInteger();
+		}).incrementAndGet();
+		total.incrementAndGet();
+	}
+
+	/**
+	 * 节点任务执行完毕时调用
+	 */
+	public void decrement(SpiderNode node) {
+		AtomicInteger depth = depths.get(node.getNodeId());
+		if (depth != null) {
+			depth.decrementAndGet();
+			total.decrementAndGet();
+		}
+	}
+
+	/**
+	 * 获取节点的排队任务数
+	 */
+	public int getDepth(SpiderNode node) {
+		AtomicInteger depth = depths.get(node.getNodeId());
+		return depth == null ? 0 : depth.get();
+	}
+
+	/**
+	 * 获取全部排队任务数
+	 */
+	public int getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * 获取各节点的排队任务数(节点名称为空时使用节点ID),不包括没有排队任务的节点
+	 */
+	public Map<String, Integer> getDepths() {
+		Map<String, Integer> result = new LinkedHashMap<>();
+		depths.forEach((nodeId, depth) -> {
+			int value = depth.get();
+			if (value > 0) {
+				result.put(names.getOrDefault(nodeId, nodeId), value);
+			}
+		});
+		return Collections.unmodifiableMap(result);
+	}
+}
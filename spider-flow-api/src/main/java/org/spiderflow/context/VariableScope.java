@@ -0,0 +1,272 @@
+package org.spiderflow.context;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Elements;
+import org.spiderflow.io.SpiderResponse;
+
+/**
+ * 分层的变量作用域
+ * 读取时先查找本层,找不到再查找上一层;写入只发生在本层,不会修改上一层的变量,
+ * 因此创建子作用域时无需复制上一层的全部变量
+ * 子作用域引用的是上一层的只读快照,上一层之后的写入不会影响已创建的子作用域,
+ * 并行的分支共用上一层时也不存在并发修改
+ * 作用域还记录自分支开始以来写入过的变量名,Join节点只合并各分支自己修改的变量
+ * @author jmxd
+ *
+ */
+public class VariableScope extends AbstractMap<String, Object> {
+
+	/**
+	 * 层数超过该值时,将上层变量合并为一层,避免查找链过长、长期引用祖先层的变量
+	 */
+	private static final int MAX_DEPTH = 4;
+
+	/**
+	 * 标记本层中被删除的变量
+	 */
+	private static final Object REMOVED = new Object();
+
+	private final Map<String, Object> parent;
+
+	private Map<String, Object> local;
+
+	private final int depth;
+
+	/**
+	 * 是否为只读快照
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * 本层覆盖或删除了上一层的大对象(resp、Document等),创建子作用域时合并各层,释放被覆盖的对象
+	 */
+	private boolean shadowsHeavy;
+
+	/**
+	 * 提供给子作用域的只读快照,与本层共用local,本层再次写入时先复制local
+	 */
+	private VariableScope snapshot;
+
+	/**
+	 * 只读快照合并后的变量,多个子作用域共用
+	 */
+	private Map<String, Object> flattened;
+
+	/**
+	 * 自分支开始以来写入过的变量名,与上一层共用,写入时复制
+	 */
+	private Set<String> changes = Collections.emptySet();
+
+	/**
+	 * changes是否为本层独有(未与上一层或快照共用)
+	 */
+	private boolean ownsChanges;
+
+	public VariableScope(Map<String, Object> parent) {
+		if (parent instanceof VariableScope) {
+			VariableScope layer = ((VariableScope) parent).share();
+			this.changes = layer.changes;
+			parent = layer.depth >= MAX_DEPTH || layer.shadowsHeavy ? layer.flattened() : layer;
+		}
+		this.parent = parent == null ? Collections.emptyMap() : parent;
+		this.local = new HashMap<>();
+		this.depth = parent instanceof VariableScope ? ((VariableScope) parent).depth + 1 : 1;
+		this.readOnly = false;
+	}
+
+	public VariableScope() {
+		this(null);
+	}
+
+	private VariableScope(VariableScope source, Map<String, Object> local, boolean readOnly) {
+		this.parent = source.parent;
+		this.local = local;
+		this.depth = source.depth;
+		this.shadowsHeavy = source.shadowsHeavy;
+		this.changes = source.changes;
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * 复制当前作用域,共享上一层,只复制本层变量
+	 */
+	public synchronized VariableScope copy() {
+		ownsChanges = false;
+		return new VariableScope(this, new HashMap<>(local), false);
+	}
+
+	/**
+	 * 标记分支开始,之后只记录本层及子作用域写入的变量
+	 */
+	public synchronized void markBranch() {
+		changes = new HashSet<>();
+		ownsChanges = true;
+	}
+
+	/**
+	 * 自分支开始以来修改过的变量(含子作用域继承的修改),被删除的变量不包含在内
+	 */
+	public Map<String, Object> getChangedVariables() {
+		Map<String, Object> result = new HashMap<>();
+		for (String key : changes) {
+			if (containsKey(key)) {
+				result.put(key, get(key));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Object get(Object key) {
+		Object value = local.get(key);
+		if (value == REMOVED) {
+			return null;
+		}
+		if (value != null || local.containsKey(key)) {
+			return value;
+		}
+		return parent.get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Object value = local.get(key);
+		if (value == REMOVED) {
+			return false;
+		}
+		return value != null || local.containsKey(key) || parent.containsKey(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		beforeWrite();
+		recordChange(key);
+		Object old = get(key);
+		if (!shadowsHeavy && !local.containsKey(key) && isHeavy(parent.get(key))) {
+			shadowsHeavy = true;
+		}
+		local.put(key, value);
+		return old;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		beforeWrite();
+		recordChange((String) key);
+		Object old = get(key);
+		if (parent.containsKey(key)) {
+			if (!shadowsHeavy && !local.containsKey(key) && isHeavy(parent.get(key))) {
+				shadowsHeavy = true;
+			}
+			local.put((String) key, REMOVED);
+		} else {
+			local.remove(key);
+		}
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		beforeWrite();
+		local.clear();
+		for (String key : parent.keySet()) {
+			local.put(key, REMOVED);
+			recordChange(key);
+		}
+		shadowsHeavy = true;
+	}
+
+	@Override
+	public int size() {
+		return flatten().size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return flatten().isEmpty();
+	}
+
+	/**
+	 * 返回合并后所有变量的只读视图
+	 */
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return Collections.unmodifiableMap(flatten()).entrySet();
+	}
+
+	/**
+	 * 获取提供给子作用域的只读快照
+	 */
+	private synchronized VariableScope share() {
+		if (readOnly) {
+			return this;
+		}
+		if (snapshot == null) {
+			snapshot = new VariableScope(this, local, true);
+			ownsChanges = false;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 写入前检查,本层已被快照共用时先复制,快照保持不变
+	 */
+	private synchronized void beforeWrite() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("上一层的变量作用域是只读的");
+		}
+		if (snapshot != null) {
+			local = new HashMap<>(local);
+			snapshot = null;
+		}
+	}
+
+	private void recordChange(String key) {
+		if (!changes.contains(key)) {
+			if (!ownsChanges) {
+				changes = new HashSet<>(changes);
+				ownsChanges = true;
+			}
+			changes.add(key);
+		}
+	}
+
+	/**
+	 * 只读快照合并后的变量,只合并一次
+	 */
+	private synchronized Map<String, Object> flattened() {
+		if (flattened == null) {
+			flattened = Collections.unmodifiableMap(flatten());
+		}
+		return flattened;
+	}
+
+	/**
+	 * 合并各层变量
+	 */
+	private Map<String, Object> flatten() {
+		Map<String, Object> result = new HashMap<>(parent);
+		for (Entry<String, Object> entry : local.entrySet()) {
+			if (entry.getValue() == REMOVED) {
+				result.remove(entry.getKey());
+			} else {
+				result.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 是否为占用内存较多、被覆盖后应尽快释放的变量
+	 */
+	private static boolean isHeavy(Object value) {
+		return value instanceof SpiderResponse || value instanceof Node || value instanceof Elements;
+	}
+}
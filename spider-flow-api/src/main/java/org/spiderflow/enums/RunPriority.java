@@ -0,0 +1,44 @@
+package org.spiderflow.enums;
+
+/**
+ * 流程运行的优先级
+ * 排队时优先级高的先运行,同时运行时按权重分配总线程数
+ *
+ * @author jmxd
+ */
+public enum RunPriority {
+	/**
+	 * 高
+	 */
+	high(4),
+	/**
+	 * 普通
+	 */
+	normal(2),
+	/**
+	 * 低
+	 */
+	low(1);
+
+	private final int weight;
+
+	RunPriority(int weight) {
+		this.weight = weight;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * 按名称获取优先级,未配置或不正确时为普通
+	 */
+	public static RunPriority of(String name) {
+		for (RunPriority priority : values()) {
+			if (priority.name().equalsIgnoreCase(name)) {
+				return priority;
+			}
+		}
+		return normal;
+	}
+}
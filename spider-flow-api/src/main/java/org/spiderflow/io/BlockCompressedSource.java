@@ -0,0 +1,175 @@
+package org.spiderflow.io;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 分块压缩的日志文件
+ * 每块是一个独立的gzip member(整个文件仍可用gzip/zcat直接解压)，
+ * 旁边的.gzi索引记录每块的压缩位置，读取时只解压需要的块
+ *
+ * @author jmxd
+ */
+public class BlockCompressedSource implements LogSource {
+
+	private static final int MAGIC = 0x53464749;
+
+	/**
+	 * 默认每块未压缩大小
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	/**
+	 * 缓存的已解压块数量(倒序读取时会在相邻块之间来回切换)
+	 */
+	private static final int CACHED_BLOCKS = 4;
+
+	private final RandomAccessFile raf;
+
+	private final int blockSize;
+
+	private final long length;
+
+	/**
+	 * 每块的压缩起始位置，最后一项为压缩文件长度
+	 */
+	private final long[] offsets;
+
+	private final int[] cachedIndex = new int[CACHED_BLOCKS];
+
+	private final byte[][] cachedData = new byte[CACHED_BLOCKS][];
+
+	private int cacheCursor;
+
+	public BlockCompressedSource(File file) throws IOException {
+		this(file, indexFile(file));
+	}
+
+	public BlockCompressedSource(File file, File indexFile) throws IOException {
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (dis.readInt() != MAGIC) {
+				throw new IOException("invalid block index:" + indexFile);
+			}
+			this.blockSize = dis.readInt();
+			this.length = dis.readLong();
+			int count = dis.readInt();
+			this.offsets = new long[count + 1];
+			for (int i = 0; i < count; i++) {
+				offsets[i] = dis.readLong();
+			}
+		}
+		this.raf = new RandomAccessFile(file, "r");
+		this.offsets[offsets.length - 1] = raf.length();
+		for (int i = 0; i < CACHED_BLOCKS; i++) {
+			cachedIndex[i] = -1;
+		}
+	}
+
+	/**
+	 * 获取压缩文件对应的索引文件
+	 */
+	public static File indexFile(File file) {
+		return new File(file.getParentFile(), file.getName() + "i");
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public byte get(long position) {
+		int block = (int) (position / blockSize);
+		return block(block)[(int) (position - (long) block * blockSize)];
+	}
+
+	private byte[] block(int block) {
+		for (int i = 0; i < CACHED_BLOCKS; i++) {
+			if (cachedIndex[i] == block) {
+				return cachedData[i];
+			}
+		}
+		byte[] data;
+		try {
+			byte[] compressed = new byte[(int) (offsets[block + 1] - offsets[block])];
+			raf.seek(offsets[block]);
+			raf.readFully(compressed);
+			data = new byte[(int) Math.min(blockSize, length - (long) block * blockSize)];
+			try (DataInputStream dis = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)))) {
+				dis.readFully(data);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("读取压缩日志出错", e);
+		}
+		cacheCursor = (cacheCursor + 1) % CACHED_BLOCKS;
+		cachedIndex[cacheCursor] = block;
+		cachedData[cacheCursor] = data;
+		return data;
+	}
+
+	/**
+	 * 把未压缩文件按块压缩为target，并写入索引，先写临时文件再替换
+	 */
+	public static void compress(File source, File target, int blockSize) throws IOException {
+		File index = indexFile(target);
+		File tempTarget = new File(target.getParentFile(), target.getName() + ".tmp");
+		File tempIndex = new File(index.getParentFile(), index.getName() + ".tmp");
+		long total = 0;
+		long[] offsets = new long[16];
+		int count = 0;
+		byte[] buf = new byte[blockSize];
+		try (InputStream is = new BufferedInputStream(new FileInputStream(source));
+			 OutputStream os = new BufferedOutputStream(new FileOutputStream(tempTarget))) {
+			ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize / 4);
+			long compressedOffset = 0;
+			int len;
+			while ((len = readFully(is, buf)) > 0) {
+				block.reset();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(block) {
+					{
+						def.setLevel(Deflater.BEST_SPEED);
+					}
+				}) {
+					gzip.write(buf, 0, len);
+				}
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = compressedOffset;
+				block.writeTo(os);
+				compressedOffset += block.size();
+				total += len;
+			}
+		}
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempIndex)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(blockSize);
+			dos.writeLong(total);
+			dos.writeInt(count);
+			for (int i = 0; i < count; i++) {
+				dos.writeLong(offsets[i]);
+			}
+		}
+		Files.move(tempIndex.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		Files.move(tempTarget.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static int readFully(InputStream is, byte[] buf) throws IOException {
+		int count = 0;
+		int len;
+		while (count < buf.length && (len = is.read(buf, count, buf.length - count)) != -1) {
+			count += len;
+		}
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+}
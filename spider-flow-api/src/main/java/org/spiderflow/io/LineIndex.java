@@ -0,0 +1,163 @@
+package org.spiderflow.io;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * 日志文件的稀疏行索引，每隔interval行记录一次行首位置
+ * 索引可持久化到日志文件旁，再次打开时从上次索引的位置继续增量构建
+ *
+ * @author jmxd
+ */
+public class LineIndex {
+
+	private static final int MAGIC = 0x53464C49;
+
+	/**
+	 * 默认每256行记录一个位置
+	 */
+	public static final int DEFAULT_INTERVAL = 256;
+
+	private final int interval;
+
+	/**
+	 * 已索引的字节数(总是位于行结束符之后)
+	 */
+	private long indexedLength;
+
+	/**
+	 * 已索引的行数
+	 */
+	private long lineCount;
+
+	/**
+	 * 第 i*interval 行的起始位置
+	 */
+	private long[] offsets = new long[16];
+
+	private int size;
+
+	public LineIndex(int interval) {
+		this.interval = interval;
+	}
+
+	public long getIndexedLength() {
+		return indexedLength;
+	}
+
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * 获取不大于lineNumber的最近索引行
+	 *
+	 * @return [行号, 起始位置]，无索引时返回null
+	 */
+	public long[] floor(long lineNumber) {
+		if (size == 0 || lineNumber < 0) {
+			return null;
+		}
+		int slot = (int) Math.min(lineNumber / interval, size - 1);
+		return new long[]{(long) slot * interval, offsets[slot]};
+	}
+
+	/**
+	 * 从已索引位置继续扫描至文件末尾，最后一行未结束时不计入索引
+	 *
+	 * @return 是否有新增内容
+	 */
+	boolean update(MappedLogReader reader) {
+		long length = reader.length();
+		if (length <= indexedLength) {
+			return false;
+		}
+		long pos = indexedLength;
+		long count = lineCount;
+		int slots = size;
+		long lineStart = -1;
+		long lastTerminated = indexedLength;
+		for (; pos < length; pos++) {
+			if (MappedLogReader.isCRLF(reader.get(pos))) {
+				if (lineStart >= 0) {
+					lineStart = -1;
+				}
+				lastTerminated = pos + 1;
+			} else if (lineStart < 0) {
+				lineStart = pos;
+				if (count % interval == 0) {
+					if (slots == offsets.length) {
+						offsets = Arrays.copyOf(offsets, slots * 2);
+					}
+					offsets[slots++] = pos;
+				}
+				count++;
+			}
+		}
+		if (lineStart >= 0) {
+			//最后一行尚未写完，回退到该行行首
+			count--;
+			if (count % interval == 0) {
+				slots--;
+			}
+		}
+		boolean changed = lastTerminated != indexedLength;
+		this.indexedLength = lastTerminated;
+		this.lineCount = count;
+		this.size = slots;
+		return changed;
+	}
+
+	/**
+	 * 读取持久化的索引，文件不存在、格式不符或日志被截断时返回null
+	 */
+	public static LineIndex load(File file, long logLength) {
+		if (!file.exists()) {
+			return null;
+		}
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (dis.readInt() != MAGIC) {
+				return null;
+			}
+			LineIndex index = new LineIndex(dis.readInt());
+			index.indexedLength = dis.readLong();
+			index.lineCount = dis.readLong();
+			if (index.indexedLength > logLength) {
+				return null;
+			}
+			int size = dis.readInt();
+			index.offsets = new long[Math.max(size, 16)];
+			for (int i = 0; i < size; i++) {
+				index.offsets[i] = dis.readLong();
+			}
+			index.size = size;
+			return index;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 持久化索引，先写临时文件再替换，避免并发读取到不完整的索引
+	 */
+	public void save(File file) throws IOException {
+		File temp = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+		try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			dos.writeInt(MAGIC);
+			dos.writeInt(interval);
+			dos.writeLong(indexedLength);
+			dos.writeLong(lineCount);
+			dos.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				dos.writeLong(offsets[i]);
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
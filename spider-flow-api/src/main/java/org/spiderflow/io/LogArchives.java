@@ -0,0 +1,92 @@
+package org.spiderflow.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 日志归档文件命名规则：{日志文件名}.{序号}.gz，序号从1开始递增，序号越小越早
+ * 滚动时先把日志文件重命名为{日志文件名}.{序号}(未压缩)，再在后台压缩为.gz，压缩完成前读取未压缩的文件
+ *
+ * @author jmxd
+ */
+public class LogArchives {
+
+	private static final String COMPRESSED_SUFFIX = ".gz";
+
+	private LogArchives() {
+	}
+
+	/**
+	 * 获取日志文件的所有归档文件，按序号升序排列，同一序号已压缩时只返回压缩文件
+	 */
+	public static List<File> list(File logFile) {
+		Map<Integer, File> archives = new TreeMap<>();
+		for (File file : listAll(logFile)) {
+			int sequence = sequence(logFile, file.getName());
+			File exists = archives.get(sequence);
+			if (exists == null || isCompressed(file)) {
+				archives.put(sequence, file);
+			}
+		}
+		return new ArrayList<>(archives.values());
+	}
+
+	/**
+	 * 获取等待压缩的归档文件，按序号升序排列
+	 */
+	public static List<File> listPending(File logFile) {
+		List<File> pending = new ArrayList<>();
+		for (File file : list(logFile)) {
+			if (!isCompressed(file)) {
+				pending.add(file);
+			}
+		}
+		return pending;
+	}
+
+	private static List<File> listAll(File logFile) {
+		File[] files = logFile.getParentFile() == null ? null : logFile.getParentFile().listFiles((dir, name) -> sequence(logFile, name) > 0);
+		List<File> result = new ArrayList<>();
+		if (files != null) {
+			for (File file : files) {
+				result.add(file);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 获取下一个(未压缩的)归档文件
+	 */
+	public static File next(File logFile) {
+		int sequence = 0;
+		for (File file : listAll(logFile)) {
+			sequence = Math.max(sequence, sequence(logFile, file.getName()));
+		}
+		return new File(logFile.getParentFile(), logFile.getName() + "." + (sequence + 1));
+	}
+
+	/**
+	 * 归档文件是否已压缩
+	 */
+	public static boolean isCompressed(File archive) {
+		return archive.getName().endsWith(COMPRESSED_SUFFIX);
+	}
+
+	/**
+	 * 未压缩的归档文件对应的压缩文件
+	 */
+	public static File compressed(File archive) {
+		return isCompressed(archive) ? archive : new File(archive.getParentFile(), archive.getName() + COMPRESSED_SUFFIX);
+	}
+
+	private static int sequence(File logFile, String name) {
+		Matcher matcher = Pattern.compile(Pattern.quote(logFile.getName()) + "\\.(\\d+)(?:\\.gz)?").matcher(name);
+		return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+	}
+}
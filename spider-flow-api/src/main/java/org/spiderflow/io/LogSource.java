@@ -0,0 +1,21 @@
+package org.spiderflow.io;
+
+import java.io.Closeable;
+
+/**
+ * 日志数据源，按字节随机读取
+ *
+ * @author jmxd
+ */
+public interface LogSource extends Closeable {
+
+	/**
+	 * 数据长度(未压缩)
+	 */
+	long length();
+
+	/**
+	 * 读取指定位置的字节
+	 */
+	byte get(long position);
+}
@@ -0,0 +1,105 @@
+package org.spiderflow.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 基于内存映射的未压缩日志文件
+ * 关闭时主动释放映射,否则在Windows下映射被GC回收前文件无法滚动或删除
+ *
+ * @author jmxd
+ */
+public class MappedFileSource implements LogSource {
+
+	/**
+	 * 单个映射段大小
+	 */
+	private static final int SEGMENT_BITS = 30;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	private final RandomAccessFile raf;
+
+	/**
+	 * 关闭后为null,避免访问已释放的映射导致JVM崩溃
+	 */
+	private MappedByteBuffer[] segments;
+
+	private final long length;
+
+	public MappedFileSource(File file) throws IOException {
+		this.raf = new RandomAccessFile(file, "r");
+		this.length = raf.length();
+		FileChannel channel = raf.getChannel();
+		int count = (int) ((length + SEGMENT_MASK) >>> SEGMENT_BITS);
+		this.segments = new MappedByteBuffer[count];
+		try {
+			for (int i = 0; i < count; i++) {
+				long position = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_MASK + 1, length - position));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public byte get(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+	}
+
+	@Override
+	public void close() throws IOException {
+		MappedByteBuffer[] mapped = segments;
+		segments = null;
+		if (mapped != null) {
+			for (MappedByteBuffer buffer : mapped) {
+				unmap(buffer);
+			}
+		}
+		raf.close();
+	}
+
+	/**
+	 * 主动释放映射(JDK8使用DirectBuffer的cleaner,JDK9及以上使用Unsafe.invokeCleaner),无法释放时由GC回收
+	 * 释放后不能再访问该映射
+	 */
+	public static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (NoSuchMethodException e) {
+			//JDK8没有invokeCleaner
+		} catch (Exception e) {
+			return;
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception ignored) {
+		}
+	}
+}
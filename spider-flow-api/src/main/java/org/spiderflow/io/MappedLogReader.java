@@ -0,0 +1,282 @@
+package org.spiderflow.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 日志读取器
+ * 把已归档的分块压缩文件与当前(内存映射的)日志文件按顺序拼接为一个连续的字节序列，
+ * 按字节搜索关键词，并通过持久化的稀疏行索引按行号定位
+ *
+ * @author jmxd
+ */
+public class MappedLogReader implements Closeable {
+
+	private final List<LogSource> sources = new ArrayList<>();
+
+	/**
+	 * 每个数据源的起始位置，最后一项为总长度
+	 */
+	private final long[] starts;
+
+	private final long length;
+
+	private final Charset charset;
+
+	private final File indexFile;
+
+	private LineIndex lineIndex;
+
+	private LogSource current;
+
+	private long currentStart;
+
+	private long currentEnd = -1;
+
+	public MappedLogReader(File file) throws IOException {
+		this(file, StandardCharsets.UTF_8);
+	}
+
+	public MappedLogReader(File file, Charset charset) throws IOException {
+		this.charset = charset;
+		this.indexFile = new File(file.getParentFile(), file.getName() + ".idx");
+		try {
+			for (File archive : LogArchives.list(file)) {
+				sources.add(open(archive));
+			}
+			if (file.exists()) {
+				sources.add(new MappedFileSource(file));
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		this.starts = new long[sources.size() + 1];
+		for (int i = 0; i < sources.size(); i++) {
+			starts[i + 1] = starts[i] + sources.get(i).length();
+		}
+		this.length = starts[sources.size()];
+	}
+
+	/**
+	 * 打开归档文件,未压缩的文件在列出后可能已压缩完成并被删除,此时读取压缩文件
+	 */
+	private static LogSource open(File archive) throws IOException {
+		if (!LogArchives.isCompressed(archive)) {
+			try {
+				return new MappedFileSource(archive);
+			} catch (FileNotFoundException e) {
+				archive = LogArchives.compressed(archive);
+			}
+		}
+		return new BlockCompressedSource(archive);
+	}
+
+	public long length() {
+		return length;
+	}
+
+	byte get(long position) {
+		if (position < currentStart || position >= currentEnd) {
+			int index = Arrays.binarySearch(starts, position);
+			index = index >= 0 ? index : -index - 2;
+			//跳过长度为0的数据源
+			while (starts[index + 1] <= position) {
+				index++;
+			}
+			current = sources.get(index);
+			currentStart = starts[index];
+			currentEnd = starts[index + 1];
+		}
+		return current.get(position - currentStart);
+	}
+
+	static boolean isCRLF(byte b) {
+		return b == 13 || b == 10;
+	}
+
+	/**
+	 * 从index位置开始读取n行，兼容RandomAccessFileReader的语义
+	 *
+	 * @param index     开始位置，-1表示文件末尾
+	 * @param reversed  是否倒序读取
+	 * @param n         要读取的行数
+	 * @param keywords  搜索的关键词
+	 * @param matchcase 是否区分大小写
+	 * @param regx      是否是正则搜索
+	 */
+	public List<Line> readLine(long index, boolean reversed, int n, String keywords, boolean matchcase, boolean regx) {
+		LinkedList<Line> lines = new LinkedList<>();
+		boolean find = keywords == null || keywords.isEmpty();
+		//与RandomAccessFileReader一致,正则搜索不受matchcase影响,忽略大小写需在正则中使用(?i)
+		Pattern pattern = regx && !find ? Pattern.compile(keywords) : null;
+		ByteMatcher matcher = !regx && !find ? new ByteMatcher(keywords.getBytes(charset), matchcase) : null;
+		long position = reversed ? (index < 0 ? length : Math.min(index, length)) : Math.min(Math.max(index, 0), length);
+		while (n > 0) {
+			long from;
+			long to;
+			if (reversed) {
+				to = position;
+				while (to > 0 && isCRLF(get(to - 1))) {
+					to--;
+				}
+				if (to == 0) {
+					break;
+				}
+				from = to;
+				while (from > 0 && !isCRLF(get(from - 1))) {
+					from--;
+				}
+				position = from;
+			} else {
+				from = position;
+				while (from < length && isCRLF(get(from))) {
+					from++;
+				}
+				if (from == length) {
+					break;
+				}
+				to = from;
+				while (to < length && !isCRLF(get(to))) {
+					to++;
+				}
+				position = to;
+			}
+			if (!find) {
+				find = matcher != null ? matcher.find(this, from, to) : pattern.matcher(text(from, to)).find();
+			}
+			if (find) {
+				Line line = new Line(from, text(from, to), to);
+				if (reversed) {
+					lines.addFirst(line);
+				} else {
+					lines.addLast(line);
+				}
+				n--;
+			}
+		}
+		return new ArrayList<>(lines);
+	}
+
+	/**
+	 * 按行号读取，行号从0开始
+	 */
+	public List<Line> readLines(long lineNumber, int n) throws IOException {
+		LineIndex index = index();
+		long[] floor = index.floor(lineNumber);
+		List<Line> lines = new ArrayList<>(n);
+		if (floor == null) {
+			return lines;
+		}
+		long current = floor[0];
+		long position = floor[1];
+		while (position < length && lines.size() < n) {
+			long to = position;
+			while (to < length && !isCRLF(get(to))) {
+				to++;
+			}
+			if (current >= lineNumber) {
+				lines.add(new Line(position, text(position, to), to));
+			}
+			current++;
+			position = to;
+			while (position < length && isCRLF(get(position))) {
+				position++;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * 获取文件总行数(不含未写完的最后一行)
+	 */
+	public long getLineCount() throws IOException {
+		return index().getLineCount();
+	}
+
+	/**
+	 * 获取行索引，增量更新并持久化
+	 */
+	public synchronized LineIndex index() throws IOException {
+		if (lineIndex == null) {
+			lineIndex = LineIndex.load(indexFile, length);
+			if (lineIndex == null) {
+				lineIndex = new LineIndex(LineIndex.DEFAULT_INTERVAL);
+			}
+			if (lineIndex.update(this)) {
+				lineIndex.save(indexFile);
+			}
+		}
+		return lineIndex;
+	}
+
+	private String text(long from, long to) {
+		byte[] buf = new byte[(int) (to - from)];
+		for (int i = 0; i < buf.length; i++) {
+			buf[i] = get(from + i);
+		}
+		return new String(buf, charset);
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (LogSource source : sources) {
+			source.close();
+		}
+	}
+
+	/**
+	 * 字节级关键词匹配(Horspool)，不区分大小写时只折叠ASCII字母
+	 */
+	static class ByteMatcher {
+
+		private final byte[] pattern;
+
+		private final int[] shift = new int[256];
+
+		private final boolean matchcase;
+
+		ByteMatcher(byte[] pattern, boolean matchcase) {
+			this.matchcase = matchcase;
+			this.pattern = new byte[pattern.length];
+			for (int i = 0; i < pattern.length; i++) {
+				this.pattern[i] = fold(pattern[i]);
+			}
+			for (int i = 0; i < 256; i++) {
+				shift[i] = pattern.length;
+			}
+			for (int i = 0; i < pattern.length - 1; i++) {
+				shift[this.pattern[i] & 0xFF] = pattern.length - 1 - i;
+			}
+		}
+
+		private byte fold(byte b) {
+			return !matchcase && b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+		}
+
+		boolean find(MappedLogReader reader, long from, long to) {
+			int m = pattern.length;
+			long i = from;
+			while (i + m <= to) {
+				int j = m - 1;
+				while (j >= 0 && fold(reader.get(i + j)) == pattern[j]) {
+					j--;
+				}
+				if (j < 0) {
+					return true;
+				}
+				i += shift[fold(reader.get(i + m - 1)) & 0xFF];
+			}
+			return false;
+		}
+	}
+}
@@ -3,6 +3,8 @@ package org.spiderflow.io;
 import java.io.InputStream;
 import java.util.Map;
 
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.spiderflow.annotation.Comment;
 import org.spiderflow.annotation.Example;
 
@@ -22,6 +24,12 @@ public interface SpiderResponse {
 	@Example("${resp.html}")
 	String getHtml();
 
+	@Comment("获取解析后的Document,实现类应缓存解析结果")
+	@Example("${resp.document}")
+	default Document getDocument(){
+		return Jsoup.parse(getHtml(),getUrl());
+	}
+
 	@Comment("获取json")
 	@Example("${resp.json}")
 	default Object getJson(){
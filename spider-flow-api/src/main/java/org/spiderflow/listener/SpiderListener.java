@@ -13,5 +13,11 @@ public interface SpiderListener {
 	 * 执行完毕之后
 	 */
 	void afterEnd(SpiderContext context);
+
+	/**
+	 * 保存检查点时(定期及正常关闭时),用于持久化去重等状态,以便恢复执行
+	 */
+	default void checkpoint(SpiderContext context) {
+	}
 	
 }
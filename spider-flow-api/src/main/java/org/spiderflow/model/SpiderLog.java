@@ -29,6 +29,27 @@ public class SpiderLog {
 		this.message = message;
 	}
 
+	/**
+	 * 直接从日志参数构建，只复制一次参数
+	 */
+	public SpiderLog(String level, String message, Object[] arguments, Throwable throwable) {
+		int size = (arguments == null ? 0 : arguments.length) + (throwable == null ? 0 : 1);
+		if(size > 0){
+			List<Object> nVariables = new ArrayList<>(size);
+			if(arguments != null){
+				for (Object object : arguments) {
+					nVariables.add(object instanceof Throwable ? ExceptionUtils.getStackTrace((Throwable) object) : object);
+				}
+			}
+			if(throwable != null){
+				nVariables.add(ExceptionUtils.getStackTrace(throwable));
+			}
+			this.variables = nVariables;
+		}
+		this.level = level;
+		this.message = message;
+	}
+
 	public String getLevel() {
 		return level;
 	}
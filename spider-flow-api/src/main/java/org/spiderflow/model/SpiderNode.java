@@ -1,9 +1,9 @@
 package org.spiderflow.model;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.text.StringEscapeUtils;
 
 import com.alibaba.fastjson.JSONArray;
@@ -48,6 +48,11 @@ public class SpiderNode {
 	 * 传递变量
 	 */
 	private Map<String,String> transmitVariable = new HashMap<>();
+
+	/**
+	 * 排队上限,上一级节点产生的本节点任务达到上限时暂停上一级
+	 */
+	private Map<String,String> queueLimit = new HashMap<>();
 	/**
 	 * 节点名称
 	 */
@@ -58,9 +63,9 @@ public class SpiderNode {
 	private String nodeId;
 
 	/**
-	 * 计数器,用来计算当前节点执行中的个数
+	 * 需要等待本节点执行完毕的Join节点ID(包括本节点自身),加载流程图时计算
 	 */
-	private AtomicInteger counter = new AtomicInteger();
+	private List<String> joinNodeIds = new ArrayList<>();
 
 	public String getNodeId() {
 		return nodeId;
@@ -119,6 +124,10 @@ public class SpiderNode {
 		}
 		return result;
 	}
+	public Map<String, Object> getJsonProperty() {
+		return jsonProperty;
+	}
+
 	public void setJsonProperty(Map<String, Object> jsonProperty) {
 		this.jsonProperty = jsonProperty;
 	}
@@ -141,6 +150,14 @@ public class SpiderNode {
 		this.transmitVariable.put(fromNodeId,value);
 	}
 
+	public int getQueueLimit(String fromNodeId) {
+		return NumberUtils.toInt(queueLimit.get(fromNodeId), 0);
+	}
+
+	public void setQueueLimit(String fromNodeId,String value){
+		this.queueLimit.put(fromNodeId,value);
+	}
+
 	public void setExceptionFlow(String fromNodeId,String value){
 		this.exception.put(fromNodeId,value);
 	}
@@ -157,21 +174,28 @@ public class SpiderNode {
 		this.condition.put(fromNodeId, condition);
 	}
 
-	public void increment(){
-		counter.incrementAndGet();
+	public List<String> getJoinNodeIds() {
+		return joinNodeIds;
 	}
 
-	public void decrement(){
-		counter.decrementAndGet();
+	public void addJoinNodeId(String joinNodeId) {
+		this.joinNodeIds.add(joinNodeId);
 	}
 
 	public boolean hasLeftNode(String nodeId){
+		return getParentNodes().contains(nodeId);
+	}
+
+	/**
+	 * 获取所有上级节点ID
+	 */
+	public Set<String> getParentNodes(){
 		if(parentNodes == null){
 			Set<String> parents = new HashSet<>();
 			generateParents(parents);
 			this.parentNodes = parents;
 		}
-		return this.parentNodes.contains(nodeId);
+		return this.parentNodes;
 	}
 
 	private void generateParents(Set<String> parents){
@@ -182,21 +206,6 @@ public class SpiderNode {
 		}
 	}
 
-	public boolean isDone(){
-		return isDone(new HashSet<>());
-	}
-	public boolean isDone(Set<String> visited){
-		if(this.counter.get() == 0){
-			for (SpiderNode prevNode : prevNodes) {
-				if(visited.add(nodeId)&&!prevNode.isDone(visited)){
-					return false;
-				}
-			}
-			return true;
-		}
-		return false;
-	}
-
 	@Override
 	public String toString() {
 		return "SpiderNode [jsonProperty=" + jsonProperty + ", nextNodes=" + nextNodes + ", condition=" + condition
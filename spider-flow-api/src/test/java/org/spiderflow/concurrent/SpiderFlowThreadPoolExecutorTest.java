@@ -0,0 +1,73 @@
+package org.spiderflow.concurrent;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor.SubThreadPoolExecutor;
+
+public class SpiderFlowThreadPoolExecutorTest {
+
+	@Test
+	public void singlePoolGetsItsThreads() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(10);
+		SubThreadPoolExecutor sub = create(executor, 4, 1);
+		assertEquals(4, sub.getThreads());
+		assertEquals(4, sub.getLimit());
+		//线程池大小不超过总线程数
+		assertEquals(10, create(executor, 20, 1).getThreads());
+	}
+
+	@Test
+	public void equalWeightsShareEvenly() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(10);
+		SubThreadPoolExecutor first = create(executor, 10, 1);
+		assertEquals(10, first.getLimit());
+		SubThreadPoolExecutor second = create(executor, 10, 1);
+		assertEquals(5, first.getLimit());
+		assertEquals(5, second.getLimit());
+	}
+
+	@Test
+	public void sharesFollowWeights() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(10);
+		SubThreadPoolExecutor high = create(executor, 10, 3);
+		SubThreadPoolExecutor low = create(executor, 10, 1);
+		assertEquals(7, high.getLimit());
+		assertEquals(2, low.getLimit());
+	}
+
+	@Test
+	public void smallDemandIsSatisfiedFirst() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(10);
+		SubThreadPoolExecutor small = create(executor, 2, 1);
+		SubThreadPoolExecutor large = create(executor, 10, 1);
+		assertEquals(2, small.getLimit());
+		//剩余线程全部分给需求大的子线程池
+		assertEquals(8, large.getLimit());
+	}
+
+	@Test
+	public void terminationReturnsShare() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(10);
+		SubThreadPoolExecutor first = create(executor, 10, 1);
+		SubThreadPoolExecutor second = create(executor, 10, 1);
+		assertEquals(5, second.getLimit());
+		first.awaitTermination();
+		assertEquals(10, second.getLimit());
+	}
+
+	@Test
+	public void everyPoolGetsAtLeastOneThread() {
+		SpiderFlowThreadPoolExecutor executor = new SpiderFlowThreadPoolExecutor(2);
+		SubThreadPoolExecutor first = create(executor, 5, 1);
+		SubThreadPoolExecutor second = create(executor, 5, 1);
+		SubThreadPoolExecutor third = create(executor, 5, 1);
+		assertEquals(1, first.getLimit());
+		assertEquals(1, second.getLimit());
+		assertEquals(1, third.getLimit());
+	}
+
+	private static SubThreadPoolExecutor create(SpiderFlowThreadPoolExecutor executor, int threads, int weight) {
+		return executor.createSubThreadPoolExecutor(threads, new LinkedThreadSubmitStrategy(), weight);
+	}
+}
@@ -0,0 +1,117 @@
+package org.spiderflow.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.spiderflow.model.SpiderNode;
+
+public class ForkJoinContextTest {
+
+	@Test
+	public void joinIsDoneWhenAllUpstreamTasksComplete() {
+		SpiderNode join = join("join");
+		SpiderNode left = node("left", join);
+		SpiderNode right = node("right", join);
+		ForkJoinContext context = new ForkJoinContext();
+		assertTrue(context.isDone(join));
+
+		context.increment(left);
+		context.increment(right);
+		assertFalse(context.isDone(join));
+		context.decrement(left);
+		assertFalse(context.isDone(join));
+		context.decrement(right);
+		assertTrue(context.isDone(join));
+	}
+
+	@Test
+	public void nodeCountsForEveryDownstreamJoin() {
+		SpiderNode inner = join("inner");
+		SpiderNode outer = join("outer");
+		SpiderNode task = node("task", inner, outer);
+		SpiderNode other = node("other", outer);
+		ForkJoinContext context = new ForkJoinContext();
+		context.increment(task);
+		context.increment(other);
+		context.decrement(task);
+		assertTrue(context.isDone(inner));
+		assertFalse(context.isDone(outer));
+	}
+
+	@Test
+	public void decrementWithoutIncrementIsIgnored() {
+		SpiderNode join = join("join");
+		SpiderNode task = node("task", join);
+		ForkJoinContext context = new ForkJoinContext();
+		context.decrement(task);
+		assertTrue(context.isDone(join));
+	}
+
+	@Test
+	public void instancesAreIndependent() {
+		SpiderNode join = join("join");
+		SpiderNode task = node("task", join);
+		ForkJoinContext first = new ForkJoinContext();
+		ForkJoinContext second = new ForkJoinContext();
+		first.increment(task);
+		first.getVariables("join").put("a", 1);
+		assertFalse(first.isDone(join));
+		assertTrue(second.isDone(join));
+		assertTrue(second.getVariables("join").isEmpty());
+	}
+
+	@Test
+	public void variablesAreRemovedAndCleared() {
+		SpiderNode join = join("join");
+		SpiderNode task = node("task", join);
+		ForkJoinContext context = new ForkJoinContext();
+		context.getVariables("join").put("a", 1);
+		assertEquals(1, context.removeVariables("join").get("a"));
+		assertNull(context.removeVariables("join"));
+
+		context.increment(task);
+		context.getVariables("join").put("a", 1);
+		context.clear();
+		assertTrue(context.isDone(join));
+		assertTrue(context.getVariables().isEmpty());
+	}
+
+	@Test
+	public void currentFallsBackToRunState() {
+		SpiderContext spiderContext = new SpiderContext();
+		assertSame(spiderContext.getForkJoinContext(), ForkJoinContext.current(spiderContext));
+		ForkJoinContext invocation = new ForkJoinContext();
+		ForkJoinContext.setCurrent(invocation);
+		try {
+			assertSame(invocation, ForkJoinContext.current(spiderContext));
+		} finally {
+			ForkJoinContext.setCurrent(null);
+		}
+		assertSame(spiderContext.getForkJoinContext(), ForkJoinContext.current(spiderContext));
+	}
+
+	/**
+	 * 创建Join节点,Join节点自身也计入计数
+	 */
+	private static SpiderNode join(String nodeId) {
+		SpiderNode node = node(nodeId);
+		node.addJoinNodeId(nodeId);
+		return node;
+	}
+
+	/**
+	 * 创建节点,joinNodes为该节点之后的Join节点
+	 */
+	private static SpiderNode node(String nodeId, SpiderNode... joinNodes) {
+		SpiderNode node = new SpiderNode();
+		node.setNodeId(nodeId);
+		for (SpiderNode joinNode : joinNodes) {
+			node.addJoinNodeId(joinNode.getNodeId());
+		}
+		return node;
+	}
+}
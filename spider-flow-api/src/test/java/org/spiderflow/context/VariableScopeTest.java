@@ -0,0 +1,165 @@
+package org.spiderflow.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+public class VariableScopeTest {
+
+	@Test
+	public void readsFallBackToParent() {
+		Map<String, Object> root = new HashMap<>();
+		root.put("a", 1);
+		VariableScope scope = new VariableScope(root);
+		scope.put("b", 2);
+		assertEquals(1, scope.get("a"));
+		assertEquals(2, scope.get("b"));
+		assertEquals(2, scope.size());
+		assertFalse(root.containsKey("b"));
+	}
+
+	@Test
+	public void writesDoNotLeakIntoParent() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope child = new VariableScope(parent);
+		child.put("a", 2);
+		assertEquals(2, child.get("a"));
+		assertEquals(1, parent.get("a"));
+	}
+
+	@Test
+	public void childSeesSnapshotOfParent() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope child = new VariableScope(parent);
+		//子作用域创建后上一层的写入不影响子作用域
+		parent.put("a", 2);
+		parent.put("b", 3);
+		assertEquals(1, child.get("a"));
+		assertFalse(child.containsKey("b"));
+		assertEquals(2, parent.get("a"));
+	}
+
+	@Test
+	public void removeHidesParentVariable() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		parent.put("b", 2);
+		VariableScope child = new VariableScope(parent);
+		assertEquals(1, child.remove("a"));
+		assertFalse(child.containsKey("a"));
+		assertNull(child.get("a"));
+		assertEquals(1, child.size());
+		assertTrue(parent.containsKey("a"));
+	}
+
+	@Test
+	public void nullValuesAreKept() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope child = new VariableScope(parent);
+		child.put("a", null);
+		assertTrue(child.containsKey("a"));
+		assertNull(child.get("a"));
+	}
+
+	@Test
+	public void clearHidesAllVariables() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope child = new VariableScope(parent);
+		child.put("b", 2);
+		child.clear();
+		assertTrue(child.isEmpty());
+		assertEquals(1, parent.get("a"));
+	}
+
+	@Test
+	public void deepChainKeepsAllVariables() {
+		VariableScope scope = new VariableScope();
+		for (int i = 0; i < 20; i++) {
+			scope.put("v" + i, i);
+			scope = new VariableScope(scope);
+		}
+		scope.put("v0", "last");
+		assertEquals(20, scope.size());
+		assertEquals("last", scope.get("v0"));
+		assertEquals(19, scope.get("v19"));
+	}
+
+	@Test
+	public void shadowedDocumentIsNotVisible() {
+		Document document = Jsoup.parse("<p>a</p>");
+		VariableScope parent = new VariableScope();
+		parent.put("resp", document);
+		VariableScope child = new VariableScope(parent);
+		child.put("resp", "text");
+		VariableScope grandChild = new VariableScope(child);
+		assertEquals("text", grandChild.get("resp"));
+		assertEquals(document, parent.get("resp"));
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope scope = new VariableScope(parent);
+		scope.put("b", 2);
+		VariableScope copy = scope.copy();
+		copy.put("b", 3);
+		scope.put("c", 4);
+		assertEquals(2, scope.get("b"));
+		assertEquals(3, copy.get("b"));
+		assertFalse(copy.containsKey("c"));
+		assertEquals(1, copy.get("a"));
+	}
+
+	@Test
+	public void changedVariablesArePerBranch() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope left = new VariableScope(parent);
+		left.markBranch();
+		VariableScope right = new VariableScope(parent);
+		right.markBranch();
+		left.put("x", 1);
+		VariableScope leftChild = new VariableScope(left);
+		leftChild.put("y", 2);
+		right.put("z", 3);
+
+		Map<String, Object> changed = leftChild.getChangedVariables();
+		assertEquals(2, changed.size());
+		assertEquals(1, changed.get("x"));
+		assertEquals(2, changed.get("y"));
+		//子作用域的修改不影响上一层记录的修改
+		assertEquals(1, left.getChangedVariables().size());
+		assertEquals(1, right.getChangedVariables().size());
+		assertEquals(3, right.getChangedVariables().get("z"));
+	}
+
+	@Test
+	public void removedVariablesAreNotChanged() {
+		VariableScope parent = new VariableScope();
+		parent.put("a", 1);
+		VariableScope branch = new VariableScope(parent);
+		branch.markBranch();
+		branch.remove("a");
+		assertTrue(branch.getChangedVariables().isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void entrySetIsReadOnly() {
+		VariableScope scope = new VariableScope();
+		scope.put("a", 1);
+		scope.entrySet().clear();
+	}
+}
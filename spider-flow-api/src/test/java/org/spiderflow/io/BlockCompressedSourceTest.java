@@ -0,0 +1,104 @@
+package org.spiderflow.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlockCompressedSourceTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void randomAccessMatchesSource() throws IOException {
+		byte[] data = randomText(10000);
+		File target = compress(data, 1000);
+		try (BlockCompressedSource source = new BlockCompressedSource(target)) {
+			assertEquals(data.length, source.length());
+			Random random = new Random(1);
+			for (int i = 0; i < 2000; i++) {
+				int position = random.nextInt(data.length);
+				assertEquals(data[position], source.get(position));
+			}
+			//倒序读取时在相邻块之间切换
+			for (int position = data.length - 1; position >= 0; position--) {
+				assertEquals(data[position], source.get(position));
+			}
+		}
+	}
+
+	@Test
+	public void partialLastBlock() throws IOException {
+		byte[] data = randomText(2500);
+		File target = compress(data, 1000);
+		try (BlockCompressedSource source = new BlockCompressedSource(target)) {
+			assertEquals(2500, source.length());
+			assertEquals(data[999], source.get(999));
+			assertEquals(data[1000], source.get(1000));
+			assertEquals(data[2499], source.get(2499));
+		}
+	}
+
+	@Test
+	public void emptySource() throws IOException {
+		File target = compress(new byte[0], 1000);
+		try (BlockCompressedSource source = new BlockCompressedSource(target)) {
+			assertEquals(0, source.length());
+		}
+	}
+
+	@Test
+	public void wholeFileIsPlainGzip() throws IOException {
+		byte[] data = randomText(5000);
+		File target = compress(data, 1000);
+		//每块是独立的gzip member,整个文件可直接解压
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		try (InputStream is = new GZIPInputStream(new FileInputStream(target))) {
+			byte[] buf = new byte[4096];
+			int len;
+			while ((len = is.read(buf)) != -1) {
+				output.write(buf, 0, len);
+			}
+		}
+		assertArrayEquals(data, output.toByteArray());
+	}
+
+	@Test
+	public void noTemporaryFilesAreLeft() throws IOException {
+		File target = compress(randomText(100), 1000);
+		assertTrue(BlockCompressedSource.indexFile(target).exists());
+		assertFalse(new File(folder.getRoot(), target.getName() + ".tmp").exists());
+		assertFalse(new File(folder.getRoot(), BlockCompressedSource.indexFile(target).getName() + ".tmp").exists());
+	}
+
+	private File compress(byte[] data, int blockSize) throws IOException {
+		File source = folder.newFile("test.log.1");
+		Files.write(source.toPath(), data);
+		File target = LogArchives.compressed(source);
+		BlockCompressedSource.compress(source, target, blockSize);
+		return target;
+	}
+
+	private static byte[] randomText(int length) {
+		Random random = new Random(length);
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i % 80 == 79 ? '\n' : 'a' + random.nextInt(26));
+		}
+		return data;
+	}
+}
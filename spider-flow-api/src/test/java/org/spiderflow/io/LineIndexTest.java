@@ -0,0 +1,115 @@
+package org.spiderflow.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LineIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void indexesEveryIntervalLines() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 10));
+		LineIndex index = new LineIndex(4);
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			assertTrue(index.update(reader));
+		}
+		assertEquals(10, index.getLineCount());
+		assertEquals(log.length(), index.getIndexedLength());
+		assertArrayEquals(new long[]{0, 0}, index.floor(3));
+		assertArrayEquals(new long[]{4, offset(4)}, index.floor(5));
+		assertArrayEquals(new long[]{8, offset(8)}, index.floor(100));
+		assertNull(index.floor(-1));
+	}
+
+	@Test
+	public void unterminatedLastLineIsNotIndexed() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 4) + "line 4");
+		LineIndex index = new LineIndex(4);
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			index.update(reader);
+		}
+		assertEquals(4, index.getLineCount());
+		assertEquals(offset(4), index.getIndexedLength());
+		//最后一行未写完时不记录其位置
+		assertArrayEquals(new long[]{0, 0}, index.floor(4));
+
+		append(log, "\n" + lines(5, 9));
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			assertTrue(index.update(reader));
+			assertFalse(index.update(reader));
+		}
+		assertEquals(9, index.getLineCount());
+		assertArrayEquals(new long[]{8, offset(8)}, index.floor(8));
+	}
+
+	@Test
+	public void saveAndLoad() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 20));
+		LineIndex index = new LineIndex(8);
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			index.update(reader);
+		}
+		File file = new File(folder.getRoot(), "test.log.idx");
+		index.save(file);
+
+		LineIndex loaded = LineIndex.load(file, log.length());
+		assertNotNull(loaded);
+		assertEquals(8, loaded.getInterval());
+		assertEquals(20, loaded.getLineCount());
+		assertEquals(index.getIndexedLength(), loaded.getIndexedLength());
+		assertArrayEquals(index.floor(17), loaded.floor(17));
+	}
+
+	@Test
+	public void loadRejectsTruncatedLog() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 20));
+		LineIndex index = new LineIndex(8);
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			index.update(reader);
+		}
+		File file = new File(folder.getRoot(), "test.log.idx");
+		index.save(file);
+		assertNull(LineIndex.load(file, log.length() - 1));
+		assertNull(LineIndex.load(new File(folder.getRoot(), "missing.idx"), log.length()));
+	}
+
+	static String lines(int from, int to) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = from; i < to; i++) {
+			builder.append("line ").append(i).append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 第lineNumber行的起始位置(行号小于10)
+	 */
+	private static long offset(int lineNumber) {
+		return lineNumber * "line 0\n".length();
+	}
+
+	static void append(File file, String text) throws IOException {
+		try (FileOutputStream fos = new FileOutputStream(file, true)) {
+			fos.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
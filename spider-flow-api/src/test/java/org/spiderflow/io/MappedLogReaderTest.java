@@ -0,0 +1,97 @@
+package org.spiderflow.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.spiderflow.io.LineIndexTest.append;
+import static org.spiderflow.io.LineIndexTest.lines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedLogReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readsForwardAndBackward() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 5));
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			List<Line> first = reader.readLine(0, false, 2, null, false, false);
+			assertEquals(2, first.size());
+			assertEquals("line 0", first.get(0).getText());
+			assertEquals("line 1", first.get(1).getText());
+
+			//从上一次结束的位置继续读取
+			List<Line> next = reader.readLine(first.get(1).getTo(), false, 10, null, false, false);
+			assertEquals(3, next.size());
+			assertEquals("line 2", next.get(0).getText());
+
+			List<Line> last = reader.readLine(-1, true, 2, null, false, false);
+			assertEquals(2, last.size());
+			assertEquals("line 3", last.get(0).getText());
+			assertEquals("line 4", last.get(1).getText());
+		}
+	}
+
+	@Test
+	public void searchesKeywords() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, "INFO start\nERROR failed 1\ninfo running\nerror failed 2\n");
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			//关键词定位到第一个匹配的行,并从该行开始读取
+			List<Line> lines = reader.readLine(0, false, 10, "ERROR", true, false);
+			assertEquals(3, lines.size());
+			assertEquals("ERROR failed 1", lines.get(0).getText());
+			assertEquals("error failed 2", reader.readLine(0, false, 1, "error", true, false).get(0).getText());
+			assertEquals("ERROR failed 1", reader.readLine(0, false, 1, "error", false, false).get(0).getText());
+			assertEquals("error failed 2", reader.readLine(-1, true, 1, "failed \\d", false, true).get(0).getText());
+			assertEquals("info running", reader.readLine(-1, true, 2, "INFO", false, false).get(1).getText());
+			assertEquals(0, reader.readLine(0, false, 10, "missing", false, false).size());
+		}
+	}
+
+	@Test
+	public void readsArchivesBeforeCurrentFile() throws IOException {
+		File log = new File(folder.getRoot(), "test.log");
+		File archive = new File(folder.getRoot(), "test.log.1");
+		append(archive, lines(0, 300));
+		BlockCompressedSource.compress(archive, LogArchives.compressed(archive), 1024);
+		assertTrue(archive.delete());
+		append(new File(folder.getRoot(), "test.log.2"), lines(300, 600));
+		append(log, lines(600, 700));
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			assertEquals(700, reader.getLineCount());
+			List<Line> lines = reader.readLines(298, 4);
+			assertEquals(4, lines.size());
+			assertEquals("line 298", lines.get(0).getText());
+			assertEquals("line 301", lines.get(3).getText());
+			assertEquals("line 699", reader.readLines(699, 10).get(0).getText());
+			assertEquals(0, reader.readLines(700, 10).size());
+			List<Line> found = reader.readLine(-1, true, 1, "line 299", true, false);
+			assertEquals("line 299", found.get(0).getText());
+		}
+	}
+
+	@Test
+	public void persistedIndexIsReused() throws IOException {
+		File log = folder.newFile("test.log");
+		append(log, lines(0, 1000));
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			assertEquals(1000, reader.getLineCount());
+		}
+		assertTrue(new File(folder.getRoot(), "test.log.idx").exists());
+		//追加后从上次索引的位置继续构建
+		append(log, lines(1000, 1100));
+		try (MappedLogReader reader = new MappedLogReader(log)) {
+			assertEquals(1100, reader.getLineCount());
+			assertEquals("line 1050", reader.readLines(1050, 1).get(0).getText());
+		}
+	}
+}
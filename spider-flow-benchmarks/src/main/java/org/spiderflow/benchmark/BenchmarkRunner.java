@@ -0,0 +1,107 @@
+package org.spiderflow.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 运行基准测试,结果以JSON格式输出,指定基线时与基线逐项比较
+ * <pre>
+ * java -jar benchmarks.jar [JMH参数,如 Expression -f 1]
+ *   -Dbenchmark.result=jmh-result.json	结果文件(未通过-rff指定时)
+ *   -Dbenchmark.baseline=baseline.json	基线结果文件
+ *   -Dbenchmark.threshold=10	性能下降超过该百分比时视为退化,存在退化时以状态码1退出
+ * </pre>
+ * @author jmxd
+ *
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		String result = commandLineOptions.getResult().hasValue() ? commandLineOptions.getResult().get() : System.getProperty("benchmark.result", "jmh-result.json");
+		builder.result(result);
+		new Runner(builder.build()).run();
+		String baseline = System.getProperty("benchmark.baseline");
+		if (baseline != null) {
+			double threshold = Double.parseDouble(System.getProperty("benchmark.threshold", "10"));
+			if (compare(new File(baseline), new File(result), threshold) > 0) {
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * 与基线比较,输出各项变化
+	 * @return 退化的项数
+	 */
+	static int compare(File baselineFile, File resultFile, double threshold) throws IOException {
+		Map<String, JSONObject> baseline = load(baselineFile);
+		Map<String, JSONObject> current = load(resultFile);
+		int regressions = 0;
+		System.out.println();
+		System.out.println(String.format("%-80s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+		for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+			JSONObject result = entry.getValue();
+			JSONObject metric = result.getJSONObject("primaryMetric");
+			double score = metric.getDoubleValue("score");
+			String unit = metric.getString("scoreUnit");
+			JSONObject base = baseline.get(entry.getKey());
+			if (base == null) {
+				System.out.println(String.format("%-80s %14s %14.3f %9s %s", entry.getKey(), "-", score, "new", unit));
+				continue;
+			}
+			double baseScore = base.getJSONObject("primaryMetric").getDoubleValue("score");
+			double change = baseScore == 0 ? 0 : (score - baseScore) / baseScore * 100;
+			//吞吐量越大越好,其余模式(耗时)越小越好
+			boolean higherIsBetter = "thrpt".equals(result.getString("mode"));
+			boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.println(String.format("%-80s %14.3f %14.3f %+8.1f%% %s%s", entry.getKey(), baseScore, score, change, unit, regressed ? " [REGRESSION]" : ""));
+		}
+		System.out.println(String.format("%d benchmarks, %d regressions (threshold %.1f%%)", current.size(), regressions, threshold));
+		return regressions;
+	}
+
+	/**
+	 * 读取JMH的JSON结果
+	 * @return benchmark名称(含模式及参数) -> 结果
+	 */
+	private static Map<String, JSONObject> load(File file) throws IOException {
+		JSONArray array = JSON.parseArray(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+		Map<String, JSONObject> results = new LinkedHashMap<>();
+		for (int i = 0; i < array.size(); i++) {
+			JSONObject result = array.getJSONObject(i);
+			StringBuilder key = new StringBuilder(result.getString("benchmark").replace("org.spiderflow.benchmark.", ""));
+			key.append(" (").append(result.getString("mode")).append(")");
+			JSONObject params = result.getJSONObject("params");
+			if (params != null) {
+				new TreeMap<>(params).forEach((name, value) -> key.append(" ").append(name).append("=").append(value));
+			}
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,167 @@
+package org.spiderflow.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.spiderflow.core.executor.function.Base64FunctionExecutor;
+import org.spiderflow.core.executor.function.DateFunctionExecutor;
+import org.spiderflow.core.executor.function.ExtractFunctionExecutor;
+import org.spiderflow.core.executor.function.JsonFunctionExecutor;
+import org.spiderflow.core.executor.function.ListFunctionExecutor;
+import org.spiderflow.core.executor.function.MD5FunctionExecutor;
+import org.spiderflow.core.executor.function.RandomFunctionExecutor;
+import org.spiderflow.core.executor.function.StringFunctionExecutor;
+import org.spiderflow.core.executor.function.UrlFunctionExecutor;
+import org.spiderflow.core.executor.function.extension.ArrayFunctionExtension;
+import org.spiderflow.core.executor.function.extension.DateFunctionExtension;
+import org.spiderflow.core.executor.function.extension.ElementFunctionExtension;
+import org.spiderflow.core.executor.function.extension.ElementsFunctionExtension;
+import org.spiderflow.core.executor.function.extension.ListFunctionExtension;
+import org.spiderflow.core.executor.function.extension.MapFunctionExtension;
+import org.spiderflow.core.executor.function.extension.ObjectFunctionExtension;
+import org.spiderflow.core.executor.function.extension.ResponseFunctionExtension;
+import org.spiderflow.core.executor.function.extension.StringFunctionExtension;
+import org.spiderflow.core.expression.DefaultExpressionEngine;
+import org.spiderflow.executor.FunctionExecutor;
+import org.spiderflow.executor.FunctionExtension;
+
+/**
+ * 基准测试公用的数据及对象
+ * @author jmxd
+ *
+ */
+public class BenchmarkUtils {
+
+	/**
+	 * 示例流程SQL中的流程图,以'<mxGraphModel>开头的字符串
+	 * 使用占有量词展开转义,避免(?:a|b)*逐字符递归导致长流程图栈溢出
+	 */
+	private static final Pattern FLOW_PATTERN = Pattern.compile("INSERT INTO `sp_flow` VALUES \\('([^']*)', '([^']*)', '(<mxGraphModel>[^'\\\\]*+(?:\\\\.[^'\\\\]*+)*+)'");
+
+	/**
+	 * 读取db/spiderflow.sql中的示例流程
+	 * @return 流程名称 -> 流程图XML
+	 */
+	public static Map<String, String> loadSampleFlows() {
+		try (InputStream is = BenchmarkUtils.class.getResourceAsStream("/spiderflow.sql")) {
+			if (is == null) {
+				throw new IllegalStateException("找不到示例流程spiderflow.sql");
+			}
+			String sql = IOUtils.toString(is, StandardCharsets.UTF_8);
+			Map<String, String> flows = new LinkedHashMap<>();
+			Matcher matcher = FLOW_PATTERN.matcher(sql);
+			while (matcher.find()) {
+				flows.put(matcher.group(2), unescape(matcher.group(3)));
+			}
+			if (flows.isEmpty()) {
+				throw new IllegalStateException("spiderflow.sql中没有示例流程");
+			}
+			return flows;
+		} catch (IOException e) {
+			throw new IllegalStateException("读取示例流程失败", e);
+		}
+	}
+
+	/**
+	 * 还原SQL字符串中的转义字符
+	 */
+	private static String unescape(String value) {
+		StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				switch (next) {
+					case 'n':
+						builder.append('\n');
+						break;
+					case 'r':
+						builder.append('\r');
+						break;
+					case 't':
+						builder.append('\t');
+						break;
+					default:
+						builder.append(next);
+				}
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * 不依赖Spring创建表达式引擎,注册常用的函数及扩展
+	 */
+	public static DefaultExpressionEngine createExpressionEngine() {
+		List<FunctionExecutor> executors = Arrays.asList(new StringFunctionExecutor(), new ExtractFunctionExecutor(),
+				new JsonFunctionExecutor(), new ListFunctionExecutor(), new DateFunctionExecutor(), new UrlFunctionExecutor(),
+				new MD5FunctionExecutor(), new Base64FunctionExecutor(), new RandomFunctionExecutor());
+		List<FunctionExtension> extensions = Arrays.asList(new StringFunctionExtension(), new ListFunctionExtension(),
+				new MapFunctionExtension(), new ArrayFunctionExtension(), new ObjectFunctionExtension(), new DateFunctionExtension(),
+				new ElementFunctionExtension(), new ElementsFunctionExtension(), new ResponseFunctionExtension());
+		DefaultExpressionEngine engine = new DefaultExpressionEngine();
+		try {
+			setField(engine, "functionExecutors", executors);
+			setField(engine, "functionExtensions", extensions);
+			Method init = DefaultExpressionEngine.class.getDeclaredMethod("init");
+			init.setAccessible(true);
+			init.invoke(engine);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("创建表达式引擎失败", e);
+		}
+		return engine;
+	}
+
+	private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+		Field field = target.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(target, value);
+	}
+
+	/**
+	 * 生成列表页HTML
+	 * @param items	列表项数量
+	 */
+	public static String createListHtml(int items) {
+		StringBuilder html = new StringBuilder(items * 256);
+		html.append("<html><head><title>列表页</title></head><body><div class=\"header\"><a href=\"/\">首页</a></div><ul class=\"list\">");
+		for (int i = 0; i < items; i++) {
+			html.append("<li class=\"item\" data-id=\"").append(i).append("\">")
+				.append("<a class=\"title\" href=\"/detail/").append(i).append(".html\">标题").append(i).append("</a>")
+				.append("<span class=\"date\">2020-03-").append(10 + i % 20).append("</span>")
+				.append("<span class=\"price\">￥").append(i * 3 % 97).append(".").append(i % 10).append("0</span>")
+				.append("<p class=\"summary\">这是第").append(i).append("条数据的摘要,包含若干文字用于正则及文本抽取</p>")
+				.append("</li>");
+		}
+		html.append("</ul><div class=\"pager\"><a class=\"next\" href=\"/list?page=2\">下一页</a></div></body></html>");
+		return html.toString();
+	}
+
+	/**
+	 * 生成表达式中使用的列表数据
+	 */
+	public static List<Map<String, Object>> createItems(int size) {
+		List<Map<String, Object>> items = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("id", i);
+			item.put("name", "item" + i);
+			item.put("price", i * 1.5);
+			items.add(item);
+		}
+		return items;
+	}
+}
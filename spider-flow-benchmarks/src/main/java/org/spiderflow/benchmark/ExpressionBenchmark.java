@@ -0,0 +1,84 @@
+package org.spiderflow.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.core.expression.DefaultExpressionEngine;
+import org.spiderflow.core.expression.parsing.Parser;
+import org.spiderflow.core.expression.parsing.Token;
+import org.spiderflow.core.expression.parsing.Tokenizer;
+
+/**
+ * 表达式引擎:执行、解析及词法分析
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionBenchmark {
+
+	/**
+	 * 流程中常见的表达式:变量引用、URL拼接、条件判断、函数调用、属性及方法访问、选择器抽取
+	 */
+	@Param({
+		"${url}",
+		"https://www.example.com/list?page=${page + 1}&size=${size}",
+		"${page < 10 && status == 200}",
+		"${string.replace(title.trim(), ' ', '-')}",
+		"${items[0].name + '-' + items.size()}",
+		"${extract.selectors(html, '.item a.title', 'attr', 'href')}"
+	})
+	public String expression;
+
+	private DefaultExpressionEngine engine;
+
+	private Map<String, Object> variables;
+
+	private Tokenizer tokenizer;
+
+	@Setup
+	public void setup() {
+		engine = BenchmarkUtils.createExpressionEngine();
+		tokenizer = new Tokenizer();
+		variables = new HashMap<>();
+		variables.put("url", "https://www.example.com/detail/1.html");
+		variables.put("page", 3);
+		variables.put("size", 20);
+		variables.put("status", 200);
+		variables.put("title", "  Spider Flow Benchmark  ");
+		variables.put("items", BenchmarkUtils.createItems(20));
+		variables.put("html", BenchmarkUtils.createListHtml(20));
+	}
+
+	@Benchmark
+	public Object execute() {
+		return engine.execute(expression, variables);
+	}
+
+	@Benchmark
+	public Object parse() {
+		return Parser.parse(expression);
+	}
+
+	@Benchmark
+	public List<Token> tokenize() {
+		return tokenizer.tokenize(expression);
+	}
+}
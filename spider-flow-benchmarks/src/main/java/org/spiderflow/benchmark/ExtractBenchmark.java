@@ -0,0 +1,88 @@
+package org.spiderflow.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.core.utils.ExtractUtils;
+
+/**
+ * 在列表页上使用CSS选择器、XPath及正则抽取链接和文本
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractBenchmark {
+
+	/**
+	 * 列表项数量
+	 */
+	@Param({"20", "200"})
+	public int items;
+
+	private String html;
+
+	private Document document;
+
+	@Setup
+	public void setup() {
+		html = BenchmarkUtils.createListHtml(items);
+		document = Jsoup.parse(html);
+	}
+
+	/**
+	 * 解析HTML,抽取前的固定开销
+	 */
+	@Benchmark
+	public Document parse() {
+		return Jsoup.parse(html);
+	}
+
+	@Benchmark
+	public List<String> cssAttr() {
+		return ExtractUtils.getAttrBySelector(document, "ul.list > li.item a.title", "href");
+	}
+
+	@Benchmark
+	public List<String> cssText() {
+		return ExtractUtils.getTextBySelector(document, "li.item .summary");
+	}
+
+	@Benchmark
+	public List<String> xpathAttr() {
+		return ExtractUtils.getValuesByXPath(document, "//li[@class='item']/a/@href");
+	}
+
+	@Benchmark
+	public List<String> xpathText() {
+		return ExtractUtils.getValuesByXPath(document, "//li[@class='item']/p/text()");
+	}
+
+	@Benchmark
+	public List<String> regex() {
+		return ExtractUtils.getMatchers(html, "<a class=\"title\" href=\"([^\"]+)\">", 1);
+	}
+
+	@Benchmark
+	public List<List<String>> regexGroups() {
+		return ExtractUtils.getMatchers(html, "data-id=\"(\\d+)\">.*?href=\"([^\"]+)\"", Arrays.asList(1, 2));
+	}
+}
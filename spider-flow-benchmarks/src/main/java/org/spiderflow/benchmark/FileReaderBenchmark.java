@@ -0,0 +1,140 @@
+package org.spiderflow.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.io.Line;
+import org.spiderflow.io.MappedLogReader;
+import org.spiderflow.io.RandomAccessFileReader;
+
+/**
+ * 任务日志读取:关键字位于文件开头附近,反向搜索时需要扫描整个文件
+ * 与/spider/log接口一致,每次读取都新建MappedLogReader(映射文件并加载行索引),RandomAccessFileReader作为对照
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FileReaderBenchmark {
+
+	private static final String KEYWORD = "Connection reset";
+
+	/**
+	 * 日志行数
+	 */
+	@Param({"100000"})
+	public int lines;
+
+	private File file;
+
+	private File indexFile;
+
+	private RandomAccessFile raf;
+
+	/**
+	 * 搜索参数,只用于关键词搜索
+	 */
+	@State(Scope.Thread)
+	public static class Search {
+
+		@Param({"true", "false"})
+		public boolean reversed;
+
+		/**
+		 * 搜索方式:plain(区分大小写)、ignoreCase、regex
+		 */
+		@Param({"plain", "ignoreCase", "regex"})
+		public String search;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file = File.createTempFile("spider-flow-benchmark", ".log");
+		file.deleteOnExit();
+		indexFile = new File(file.getParentFile(), file.getName() + ".idx");
+		indexFile.deleteOnExit();
+		try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			for (int i = 0; i < lines; i++) {
+				writer.write("2020-03-11 10:00:00.000 [spider-flow-" + (i % 8) + "] INFO  o.s.core.Spider - 执行节点[开始抓取]完毕,耗时" + (i % 1000) + "ms");
+				if (i == 10) {
+					writer.write(" java.net.SocketException: Connection reset");
+				}
+				writer.newLine();
+			}
+		}
+		raf = new RandomAccessFile(file, "r");
+		//预先生成行索引,与已经查看过的日志一致
+		try (MappedLogReader reader = new MappedLogReader(file)) {
+			reader.index();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		raf.close();
+		file.delete();
+		indexFile.delete();
+	}
+
+	@Benchmark
+	public List<Line> mappedLogReader(Search search) throws IOException {
+		try (MappedLogReader reader = new MappedLogReader(file)) {
+			long index = search.reversed ? -1 : 0;
+			switch (search.search) {
+				case "ignoreCase":
+					return reader.readLine(index, search.reversed, 100, KEYWORD.toUpperCase(), false, false);
+				case "regex":
+					return reader.readLine(index, search.reversed, 100, "Connection\\s+reset", true, true);
+				default:
+					return reader.readLine(index, search.reversed, 100, KEYWORD, true, false);
+			}
+		}
+	}
+
+	/**
+	 * 按行号定位到文件中间
+	 */
+	@Benchmark
+	public List<Line> mappedLogReaderSeek() throws IOException {
+		try (MappedLogReader reader = new MappedLogReader(file)) {
+			return reader.readLines(lines / 2, 100);
+		}
+	}
+
+	@Benchmark
+	public List<Line> randomAccessFileReader(Search search) throws IOException {
+		//不关闭reader,避免关闭共用的文件
+		RandomAccessFileReader reader = new RandomAccessFileReader(raf, search.reversed ? -1 : 0, search.reversed);
+		switch (search.search) {
+			case "ignoreCase":
+				return reader.readLine(100, KEYWORD.toUpperCase(), false, false);
+			case "regex":
+				return reader.readLine(100, "Connection\\s+reset", true, true);
+			default:
+				return reader.readLine(100, KEYWORD, true, false);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package org.spiderflow.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.core.utils.SpiderFlowUtils;
+import org.spiderflow.model.SpiderNode;
+
+/**
+ * 加载db/spiderflow.sql中的示例流程图
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowXmlBenchmark {
+
+	@Param({"爬取码云GVP", "抓取每日菜价", "爬取开源中国动弹", "百度热点"})
+	public String flow;
+
+	private String xml;
+
+	@Setup
+	public void setup() {
+		Map<String, String> flows = BenchmarkUtils.loadSampleFlows();
+		xml = flows.get(flow);
+		if (xml == null) {
+			throw new IllegalArgumentException("找不到示例流程:" + flow);
+		}
+	}
+
+	@Benchmark
+	public SpiderNode loadXMLFromString() {
+		return SpiderFlowUtils.loadXMLFromString(xml);
+	}
+}
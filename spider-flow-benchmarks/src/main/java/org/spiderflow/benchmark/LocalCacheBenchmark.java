@@ -0,0 +1,90 @@
+package org.spiderflow.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.core.cache.LocalCache;
+import org.spiderflow.core.cache.LocalCache.EvictionPolicyType;
+
+/**
+ * 本地缓存在各淘汰策略下的读写,键空间为容量的两倍,写入时会持续触发淘汰
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalCacheBenchmark {
+
+	@Param({"NONE", "FIFO", "LRU", "LFU"})
+	public EvictionPolicyType policy;
+
+	@Param({"1000"})
+	public int capacity;
+
+	private LocalCache cache;
+
+	private String[] keys;
+
+	@Setup
+	public void setup() {
+		cache = new LocalCache(capacity, policy);
+		keys = new String[capacity * 2];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "key" + i;
+		}
+		for (int i = 0; i < capacity; i++) {
+			cache.set(keys[i], i);
+		}
+	}
+
+	private String nextKey() {
+		return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object get() {
+		return cache.get(nextKey());
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void set() {
+		cache.set(nextKey(), Boolean.TRUE);
+	}
+
+	/**
+	 * 3读1写并发
+	 */
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(3)
+	public Object contendedGet() {
+		return cache.get(nextKey());
+	}
+
+	@Benchmark
+	@Group("contended")
+	@GroupThreads(1)
+	public void contendedSet() {
+		cache.set(nextKey(), Boolean.TRUE);
+	}
+}
@@ -0,0 +1,98 @@
+package org.spiderflow.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spiderflow.concurrent.ChildPriorThreadSubmitStrategy;
+import org.spiderflow.concurrent.LinkedThreadSubmitStrategy;
+import org.spiderflow.concurrent.ParentPriorThreadSubmitStrategy;
+import org.spiderflow.concurrent.RandomThreadSubmitStrategy;
+import org.spiderflow.concurrent.SpiderFutureTask;
+import org.spiderflow.concurrent.ThreadSubmitStrategy;
+import org.spiderflow.model.SpiderNode;
+
+/**
+ * 任务提交策略:按链式流程(每层一个节点)的层级交错添加任务后全部取出
+ * @author jmxd
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SubmitStrategyBenchmark {
+
+	private static final int TASKS = 1000;
+
+	@Param({"random", "linked", "child", "parent"})
+	public String strategy;
+
+	@Param({"5"})
+	public int depth;
+
+	private List<SpiderFutureTask<?>> tasks;
+
+	@Setup
+	public void setup() {
+		List<SpiderNode> nodes = new ArrayList<>(depth);
+		SpiderNode previous = null;
+		for (int i = 0; i < depth; i++) {
+			SpiderNode node = new SpiderNode();
+			node.setNodeId("node" + i);
+			node.setNodeName("节点" + i);
+			if (previous != null) {
+				previous.addNextNode(node);
+			}
+			nodes.add(node);
+			previous = node;
+		}
+		tasks = new ArrayList<>(TASKS);
+		for (int i = 0; i < TASKS; i++) {
+			tasks.add(new SpiderFutureTask<>(() -> {}, null, nodes.get(i % depth), null));
+		}
+	}
+
+	private ThreadSubmitStrategy createStrategy() {
+		switch (strategy) {
+			case "linked":
+				return new LinkedThreadSubmitStrategy();
+			case "child":
+				return new ChildPriorThreadSubmitStrategy();
+			case "parent":
+				return new ParentPriorThreadSubmitStrategy();
+			default:
+				return new RandomThreadSubmitStrategy();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TASKS)
+	public int addAndGet() {
+		ThreadSubmitStrategy submitStrategy = createStrategy();
+		for (SpiderFutureTask<?> task : tasks) {
+			submitStrategy.add(task);
+		}
+		int count = 0;
+		while (!submitStrategy.isEmpty()) {
+			if (submitStrategy.get() != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
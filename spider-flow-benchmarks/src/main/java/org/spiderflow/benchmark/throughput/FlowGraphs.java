@@ -0,0 +1,152 @@
+package org.spiderflow.benchmark.throughput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 压测使用的流程图:调整示例流程的线程数及提交策略,生成多级扇出的合成流程
+ * @author jmxd
+ *
+ */
+public class FlowGraphs {
+
+	/**
+	 * 修改示例流程:设置线程数及提交策略,https地址改为http(由本地服务通过代理响应)
+	 */
+	public static String prepareSampleFlow(String xml, int threads, String strategy) {
+		Document document = Jsoup.parse(xml, "", Parser.xmlParser());
+		document.outputSettings().prettyPrint(false);
+		for (Element cell : document.getElementsByTag("mxCell")) {
+			Element property = cell.getElementsByTag("JsonProperty").first();
+			if (property == null) {
+				continue;
+			}
+			JSONObject json = JSON.parseObject(property.text());
+			if ("0".equals(cell.attr("id"))) {
+				setRootProperty(json, threads, strategy);
+			} else if ("request".equals(json.getString("shape"))) {
+				json.put("url", json.getString("url").replace("https://", "http://"));
+				json.put("sleep", "");
+			}
+			property.text(json.toJSONString());
+		}
+		return document.outerHtml();
+	}
+
+	private static void setRootProperty(Map<String, Object> json, int threads, String strategy) {
+		json.put("threadCount", String.valueOf(threads));
+		json.put("submit-strategy", strategy);
+	}
+
+	/**
+	 * 生成扇出流程:开始 -> 列表页(pages页) -> 各级列表页 -> 详情页 -> 定义变量 -> 输出,
+	 * 详情页数量为pages * items^levels
+	 * @param baseUrl	本地服务地址
+	 * @param pages	第一级列表页数
+	 * @param levels	列表级数
+	 * @param items	每页链接数
+	 */
+	public static String createFanoutFlow(String baseUrl, int pages, int levels, int items, int threads, String strategy) {
+		FlowBuilder builder = new FlowBuilder();
+		Map<String, Object> root = new LinkedHashMap<>();
+		root.put("spiderName", "fanout-" + levels);
+		setRootProperty(root, threads, strategy);
+		builder.root(root);
+		String previous = builder.node("开始", json("shape", "start"));
+		for (int level = 0; level < levels; level++) {
+			Map<String, Object> request = json("shape", "request", "method", "GET", "follow-redirect", "1", "tls-validate", "1");
+			if (level == 0) {
+				request.put("loopVariableName", "page");
+				request.put("loopCount", String.valueOf(pages));
+				request.put("url", baseUrl + "/list/0/" + levels + "/" + items + "/${page}");
+			} else {
+				request.put("loopVariableName", "i");
+				request.put("loopCount", "${links.size()}");
+				request.put("url", baseUrl + "${links[i]}");
+			}
+			String list = builder.node("列表页" + level, request);
+			builder.edge(previous, list);
+			Map<String, Object> variable = json("shape", "variable");
+			variable.put("variable-name", Arrays.asList("links"));
+			variable.put("variable-value", Arrays.asList("${resp.xpaths('//li/a/@href')}"));
+			previous = builder.node("列表链接" + level, variable);
+			builder.edge(list, previous);
+		}
+		Map<String, Object> request = json("shape", "request", "method", "GET", "follow-redirect", "1", "tls-validate", "1");
+		request.put("loopVariableName", "i");
+		request.put("loopCount", "${links.size()}");
+		request.put("url", baseUrl + "${links[i]}");
+		String detail = builder.node("详情页", request);
+		builder.edge(previous, detail);
+		Map<String, Object> variable = json("shape", "variable");
+		variable.put("variable-name", Arrays.asList("title", "author"));
+		variable.put("variable-value", Arrays.asList("${resp.xpath('//h1/text()')}", "${resp.xpath('//span[@class=author]/text()')}"));
+		String extract = builder.node("抽取", variable);
+		builder.edge(detail, extract);
+		Map<String, Object> output = json("shape", "output");
+		output.put("output-name", Arrays.asList("标题", "作者"));
+		output.put("output-value", Arrays.asList("${title}", "${author}"));
+		builder.edge(extract, builder.node("输出", output));
+		return builder.toXml();
+	}
+
+	private static Map<String, Object> json(String... keyValues) {
+		Map<String, Object> json = new LinkedHashMap<>();
+		for (int i = 0; i + 1 < keyValues.length; i += 2) {
+			json.put(keyValues[i], keyValues[i + 1]);
+		}
+		return json;
+	}
+
+	/**
+	 * 按编辑器保存的格式生成流程图XML
+	 */
+	private static class FlowBuilder {
+
+		private final List<String> cells = new ArrayList<>();
+
+		private int id = 2;
+
+		void root(Map<String, Object> json) {
+			cells.add("<mxCell id=\"0\">" + property(json) + "</mxCell>");
+			cells.add("<mxCell id=\"1\" parent=\"0\"/>");
+		}
+
+		String node(String name, Map<String, Object> json) {
+			String nodeId = String.valueOf(id++);
+			json.put("value", name);
+			cells.add("<mxCell id=\"" + nodeId + "\" value=\"" + escape(name) + "\" style=\"" + json.get("shape") + "\" parent=\"1\" vertex=\"1\">"
+					+ "<mxGeometry x=\"" + (id * 100) + "\" y=\"80\" width=\"32\" height=\"32\" as=\"geometry\"/>" + property(json) + "</mxCell>");
+			return nodeId;
+		}
+
+		void edge(String source, String target) {
+			String edgeId = String.valueOf(id++);
+			cells.add("<mxCell id=\"" + edgeId + "\" value=\"\" parent=\"1\" source=\"" + source + "\" target=\"" + target + "\" edge=\"1\">"
+					+ "<mxGeometry relative=\"1\" as=\"geometry\"/>" + property(json("value", "", "condition", "")) + "</mxCell>");
+		}
+
+		String toXml() {
+			return "<mxGraphModel><root>" + String.join("", cells) + "</root></mxGraphModel>";
+		}
+
+		private String property(Map<String, Object> json) {
+			return "<JsonProperty as=\"data\">" + escape(JSON.toJSONString(json)) + "</JsonProperty>";
+		}
+
+		private String escape(String value) {
+			return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+		}
+	}
+}
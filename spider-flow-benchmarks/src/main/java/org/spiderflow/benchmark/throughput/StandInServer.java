@@ -0,0 +1,168 @@
+package org.spiderflow.benchmark.throughput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 代替真实站点的本地HTTP服务,返回合成的列表页及详情页
+ * <ul>
+ * <li>/list/{level}/{levels}/{items}/{id}:列表页,最后一级列表中的链接指向详情页,否则指向下一级列表
+ * (流程图中的&amp;会被转义,因此参数放在路径中)</li>
+ * <li>/detail/{id}.html:详情页</li>
+ * <li>其它路径(包括经代理转发的外部地址):列表页</li>
+ * </ul>
+ * @author jmxd
+ *
+ */
+public class StandInServer {
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	/**
+	 * 平均响应延迟(毫秒),实际延迟在其50%~150%之间
+	 */
+	private final int latency;
+
+	/**
+	 * 详情页大小(字符数)
+	 */
+	private final int pageSize;
+
+	/**
+	 * 返回500的比例
+	 */
+	private final double errorRate;
+
+	private final AtomicLong requests = new AtomicLong();
+
+	private final AtomicLong errors = new AtomicLong();
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	public StandInServer(int latency, int pageSize, double errorRate) throws IOException {
+		this.latency = latency;
+		this.pageSize = pageSize;
+		this.errorRate = errorRate;
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "stand-in-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server.setExecutor(executor);
+		this.server.createContext("/", this::handle);
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	public String getBaseUrl() {
+		return "http://127.0.0.1:" + getPort();
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public long getRequests() {
+		return requests.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public long getBytes() {
+		return bytes.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			if (latency > 0) {
+				Thread.sleep(latency / 2 + ThreadLocalRandom.current().nextInt(latency + 1));
+			}
+			int status = 200;
+			String body;
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				errors.incrementAndGet();
+				status = 500;
+				body = "<html><body><h1>Internal Server Error</h1></body></html>";
+			} else {
+				String path = exchange.getRequestURI().getPath();
+				if (path.startsWith("/detail/")) {
+					body = detail(StringUtils.substringBetween(path, "/detail/", ".html"));
+				} else {
+					body = list(path.startsWith("/list/") ? path.substring(6).split("/") : new String[0]);
+				}
+			}
+			byte[] data = body.getBytes(StandardCharsets.UTF_8);
+			bytes.addAndGet(data.length);
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+			exchange.sendResponseHeaders(status, data.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(data);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * @param parameters	level、levels、items、id
+	 */
+	private String list(String[] parameters) {
+		int level = NumberUtils.toInt(parameter(parameters, 0), 0);
+		int levels = NumberUtils.toInt(parameter(parameters, 1), 1);
+		int items = NumberUtils.toInt(parameter(parameters, 2), 20);
+		String parent = StringUtils.defaultIfBlank(parameter(parameters, 3), "0");
+		StringBuilder html = new StringBuilder(items * 160);
+		html.append("<html><head><title>列表页").append(parent).append("</title></head><body><ul class=\"list\">");
+		for (int i = 0; i < items; i++) {
+			String id = parent + "-" + i;
+			String href = level + 1 < levels ? "/list/" + (level + 1) + "/" + levels + "/" + items + "/" + id : "/detail/" + id + ".html";
+			html.append("<li class=\"item\"><a class=\"title\" href=\"").append(href).append("\">标题").append(id)
+				.append("</a><span class=\"date\">2020-03-11</span></li>");
+		}
+		html.append("</ul></body></html>");
+		return html.toString();
+	}
+
+	private String parameter(String[] parameters, int index) {
+		return index < parameters.length ? parameters[index] : null;
+	}
+
+	private String detail(String id) {
+		StringBuilder html = new StringBuilder(pageSize + 256);
+		html.append("<html><head><title>详情页").append(id).append("</title></head><body><h1 class=\"title\">标题").append(id)
+			.append("</h1><div class=\"meta\"><span class=\"author\">作者").append(id).append("</span></div><div class=\"content\">");
+		while (html.length() < pageSize) {
+			html.append("<p>这是一段用于填充页面大小的正文内容,包含若干文字。</p>");
+		}
+		html.append("</div></body></html>");
+		return html.toString();
+	}
+}
@@ -0,0 +1,329 @@
+package org.spiderflow.benchmark.throughput;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.spiderflow.benchmark.BenchmarkUtils;
+import org.spiderflow.context.FlowMetrics;
+import org.spiderflow.context.NodeMetrics;
+import org.spiderflow.context.SpiderContextHolder;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.distributed.DistributedSpider;
+import org.spiderflow.core.expression.DefaultExpressionEngine;
+import org.spiderflow.core.job.SpiderJobContext;
+import org.spiderflow.core.model.SpiderFlow;
+import org.spiderflow.core.service.FlowNoticeService;
+import org.spiderflow.core.service.SpiderFlowService;
+import org.spiderflow.core.utils.ExecutorsUtils;
+import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.enums.FlowNoticeType;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+
+/**
+ * 端到端吞吐量测试:启动本地HTTP服务模拟列表页及详情页,以不同线程数及提交策略运行示例流程及合成的扇出流程,
+ * 统计每秒页面数、各节点p50/p99耗时、堆内存峰值及GC耗时,指定基线时与基线比较
+ * <pre>
+ * mvn -pl spider-flow-benchmarks -am verify -Pthroughput
+ *   -Dthroughput.threads=4,16,64	线程数
+ *   -Dthroughput.strategies=random,linked,child,parent	提交策略
+ *   -Dthroughput.flows=fanout-1,fanout-2	流程名称(示例流程名称或fanout-级数),默认全部
+ *   -Dthroughput.latency=20	平均响应延迟(毫秒)
+ *   -Dthroughput.page-size=16384	详情页大小(字符数)
+ *   -Dthroughput.error-rate=0.01	返回500的比例
+ *   -Dthroughput.pages=10	扇出流程第一级列表页数
+ *   -Dthroughput.items=10	扇出流程每页链接数
+ *   -Dthroughput.result=throughput-result.json	结果文件
+ *   -Dthroughput.baseline=baseline.json	基线结果文件
+ *   -Dthroughput.threshold=20	每秒页面数下降超过该百分比时视为退化,存在退化时以状态码1退出
+ * </pre>
+ * 示例流程中的请求通过代理转发到本地服务,其抽取规则与模拟页面不匹配,只用于衡量调度及HTTP部分的开销
+ * @author jmxd
+ *
+ */
+public class ThroughputHarness {
+
+	private static final String FANOUT_PREFIX = "fanout-";
+
+	private final AtomicInteger taskId = new AtomicInteger();
+
+	private final StandInServer server;
+
+	private final Spider spider;
+
+	private final String workspace;
+
+	private ThroughputHarness(StandInServer server, Spider spider, String workspace) {
+		this.server = server;
+		this.spider = spider;
+		this.workspace = workspace;
+	}
+
+	public static void main(String[] args) throws IOException {
+		List<Integer> threads = new ArrayList<>();
+		for (String value : property("threads", "4,16,64").split(",")) {
+			threads.add(Integer.parseInt(value.trim()));
+		}
+		String[] strategies = StringUtils.split(property("strategies", "random,linked,child,parent"), ",");
+		StandInServer server = new StandInServer(Integer.parseInt(property("latency", "20")), Integer.parseInt(property("page-size", "16384")),
+				Double.parseDouble(property("error-rate", "0.01")));
+		File workspace = Files.createTempDirectory("spider-flow-throughput").toFile();
+		server.start();
+		routeToServer(server);
+		AnnotationConfigApplicationContext context = createContext(workspace.getAbsolutePath(), Collections.max(threads));
+		JSONArray results = new JSONArray();
+		try {
+			ThroughputHarness harness = new ThroughputHarness(server, context.getBean(Spider.class), workspace.getAbsolutePath());
+			Map<String, String> flows = harness.selectFlows();
+			//预热:加载类、编译热点代码
+			harness.run(FANOUT_PREFIX + 1, flows.get(FANOUT_PREFIX + 1), threads.get(0), strategies[0]);
+			System.out.println(String.format("%-24s %7s %-8s %9s %8s %9s %7s %9s %9s %7s", "Flow", "Threads", "Strategy", "Pages", "Pages/s", "Executed", "Errors", "Heap(MB)", "GC(ms)", "GCs"));
+			for (Map.Entry<String, String> flow : flows.entrySet()) {
+				for (int nThreads : threads) {
+					for (String strategy : strategies) {
+						JSONObject result = harness.run(flow.getKey(), flow.getValue(), nThreads, strategy.trim());
+						results.add(result);
+						System.out.println(String.format("%-24s %7d %-8s %9d %8.1f %9d %7d %9.1f %9d %7d", result.getString("flow"), nThreads, strategy,
+								result.getLongValue("pages"), result.getDoubleValue("pagesPerSecond"), result.getLongValue("executions"),
+								result.getLongValue("errors"), result.getDoubleValue("heapPeakMb"), result.getLongValue("gcMillis"), result.getLongValue("gcCount")));
+					}
+				}
+			}
+		} finally {
+			context.close();
+			server.stop();
+			FileUtils.deleteQuietly(workspace);
+		}
+		File resultFile = new File(property("result", "throughput-result.json"));
+		FileUtils.writeStringToFile(resultFile, JSON.toJSONString(results, SerializerFeature.PrettyFormat), StandardCharsets.UTF_8);
+		String baseline = System.getProperty("throughput.baseline");
+		if (StringUtils.isNotBlank(baseline) && compare(new File(baseline), results, Double.parseDouble(property("threshold", "20"))) > 0) {
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * 通过Maven运行时未指定的参数以空值传入,视为使用默认值
+	 */
+	private static String property(String name, String defaultValue) {
+		return StringUtils.defaultIfBlank(System.getProperty("throughput." + name), defaultValue);
+	}
+
+	/**
+	 * 除本机地址外的请求都通过代理转发到本地服务,本地服务按路径返回模拟页面
+	 */
+	private static void routeToServer(StandInServer server) {
+		ProxySelector.setDefault(new ProxySelector() {
+			private final List<Proxy> proxies = Collections.singletonList(new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", server.getPort())));
+
+			@Override
+			public List<Proxy> select(URI uri) {
+				if ("127.0.0.1".equals(uri.getHost()) || "localhost".equalsIgnoreCase(uri.getHost())) {
+					return Collections.singletonList(Proxy.NO_PROXY);
+				}
+				return proxies;
+			}
+
+			@Override
+			public void connectFailed(URI uri, SocketAddress address, IOException e) {
+			}
+		});
+	}
+
+	/**
+	 * 只创建执行流程所需的Bean,流程通知及数据库相关的服务不可用
+	 */
+	private static AnnotationConfigApplicationContext createContext(String workspace, int maxThreads) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		Map<String, Object> properties = new HashMap<>();
+		properties.put("spider.workspace", workspace);
+		properties.put("spider.thread.max", maxThreads + 8);
+		properties.put("spider.checkpoint.interval", 0);
+		properties.put("spider.detect.dead-cycle", Integer.MAX_VALUE);
+		properties.put("spider.notice.content.start", "");
+		properties.put("spider.notice.content.end", "");
+		properties.put("spider.notice.content.exception", "");
+		context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("throughput", properties));
+		context.getBeanFactory().registerSingleton("flowNoticeService", new FlowNoticeService() {
+			@Override
+			public void sendFlowNotice(SpiderFlow spiderFlow, FlowNoticeType type) {
+			}
+		});
+		context.getBeanFactory().registerSingleton("spiderFlowService", new SpiderFlowService());
+		context.register(Spider.class, DistributedSpider.class, DefaultExpressionEngine.class, ExpressionUtils.class, ExecutorsUtils.class);
+		context.scan("org.spiderflow.core.executor.shape", "org.spiderflow.core.executor.function");
+		context.refresh();
+		return context;
+	}
+
+	/**
+	 * 示例流程及扇出流程,流程图中的线程数及提交策略在运行时替换
+	 */
+	private Map<String, String> selectFlows() {
+		Map<String, String> flows = new LinkedHashMap<>(BenchmarkUtils.loadSampleFlows());
+		flows.put(FANOUT_PREFIX + 1, null);
+		flows.put(FANOUT_PREFIX + 2, null);
+		String selected = System.getProperty("throughput.flows");
+		if (StringUtils.isNotBlank(selected)) {
+			Map<String, String> result = new LinkedHashMap<>();
+			for (String name : selected.split(",")) {
+				name = name.trim();
+				if (!flows.containsKey(name) && !name.startsWith(FANOUT_PREFIX)) {
+					throw new IllegalArgumentException("找不到流程:" + name);
+				}
+				result.put(name, flows.get(name));
+			}
+			return result;
+		}
+		return flows;
+	}
+
+	/**
+	 * 运行一次流程并统计
+	 */
+	private JSONObject run(String name, String sampleXml, int threads, String strategy) {
+		String xml;
+		if (name.startsWith(FANOUT_PREFIX)) {
+			xml = FlowGraphs.createFanoutFlow(server.getBaseUrl(), Integer.parseInt(property("pages", "10")), Integer.parseInt(name.substring(FANOUT_PREFIX.length())),
+					Integer.parseInt(property("items", "10")), threads, strategy);
+		} else {
+			xml = FlowGraphs.prepareSampleFlow(sampleXml, threads, strategy);
+		}
+		SpiderFlow spiderFlow = new SpiderFlow();
+		spiderFlow.setId("throughput");
+		spiderFlow.setName(name);
+		spiderFlow.setXml(xml);
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+		long gcMillis = gcTime();
+		long gcCount = gcCount();
+		long requests = server.getRequests();
+		long serverErrors = server.getErrors();
+		long bytes = server.getBytes();
+		SpiderJobContext context = SpiderJobContext.create(workspace, spiderFlow.getId(), taskId.incrementAndGet(), false);
+		long start = System.nanoTime();
+		try {
+			SpiderContextHolder.set(context);
+			spider.run(spiderFlow, context, new HashMap<>());
+		} finally {
+			SpiderContextHolder.remove();
+			context.close();
+		}
+		double seconds = (System.nanoTime() - start) / 1000000000.0;
+		long heapPeak = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			heapPeak += pool.getPeakUsage().getUsed();
+		}
+		long pages = server.getRequests() - requests;
+		FlowMetrics metrics = context.getMetrics();
+		JSONObject result = new JSONObject(true);
+		result.put("flow", name);
+		result.put("threads", threads);
+		result.put("strategy", strategy);
+		result.put("seconds", seconds);
+		result.put("pages", pages);
+		result.put("pagesPerSecond", seconds == 0 ? 0 : pages / seconds);
+		result.put("bytes", server.getBytes() - bytes);
+		result.put("serverErrors", server.getErrors() - serverErrors);
+		result.put("executions", metrics.getExecutions());
+		result.put("errors", metrics.getErrors());
+		result.put("heapPeakMb", heapPeak / 1048576.0);
+		result.put("gcMillis", gcTime() - gcMillis);
+		result.put("gcCount", gcCount() - gcCount);
+		JSONObject nodes = new JSONObject(true);
+		for (NodeMetrics node : metrics.getNodes().values()) {
+			JSONObject latency = new JSONObject(true);
+			latency.put("executions", node.getExecutions());
+			latency.put("p50", node.getExecution().getPercentile(0.5));
+			latency.put("p99", node.getExecution().getPercentile(0.99));
+			nodes.put(node.getNodeName(), latency);
+		}
+		result.put("nodes", nodes);
+		return result;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(bean.getCollectionTime(), 0);
+		}
+		return time;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(bean.getCollectionCount(), 0);
+		}
+		return count;
+	}
+
+	/**
+	 * 按流程、线程数及提交策略与基线比较每秒页面数
+	 * @return 退化的项数
+	 */
+	static int compare(File baselineFile, JSONArray results, double threshold) throws IOException {
+		Map<String, JSONObject> baseline = new HashMap<>();
+		JSONArray array = JSON.parseArray(new String(Files.readAllBytes(baselineFile.toPath()), StandardCharsets.UTF_8));
+		for (int i = 0; i < array.size(); i++) {
+			baseline.put(key(array.getJSONObject(i)), array.getJSONObject(i));
+		}
+		int regressions = 0;
+		System.out.println();
+		System.out.println(String.format("%-48s %10s %10s %9s", "Scenario", "Baseline", "Current", "Change"));
+		for (int i = 0; i < results.size(); i++) {
+			JSONObject result = results.getJSONObject(i);
+			double current = result.getDoubleValue("pagesPerSecond");
+			JSONObject base = baseline.get(key(result));
+			if (base == null) {
+				System.out.println(String.format("%-48s %10s %10.1f %9s", key(result), "-", current, "new"));
+				continue;
+			}
+			double basePages = base.getDoubleValue("pagesPerSecond");
+			double change = basePages == 0 ? 0 : (current - basePages) / basePages * 100;
+			boolean regressed = change < -threshold;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.println(String.format("%-48s %10.1f %10.1f %+8.1f%%%s", key(result), basePages, current, change, regressed ? " [REGRESSION]" : ""));
+		}
+		System.out.println(String.format("%d scenarios, %d regressions (threshold %.1f%%)", results.size(), regressions, threshold));
+		return regressions;
+	}
+
+	private static String key(JSONObject result) {
+		return result.getString("flow") + " threads=" + result.getIntValue("threads") + " strategy=" + result.getString("strategy");
+	}
+}
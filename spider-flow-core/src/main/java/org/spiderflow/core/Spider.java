@@ -1,21 +1,41 @@
 package org.spiderflow.core;
 
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.ttl.TtlRunnable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.spiderflow.concurrent.*;
 import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor.SubThreadPoolExecutor;
+import org.spiderflow.context.FlowMetrics;
+import org.spiderflow.context.ForkJoinContext;
+import org.spiderflow.context.FlowTrace;
+import org.spiderflow.context.NodeMetrics;
 import org.spiderflow.context.SpiderContext;
+import org.spiderflow.context.Span;
 import org.spiderflow.context.SpiderContextHolder;
+import org.spiderflow.context.TaskBacklog;
+import org.spiderflow.context.VariableScope;
+import org.spiderflow.core.distributed.DistributedSpider;
 import org.spiderflow.core.executor.shape.LoopExecutor;
+import org.spiderflow.core.executor.shape.ProcessExecutor;
+import org.spiderflow.core.frontier.FrontierItem;
+import org.spiderflow.core.frontier.TaskFrontier;
+import org.spiderflow.core.io.LazyList;
+import org.spiderflow.core.job.CheckpointFile;
+import org.spiderflow.core.job.SpiderJobContext;
+import org.spiderflow.core.job.TraceExporter;
 import org.spiderflow.core.model.SpiderFlow;
 import org.spiderflow.core.service.FlowNoticeService;
 import org.spiderflow.core.utils.ExecutorsUtils;
 import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.core.utils.ExtractUtils;
 import org.spiderflow.core.utils.SpiderFlowUtils;
+import org.spiderflow.core.utils.VariableSnapshotUtils;
 import org.spiderflow.enums.FlowNoticeType;
+import org.spiderflow.enums.RunPriority;
 import org.spiderflow.executor.ShapeExecutor;
 import org.spiderflow.listener.SpiderListener;
 import org.spiderflow.model.SpiderNode;
@@ -25,13 +45,23 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.BaseStream;
 
 /**
  * 爬虫的核心类
@@ -52,21 +82,154 @@ public class Spider {
 
 	@Value("${spider.detect.dead-cycle:5000}")
 	private Integer deadCycle;
+
+	/**
+	 * 保存检查点的间隔(秒),小于等于0时不保存
+	 */
+	@Value("${spider.checkpoint.interval:0}")
+	private Integer checkpointInterval;
+
+	@Value("${spider.workspace}")
+	private String workspace;
+
+	/**
+	 * 内存中任务数上限,超过时写入磁盘队列,小于等于0时不使用磁盘队列(流程中可单独配置)
+	 */
+	@Value("${spider.frontier.memory-limit:0}")
+	private Integer frontierMemoryLimit;
+
+	/**
+	 * 磁盘队列每个文件的大小(字节)
+	 */
+	@Value("${spider.frontier.segment-size:16777216}")
+	private Integer frontierSegmentSize;
+
+	/**
+	 * 调用链采样率(0~1),为0时不记录调用链(流程中可单独配置)
+	 */
+	@Value("${spider.trace.sample-rate:0}")
+	private Double traceSampleRate;
+
+	/**
+	 * 每次运行最多记录的Span数量
+	 */
+	@Value("${spider.trace.max-spans:20000}")
+	private Integer traceMaxSpans;
+
+	/**
+	 * 调用链收集器地址(OTLP/HTTP),如http://localhost:4318/v1/traces,为空时只写入文件
+	 */
+	@Value("${spider.trace.otlp.endpoint:}")
+	private String traceEndpoint;
 	
 	@Autowired
 	private FlowNoticeService flowNoticeService;
 
+	@Autowired
+	private DistributedSpider distributedSpider;
+
 	public static SpiderFlowThreadPoolExecutor executorInstance;
 
 	private static final String ATOMIC_DEAD_CYCLE = "__atomic_dead_cycle";
 
+	/**
+	 * 正在进行的流式循环
+	 */
+	private static final String LOOP_FEEDERS = "__loop_feeders";
+
+	/**
+	 * 流程配置:排队上限,已创建但未执行完毕的任务数达到上限时暂停产生新任务
+	 */
+	public static final String QUEUE_LIMIT = "queueLimit";
+
+	/**
+	 * 存在积压时输出各节点排队任务数的间隔
+	 */
+	private static final long BACKLOG_REPORT_INTERVAL = 10000;
+
+	/**
+	 * 协调线程等待任务执行完毕的最长时间(毫秒),超时后检查流式循环、暂停的任务及检查点
+	 */
+	private static final long COMPLETION_POLL_TIMEOUT = 50;
+
+	/**
+	 * 已创建但未执行下一级的任务,用于保存检查点
+	 */
+	private static final String LIVE_TASKS = "__live_tasks";
+
+	/**
+	 * 待执行任务的磁盘队列
+	 */
+	private static final String FRONTIER = "__frontier";
+
+	/**
+	 * 流程配置:内存中任务数上限,超过时写入磁盘队列
+	 */
+	public static final String FRONTIER_LIMIT = "frontierLimit";
+
+	/**
+	 * 流程配置:磁盘队列的读取顺序(fifo、priority、host)
+	 */
+	public static final String FRONTIER_ORDER = "frontierOrder";
+
+	/**
+	 * 流程配置:按优先级读取时,计算任务优先级的表达式
+	 */
+	public static final String FRONTIER_PRIORITY = "frontierPriority";
+
+	/**
+	 * 流程配置:调用链采样率(0~1)
+	 */
+	public static final String TRACE_SAMPLE_RATE = "traceSampleRate";
+
+	/**
+	 * 流程配置:运行优先级(high、normal、low),决定排队顺序及同时运行时分配线程的权重
+	 */
+	public static final String RUN_PRIORITY = "runPriority";
+
+	/**
+	 * 日志中输出的调用链ID及SpanID(MDC)
+	 */
+	private static final String MDC_TRACE_ID = "traceId";
+
+	private static final String MDC_SPAN_ID = "spanId";
+
+	/**
+	 * 需要保存检查点的任务,正常关闭时保存(SpiderContext的hashCode随内容变化,按ID保存)
+	 */
+	private final Map<String, SpiderContext> checkpointContexts = new ConcurrentHashMap<>();
+
 	private static Logger logger = LoggerFactory.getLogger(Spider.class);
 
+	/**
+	 * 当前线程正在执行的节点所属的子流程,用于嵌套调用子流程
+	 */
+	private static final ThreadLocal<ProcessInvocation> CURRENT_PROCESS = new ThreadLocal<>();
+
 	@PostConstruct
 	private void init() {
 		executorInstance = new SpiderFlowThreadPoolExecutor(totalThreads);
 	}
 
+	@PreDestroy
+	private void destroy() {
+		//正常关闭时为执行中的任务保存检查点
+		for (SpiderContext context : checkpointContexts.values()) {
+			Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+			if (liveTasks == null) {
+				continue;
+			}
+			//持有调度线程的锁:先停止调度再保存,之后调度线程不再执行下一级,结束时也不删除检查点
+			synchronized (liveTasks) {
+				if (!checkpointContexts.containsKey(context.getId())) {
+					continue;	//已执行完毕
+				}
+				context.setRunning(false);
+				saveCheckpoint(context);
+			}
+		}
+	}
+
 	public List<SpiderOutput> run(SpiderFlow spiderFlow, SpiderContext context, Map<String, Object> variables) {
 		if (variables == null) {
 			variables = new HashMap<>();
@@ -74,12 +237,68 @@ public class Spider {
 		SpiderNode root = SpiderFlowUtils.loadXMLFromString(spiderFlow.getXml());
 		// 流程开始通知
 		flowNoticeService.sendFlowNotice(spiderFlow, FlowNoticeType.startNotice);
-		executeRoot(root, context, variables);
+		if (distributedSpider.isSupported(root)) {
+			//节点任务发布到工作队列中,由各实例执行
+			distributedSpider.run(spiderFlow.getId(), root, context, variables);
+		} else {
+			Map<String, Object> rootVariables = variables;
+			executeRoot(root, context, () -> executeNode(null, root, context, rootVariables));
+		}
 		// 流程结束通知
 		flowNoticeService.sendFlowNotice(spiderFlow, FlowNoticeType.endNotice);
 		return context.getOutputs();
 	}
 
+	/**
+	 * 获取运行中任务的性能分析:各节点执行统计、排队任务数、磁盘队列任务数及抽取表达式缓存命中情况
+	 */
+	public Map<String, Object> getProfile(SpiderContext context) {
+		Map<String, Object> profile = context.getMetrics().snapshot();
+		profile.put("backlog", context.getTaskBacklog().getDepths());
+		TaskFrontier frontier = context.get(FRONTIER);
+		profile.put("frontier", frontier == null ? 0 : frontier.size());
+		profile.put("queryCache", ExtractUtils.getQueryCacheStatistics());
+		return profile;
+	}
+
+	/**
+	 * 获取运行中任务的调用链(OTLP/JSON格式),未采样时返回null
+	 */
+	public Map<String, Object> getTrace(SpiderContext context) {
+		FlowTrace trace = context.getTrace();
+		return trace == null ? null : trace.toOtlp(TraceExporter.SERVICE_NAME, traceResource(context));
+	}
+
+	/**
+	 * 读取已结束任务导出的调用链,不存在时返回null
+	 */
+	public Map<String, Object> getTrace(String flowId, Integer taskId) throws IOException {
+		return TraceExporter.read(TraceExporter.getFile(workspace, flowId, taskId));
+	}
+
+	/**
+	 * 判断任务是否有可恢复的检查点
+	 */
+	public boolean hasCheckpoint(String flowId, Integer taskId) {
+		return CheckpointFile.getFile(workspace, flowId, taskId).exists();
+	}
+
+	/**
+	 * 从检查点恢复执行,只恢复检查点中的任务,不再从开始节点执行
+	 */
+	public List<SpiderOutput> resume(SpiderFlow spiderFlow, SpiderContext context) throws IOException {
+		File file = getCheckpointFile(context);
+		List<JSONObject> records = file == null ? null : CheckpointFile.read(file);
+		if (records == null) {
+			throw new IllegalStateException("找不到可恢复的检查点");
+		}
+		SpiderNode root = SpiderFlowUtils.loadXMLFromString(spiderFlow.getXml());
+		flowNoticeService.sendFlowNotice(spiderFlow, FlowNoticeType.startNotice);
+		executeRoot(root, context, () -> restore(root, context, records));
+		flowNoticeService.sendFlowNotice(spiderFlow, FlowNoticeType.endNotice);
+		return context.getOutputs();
+	}
+
 	public List<SpiderOutput> run(SpiderFlow spiderFlow, SpiderContext context) {
 		return run(spiderFlow, context, new HashMap<>());
 	}
@@ -92,7 +311,7 @@ public class Spider {
 		//存入到上下文中，以供后续检测
 		context.put(ATOMIC_DEAD_CYCLE, executeCount);
 		//执行根节点
-		executeRoot(root, context, new HashMap<>());
+		executeRoot(root, context, () -> executeNode(null, root, context, new HashMap<>()));
 		//当爬虫任务执行完毕时,判断是否超过预期
 		if (executeCount.get() > deadCycle) {
 			logger.error("检测到可能出现死循环,测试终止");
@@ -105,8 +324,9 @@ public class Spider {
 
 	/**
 	 * 执行根节点
+	 * @param start	在调度线程中产生最初的任务(执行开始节点或从检查点恢复)
 	 */
-	private void executeRoot(SpiderNode root, SpiderContext context, Map<String, Object> variables) {
+	private void executeRoot(SpiderNode root, SpiderContext context, Runnable start) {
 		//获取当前流程执行线程数
 		int nThreads = NumberUtils.toInt(root.getStringJsonValue(ShapeExecutor.THREAD_COUNT), defaultThreads);
 		String strategy = root.getStringJsonValue("submit-strategy");
@@ -121,76 +341,463 @@ public class Spider {
 		}else{
 			submitStrategy = new RandomThreadSubmitStrategy();
 		}
-		//创建子线程池，采用一父多子的线程池,子线程数不能超过总线程数（超过时进入队列等待）,+1是因为会占用一个线程用来调度执行下一级
-		SubThreadPoolExecutor pool = executorInstance.createSubThreadPoolExecutor(Math.max(nThreads,1) + 1,submitStrategy);
+		//创建子线程池，采用一父多子的线程池,子线程数不能超过总线程数（超过时进入队列等待）,同时运行的流程按优先级权重分配总线程数
+		//调度执行下一级在当前线程中进行,不占用全局线程池的线程
+		RunPriority priority = RunPriority.of(root.getStringJsonValue(RUN_PRIORITY));
+		SubThreadPoolExecutor pool = executorInstance.createSubThreadPoolExecutor(Math.max(nThreads,1),submitStrategy,priority.getWeight());
 		context.setRootNode(root);
 		context.setThreadPool(pool);
+		FlowTrace trace = createTrace(root, context, nThreads, strategy);
+		context.put(LOOP_FEEDERS, new ConcurrentLinkedQueue<LoopFeeder>());
+		File checkpointFile = checkpointInterval > 0 ? getCheckpointFile(context) : null;
+		if (checkpointFile != null) {
+			context.put(LIVE_TASKS, ConcurrentHashMap.<SpiderTask>newKeySet());
+			checkpointContexts.put(context.getId(), context);
+		}
+		int memoryLimit = NumberUtils.toInt(root.getStringJsonValue(FRONTIER_LIMIT), frontierMemoryLimit);
+		TaskFrontier frontier = null;
+		Map<String, SpiderNode> nodeMap = null;
+		if (memoryLimit > 0) {
+			File directory = new File(workspace, "frontier" + File.separator + context.getId());
+			frontier = new TaskFrontier(directory, memoryLimit, frontierSegmentSize, root.getStringJsonValue(FRONTIER_ORDER), root.getStringJsonValue(FRONTIER_PRIORITY));
+			nodeMap = SpiderFlowUtils.getNodeMap(root);
+			context.put(FRONTIER, frontier);
+		}
+		TaskFrontier taskFrontier = frontier;
+		Map<String, SpiderNode> frontierNodes = nodeMap;
 		//触发监听器
 		if (listeners != null) {
 			listeners.forEach(listener -> listener.beforeStart(context));
 		}
 		Comparator<SpiderNode> comparator = submitStrategy.comparator();
-		//启动一个线程开始执行任务,并监听其结束并执行下一级
-		Future<?> f = pool.submitAsync(TtlRunnable.get(() -> {
+		//在当前线程中开始执行任务,并监听其结束并执行下一级,直到所有任务执行完毕
+		try {
+			//开始节点及其下一级的父Span为根Span
+			setCurrentSpan(trace == null ? null : trace.getRoot());
 			try {
 				//执行具体节点
-				Spider.this.executeNode(null, root, context, variables);
+				start.run();
 				Queue<Future<?>> queue = context.getFutureQueue();
-				//循环从队列中获取Future,直到队列为空结束,当任务完成时，则执行下一级
-				while (!queue.isEmpty()) {
+				BlockingQueue<Future<?>> completed = context.getCompletedQueue();
+				List<Future<?>> done = new ArrayList<>();
+				Queue<LoopFeeder> feeders = context.get(LOOP_FEEDERS);
+				//下一级积压而暂停执行下一级的任务
+				Queue<SpiderTask> parked = new LinkedList<>();
+				int queueLimit = getQueueLimit(context);
+				long reportTime = System.currentTimeMillis();
+				long checkpointTime = System.currentTimeMillis();
+				Object coordinatorLock = checkpointFile != null ? context.get(LIVE_TASKS) : new Object();
+				//循环从队列中获取Future,直到队列为空且没有未完成的流式循环及暂停的任务时结束,当任务完成时，则执行下一级
+				while (!queue.isEmpty() || !feeders.isEmpty() || !parked.isEmpty() || (taskFrontier != null && !taskFrontier.isEmpty())) {
 					try {
-						//TODO 这里应该是取出最先执行完毕的任务
-						Optional<Future<?>> max = queue.stream().filter(Future::isDone).max((o1, o2) -> {
-							try {
-								return comparator.compare(((SpiderTask) o1.get()).node, ((SpiderTask) o2.get()).node);
-							} catch (InterruptedException | ExecutionException e) {
-							}
-							return 0;
-
-						});
-						if (max.isPresent()) {	//判断任务是否完成
-							queue.remove(max.get());
-							if (context.isRunning()) {	//检测是否运行中(当在页面中点击"停止"时,此值为false,其余为true)
-								SpiderTask task = (SpiderTask) max.get().get();
-								task.node.decrement();	//任务执行完毕,计数器减一(该计数器是给Join节点使用)
-								if (task.executor.allowExecuteNext(task.node, context, task.variables)) {	//判断是否允许执行下一级
-									logger.debug("执行节点[{}:{}]完毕", task.node.getNodeName(), task.node.getNodeId());
-									//执行下一级
-									Spider.this.executeNextNodes(task.node, context, task.variables);
+						//调度与关闭时保存检查点互斥,检查点与停止调度时的状态一致
+						synchronized (coordinatorLock) {
+							//补充流式循环的任务
+							feeders.forEach(LoopFeeder::feed);
+							feeders.removeIf(LoopFeeder::isExhausted);
+							//从磁盘队列读回任务
+							if (taskFrontier != null) {
+								if (context.isRunning()) {
+									refill(taskFrontier, frontierNodes, context);
 								} else {
-									logger.debug("执行节点[{}:{}]完毕，忽略执行下一节点", task.node.getNodeName(), task.node.getNodeId());
+									taskFrontier.clear();
+								}
+							}
+							//下一级不再积压时继续执行
+							parked.removeIf(task -> {
+								if (!context.isRunning()) {
+									return true;
+								}
+								if (isBlocked(task, context, queueLimit)) {
+									return false;
+								}
+								continueTask(task, context);
+								return true;
+							});
+							if (!parked.isEmpty() && System.currentTimeMillis() - reportTime > BACKLOG_REPORT_INTERVAL) {
+								reportTime = System.currentTimeMillis();
+								logger.info("任务积压,暂停执行{}个任务的下一级,各节点排队任务数:{},磁盘队列任务数:{}", parked.size(), context.getTaskBacklog().getDepths(), taskFrontier == null ? 0 : taskFrontier.size());
+							}
+							if (checkpointFile != null && context.isRunning() && System.currentTimeMillis() - checkpointTime > checkpointInterval * 1000L) {
+								checkpointTime = System.currentTimeMillis();
+								saveCheckpoint(context);
+							}
+						}
+						//等待任务执行完毕,超时后继续检查流式循环、暂停的任务及检查点
+						Future<?> first = completed.poll(COMPLETION_POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+						if (first == null) {
+							continue;
+						}
+						done.add(first);
+						completed.drainTo(done);
+						synchronized (coordinatorLock) {
+							//同时执行完毕的任务按提交策略排序,依次执行下一级
+							done.sort((o1, o2) -> comparator.compare(((SpiderFutureTask<?>) o2).getNode(), ((SpiderFutureTask<?>) o1).getNode()));
+							for (Future<?> future : done) {
+								queue.remove(future);
+								if (!context.isRunning() || future.isCancelled()) {	//检测是否运行中(当在页面中点击"停止"时,此值为false,其余为true)
+									continue;
+								}
+								//单个任务出错不影响同一批中的其他任务
+								try {
+									SpiderTask task = (SpiderTask) future.get();
+									task.completed = true;
+									context.getTaskBacklog().decrement(task.node);
+									if (task.process != null) {
+										task.process.done(task);
+									}
+									if (isBlocked(task, context, queueLimit)) {
+										//下一级积压时暂停,不占用线程,也不释放流式循环的名额,使上一级也随之暂停
+										logger.debug("执行节点[{}:{}]完毕，下一级积压，暂停执行下一级", task.node.getNodeName(), task.node.getNodeId());
+										parked.add(task);
+									} else {
+										continueTask(task, context);
+									}
+								} catch (ExecutionException e) {
+									logger.error("执行任务出错", e.getCause());
+								} catch (RuntimeException e) {
+									logger.error("程序发生异常", e);
 								}
 							}
 						}
-						//睡眠1ms,让出cpu
-						Thread.sleep(1);
 					} catch (InterruptedException ignored) {
 					} catch (Throwable t){
 						logger.error("程序发生异常",t);
+					} finally {
+						done.clear();
 					}
 				}
-				//等待线程池结束
-				pool.awaitTermination();
 			} finally {
+				//等待线程池结束,出错时也要归还线程份额
+				pool.awaitTermination();
+				if (checkpointFile != null) {
+					Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+					synchronized (liveTasks) {
+						checkpointContexts.remove(context.getId());
+						//正常执行完毕时删除检查点,手动停止及关闭时保留,以便恢复执行
+						if (context.isRunning()) {
+							CheckpointFile.delete(checkpointFile);
+						}
+					}
+					context.remove(LIVE_TASKS);
+				}
+				if (taskFrontier != null) {
+					taskFrontier.clear();
+					context.remove(FRONTIER);
+				}
+				//释放Join节点的运行状态
+				context.getForkJoinContext().clear();
+				logger.info("各节点执行统计:{}", context.getMetrics().snapshot());
+				if (trace != null) {
+					trace.getRoot().setAttribute("executions", context.getMetrics().getExecutions()).setAttribute("errors", context.getMetrics().getErrors());
+					trace.getRoot().end();
+					exportTrace(trace, context);
+				}
+				setCurrentSpan(null);
 				//触发监听器
 				if (listeners != null) {
 					listeners.forEach(listener -> listener.afterEnd(context));
 				}
 			}
-		}), null, root);
+		} catch (RuntimeException e) {
+			logger.error("执行流程出错", e);
+		}
+	}
+
+	/**
+	 * 按采样率决定是否记录本次运行的调用链
+	 */
+	private FlowTrace createTrace(SpiderNode root, SpiderContext context, int nThreads, String strategy) {
+		double sampleRate = NumberUtils.toDouble(root.getStringJsonValue(TRACE_SAMPLE_RATE), traceSampleRate);
+		if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+			context.setTrace(null);
+			return null;
+		}
+		FlowTrace trace = new FlowTrace(StringUtils.defaultIfBlank(root.getStringJsonValue("spiderName"), "spider"), traceMaxSpans);
+		trace.getRoot().setAttribute("spider.flow.id", context.getFlowId())
+			.setAttribute("threads", nThreads)
+			.setAttribute("submit-strategy", StringUtils.defaultIfBlank(strategy, "random"));
+		context.setTrace(trace);
+		return trace;
+	}
+
+	private Map<String, Object> traceResource(SpiderContext context) {
+		Map<String, Object> resource = new LinkedHashMap<>();
+		if (context.getFlowId() != null) {
+			resource.put("spider.flow.id", context.getFlowId());
+		}
+		if (context instanceof SpiderJobContext && ((SpiderJobContext) context).getTaskId() != null) {
+			resource.put("spider.task.id", ((SpiderJobContext) context).getTaskId());
+		}
+		return resource;
+	}
+
+	/**
+	 * 导出调用链,定时或手动运行的任务写入文件,配置了收集器时同时发送
+	 */
+	private void exportTrace(FlowTrace trace, SpiderContext context) {
+		File file = null;
+		if (context instanceof SpiderJobContext && ((SpiderJobContext) context).getTaskId() != null && context.getFlowId() != null) {
+			file = TraceExporter.getFile(workspace, context.getFlowId(), ((SpiderJobContext) context).getTaskId());
+		}
+		TraceExporter.export(trace, file, traceEndpoint, traceResource(context));
+	}
+
+	/**
+	 * 设置当前线程的Span,同时写入日志的MDC,使日志能与调用链关联
+	 */
+	private static void setCurrentSpan(Span span) {
+		FlowTrace.setCurrent(span);
+		if (span == null) {
+			MDC.remove(MDC_TRACE_ID);
+			MDC.remove(MDC_SPAN_ID);
+		} else {
+			MDC.put(MDC_TRACE_ID, span.getTraceId());
+			MDC.put(MDC_SPAN_ID, span.getSpanId());
+		}
+	}
+
+	/**
+	 * 任务执行完毕后的处理,判断并执行下一级
+	 */
+	private void continueTask(SpiderTask task, SpiderContext context) {
+		ForkJoinContext forkJoinContext = getForkJoinContext(context, task.process);
+		forkJoinContext.decrement(task.node);	//任务执行完毕,计数器减一(该计数器是给Join节点使用)
+		if (task.feeder != null) {
+			task.feeder.complete();
+		}
+		boolean allowExecuteNext;
+		ForkJoinContext.setCurrent(forkJoinContext);
 		try {
-			f.get();	//阻塞等待所有任务执行完毕
-		} catch (InterruptedException | ExecutionException ignored) {}
+			allowExecuteNext = task.executor.allowExecuteNext(task.node, context, task.variables);
+		} finally {
+			ForkJoinContext.setCurrent(null);
+		}
+		if (allowExecuteNext) {	//判断是否允许执行下一级
+			logger.debug("执行节点[{}:{}]完毕", task.node.getNodeName(), task.node.getNodeId());
+			//执行下一级,下一级任务的父Span为本任务的Span
+			Span previousSpan = FlowTrace.current();
+			FlowTrace.setCurrent(task.span);
+			try {
+				executeNextNodes(task.node, context, task.variables, task.process);
+			} finally {
+				FlowTrace.setCurrent(previousSpan);
+			}
+		} else {
+			logger.debug("执行节点[{}:{}]完毕，忽略执行下一节点", task.node.getNodeName(), task.node.getNodeId());
+		}
+		if (task.process != null) {
+			task.process.release();
+		}
+		Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+		if (liveTasks != null) {
+			liveTasks.remove(task);
+		}
+	}
+
+	private File getCheckpointFile(SpiderContext context) {
+		if (context instanceof SpiderJobContext && ((SpiderJobContext) context).getTaskId() != null && context.getFlowId() != null) {
+			return CheckpointFile.getFile(workspace, context.getFlowId(), ((SpiderJobContext) context).getTaskId());
+		}
+		return null;
+	}
+
+	/**
+	 * 保存检查点:未执行完毕及未执行下一级的任务、流式循环的读取位置、Join节点已合并的变量、上下文变量及Cookie,
+	 * 无法序列化的变量(如请求结果resp)会被丢弃
+	 */
+	private void saveCheckpoint(SpiderContext context) {
+		Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+		File file = getCheckpointFile(context);
+		if (liveTasks == null || file == null) {
+			return;
+		}
+		synchronized (liveTasks) {
+			long begin = System.currentTimeMillis();
+			try {
+				List<Map<String, Object>> records = new ArrayList<>();
+				Map<String, Object> contextVariables = new HashMap<>(context);
+				contextVariables.keySet().removeIf(key -> key.startsWith("_"));
+				records.add(checkpointRecord(CheckpointFile.TYPE_CONTEXT, null, contextVariables));
+				records.add(checkpointRecord(CheckpointFile.TYPE_COOKIE, null, new HashMap<>(context.getCookieContext())));
+				new HashMap<>(context.getForkJoinContext().getVariables()).forEach((nodeId, variables) -> {
+					synchronized (variables) {
+						records.add(checkpointRecord(CheckpointFile.TYPE_JOIN, nodeId, variables));
+					}
+				});
+				//未执行的任务记录创建时的变量,已执行完毕的任务记录执行后的变量
+				List<SpiderTask> completed = new ArrayList<>();
+				for (SpiderTask task : liveTasks) {
+					if (task.completed) {
+						completed.add(task);
+					} else {
+						records.add(checkpointRecord(CheckpointFile.TYPE_NODE, task.node.getNodeId(), task.initial));
+					}
+				}
+				Queue<LoopFeeder> feeders = context.get(LOOP_FEEDERS);
+				for (LoopFeeder feeder : feeders) {
+					if (!feeder.isExhausted()) {
+						Map<String, Object> record = checkpointRecord(CheckpointFile.TYPE_LOOP, feeder.node.getNodeId(), feeder.variables);
+						record.put("fromNodeId", feeder.fromNode == null ? null : feeder.fromNode.getNodeId());
+						record.put("index", feeder.index);
+						records.add(record);
+					}
+				}
+				//待执行下一级的任务写在最后,恢复时先计入其余任务的Join节点计数,再判断是否执行下一级
+				List<Map<String, Object>> nextRecords = new ArrayList<>();
+				for (SpiderTask task : completed) {
+					nextRecords.add(checkpointRecord(CheckpointFile.TYPE_NEXT, task.node.getNodeId(), task.variables));
+				}
+				if (listeners != null) {
+					listeners.forEach(listener -> listener.checkpoint(context));
+				}
+				//磁盘队列中的任务逐条写入,不读入内存
+				TaskFrontier frontier = context.get(FRONTIER);
+				CheckpointFile.write(file, writer -> {
+					records.forEach(writer);
+					if (frontier != null) {
+						try {
+							frontier.forEach((nodeId, variables) -> writer.accept(checkpointRecord(CheckpointFile.TYPE_NODE, nodeId, variables)));
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+					nextRecords.forEach(writer);
+				});
+				logger.info("保存检查点完毕,共{}条记录,耗时{}ms", records.size() + nextRecords.size() + (frontier == null ? 0 : frontier.size()), System.currentTimeMillis() - begin);
+			} catch (Throwable t) {
+				logger.error("保存检查点出错", t);
+			}
+		}
+	}
+
+	private Map<String, Object> checkpointRecord(String type, String nodeId, Map<String, Object> variables) {
+		Map<String, Object> record = new HashMap<>();
+		record.put("type", type);
+		record.put("nodeId", nodeId);
+		record.put("variables", VariableSnapshotUtils.snapshot(variables, false));
+		return record;
+	}
+
+	/**
+	 * 内存中任务数降到上限的一半时,从磁盘队列读回任务(调度线程调用)
+	 */
+	private void refill(TaskFrontier frontier, Map<String, SpiderNode> nodeMap, SpiderContext context) {
+		int count = frontier.getRefillCount(context.getTaskBacklog().getTotal());
+		if (count <= 0) {
+			return;
+		}
+		for (FrontierItem item : frontier.poll(count)) {
+			SpiderNode node = nodeMap.get(item.getNodeId());
+			ShapeExecutor executor = node == null ? null : ExecutorsUtils.get(node.getStringJsonValue("shape"));
+			if (executor == null) {
+				continue;
+			}
+			//写入磁盘时已计入排队数及Join节点计数
+			dispatchTask(newTask(node, executor, context, new VariableScope(item.getVariables()), null), context);
+		}
+	}
+
+	/**
+	 * 从检查点恢复任务(调度线程调用)
+	 * 未执行完毕的任务重新执行,流式循环重新获取数据源并跳过已读取的部分
+	 * 待执行下一级的任务在其余任务计入Join节点计数后再执行下一级,避免Join节点提前放行
+	 */
+	private void restore(SpiderNode root, SpiderContext context, List<JSONObject> records) {
+		Map<String, SpiderNode> nodeMap = SpiderFlowUtils.getNodeMap(root);
+		int count = 0;
+		List<JSONObject> nextRecords = new ArrayList<>();
+		for (JSONObject record : records) {
+			String type = record.getString("type");
+			String nodeId = record.getString("nodeId");
+			JSONObject variables = record.getJSONObject("variables");
+			Map<String, Object> nVariables = variables == null ? new HashMap<>() : new HashMap<>(variables);
+			if (CheckpointFile.TYPE_CONTEXT.equals(type)) {
+				nVariables.forEach(context::putIfAbsent);
+				continue;
+			}
+			if (CheckpointFile.TYPE_COOKIE.equals(type)) {
+				nVariables.forEach((name, value) -> context.getCookieContext().put(name, String.valueOf(value)));
+				continue;
+			}
+			if (CheckpointFile.TYPE_JOIN.equals(type)) {
+				Map<String, Object> joinVariables = context.getForkJoinContext().getVariables(nodeId);
+				synchronized (joinVariables) {
+					joinVariables.putAll(nVariables);
+				}
+				continue;
+			}
+			SpiderNode node = nodeMap.get(nodeId);
+			if (node == null) {
+				logger.warn("恢复检查点时找不到节点{},流程可能已被修改", nodeId);
+				continue;
+			}
+			count++;
+			if (CheckpointFile.TYPE_NODE.equals(type)) {
+				ShapeExecutor executor = ExecutorsUtils.get(node.getStringJsonValue("shape"));
+				if (executor != null) {
+					context.getForkJoinContext().increment(node);	//与正常执行一样计入Join节点计数
+					submitTask(createTask(node, executor, context, new VariableScope(nVariables), null), context);
+				}
+			} else if (CheckpointFile.TYPE_LOOP.equals(type)) {
+				SpiderNode fromNode = nodeMap.get(record.getString("fromNodeId"));
+				executeNode(fromNode, node, context, nVariables, null, record.getIntValue("index"));
+			} else if (CheckpointFile.TYPE_NEXT.equals(type)) {
+				nextRecords.add(record);
+			}
+		}
+		for (JSONObject record : nextRecords) {
+			SpiderNode node = nodeMap.get(record.getString("nodeId"));
+			JSONObject variables = record.getJSONObject("variables");
+			Map<String, Object> nVariables = variables == null ? new HashMap<>() : new HashMap<>(variables);
+			ShapeExecutor executor = ExecutorsUtils.get(node.getStringJsonValue("shape"));
+			if (executor == null || executor.allowExecuteNext(node, context, nVariables)) {
+				executeNextNodes(node, context, nVariables, null);
+			}
+		}
+		logger.info("从检查点恢复{}个任务", count);
+	}
+
+	/**
+	 * 判断下一级是否积压(流程排队任务数或连线上的排队上限)
+	 */
+	private boolean isBlocked(SpiderTask task, SpiderContext context, int queueLimit) {
+		List<SpiderNode> nextNodes = task.node.getNextNodes();
+		if (nextNodes.isEmpty()) {
+			return false;
+		}
+		TaskBacklog backlog = context.getTaskBacklog();
+		if (queueLimit > 0 && backlog.getTotal() >= queueLimit) {
+			return true;
+		}
+		for (SpiderNode nextNode : nextNodes) {
+			int limit = nextNode.getQueueLimit(task.node.getNodeId());
+			if (limit > 0 && backlog.getDepth(nextNode) >= limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int getQueueLimit(SpiderContext context) {
+		return Math.max(NumberUtils.toInt(context.getRootNode().getStringJsonValue(QUEUE_LIMIT), 0), 0);
+	}
+
+	/**
+	 * 获取任务所属的Join状态,子流程的每次调用使用独立的实例
+	 */
+	private ForkJoinContext getForkJoinContext(SpiderContext context, ProcessInvocation process) {
+		return process == null ? context.getForkJoinContext() : process.forkJoinContext;
 	}
 
 	/**
 	 * 执行下一级节点
 	 */
-	private void executeNextNodes(SpiderNode node, SpiderContext context, Map<String, Object> variables) {
+	private void executeNextNodes(SpiderNode node, SpiderContext context, Map<String, Object> variables, ProcessInvocation process) {
 		List<SpiderNode> nextNodes = node.getNextNodes();
 		if (nextNodes != null) {
 			for (SpiderNode nextNode : nextNodes) {
-				executeNode(node, nextNode, context, variables);
+				executeNode(node, nextNode, context, variables, process);
 			}
 		}
 	}
@@ -199,9 +806,33 @@ public class Spider {
 	 * 执行节点
 	 */
 	public void executeNode(SpiderNode fromNode, SpiderNode node, SpiderContext context, Map<String, Object> variables) {
+		executeNode(fromNode, node, context, variables, null);
+	}
+
+	/**
+	 * 执行子流程,子流程的节点作为普通任务调度,不阻塞调用线程
+	 * @param processNode	子流程节点
+	 * @param root	子流程的根节点
+	 * @param variables	子流程的初始变量
+	 * @param callerVariables	子流程节点的变量,等待子流程结束时用于执行下一级
+	 * @param threads	子流程同时执行的任务数上限,小于等于0时不限制
+	 * @param wait	是否等待子流程结束后再执行子流程节点的下一级
+	 */
+	public void executeProcess(SpiderNode processNode, SpiderNode root, SpiderContext context, Map<String, Object> variables, Map<String, Object> callerVariables, int threads, boolean wait) {
+		new ProcessInvocation(processNode, context, callerVariables, CURRENT_PROCESS.get(), threads, wait).start(root, variables);
+	}
+
+	private void executeNode(SpiderNode fromNode, SpiderNode node, SpiderContext context, Map<String, Object> variables, ProcessInvocation process) {
+		executeNode(fromNode, node, context, variables, process, -1);
+	}
+
+	/**
+	 * @param resumeIndex	从检查点恢复的流式循环已读取的位置,小于0时从头开始
+	 */
+	private void executeNode(SpiderNode fromNode, SpiderNode node, SpiderContext context, Map<String, Object> variables, ProcessInvocation process, int resumeIndex) {
 		String shape = node.getStringJsonValue("shape");
 		if (StringUtils.isBlank(shape)) {
-			executeNextNodes(node, context, variables);
+			executeNextNodes(node, context, variables, process);
 			return;
 		}
 		//判断箭头上的条件，如果不成立则不执行
@@ -220,12 +851,18 @@ public class Spider {
 		int loopEnd = 1;	//循环结束位置
 		String loopCountStr = node.getStringJsonValue(ShapeExecutor.LOOP_COUNT);
 		Object loopArray = null;
+		Iterator<?> loopIterator = null;	//流式循环的数据源
 		boolean isLoop = false;
 		if (isLoop = StringUtils.isNotBlank(loopCountStr)) {
 			try {
 				loopArray = ExpressionUtils.execute(loopCountStr, variables);
 				if(loopArray == null){
 					loopCount = 0;
+				}else if(isLazy(loopArray)){
+					//数量未知的数据源,按需读取
+					loopIterator = toIterator(loopArray);
+					loopCount = Integer.MAX_VALUE;
+					loopArray = null;
 				}else if(loopArray instanceof Collection){
 					loopCount = ((Collection)loopArray).size();
 					loopArray = ((Collection)loopArray).toArray();
@@ -237,32 +874,59 @@ public class Spider {
 				}
 				loopEnd = loopCount;
 				if(loopCount > 0){
-					loopStart = Math.max(NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_START), 0),0);
+					loopStart = Math.max(NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_START), 0),Math.max(resumeIndex, 0));
 					int end = NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_END), -1);
 					if(end >=0){
 						loopEnd = Math.min(end,loopEnd);
+					}else if(loopIterator != null){
+						if(end < -1){
+							logger.warn("流式循环无法获取总数,忽略结束位置{}", end);
+						}
 					}else{
 						loopEnd = Math.max(loopEnd + end + 1,0);
 					}
 				}
-				logger.info("获取循环次数{}={}", loopCountStr, loopCount);
+				logger.info("获取循环次数{}={}", loopCountStr, loopIterator == null ? loopCount : "流式读取");
 			} catch (Throwable t) {
 				loopCount = 0;
 				logger.error("获取循环次数失败,异常信息：{}", t);
 			}
 		}
-		if (loopCount > 0) {
+		//配置了排队上限时,循环按需创建任务,避免一次性创建全部任务
+		boolean limited = getQueueLimit(context) > 0 || (fromNode != null && node.getQueueLimit(fromNode.getNodeId()) > 0);
+		if (loopCount > 0 && (loopIterator != null || (isLoop && (limited || "1".equals(node.getStringJsonValue(LoopExecutor.LOOP_STREAM)))))) {
+			if (loopIterator == null) {
+				loopIterator = new IndexIterator(loopArray, loopCount);
+			}
+			LoopFeeder feeder = new LoopFeeder(fromNode, node, executor, context, variables, loopIterator, loopStart, loopEnd, process);
+			if (!feeder.isExhausted()) {
+				Queue<LoopFeeder> feeders = context.get(LOOP_FEEDERS);
+				if (feeders != null) {
+					feeders.add(feeder);
+				}
+				feeder.feed();
+			}
+		} else if (loopCount > 0) {
 			//获取循环下标的变量名称
 			String loopVariableName = node.getStringJsonValue(ShapeExecutor.LOOP_VARIABLE_NAME);
 			String loopItem = node.getStringJsonValue(LoopExecutor.LOOP_ITEM,"item");
 			List<SpiderTask> tasks = new ArrayList<>();
+			//使用磁盘队列时逐个提交,使超出上限的任务及时写入磁盘,不在内存中堆积
+			boolean spill = context.get(FRONTIER) != null;
+			//循环的每次执行及上一级有多个下一级时,各自作为分支记录修改的变量(Join节点只合并分支修改的变量)
+			boolean branch = isLoop || (fromNode != null && fromNode.getNextNodes().size() > 1);
 			for (int i = loopStart; i < loopEnd; i++) {
-				node.increment();	//节点执行次数+1(后续Join节点使用)
+				getForkJoinContext(context, process).increment(node);	//节点执行次数+1(后续Join节点使用)
 				if (context.isRunning()) {
-					Map<String, Object> nVariables = new HashMap<>();
-					// 判断是否需要传递变量
+					// 判断是否需要传递变量,子任务只记录自己修改的变量,不再复制上一级的全部变量
+					VariableScope nVariables;
 					if(fromNode == null || node.isTransmitVariable(fromNode.getNodeId())){
-						nVariables.putAll(variables);
+						nVariables = new VariableScope(variables);
+					}else{
+						nVariables = new VariableScope();
+					}
+					if (branch) {
+						nVariables.markBranch();
 					}
 					if(isLoop){
 						// 存入下标变量
@@ -272,45 +936,181 @@ public class Spider {
 						// 存入item
 						nVariables.put(loopItem,loopArray == null ? i : Array.get(loopArray, i));
 					}
-					tasks.add(new SpiderTask(TtlRunnable.get(() -> {
-						if (context.isRunning()) {
-							try {
-								//死循环检测，当执行节点次数大于阈值时，结束本次测试
-								AtomicInteger executeCount = context.get(ATOMIC_DEAD_CYCLE);
-								if (executeCount != null && executeCount.incrementAndGet() > deadCycle) {
-									context.setRunning(false);
-									return;
-								}
-								//执行节点具体逻辑
-								executor.execute(node, context, nVariables);
-								//当未发生异常时，移除ex变量
-								nVariables.remove("ex");
-							} catch (Throwable t) {
-								nVariables.put("ex", t);
-								logger.error("执行节点[{}:{}]出错,异常信息：{}", node.getNodeName(), node.getNodeId(), t);
-							}
-						}
-					}), node, nVariables, executor));
+					SpiderTask task = createTask(node, executor, context, nVariables, process);
+					if (isLoop) {
+						task.loopIndex = i;
+					}
+					if (spill) {
+						submitTask(task, context);
+					} else {
+						tasks.add(task);
+					}
 				}
 			}
-			LinkedBlockingQueue<Future<?>> futureQueue = context.getFutureQueue();
 			for (SpiderTask task : tasks) {
-				if(executor.isThread()){	//判断节点是否是异步运行
-					//提交任务至线程池中,并将Future添加到队列末尾
-					futureQueue.add(context.getThreadPool().submitAsync(task.runnable, task, node));
-				}else{
-					FutureTask<SpiderTask> futureTask = new FutureTask<>(task.runnable, task);
-					futureTask.run();
-					futureQueue.add(futureTask);
+				submitTask(task, context);
+			}
+		}
+	}
+
+	/**
+	 * 创建节点任务
+	 */
+	private SpiderTask createTask(SpiderNode node, ShapeExecutor executor, SpiderContext context, Map<String, Object> nVariables, ProcessInvocation process) {
+		if (process != null) {
+			process.hold();
+		}
+		context.getTaskBacklog().increment(node);
+		return newTask(node, executor, context, nVariables, process);
+	}
+
+	/**
+	 * 创建任务对象,不计入排队数(从磁盘队列读回的任务已计入)
+	 */
+	private SpiderTask newTask(SpiderNode node, ShapeExecutor executor, SpiderContext context, Map<String, Object> nVariables, ProcessInvocation process) {
+		SpiderTask task = new SpiderTask(null, node, nVariables, executor);
+		//创建任务时的Span为父Span(执行下一级时为上一级任务的Span)
+		task.parentSpan = FlowTrace.current();
+		task.runnable = TtlRunnable.get(() -> {
+			if (context.isRunning()) {
+				ProcessInvocation previous = CURRENT_PROCESS.get();
+				CURRENT_PROCESS.set(process);
+				NodeMetrics metrics = context.getMetrics().getNodeMetrics(node);
+				NodeMetrics previousMetrics = FlowMetrics.current();
+				FlowMetrics.setCurrent(metrics);
+				long begin = System.nanoTime();
+				boolean error = false;
+				FlowTrace trace = context.getTrace();
+				Span previousSpan = null;
+				if (trace != null) {
+					previousSpan = FlowTrace.current();
+					startSpan(trace, task, begin);
+				}
+				try {
+					//死循环检测，当执行节点次数大于阈值时，结束本次测试
+					AtomicInteger executeCount = context.get(ATOMIC_DEAD_CYCLE);
+					if (executeCount != null && executeCount.incrementAndGet() > deadCycle) {
+						context.setRunning(false);
+						return;
+					}
+					//执行节点具体逻辑
+					executor.execute(node, context, nVariables);
+					//当未发生异常时，移除ex变量
+					nVariables.remove("ex");
+				} catch (Throwable t) {
+					error = true;
+					nVariables.put("ex", t);
+					if (task.span != null) {
+						task.span.setError(t);
+					}
+					logger.error("执行节点[{}:{}]出错,异常信息：{}", node.getNodeName(), node.getNodeId(), t);
+				} finally {
+					//记录排队及执行耗时
+					metrics.recordExecution(begin - task.dispatchTime, System.nanoTime() - begin, error);
+					FlowMetrics.setCurrent(previousMetrics);
+					if (trace != null) {
+						task.span.end();
+						setCurrentSpan(previousSpan);
+					}
+					if (previous == null) {
+						CURRENT_PROCESS.remove();
+					} else {
+						CURRENT_PROCESS.set(previous);
+					}
 				}
 			}
+		});
+		task.process = process;
+		Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+		if (liveTasks != null) {
+			//执行前复制一份变量,保存检查点时不受执行中修改的影响
+			task.initial = nVariables instanceof VariableScope ? ((VariableScope) nVariables).copy() : new HashMap<>(nVariables);
+			liveTasks.add(task);
+		}
+		return task;
+	}
+
+	/**
+	 * 记录任务的排队耗时,并创建节点执行的Span
+	 */
+	private void startSpan(FlowTrace trace, SpiderTask task, long begin) {
+		Span parent = task.parentSpan == null ? trace.getRoot() : task.parentSpan;
+		if (task.dispatchTime > 0) {
+			trace.start("queue", parent, task.dispatchTime).setAttribute("node.id", task.node.getNodeId()).end(begin);
+		}
+		Span span = trace.start(StringUtils.defaultIfBlank(task.node.getNodeName(), task.node.getNodeId()), parent, begin);
+		span.setAttribute("node.id", task.node.getNodeId()).setAttribute("node.shape", task.node.getStringJsonValue("shape"));
+		if (task.loopIndex >= 0) {
+			span.setAttribute("loop.index", task.loopIndex);
+		}
+		task.span = span;
+		setCurrentSpan(span);
+	}
+
+	/**
+	 * 提交节点任务
+	 */
+	private void submitTask(SpiderTask task, SpiderContext context) {
+		//内存中任务数超过上限时写入磁盘队列(子流程及流式循环的任务数已受限,不写入)
+		TaskFrontier frontier = context.get(FRONTIER);
+		if (frontier != null && task.process == null && task.feeder == null && frontier.isFull(context.getTaskBacklog().getTotal()) && frontier.offer(task.node, task.variables)) {
+			Set<SpiderTask> liveTasks = context.get(LIVE_TASKS);
+			if (liveTasks != null) {
+				liveTasks.remove(task);
+			}
+			return;
+		}
+		//子流程的任务数达到上限时暂存,待子流程中其他任务执行完毕后提交
+		if (task.process != null && !task.process.acquire(task)) {
+			return;
+		}
+		dispatchTask(task, context);
+	}
+
+	private void dispatchTask(SpiderTask task, SpiderContext context) {
+		LinkedBlockingQueue<Future<?>> futureQueue = context.getFutureQueue();
+		LinkedBlockingQueue<Future<?>> completedQueue = context.getCompletedQueue();
+		task.dispatchTime = System.nanoTime();
+		if(task.executor.isThread()){	//判断节点是否是异步运行
+			//提交任务至线程池中,并将Future添加到队列末尾,执行完毕时放入完成队列
+			//加入Future队列后才允许放入完成队列,避免任务在加入队列前就执行完毕
+			synchronized (futureQueue) {
+				futureQueue.add(context.getThreadPool().submitAsync(task.runnable, task, task.node, future -> {
+					synchronized (futureQueue) {
+						completedQueue.add(future);
+					}
+				}));
+			}
+		}else{
+			SpiderFutureTask<SpiderTask> futureTask = new SpiderFutureTask<>(task.runnable, task, task.node, null);
+			futureQueue.add(futureTask);
+			futureTask.run();
+			completedQueue.add(futureTask);
 		}
 	}
 
 	/**
-	 *	判断箭头上的表达式是否成立
+	 * 是否为数量未知、需要按需读取的循环数据源
 	 */
-	private boolean executeCondition(SpiderNode fromNode, SpiderNode node, Map<String, Object> variables, SpiderContext context) {
+	private boolean isLazy(Object loopArray) {
+		return loopArray instanceof Iterator || loopArray instanceof BaseStream || loopArray instanceof LazyList
+				|| (loopArray instanceof Iterable && !(loopArray instanceof Collection));
+	}
+
+	private Iterator<?> toIterator(Object loopArray) {
+		if (loopArray instanceof Iterator) {
+			return (Iterator<?>) loopArray;
+		}
+		if (loopArray instanceof BaseStream) {
+			return ((BaseStream<?, ?>) loopArray).iterator();
+		}
+		return ((Iterable<?>) loopArray).iterator();
+	}
+
+	/**
+	 *	判断箭头上的表达式是否成立(分布式执行时也使用)
+	 */
+	public static boolean executeCondition(SpiderNode fromNode, SpiderNode node, Map<String, Object> variables, SpiderContext context) {
 		if (fromNode != null) {
 			boolean hasException = variables.get("ex") != null;
 			String exceptionFlow = node.getExceptionFlow(fromNode.getNodeId());
@@ -348,6 +1148,46 @@ public class Spider {
 
 		ShapeExecutor executor;
 
+		/**
+		 * 所属的流式循环
+		 */
+		LoopFeeder feeder;
+
+		/**
+		 * 所属的子流程
+		 */
+		ProcessInvocation process;
+
+		/**
+		 * 执行前的变量(保存检查点时使用)
+		 */
+		Map<String,Object> initial;
+
+		/**
+		 * 循环下标,不是循环时为-1
+		 */
+		int loopIndex = -1;
+
+		/**
+		 * 父Span,为空时为根Span
+		 */
+		Span parentSpan;
+
+		/**
+		 * 节点执行的Span,未采样时为空
+		 */
+		Span span;
+
+		/**
+		 * 是否已执行完毕
+		 */
+		volatile boolean completed;
+
+		/**
+		 * 提交至线程池的时间(纳秒),用于统计排队耗时
+		 */
+		long dispatchTime;
+
 		public SpiderTask(Runnable runnable, SpiderNode node, Map<String, Object> variables,ShapeExecutor executor) {
 			this.runnable = runnable;
 			this.node = node;
@@ -355,4 +1195,357 @@ public class Spider {
 			this.executor = executor;
 		}
 	}
+
+	/**
+	 * 按下标遍历数组或次数
+	 */
+	static class IndexIterator implements Iterator<Object> {
+
+		private final Object array;
+
+		private final int count;
+
+		private int index;
+
+		IndexIterator(Object array, int count) {
+			this.array = array;
+			this.count = count;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < count;
+		}
+
+		@Override
+		public Object next() {
+			if (index >= count) {
+				throw new NoSuchElementException();
+			}
+			int i = index++;
+			return array == null ? i : Array.get(array, i);
+		}
+	}
+
+	/**
+	 * 流式循环,按需从数据源中读取并创建任务,同时执行中的任务数不超过上限
+	 */
+	class LoopFeeder {
+
+		private final SpiderNode fromNode;
+
+		private final SpiderNode node;
+
+		private final ShapeExecutor executor;
+
+		private final SpiderContext context;
+
+		private final Map<String, Object> variables;
+
+		private final Iterator<?> iterator;
+
+		private final int end;
+
+		private final int limit;
+
+		private final String loopVariableName;
+
+		private final String loopItem;
+
+		private final ProcessInvocation process;
+
+		/**
+		 * 流程的排队上限
+		 */
+		private final int queueLimit;
+
+		/**
+		 * 连线上的排队上限
+		 */
+		private final int edgeQueueLimit;
+
+		/**
+		 * 已创建但未执行完毕的任务数
+		 */
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		/**
+		 * 创建流式循环时的Span,作为各任务的父Span
+		 */
+		private final Span span = FlowTrace.current();
+
+		private volatile int index;
+
+		private volatile boolean exhausted;
+
+		LoopFeeder(SpiderNode fromNode, SpiderNode node, ShapeExecutor executor, SpiderContext context, Map<String, Object> variables, Iterator<?> iterator, int start, int end, ProcessInvocation process) {
+			this.fromNode = fromNode;
+			this.process = process;
+			this.node = node;
+			this.executor = executor;
+			this.context = context;
+			this.variables = variables;
+			this.iterator = iterator;
+			this.end = end;
+			this.loopVariableName = node.getStringJsonValue(ShapeExecutor.LOOP_VARIABLE_NAME);
+			this.loopItem = node.getStringJsonValue(LoopExecutor.LOOP_ITEM, "item");
+			int threads = NumberUtils.toInt(context.getRootNode().getStringJsonValue(ShapeExecutor.THREAD_COUNT), defaultThreads);
+			this.limit = Math.max(NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_IN_FLIGHT), Math.max(threads, 1) * 2), 1);
+			this.queueLimit = getQueueLimit(context);
+			this.edgeQueueLimit = fromNode == null ? 0 : node.getQueueLimit(fromNode.getNodeId());
+			//跳过起始位置之前的数据
+			while (index < start && iterator.hasNext()) {
+				iterator.next();
+				index++;
+			}
+			if (hasMore()) {
+				//数据源未读取完毕前占用一个计数,防止Join节点提前认为已执行完毕
+				getForkJoinContext(context, process).increment(node);
+				if (process != null) {
+					process.hold();
+				}
+			} else {
+				finish(false);
+			}
+		}
+
+		private boolean hasMore() {
+			try {
+				return index < end && iterator.hasNext();
+			} catch (Throwable t) {
+				logger.error("读取循环数据出错,异常信息：{}", t);
+				return false;
+			}
+		}
+
+		/**
+		 * 创建任务直至达到执行中任务数上限或数据源读取完毕
+		 */
+		synchronized void feed() {
+			while (!exhausted && inFlight.get() < limit && !isBlocked()) {
+				if (!context.isRunning()) {
+					finish(true);
+					return;
+				}
+				Object item;
+				try {
+					item = iterator.next();
+				} catch (Throwable t) {
+					logger.error("读取循环数据出错,异常信息：{}", t);
+					finish(true);
+					return;
+				}
+				int i = index++;
+				getForkJoinContext(context, process).increment(node);	//节点执行次数+1(后续Join节点使用)
+				VariableScope nVariables;
+				// 判断是否需要传递变量,子任务只记录自己修改的变量
+				if(fromNode == null || node.isTransmitVariable(fromNode.getNodeId())){
+					nVariables = new VariableScope(variables);
+				}else{
+					nVariables = new VariableScope();
+				}
+				//循环的每次执行作为一个分支
+				nVariables.markBranch();
+				if (!StringUtils.isBlank(loopVariableName)) {
+					nVariables.put(loopVariableName, i);
+				}
+				nVariables.put(loopItem, item);
+				SpiderTask task = createTask(node, executor, context, nVariables, process);
+				task.feeder = this;
+				task.loopIndex = i;
+				task.parentSpan = span;
+				inFlight.incrementAndGet();
+				//在提交最后一个任务前释放占用的计数,保证最后一个任务完成时计数能归零
+				if (!hasMore()) {
+					finish(true);
+				}
+				submitTask(task, context);
+			}
+		}
+
+		void complete() {
+			inFlight.decrementAndGet();
+		}
+
+		/**
+		 * 本节点或流程积压时暂停创建任务(自身没有执行中的任务时不暂停,保证能继续执行)
+		 */
+		private boolean isBlocked() {
+			if (inFlight.get() == 0) {
+				return false;
+			}
+			TaskBacklog backlog = context.getTaskBacklog();
+			return (queueLimit > 0 && backlog.getTotal() >= queueLimit) || (edgeQueueLimit > 0 && backlog.getDepth(node) >= edgeQueueLimit);
+		}
+
+		boolean isExhausted() {
+			return exhausted;
+		}
+
+		private void finish(boolean release) {
+			if (exhausted) {
+				return;
+			}
+			exhausted = true;
+			if (release) {
+				getForkJoinContext(context, process).decrement(node);
+				if (process != null) {
+					process.release();
+				}
+			}
+			if (iterator instanceof Closeable) {
+				try {
+					((Closeable) iterator).close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * 一次子流程调用,记录子流程中未执行完毕的任务数,限制同时执行的任务数,
+	 * 全部执行完毕时将结果映射回调用方并执行子流程节点的下一级
+	 */
+	class ProcessInvocation {
+
+		private final SpiderNode processNode;
+
+		private final SpiderContext context;
+
+		private final Map<String, Object> callerVariables;
+
+		/**
+		 * 调用方所属的子流程
+		 */
+		private final ProcessInvocation parent;
+
+		private final int limit;
+
+		private final boolean wait;
+
+		/**
+		 * 未执行完毕的任务数(包括流式循环及嵌套子流程的占用)
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * 执行中的任务数
+		 */
+		private int running;
+
+		/**
+		 * 等待提交的任务
+		 */
+		private final Queue<SpiderTask> waiting = new LinkedList<>();
+
+		/**
+		 * 子流程中没有下一级的节点执行完毕后的变量
+		 */
+		private final Map<String, Object> result = new HashMap<>();
+
+		/**
+		 * 本次调用中Join节点的运行状态,子流程的流程图被多次调用共用,运行状态按调用隔离
+		 */
+		private final ForkJoinContext forkJoinContext = new ForkJoinContext();
+
+		ProcessInvocation(SpiderNode processNode, SpiderContext context, Map<String, Object> callerVariables, ProcessInvocation parent, int limit, boolean wait) {
+			this.processNode = processNode;
+			this.context = context;
+			this.callerVariables = callerVariables;
+			this.parent = parent;
+			this.limit = limit;
+			this.wait = wait;
+		}
+
+		void start(SpiderNode root, Map<String, Object> variables) {
+			if (parent != null) {
+				parent.hold();
+			}
+			if (wait) {
+				//子流程结束前占用子流程节点的计数,防止Join节点提前认为已执行完毕
+				getForkJoinContext(context, parent).increment(processNode);
+			}
+			hold();
+			try {
+				executeNode(null, root, context, variables, this);
+			} finally {
+				release();
+			}
+		}
+
+		void hold() {
+			pending.incrementAndGet();
+		}
+
+		void release() {
+			if (pending.decrementAndGet() == 0) {
+				finish();
+			}
+		}
+
+		/**
+		 * 获取执行权,达到上限时放入等待队列
+		 */
+		synchronized boolean acquire(SpiderTask task) {
+			if (limit <= 0 || running < limit) {
+				running++;
+				return true;
+			}
+			waiting.add(task);
+			return false;
+		}
+
+		/**
+		 * 任务执行完毕(调度线程调用),释放执行权,执行下一级后还需调用release
+		 */
+		void done(SpiderTask task) {
+			SpiderTask next;
+			synchronized (this) {
+				if (wait && task.node.getNextNodes().isEmpty()) {
+					result.putAll(task.variables);
+				}
+				next = waiting.poll();
+				if (next == null) {
+					running--;
+				}
+			}
+			if (next != null) {
+				dispatchTask(next, context);
+			}
+		}
+
+		private void finish() {
+			try {
+				if (wait && context.isRunning()) {
+					Map<String, Object> values;
+					synchronized (this) {
+						values = new HashMap<>(result);
+						result.clear();
+					}
+					Map<String, Object> nVariables = new VariableScope(callerVariables);
+					for (Map<String, String> output : ProcessExecutor.getOutputs(processNode)) {
+						String name = output.get(ProcessExecutor.OUTPUT_NAME);
+						if (StringUtils.isBlank(name)) {
+							continue;
+						}
+						try {
+							nVariables.put(name, ExpressionUtils.execute(output.get(ProcessExecutor.OUTPUT_VALUE), values));
+						} catch (Throwable t) {
+							nVariables.put("ex", t);
+							logger.error("获取子流程返回值{}出错,异常信息：{}", name, t);
+						}
+					}
+					logger.debug("子流程[{}:{}]执行完毕", processNode.getNodeName(), processNode.getNodeId());
+					executeNextNodes(processNode, context, nVariables, parent);
+				}
+			} finally {
+				if (wait) {
+					getForkJoinContext(context, parent).decrement(processNode);
+				}
+				if (parent != null) {
+					parent.release();
+				}
+			}
+		}
+	}
 }
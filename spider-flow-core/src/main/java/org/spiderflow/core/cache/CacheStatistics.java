@@ -154,22 +154,14 @@ public class CacheStatistics {
 
     @Override
     public String toString() {
-        return "CacheStatistics{
-" +
-                "  accessCount=" + accessCount.get() + ",
-" +
-                "  hitCount=" + hitCount.get() + ",
-" +
-                "  missCount=" + missCount.get() + ",
-" +
-                "  putCount=" + putCount.get() + ",
-" +
-                "  removeCount=" + removeCount.get() + ",
-" +
-                "  clearCount=" + clearCount.get() + ",
-" +
-                "  evictCount=" + evictCount.get() + ",
-" +
+        return "CacheStatistics{\n" +
+                "  accessCount=" + accessCount.get() + ",\n" +
+                "  hitCount=" + hitCount.get() + ",\n" +
+                "  missCount=" + missCount.get() + ",\n" +
+                "  putCount=" + putCount.get() + ",\n" +
+                "  removeCount=" + removeCount.get() + ",\n" +
+                "  clearCount=" + clearCount.get() + ",\n" +
+                "  evictCount=" + evictCount.get() + ",\n" +
                 "  hitRate=" + String.format("%.2f%%", getHitRate() * 100) + 
                 "}";
     }
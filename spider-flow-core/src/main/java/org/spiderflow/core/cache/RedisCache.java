@@ -1,5 +1,6 @@
 package org.spiderflow.core.cache;
 
+import org.spiderflow.core.metrics.SpiderMetrics;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
@@ -41,6 +42,7 @@ public class RedisCache implements Cache {
         } else {
             this.jedisPool = new JedisPool(config, host, port, 2000, null, database);
         }
+        SpiderMetrics.bindJedisPool("cache", jedisPool);
     }
 
     @Override
@@ -0,0 +1,552 @@
+package org.spiderflow.core.distributed;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.BaseStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.context.SpiderContext;
+import org.spiderflow.context.SpiderContextHolder;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.executor.shape.LoopExecutor;
+import org.spiderflow.core.job.SpiderJobContext;
+import org.spiderflow.core.service.SpiderFlowService;
+import org.spiderflow.core.utils.ExecutorsUtils;
+import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.core.utils.SpiderFlowUtils;
+import org.spiderflow.core.utils.VariableSnapshotUtils;
+import org.spiderflow.executor.ShapeExecutor;
+import org.spiderflow.listener.SpiderListener;
+import org.spiderflow.model.SpiderNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 分布式执行
+ * 节点任务(运行ID、节点ID、变量快照)发布到共享的工作队列中,各实例的工作线程领取任务,
+ * 使用相同的执行器执行后发布下一级任务,运行是否结束由队列中的计数判断
+ * 变量在实例间以JSON传递,无法序列化的值(如请求结果)会转为字符串,应在同一节点中完成抽取;
+ * 每个任务同时携带发布时的Cookie及上下文变量,发起运行的实例直接使用运行的上下文(输出、监听器及日志),
+ * 其他实例为每个运行创建独立的上下文,日志写入本机该任务的日志文件,运行结束后触发监听器并释放
+ * 包含等待结束、子流程节点的流程仍在本机执行
+ * @author jmxd
+ *
+ */
+@Component
+public class DistributedSpider {
+
+	private static Logger logger = LoggerFactory.getLogger(DistributedSpider.class);
+
+	/**
+	 * 工作队列类型:none(不启用)、file(共享目录)、redis(Redis Stream)
+	 */
+	@Value("${spider.distributed.queue:none}")
+	private String queueType;
+
+	/**
+	 * 本实例领取任务的线程数,为0时只发布任务不执行
+	 */
+	@Value("${spider.distributed.workers:4}")
+	private int workers;
+
+	/**
+	 * 任务领取后未确认的超时时间(秒),超时后重新投递
+	 */
+	@Value("${spider.distributed.visibility-timeout:600}")
+	private long visibilityTimeout;
+
+	/**
+	 * 发起运行的实例等待时,任务数超过该时间(秒)没有变化则取消运行,为0时不限制
+	 */
+	@Value("${spider.distributed.stall-timeout:3600}")
+	private long stallTimeout;
+
+	@Value("${spider.distributed.file.path:}")
+	private String filePath;
+
+	@Value("${spider.workspace}")
+	private String workspace;
+
+	@Value("${spider.distributed.redis.host:localhost}")
+	private String redisHost;
+
+	@Value("${spider.distributed.redis.port:6379}")
+	private int redisPort;
+
+	@Value("${spider.distributed.redis.database:0}")
+	private int redisDatabase;
+
+	@Value("${spider.distributed.redis.password:}")
+	private String redisPassword;
+
+	@Autowired
+	private SpiderFlowService spiderFlowService;
+
+	@Autowired(required = false)
+	private List<SpiderListener> listeners;
+
+	private WorkQueue queue;
+
+	private volatile boolean running;
+
+	private final List<Thread> threads = new ArrayList<>();
+
+	/**
+	 * 定期延长执行中任务的超时时间
+	 */
+	private ScheduledExecutorService heartbeat;
+
+	/**
+	 * 取消运行后等待执行中的任务结束的最长时间
+	 */
+	private static final long CANCEL_WAIT = 60000;
+
+	/**
+	 * 本实例发起的运行的上下文
+	 */
+	private final Map<String, SpiderContext> localRuns = new ConcurrentHashMap<>();
+
+	/**
+	 * 本实例参与执行的其他实例发起的运行的上下文
+	 */
+	private final Cache<String, SpiderContext> contexts = CacheBuilder.newBuilder()
+			.expireAfterAccess(30, TimeUnit.MINUTES)
+			.<String, SpiderContext>removalListener(notification -> release(notification.getValue()))
+			.build();
+
+	/**
+	 * 流程图 -> 节点ID索引
+	 */
+	private final Cache<SpiderNode, Map<String, SpiderNode>> indexes = CacheBuilder.newBuilder()
+			.weakKeys()
+			.build();
+
+	@PostConstruct
+	private void init() {
+		long timeout = TimeUnit.SECONDS.toMillis(visibilityTimeout);
+		if ("file".equalsIgnoreCase(queueType)) {
+			String path = StringUtils.isNotBlank(filePath) ? filePath : workspace + File.separator + "queue";
+			queue = new FileWorkQueue(new File(path), timeout);
+		} else if ("redis".equalsIgnoreCase(queueType)) {
+			queue = new RedisWorkQueue(redisHost, redisPort, redisDatabase, redisPassword, timeout);
+		} else {
+			return;
+		}
+		logger.info("启用分布式执行,工作队列:{},工作线程数:{}", queueType, workers);
+		heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "spider-flow-worker-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeat.scheduleWithFixedDelay(this::releaseFinished, 30, 30, TimeUnit.SECONDS);
+		running = true;
+		for (int i = 0; i < workers; i++) {
+			Thread thread = new Thread(this::work, "spider-flow-worker-" + (i + 1));
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+	}
+
+	@PreDestroy
+	private void destroy() {
+		running = false;
+		threads.forEach(Thread::interrupt);
+		if (heartbeat != null) {
+			heartbeat.shutdownNow();
+		}
+		if (queue != null) {
+			queue.close();
+		}
+	}
+
+	public boolean isEnabled() {
+		return queue != null;
+	}
+
+	/**
+	 * 判断流程是否可以分布式执行,等待结束及子流程节点依赖本机的运行状态
+	 */
+	public boolean isSupported(SpiderNode root) {
+		if (!isEnabled()) {
+			return false;
+		}
+		for (SpiderNode node : index(root).values()) {
+			String shape = node.getStringJsonValue("shape");
+			if ("forkJoin".equals(shape) || "process".equals(shape)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 发起分布式运行,阻塞至所有任务执行完毕
+	 */
+	public void run(String flowId, SpiderNode root, SpiderContext context, Map<String, Object> variables) {
+		String runId = context.getId();
+		context.setFlowId(flowId);
+		context.setRootNode(root);
+		if (listeners != null) {
+			listeners.forEach(listener -> listener.beforeStart(context));
+		}
+		localRuns.put(runId, context);
+		try {
+			publishNextNodes(runId, flowId, runId, new AtomicInteger(), null, root, context, variables);
+			long pending = queue.getPending(runId);
+			long completed = queue.getCompleted(runId);
+			long lastProgress = System.currentTimeMillis();
+			while (pending > 0) {
+				if (!context.isRunning()) {
+					//取消后队列中的任务取出后直接丢弃,等待执行中的任务结束后再清除
+					queue.cancel(runId);
+					long deadline = System.currentTimeMillis() + CANCEL_WAIT;
+					while (queue.getPending(runId) > 0 && System.currentTimeMillis() < deadline) {
+						Thread.sleep(500);
+					}
+					break;
+				}
+				Thread.sleep(500);
+				long currentPending = queue.getPending(runId);
+				long currentCompleted = queue.getCompleted(runId);
+				if (currentPending != pending || currentCompleted != completed) {
+					pending = currentPending;
+					completed = currentCompleted;
+					lastProgress = System.currentTimeMillis();
+				} else if (stallTimeout > 0 && System.currentTimeMillis() - lastProgress > TimeUnit.SECONDS.toMillis(stallTimeout)) {
+					//任务丢失(如队列数据被清除)时计数不会归零,避免一直等待
+					logger.error("运行{}超过{}秒没有任务完成,剩余{}个任务,取消运行", runId, stallTimeout, pending);
+					queue.cancel(runId);
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			queue.cancel(runId);
+			Thread.currentThread().interrupt();
+		} finally {
+			localRuns.remove(runId);
+			//清除计数、取消标记及完成标记,清除后仍在队列中的任务因计数为0被丢弃
+			queue.clear(runId);
+			if (listeners != null) {
+				listeners.forEach(listener -> listener.afterEnd(context));
+			}
+		}
+	}
+
+	private void work() {
+		while (running) {
+			try {
+				WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+				if (item != null) {
+					process(item);
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (Throwable t) {
+				logger.error("领取任务出错", t);
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 执行任务并发布下一级任务,最后标记完成(减少计数)并确认任务
+	 * 执行期间定期延长超时时间;下一级任务的ID由本任务ID生成,任务在发布下一级后、标记完成前中断时,
+	 * 重新投递后再次执行会重新发布相同ID的下一级任务,计数不会重复增加;已完成的任务不再执行
+	 */
+	private void process(WorkItem item) {
+		String runId = item.getRunId();
+		long interval = Math.max(TimeUnit.SECONDS.toMillis(visibilityTimeout) / 3, 1000);
+		ScheduledFuture<?> touch = heartbeat.scheduleWithFixedDelay(() -> {
+			try {
+				queue.touch(item);
+			} catch (Throwable t) {
+				logger.warn("延长任务{}的超时时间出错", item.getId(), t);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+		//是否标记完成、是否确认,发布下一级任务出错时都不进行,等待重新投递
+		boolean complete = true;
+		boolean ack = true;
+		try {
+			if (queue.isCancelled(runId)) {
+				return;
+			}
+			if (queue.getPending(runId) <= 0) {
+				//运行已结束,计数已清除
+				logger.debug("运行{}已结束,丢弃任务{}", runId, item.getId());
+				complete = false;
+				return;
+			}
+			if (queue.isCompleted(item)) {
+				logger.debug("任务{}已执行完成,忽略重复的任务", item.getId());
+				complete = false;
+				return;
+			}
+			SpiderNode root = spiderFlowService.getCompiledFlow(item.getFlowId());
+			SpiderNode node = root == null ? null : index(root).get(item.getNodeId());
+			if (node == null) {
+				logger.error("执行任务失败,找不到流程{}的节点{}", item.getFlowId(), item.getNodeId());
+				return;
+			}
+			ShapeExecutor executor = ExecutorsUtils.get(node.getStringJsonValue("shape"));
+			if (executor == null) {
+				logger.error("执行失败,找不到对应的执行器:{}", node.getStringJsonValue("shape"));
+				return;
+			}
+			SpiderContext context = getContext(item, root);
+			SpiderContextHolder.set(context);
+			Map<String, Object> variables = restore(item.getVariables());
+			try {
+				executor.execute(node, context, variables);
+				variables.remove("ex");
+			} catch (Throwable t) {
+				variables.put("ex", t);
+				logger.error("执行节点[{}:{}]出错,异常信息：{}", node.getNodeName(), node.getNodeId(), t);
+			}
+			if (queue.isCompleted(item)) {
+				logger.warn("任务{}已被其他执行完成,忽略本次执行结果", item.getId());
+				complete = false;
+				return;
+			}
+			if (executor.allowExecuteNext(node, context, variables) && !queue.isCancelled(runId)) {
+				AtomicInteger sequence = new AtomicInteger();
+				try {
+					for (SpiderNode nextNode : node.getNextNodes()) {
+						publishNextNodes(runId, item.getFlowId(), item.getId(), sequence, node, nextNode, context, variables);
+					}
+				} catch (RuntimeException e) {
+					complete = false;
+					ack = false;
+					logger.error("发布任务{}的下一级任务出错,等待重新投递", item.getId(), e);
+				}
+			}
+		} catch (ExecutionException e) {
+			logger.error("执行任务出错", e.getCause());
+		} catch (Throwable t) {
+			logger.error("执行任务出错", t);
+		} finally {
+			touch.cancel(false);
+			SpiderContextHolder.remove();
+			//出错或取消时也要标记完成,完成标记写入失败时不确认,等待重新投递
+			if (complete) {
+				queue.complete(item);
+			}
+			if (ack) {
+				queue.ack(item);
+			}
+		}
+	}
+
+	/**
+	 * 获取执行任务的上下文并合并任务携带的Cookie及上下文变量
+	 */
+	private SpiderContext getContext(WorkItem item, SpiderNode root) throws ExecutionException {
+		//本实例发起的运行直接使用运行的上下文
+		SpiderContext local = localRuns.get(item.getRunId());
+		if (local != null) {
+			return local;
+		}
+		SpiderContext context = contexts.get(item.getRunId(), () -> createContext(item, root));
+		JSONObject cookies = JSON.parseObject(item.getCookies());
+		JSONObject variables = JSON.parseObject(item.getContext());
+		synchronized (context) {
+			if (cookies != null) {
+				cookies.forEach((key, value) -> context.getCookieContext().put(key, value == null ? null : value.toString()));
+			}
+			if (variables != null) {
+				context.putAll(variables);
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * 为其他实例发起的运行创建上下文,有任务ID时日志写入本机该任务的日志文件
+	 */
+	private SpiderContext createContext(WorkItem item, SpiderNode root) {
+		SpiderContext context;
+		if (item.getTaskId() == null) {
+			context = new SpiderContext();
+		} else {
+			SpiderJobContext jobContext = SpiderJobContext.create(workspace, item.getFlowId(), item.getTaskId(), false);
+			jobContext.setTaskId(item.getTaskId());
+			context = jobContext;
+		}
+		context.setFlowId(item.getFlowId());
+		context.setRootNode(root);
+		if (listeners != null) {
+			listeners.forEach(listener -> listener.beforeStart(context));
+		}
+		return context;
+	}
+
+	/**
+	 * 运行结束后触发监听器并关闭日志
+	 */
+	private void release(SpiderContext context) {
+		try {
+			if (listeners != null) {
+				listeners.forEach(listener -> listener.afterEnd(context));
+			}
+		} catch (Throwable t) {
+			logger.error("释放运行上下文出错", t);
+		} finally {
+			if (context instanceof SpiderJobContext) {
+				((SpiderJobContext) context).close();
+			}
+		}
+	}
+
+	/**
+	 * 释放已结束的运行的上下文
+	 */
+	private void releaseFinished() {
+		try {
+			for (String runId : new ArrayList<>(contexts.asMap().keySet())) {
+				if (queue.getPending(runId) <= 0) {
+					contexts.invalidate(runId);
+				}
+			}
+			contexts.cleanUp();
+		} catch (Throwable t) {
+			logger.warn("释放已结束的运行出错", t);
+		}
+	}
+
+	/**
+	 * 判断条件并展开循环,为节点的每次执行发布一个任务
+	 * @param parentId	上一级任务ID(发布开始节点时为运行ID)
+	 * @param sequence	上一级任务已发布的任务数
+	 */
+	private void publishNextNodes(String runId, String flowId, String parentId, AtomicInteger sequence, SpiderNode fromNode, SpiderNode node, SpiderContext context, Map<String, Object> variables) {
+		if (StringUtils.isBlank(node.getStringJsonValue("shape"))) {
+			for (SpiderNode nextNode : node.getNextNodes()) {
+				publishNextNodes(runId, flowId, parentId, sequence, node, nextNode, context, variables);
+			}
+			return;
+		}
+		if (!Spider.executeCondition(fromNode, node, variables, context)) {
+			return;
+		}
+		Map<String, Object> base = fromNode == null || node.isTransmitVariable(fromNode.getNodeId()) ? variables : new HashMap<>();
+		String loopCountStr = node.getStringJsonValue(ShapeExecutor.LOOP_COUNT);
+		if (StringUtils.isBlank(loopCountStr)) {
+			publish(runId, flowId, childId(parentId, sequence), node, base, context);
+			return;
+		}
+		List<Object> items;
+		try {
+			items = loopItems(ExpressionUtils.execute(loopCountStr, variables));
+		} catch (Throwable t) {
+			logger.error("获取循环次数失败,异常信息：{}", t);
+			return;
+		}
+		int start = Math.max(NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_START), 0), 0);
+		int end = NumberUtils.toInt(node.getStringJsonValue(LoopExecutor.LOOP_END), -1);
+		end = end >= 0 ? Math.min(end, items.size()) : Math.max(items.size() + end + 1, 0);
+		String loopVariableName = node.getStringJsonValue(ShapeExecutor.LOOP_VARIABLE_NAME);
+		String loopItem = node.getStringJsonValue(LoopExecutor.LOOP_ITEM, "item");
+		for (int i = start; i < end; i++) {
+			Map<String, Object> nVariables = new HashMap<>(base);
+			if (StringUtils.isNotBlank(loopVariableName)) {
+				nVariables.put(loopVariableName, i);
+			}
+			nVariables.put(loopItem, items.get(i));
+			publish(runId, flowId, childId(parentId, sequence), node, nVariables, context);
+		}
+	}
+
+	private List<Object> loopItems(Object loopArray) {
+		List<Object> items = new ArrayList<>();
+		if (loopArray == null) {
+			return items;
+		}
+		if (loopArray instanceof BaseStream) {
+			loopArray = ((BaseStream<?, ?>) loopArray).iterator();
+		}
+		if (loopArray instanceof Iterable) {
+			((Iterable<?>) loopArray).forEach(items::add);
+		} else if (loopArray instanceof Iterator) {
+			((Iterator<?>) loopArray).forEachRemaining(items::add);
+		} else if (loopArray.getClass().isArray()) {
+			for (int i = 0, len = Array.getLength(loopArray); i < len; i++) {
+				items.add(Array.get(loopArray, i));
+			}
+		} else {
+			for (int i = 0, count = NumberUtils.toInt(loopArray.toString(), 0); i < count; i++) {
+				items.add(i);
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * 由上一级任务ID及发布顺序生成任务ID,上一级任务重新执行时按相同顺序得到相同的ID
+	 */
+	private static String childId(String parentId, AtomicInteger sequence) {
+		String name = parentId + ":" + sequence.getAndIncrement();
+		return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString().replace("-", "");
+	}
+
+	/**
+	 * 发布时增加计数,下一级任务在上一级任务标记完成(减少计数)之前发布,保证计数归零时所有任务都已执行完毕
+	 */
+	private void publish(String runId, String flowId, String id, SpiderNode node, Map<String, Object> variables, SpiderContext context) {
+		WorkItem item = new WorkItem(id, runId, flowId, node.getNodeId(), JSON.toJSONString(VariableSnapshotUtils.snapshot(variables, true)));
+		Map<String, Object> contextVariables;
+		synchronized (context) {
+			item.setCookies(JSON.toJSONString(context.getCookieContext()));
+			contextVariables = new HashMap<>(context);
+		}
+		contextVariables.keySet().removeIf(key -> key.startsWith("_"));
+		item.setContext(JSON.toJSONString(VariableSnapshotUtils.snapshot(contextVariables, false)));
+		if (context instanceof SpiderJobContext) {
+			item.setTaskId(((SpiderJobContext) context).getTaskId());
+		}
+		queue.publish(item);
+	}
+
+	private Map<String, Object> restore(String variables) {
+		JSONObject object = JSON.parseObject(variables);
+		return object == null ? new HashMap<>() : new HashMap<>(object);
+	}
+
+	private Map<String, SpiderNode> index(SpiderNode root) {
+		Map<String, SpiderNode> index = indexes.getIfPresent(root);
+		if (index == null) {
+			index = SpiderFlowUtils.getNodeMap(root);
+			indexes.put(root, index);
+		}
+		return index;
+	}
+}
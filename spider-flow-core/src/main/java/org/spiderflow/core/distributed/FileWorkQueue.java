@@ -0,0 +1,255 @@
+package org.spiderflow.core.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * 基于目录的工作队列,单机或多个实例挂载同一共享目录时使用
+ * 每个任务一个文件,通过原子重命名领取任务
+ * @author jmxd
+ *
+ */
+public class FileWorkQueue implements WorkQueue {
+
+	private static Logger logger = LoggerFactory.getLogger(FileWorkQueue.class);
+
+	/**
+	 * 每次扫描领取的最大文件数
+	 */
+	private static final int SCAN_SIZE = 64;
+
+	/**
+	 * 检查超时任务的间隔
+	 */
+	private static final long RECOVER_INTERVAL = 30000;
+
+	private final File pendingDirectory;
+
+	private final File processingDirectory;
+
+	private final File counterDirectory;
+
+	private final File cancelledDirectory;
+
+	private final File doneDirectory;
+
+	private final File publishedDirectory;
+
+	/**
+	 * 任务领取后未确认的超时时间(毫秒)
+	 */
+	private final long visibilityTimeout;
+
+	private volatile long recoverTime;
+
+	public FileWorkQueue(File directory, long visibilityTimeout) {
+		this.pendingDirectory = new File(directory, "pending");
+		this.processingDirectory = new File(directory, "processing");
+		this.counterDirectory = new File(directory, "counters");
+		this.cancelledDirectory = new File(directory, "cancelled");
+		this.doneDirectory = new File(directory, "done");
+		this.publishedDirectory = new File(directory, "published");
+		this.visibilityTimeout = visibilityTimeout;
+		for (File dir : Arrays.asList(pendingDirectory, processingDirectory, counterDirectory, cancelledDirectory, doneDirectory, publishedDirectory)) {
+			if (!dir.exists() && !dir.mkdirs()) {
+				throw new IllegalStateException("创建目录失败:" + dir);
+			}
+		}
+	}
+
+	@Override
+	public void publish(WorkItem item) {
+		update(item.getRunId(), 1, 0, marker(publishedDirectory, item));
+		//文件名以时间开头,按名称排序即为发布顺序
+		String name = String.format("%013d-%s", System.currentTimeMillis(), UUID.randomUUID().toString().replace("-", ""));
+		File temp = new File(pendingDirectory, name + ".tmp");
+		try {
+			FileUtils.writeStringToFile(temp, JSON.toJSONString(item), StandardCharsets.UTF_8);
+			Files.move(temp.toPath(), new File(pendingDirectory, name + ".json").toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(temp);
+			throw new IllegalStateException("发布任务失败", e);
+		}
+	}
+
+	@Override
+	public WorkItem poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+		do {
+			recover();
+			String[] names = pendingDirectory.list((dir, name) -> name.endsWith(".json"));
+			if (names != null && names.length > 0) {
+				Arrays.sort(names);
+				for (int i = 0; i < names.length && i < SCAN_SIZE; i++) {
+					WorkItem item = claim(names[i]);
+					if (item != null) {
+						return item;
+					}
+				}
+			} else {
+				Thread.sleep(100);
+			}
+		} while (System.currentTimeMillis() < deadline);
+		return null;
+	}
+
+	private WorkItem claim(String name) {
+		File target = new File(processingDirectory, name);
+		try {
+			Files.move(new File(pendingDirectory, name).toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			//已被其他实例领取
+			return null;
+		}
+		try {
+			target.setLastModified(System.currentTimeMillis());
+			WorkItem item = JSON.parseObject(FileUtils.readFileToString(target, StandardCharsets.UTF_8), WorkItem.class);
+			item.setReceipt(name);
+			return item;
+		} catch (Exception e) {
+			logger.error("读取任务{}失败", name, e);
+			FileUtils.deleteQuietly(target);
+			return null;
+		}
+	}
+
+	/**
+	 * 将超时未确认的任务放回队列
+	 */
+	private void recover() {
+		long now = System.currentTimeMillis();
+		if (now - recoverTime < RECOVER_INTERVAL) {
+			return;
+		}
+		recoverTime = now;
+		File[] files = processingDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (now - file.lastModified() > visibilityTimeout) {
+				try {
+					Files.move(file.toPath(), new File(pendingDirectory, file.getName()).toPath(), StandardCopyOption.ATOMIC_MOVE);
+					logger.warn("任务{}超时未确认,重新放回队列", file.getName());
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	@Override
+	public void ack(WorkItem item) {
+		FileUtils.deleteQuietly(new File(processingDirectory, item.getReceipt()));
+	}
+
+	/**
+	 * 以文件修改时间作为领取时间,更新修改时间即延长超时时间
+	 */
+	@Override
+	public void touch(WorkItem item) {
+		File file = new File(processingDirectory, item.getReceipt());
+		if (!file.setLastModified(System.currentTimeMillis())) {
+			logger.warn("延长任务{}的超时时间失败,任务可能已被重新投递", item.getReceipt());
+		}
+	}
+
+	@Override
+	public boolean complete(WorkItem item) {
+		return update(item.getRunId(), -1, 1, marker(doneDirectory, item)) != null;
+	}
+
+	@Override
+	public boolean isCompleted(WorkItem item) {
+		return new File(new File(doneDirectory, item.getRunId()), item.getId()).exists();
+	}
+
+	@Override
+	public long getPending(String runId) {
+		return update(runId, 0, 0, null)[0];
+	}
+
+	@Override
+	public long getCompleted(String runId) {
+		return update(runId, 0, 0, null)[1];
+	}
+
+	/**
+	 * 每个运行一个目录,每个任务ID一个标记文件
+	 */
+	private File marker(File directory, WorkItem item) {
+		File runDirectory = new File(directory, item.getRunId());
+		if (!runDirectory.exists() && !runDirectory.mkdirs() && !runDirectory.exists()) {
+			throw new IllegalStateException("创建目录失败:" + runDirectory);
+		}
+		return new File(runDirectory, item.getId());
+	}
+
+	/**
+	 * 加文件锁修改计数(未执行完毕数、已执行完毕数),多个进程共享
+	 * @param marker	不为null时在锁内原子创建标记文件,已存在时不修改计数并返回null
+	 */
+	private long[] update(String runId, long pendingDelta, long completedDelta, File marker) {
+		File file = new File(counterDirectory, runId);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel(); FileLock ignored = channel.lock()) {
+			if (marker != null && !marker.createNewFile()) {
+				return null;
+			}
+			long[] value = new long[2];
+			if (raf.length() >= 16) {
+				value[0] = raf.readLong();
+				value[1] = raf.readLong();
+			}
+			if (pendingDelta != 0 || completedDelta != 0) {
+				value[0] += pendingDelta;
+				value[1] += completedDelta;
+				raf.seek(0);
+				raf.writeLong(value[0]);
+				raf.writeLong(value[1]);
+			}
+			return value;
+		} catch (IOException e) {
+			throw new IllegalStateException("修改任务计数失败", e);
+		}
+	}
+
+	@Override
+	public void cancel(String runId) {
+		try {
+			FileUtils.touch(new File(cancelledDirectory, runId));
+		} catch (IOException e) {
+			logger.error("取消运行{}失败", runId, e);
+		}
+	}
+
+	@Override
+	public boolean isCancelled(String runId) {
+		return new File(cancelledDirectory, runId).exists();
+	}
+
+	@Override
+	public void clear(String runId) {
+		FileUtils.deleteQuietly(new File(counterDirectory, runId));
+		FileUtils.deleteQuietly(new File(cancelledDirectory, runId));
+		FileUtils.deleteQuietly(new File(doneDirectory, runId));
+		FileUtils.deleteQuietly(new File(publishedDirectory, runId));
+	}
+
+	@Override
+	public void close() {
+	}
+}
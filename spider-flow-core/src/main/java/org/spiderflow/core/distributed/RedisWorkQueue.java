@@ -0,0 +1,241 @@
+package org.spiderflow.core.distributed;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.core.metrics.SpiderMetrics;
+
+import com.alibaba.fastjson.JSON;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.StreamEntry;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.StreamPendingEntry;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * 基于Redis Stream的工作队列,各实例作为同一消费组的消费者
+ * @author jmxd
+ *
+ */
+public class RedisWorkQueue implements WorkQueue {
+
+	private static Logger logger = LoggerFactory.getLogger(RedisWorkQueue.class);
+
+	private static final String PREFIX = "spider-flow:";
+
+	private static final String STREAM = PREFIX + "tasks";
+
+	private static final String GROUP = "spider-flow-workers";
+
+	private static final String FIELD = "item";
+
+	/**
+	 * 计数及取消标记的过期时间(秒)
+	 */
+	private static final int EXPIRE_SECONDS = 7 * 24 * 3600;
+
+	/**
+	 * 检查超时任务的间隔
+	 */
+	private static final long RECOVER_INTERVAL = 30000;
+
+	/**
+	 * 任务ID第一次加入标记集合时修改计数,标记与计数在同一脚本中修改
+	 * KEYS:标记集合、未执行完毕数、已执行完毕数 ARGV:任务ID、未执行完毕数增量、已执行完毕数增量、过期时间
+	 */
+	private static final String MARK_SCRIPT = "if redis.call('sadd', KEYS[1], ARGV[1]) == 0 then return 0 end "
+			+ "redis.call('incrby', KEYS[2], ARGV[2]) redis.call('incrby', KEYS[3], ARGV[3]) "
+			+ "for i = 1, 3 do redis.call('expire', KEYS[i], ARGV[4]) end return 1";
+
+	private final JedisPool jedisPool;
+
+	private final String consumer = UUID.randomUUID().toString().replace("-", "");
+
+	/**
+	 * 任务领取后未确认的超时时间(毫秒)
+	 */
+	private final long visibilityTimeout;
+
+	private volatile long recoverTime;
+
+	public RedisWorkQueue(String host, int port, int database, String password, long visibilityTimeout) {
+		JedisPoolConfig config = new JedisPoolConfig();
+		config.setMaxTotal(100);
+		config.setMaxIdle(10);
+		config.setTestOnBorrow(true);
+		this.jedisPool = new JedisPool(config, host, port, 5000, StringUtils.isEmpty(password) ? null : password, database);
+		this.visibilityTimeout = visibilityTimeout;
+		SpiderMetrics.bindJedisPool("work-queue", jedisPool);
+		try (Jedis jedis = jedisPool.getResource()) {
+			jedis.xgroupCreate(STREAM, GROUP, new StreamEntryID(), true);
+		} catch (JedisDataException e) {
+			//消费组已存在
+			if (!StringUtils.contains(e.getMessage(), "BUSYGROUP")) {
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void publish(WorkItem item) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			mark(jedis, "published:", item, 1, 0);
+			jedis.xadd(STREAM, StreamEntryID.NEW_ENTRY, Collections.singletonMap(FIELD, JSON.toJSONString(item)));
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public WorkItem poll(long timeout, TimeUnit unit) throws InterruptedException {
+		WorkItem item = recover();
+		if (item != null) {
+			return item;
+		}
+		//阻塞时间不超过连接超时时间
+		long block = Math.max(Math.min(unit.toMillis(timeout), 3000), 1);
+		try (Jedis jedis = jedisPool.getResource()) {
+			List<Map.Entry<String, List<StreamEntry>>> result = jedis.xreadGroup(GROUP, consumer, 1, block, false,
+					new AbstractMap.SimpleImmutableEntry<>(STREAM, StreamEntryID.UNRECEIVED_ENTRY));
+			if (result != null) {
+				for (Map.Entry<String, List<StreamEntry>> entry : result) {
+					for (StreamEntry streamEntry : entry.getValue()) {
+						return toItem(streamEntry);
+					}
+				}
+			}
+		}
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		return null;
+	}
+
+	/**
+	 * 领取一个超时未确认的任务
+	 */
+	private WorkItem recover() {
+		long now = System.currentTimeMillis();
+		if (now - recoverTime < RECOVER_INTERVAL) {
+			return null;
+		}
+		try (Jedis jedis = jedisPool.getResource()) {
+			List<StreamPendingEntry> entries = jedis.xpending(STREAM, GROUP, null, null, 16, null);
+			for (StreamPendingEntry entry : entries) {
+				if (entry.getIdleTime() < visibilityTimeout) {
+					continue;
+				}
+				List<StreamEntry> claimed = jedis.xclaim(STREAM, GROUP, consumer, visibilityTimeout, 0, 0, false, entry.getID());
+				if (claimed != null && !claimed.isEmpty()) {
+					logger.warn("任务{}超时未确认,重新执行", entry.getID());
+					return toItem(claimed.get(0));
+				}
+			}
+		}
+		//没有超时任务时才更新检查时间,有则继续领取
+		recoverTime = now;
+		return null;
+	}
+
+	private WorkItem toItem(StreamEntry entry) {
+		WorkItem item = JSON.parseObject(entry.getFields().get(FIELD), WorkItem.class);
+		item.setReceipt(entry.getID().toString());
+		return item;
+	}
+
+	@Override
+	public void ack(WorkItem item) {
+		StreamEntryID id = new StreamEntryID(item.getReceipt());
+		try (Jedis jedis = jedisPool.getResource()) {
+			jedis.xack(STREAM, GROUP, id);
+			jedis.xdel(STREAM, id);
+		}
+	}
+
+	/**
+	 * 重新领取给自己并将空闲时间置0,即延长超时时间
+	 */
+	@Override
+	public void touch(WorkItem item) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			jedis.xclaim(STREAM, GROUP, consumer, 0, 0, 0, false, new StreamEntryID(item.getReceipt()));
+		}
+	}
+
+	@Override
+	public boolean complete(WorkItem item) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			return mark(jedis, "done:", item, -1, 1);
+		}
+	}
+
+	@Override
+	public boolean isCompleted(WorkItem item) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			return jedis.sismember(PREFIX + "done:" + item.getRunId(), item.getId());
+		}
+	}
+
+	/**
+	 * 每个运行一个Set记录已发布或已完成的任务ID,第一次加入时修改计数
+	 */
+	private boolean mark(Jedis jedis, String type, WorkItem item, long pendingDelta, long completedDelta) {
+		String runId = item.getRunId();
+		Object result = jedis.eval(MARK_SCRIPT,
+				Arrays.asList(PREFIX + type + runId, PREFIX + "pending:" + runId, PREFIX + "completed:" + runId),
+				Arrays.asList(item.getId(), String.valueOf(pendingDelta), String.valueOf(completedDelta), String.valueOf(EXPIRE_SECONDS)));
+		return Long.valueOf(1).equals(result);
+	}
+
+	@Override
+	public long getPending(String runId) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			return NumberUtils.toLong(jedis.get(PREFIX + "pending:" + runId), 0);
+		}
+	}
+
+	@Override
+	public long getCompleted(String runId) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			return NumberUtils.toLong(jedis.get(PREFIX + "completed:" + runId), 0);
+		}
+	}
+
+	@Override
+	public void cancel(String runId) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			jedis.setex(PREFIX + "cancelled:" + runId, EXPIRE_SECONDS, "1");
+		}
+	}
+
+	@Override
+	public boolean isCancelled(String runId) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			return jedis.exists(PREFIX + "cancelled:" + runId);
+		}
+	}
+
+	@Override
+	public void clear(String runId) {
+		try (Jedis jedis = jedisPool.getResource()) {
+			jedis.del(PREFIX + "pending:" + runId, PREFIX + "completed:" + runId, PREFIX + "cancelled:" + runId,
+					PREFIX + "done:" + runId, PREFIX + "published:" + runId);
+		}
+	}
+
+	@Override
+	public void close() {
+		jedisPool.close();
+	}
+}
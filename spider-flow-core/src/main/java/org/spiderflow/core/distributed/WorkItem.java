@@ -0,0 +1,146 @@
+package org.spiderflow.core.distributed;
+
+import java.util.UUID;
+
+import com.alibaba.fastjson.annotation.JSONField;
+
+/**
+ * 分布式执行的节点任务
+ * @author jmxd
+ *
+ */
+public class WorkItem {
+
+	/**
+	 * 任务ID,重新投递时不变;由上一级任务发布时根据上一级任务ID生成,上一级任务重新执行时不变
+	 */
+	private String id;
+
+	/**
+	 * 运行ID(发起运行的上下文ID)
+	 */
+	private String runId;
+
+	/**
+	 * 流程ID
+	 */
+	private String flowId;
+
+	/**
+	 * 要执行的节点ID
+	 */
+	private String nodeId;
+
+	/**
+	 * 变量快照(JSON)
+	 */
+	private String variables;
+
+	/**
+	 * 发布时运行的Cookie(JSON)
+	 */
+	private String cookies;
+
+	/**
+	 * 发布时运行的上下文变量快照(JSON)
+	 */
+	private String context;
+
+	/**
+	 * 任务ID,定时或异步执行时设置,其他实例执行时日志写入该任务的日志文件
+	 */
+	private Integer taskId;
+
+	/**
+	 * 队列中的标识,确认任务时使用
+	 */
+	@JSONField(serialize = false, deserialize = false)
+	private String receipt;
+
+	public WorkItem() {
+	}
+
+	public WorkItem(String runId, String flowId, String nodeId, String variables) {
+		this(UUID.randomUUID().toString().replace("-", ""), runId, flowId, nodeId, variables);
+	}
+
+	public WorkItem(String id, String runId, String flowId, String nodeId, String variables) {
+		this.id = id;
+		this.runId = runId;
+		this.flowId = flowId;
+		this.nodeId = nodeId;
+		this.variables = variables;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getRunId() {
+		return runId;
+	}
+
+	public void setRunId(String runId) {
+		this.runId = runId;
+	}
+
+	public String getFlowId() {
+		return flowId;
+	}
+
+	public void setFlowId(String flowId) {
+		this.flowId = flowId;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public String getVariables() {
+		return variables;
+	}
+
+	public void setVariables(String variables) {
+		this.variables = variables;
+	}
+
+	public String getCookies() {
+		return cookies;
+	}
+
+	public void setCookies(String cookies) {
+		this.cookies = cookies;
+	}
+
+	public String getContext() {
+		return context;
+	}
+
+	public void setContext(String context) {
+		this.context = context;
+	}
+
+	public Integer getTaskId() {
+		return taskId;
+	}
+
+	public void setTaskId(Integer taskId) {
+		this.taskId = taskId;
+	}
+
+	public String getReceipt() {
+		return receipt;
+	}
+
+	public void setReceipt(String receipt) {
+		this.receipt = receipt;
+	}
+}
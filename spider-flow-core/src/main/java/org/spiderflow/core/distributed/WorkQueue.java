@@ -0,0 +1,68 @@
+package org.spiderflow.core.distributed;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式执行的工作队列,多个实例共享
+ * 任务被取出后需要确认,未确认的任务在超时后会重新投递(至少执行一次),执行中的任务定期延长超时时间
+ * 运行中未执行完毕的任务数按任务ID计数:同一ID第一次发布时增加,第一次完成时减少,重复发布及重复执行不影响计数
+ * @author jmxd
+ *
+ */
+public interface WorkQueue {
+
+	/**
+	 * 发布任务,同一任务ID第一次发布时增加计数
+	 * 重复发布(任务重新投递后再次执行)时仍写入队列,避免上次执行在计数后、写入前中断时任务丢失
+	 */
+	void publish(WorkItem item);
+
+	/**
+	 * 取出一个任务,超时返回null
+	 */
+	WorkItem poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * 确认任务已执行完毕
+	 */
+	void ack(WorkItem item);
+
+	/**
+	 * 延长已取出任务的超时时间,执行中的任务定期调用,避免被重新投递
+	 */
+	void touch(WorkItem item);
+
+	/**
+	 * 标记任务执行完毕并减少计数,同一任务ID只有第一次返回true
+	 */
+	boolean complete(WorkItem item);
+
+	/**
+	 * 任务是否已执行完毕,重复发布或重新投递的任务不再执行
+	 */
+	boolean isCompleted(WorkItem item);
+
+	/**
+	 * 获取运行中未执行完毕的任务数
+	 */
+	long getPending(String runId);
+
+	/**
+	 * 获取运行中已执行完毕的任务数,用于判断运行是否仍在推进
+	 */
+	long getCompleted(String runId);
+
+	/**
+	 * 取消运行,其余任务取出后不再执行
+	 */
+	void cancel(String runId);
+
+	boolean isCancelled(String runId);
+
+	/**
+	 * 运行结束(包括取消)后清除计数、取消标记及完成标记
+	 */
+	void clear(String runId);
+
+	void close();
+}
@@ -2,10 +2,10 @@ package org.spiderflow.core.executor.function;
 
 import java.util.List;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Element;
 import org.spiderflow.annotation.Comment;
 import org.spiderflow.annotation.Example;
+import org.spiderflow.core.utils.DocumentCache;
 import org.spiderflow.core.utils.ExtractUtils;
 import org.spiderflow.executor.FunctionExecutor;
 import org.springframework.stereotype.Component;
@@ -70,7 +70,7 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 	@Comment("根据xpath提取内容")
 	@Example("${extract.xpath(resp.html,'//title/text()')}")
 	public static String xpath(String content,String xpath){
-		return xpath(Jsoup.parse(content),xpath);
+		return xpath(DocumentCache.parseReadOnly(content),xpath);
 	}
 	
 	@Comment("根据xpaths提取内容")
@@ -82,13 +82,13 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 	@Comment("根据xpaths提取内容")
 	@Example("${extract.xpaths(resp.html,'//h2/text()')}")
 	public static List<String> xpaths(String content,String xpath){
-		return xpaths(Jsoup.parse(content),xpath);
+		return xpaths(DocumentCache.parseReadOnly(content),xpath);
 	}
 	
 	@Comment("根据css选择器提取内容")
 	@Example("${extract.selectors(resp.html,'div > a')}")
 	public static List<String> selectors(Object object,String selector){
-		return ExtractUtils.getHTMLBySelector(getElement(object), selector);
+		return ExtractUtils.getHTMLBySelector(readElement(object), selector);
 	}
 	
 	@Comment("根据css选择器提取内容")
@@ -97,9 +97,9 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 		if("element".equals(type)){
 			return ExtractUtils.getFirstElement(getElement(object), selector);
 		}else if("text".equals(type)){
-			return ExtractUtils.getFirstTextBySelector(getElement(object), selector);
+			return ExtractUtils.getFirstTextBySelector(readElement(object), selector);
 		}else if("outerhtml".equals(type)){
-			return ExtractUtils.getFirstOuterHTMLBySelector(getElement(object), selector);
+			return ExtractUtils.getFirstOuterHTMLBySelector(readElement(object), selector);
 		}
 		return null;
 	}
@@ -108,7 +108,7 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 	@Example("${extract.selector(resp.html,'div > a','attr','href')}")
 	public static String selector(Object object,String selector,String type,String attrValue){
 		if("attr".equals(type)){
-			return ExtractUtils.getFirstAttrBySelector(getElement(object), selector,attrValue);
+			return ExtractUtils.getFirstAttrBySelector(readElement(object), selector,attrValue);
 		}
 		return null;
 	}
@@ -116,7 +116,7 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 	@Comment("根据css选择器提取内容")
 	@Example("${extract.selector(resp.html,'div > a')}")
 	public static String selector(Object object,String selector){
-		return ExtractUtils.getFirstHTMLBySelector(getElement(object), selector);
+		return ExtractUtils.getFirstHTMLBySelector(readElement(object), selector);
 	}
 	
 	@Comment("根据css选择器提取内容")
@@ -125,9 +125,9 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 		if("element".equals(type)){
 			return ExtractUtils.getElements(getElement(object), selector);
 		}else if("text".equals(type)){
-			return ExtractUtils.getTextBySelector(getElement(object), selector);
+			return ExtractUtils.getTextBySelector(readElement(object), selector);
 		}else if("outerhtml".equals(type)){
-			return ExtractUtils.getOuterHTMLBySelector(getElement(object), selector);
+			return ExtractUtils.getOuterHTMLBySelector(readElement(object), selector);
 		}
 		return null;
 	}
@@ -136,14 +136,27 @@ public class ExtractFunctionExecutor implements FunctionExecutor{
 	@Example("${extract.selectors(resp.html,'div > a','attr','href')}")
 	public static Object selectors(Object object,String selector,String type,String attrValue){
 		if("attr".equals(type)){
-			return ExtractUtils.getAttrBySelector(getElement(object), selector,attrValue);
+			return ExtractUtils.getAttrBySelector(readElement(object), selector,attrValue);
 		}
 		return null;
 	}
 	
+	/**
+	 * 获取元素,html字符串解析为副本,返回结果中的元素可以交给表达式
+	 */
 	private static Element getElement(Object object){
 		if(object != null){
-			return object instanceof Element ? (Element)object:Jsoup.parse((String) object);
+			return object instanceof Element ? (Element)object:DocumentCache.parse((String) object);
+		}
+		return null;
+	}
+	
+	/**
+	 * 获取元素,html字符串使用共用的解析结果,只用于返回字符串的抽取
+	 */
+	private static Element readElement(Object object){
+		if(object != null){
+			return object instanceof Element ? (Element)object:DocumentCache.parseReadOnly((String) object);
 		}
 		return null;
 	}
@@ -7,6 +7,7 @@ import org.jsoup.select.Elements;
 import org.spiderflow.annotation.Comment;
 import org.spiderflow.annotation.Example;
 import org.spiderflow.annotation.Return;
+import org.spiderflow.core.utils.DocumentCache;
 import org.spiderflow.core.utils.ExtractUtils;
 import org.spiderflow.executor.FunctionExtension;
 import org.springframework.stereotype.Component;
@@ -37,49 +38,49 @@ public class ElementFunctionExtension implements FunctionExtension{
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regx('<title>(.*?)</title>')}")
 	public static String regx(Element element,String regx){
-		return ExtractUtils.getFirstMatcher(element.html(), regx, true);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(element), regx, true);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regx('<title>(.*?)</title>',1)}")
 	public static String regx(Element element,String regx,int groupIndex){
-		return ExtractUtils.getFirstMatcher(element.html(), regx, groupIndex);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(element), regx, groupIndex);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regx('<a href=\"(.*?)\">(.*?)</a>',[1,2])}")
 	public static List<String> regx(Element element,String regx,List<Integer> groups){
-		return ExtractUtils.getFirstMatcher(element.html(), regx, groups);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(element), regx, groups);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regxs('<h2>(.*?)</h2>')}")
 	public static List<String> regxs(Element element,String regx){
-		return ExtractUtils.getMatchers(element.html(), regx, true);
+		return ExtractUtils.getMatchers(DocumentCache.html(element), regx, true);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regxs('<h2>(.*?)</h2>',1)}")
 	public static List<String> regxs(Element element,String regx,int groupIndex){
-		return ExtractUtils.getMatchers(element.html(), regx, groupIndex);
+		return ExtractUtils.getMatchers(DocumentCache.html(element), regx, groupIndex);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementVar.regxs('<a href=\"(.*?)\">(.*?)</a>',[1,2])}")
 	public static List<List<String>> regxs(Element element,String regx,List<Integer> groups){
-		return ExtractUtils.getMatchers(element.html(), regx, groups);
+		return ExtractUtils.getMatchers(DocumentCache.html(element), regx, groups);
 	}
 	
 	@Comment("根据css选择器提取内容")
 	@Example("${elementVar.selector('div > a')}")
 	public static Element selector(Element element,String cssQuery){
-		return element.selectFirst(cssQuery);
+		return ExtractUtils.selectFirst(element, cssQuery);
 	}
 	
 	@Comment("根据css选择器提取内容")
 	@Example("${elementVar.selectors('div > a')}")
 	public static Elements selectors(Element element,String cssQuery){
-		return element.select(cssQuery);
+		return ExtractUtils.select(element, cssQuery);
 	}
 
 	@Comment("获取同级节点")
@@ -4,6 +4,7 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.spiderflow.annotation.Comment;
 import org.spiderflow.annotation.Example;
+import org.spiderflow.core.utils.DocumentCache;
 import org.spiderflow.core.utils.ExtractUtils;
 import org.spiderflow.executor.FunctionExtension;
 import org.springframework.stereotype.Component;
@@ -34,43 +35,43 @@ public class ElementsFunctionExtension implements FunctionExtension{
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regx('<title>(.*?)</title>')}")
 	public static String regx(Elements elements,String regx){
-		return ExtractUtils.getFirstMatcher(elements.html(), regx, true);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(elements), regx, true);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regx('<title>(.*?)</title>',1)}")
 	public static String regx(Elements elements,String regx,int groupIndex){
-		return ExtractUtils.getFirstMatcher(elements.html(), regx, groupIndex);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(elements), regx, groupIndex);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regx('<a href=\"(.*?)\">(.*?)</a>',[1,2])}")
 	public static List<String> regx(Elements elements,String regx,List<Integer> groups){
-		return ExtractUtils.getFirstMatcher(elements.html(), regx, groups);
+		return ExtractUtils.getFirstMatcher(DocumentCache.html(elements), regx, groups);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regxs('<h2>(.*?)</h2>')}")
 	public static List<String> regxs(Elements elements,String regx){
-		return ExtractUtils.getMatchers(elements.html(), regx, true);
+		return ExtractUtils.getMatchers(DocumentCache.html(elements), regx, true);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regxs('<h2>(.*?)</h2>',1)}")
 	public static List<String> regxs(Elements elements,String regx,int groupIndex){
-		return ExtractUtils.getMatchers(elements.html(), regx, groupIndex);
+		return ExtractUtils.getMatchers(DocumentCache.html(elements), regx, groupIndex);
 	}
 	
 	@Comment("根据正则表达式提取内容")
 	@Example("${elementsVar.regxs('<a href=\"(.*?)\">(.*?)</a>',[1,2])}")
 	public static List<List<String>> regxs(Elements elements,String regx,List<Integer> groups){
-		return ExtractUtils.getMatchers(elements.html(), regx, groups);
+		return ExtractUtils.getMatchers(DocumentCache.html(elements), regx, groups);
 	}
 	
 	@Comment("根据css选择器提取内容")
 	@Example("${elementsVar.selector('div > a')}")
 	public static Element selector(Elements elements,String selector){
-		Elements foundElements = elements.select(selector);
+		Elements foundElements = ExtractUtils.select(elements, selector);
 		if(foundElements.size() > 0){
 			return foundElements.get(0);
 		}
@@ -150,7 +151,7 @@ public class ElementsFunctionExtension implements FunctionExtension{
 	@Comment("根据css选择器提取内容")
 	@Example("${elementsVar.selectors('div > a')}")
 	public static Elements selectors(Elements elements,String selector){
-		return elements.select(selector);
+		return ExtractUtils.select(elements, selector);
 	}
 
 	@Comment("获取上级节点")
@@ -1,16 +1,24 @@
 package org.spiderflow.core.executor.function.extension;
 
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.spiderflow.annotation.Comment;
 import org.spiderflow.annotation.Example;
 import org.spiderflow.annotation.Return;
+import org.spiderflow.core.io.HttpResponse;
+import org.spiderflow.core.io.JsonStreamIterator;
+import org.spiderflow.core.io.LazyList;
+import org.spiderflow.core.io.XmlStreamIterator;
 import org.spiderflow.core.utils.ExtractUtils;
 import org.spiderflow.executor.FunctionExtension;
 import org.spiderflow.io.SpiderResponse;
@@ -19,6 +27,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class ResponseFunctionExtension implements FunctionExtension {
 
+    private static final Pattern CHARSET_PATTERN = Pattern.compile("charset=\\s*\"?([^\\s;\"]+)", Pattern.CASE_INSENSITIVE);
+
     @Override
     public Class<?> support() {
         return SpiderResponse.class;
@@ -27,20 +37,27 @@ public class ResponseFunctionExtension implements FunctionExtension {
     @Comment("将请求结果转为Element对象")
     @Example("${resp.element()}")
     public static Element element(SpiderResponse response) {
-        return Jsoup.parse(response.getHtml(),response.getUrl());
+        return response.getDocument();
+    }
+
+    /**
+     * 只返回字符串的抽取使用共用的解析结果,不复制文档
+     */
+    private static Document readOnly(SpiderResponse response) {
+        return response instanceof HttpResponse ? ((HttpResponse) response).getReadOnlyDocument() : response.getDocument();
     }
 
     @Comment("根据xpath在请求结果中查找")
     @Example("${resp.xpath('//title/text()')}")
     @Return({Element.class, String.class})
     public static String xpath(SpiderResponse response, String xpath) {
-        return ExtractUtils.getValueByXPath(element(response), xpath);
+        return ExtractUtils.getValueByXPath(readOnly(response), xpath);
     }
 
     @Comment("根据xpath在请求结果中查找")
     @Example("${resp.xpaths('//a/@href')}")
     public static List<String> xpaths(SpiderResponse response, String xpath) {
-        return ExtractUtils.getValuesByXPath(element(response), xpath);
+        return ExtractUtils.getValuesByXPath(readOnly(response), xpath);
     }
 
     @Comment("根据正则表达式提取请求结果中的内容")
@@ -100,7 +117,7 @@ public class ResponseFunctionExtension implements FunctionExtension {
     @Comment("获取页面上的链接")
     @Example("${resp.links()}")
     public static List<String> links(SpiderResponse response) {
-        return ExtractUtils.getAttrBySelector(element(response), "a", "abs:href")
+        return ExtractUtils.getAttrBySelector(readOnly(response), "a", "abs:href")
                 .stream()
                 .filter(link -> StringUtils.isNotBlank(link))
                 .collect(Collectors.toList());
@@ -109,7 +126,7 @@ public class ResponseFunctionExtension implements FunctionExtension {
     @Comment("获取页面上的链接")
     @Example("${resp.links('https://www\\.xxx\\.com/xxxx/(.*?)')}")
     public static List<String> links(SpiderResponse response, String regx) {
-        Pattern pattern = Pattern.compile(regx);
+        Pattern pattern = ExtractUtils.compile(regx);
         return links(response)
 				.stream()
                 .filter(link -> pattern.matcher(link).matches())
@@ -119,9 +136,56 @@ public class ResponseFunctionExtension implements FunctionExtension {
     @Comment("获取当前页面所有图片链接")
     @Example("${resp.images()}")
     public static List<String> images(SpiderResponse response) {
-        return ExtractUtils.getAttrBySelector(element(response), "img", "src")
+        return ExtractUtils.getAttrBySelector(readOnly(response), "img", "src")
                 .stream()
                 .filter(link -> StringUtils.isNotBlank(link))
                 .collect(Collectors.toList());
     }
+
+    @Comment("流式抽取xml内容(如sitemap),不构建DOM,返回按需读取的列表,会消耗响应流")
+    @Example("${resp.streamXpaths('//url/loc')}")
+    public static List<Object> streamXpaths(SpiderResponse response, String xpath) {
+        return new LazyList<>(new XmlStreamIterator(stream(response), xpath));
+    }
+
+    @Comment("流式抽取xml内容,按文档顺序返回匹配任一规则的结果,会消耗响应流")
+    @Example("${resp.streamXpaths(['//url/loc','//image:loc'])}")
+    public static List<Object> streamXpaths(SpiderResponse response, List<String> xpaths) {
+        return new LazyList<>(new XmlStreamIterator(stream(response), xpaths.toArray(new String[0])));
+    }
+
+    @Comment("根据css选择器(仅支持标签名、空格及>)流式抽取xml内容,会消耗响应流")
+    @Example("${resp.streamSelectors('url > loc')}")
+    public static List<Object> streamSelectors(SpiderResponse response, String selector) {
+        return new LazyList<>(new XmlStreamIterator(stream(response), selector));
+    }
+
+    @Comment("根据jsonpath(仅支持$.a.b[*]形式)流式抽取json内容,不构建完整json,会消耗响应流")
+    @Example("${resp.streamJsonpath('$.data[*]')}")
+    public static List<Object> streamJsonpath(SpiderResponse response, String path) {
+        return new LazyList<>(new JsonStreamIterator(stream(response), charset(response), path));
+    }
+
+    private static InputStream stream(SpiderResponse response) {
+        InputStream stream = response.getStream();
+        if (stream == null) {
+            throw new UnsupportedOperationException("当前请求结果不支持流式读取");
+        }
+        return stream;
+    }
+
+    private static Charset charset(SpiderResponse response) {
+        String contentType = response.getContentType();
+        if (contentType != null) {
+            Matcher matcher = CHARSET_PATTERN.matcher(contentType);
+            if (matcher.find()) {
+                try {
+                    return Charset.forName(matcher.group(1));
+                } catch (IllegalArgumentException ignored) {
+                    //不支持的编码按UTF-8处理
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
 }
@@ -84,13 +84,13 @@ public class StringFunctionExtension implements FunctionExtension{
 	@Comment("根据css选择器提取")
 	@Example("${strVar.selector('div > a')}")
 	public static Element selector(String source,String cssQuery){
-		return element(source).selectFirst(cssQuery);
+		return ExtractUtils.selectFirst(element(source), cssQuery);
 	}
 	
 	@Comment("根据css选择器提取")
 	@Example("${strVar.selector('div > a')}")
 	public static Elements selectors(String source,String cssQuery){
-		return element(source).select(cssQuery);
+		return ExtractUtils.select(element(source), cssQuery);
 	}
 
 	@Comment("将string转为json对象")
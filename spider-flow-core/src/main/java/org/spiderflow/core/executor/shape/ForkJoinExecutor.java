@@ -1,25 +1,38 @@
 package org.spiderflow.core.executor.shape;
 
+import org.spiderflow.context.ForkJoinContext;
 import org.spiderflow.context.SpiderContext;
+import org.spiderflow.context.VariableScope;
 import org.spiderflow.executor.ShapeExecutor;
 import org.spiderflow.model.SpiderNode;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 等待执行结束执行器
- * 
+ * 运行状态保存在{@link ForkJoinContext}中,每次运行(及每次子流程调用)独立,运行结束后释放
  */
 @Component
 public class ForkJoinExecutor implements ShapeExecutor {
 
 	/**
-	 * 缓存已完成节点的变量
+	 * 变量合并策略
 	 */
-	private Map<String, Map<String, Object>> cachedVariables = new HashMap<>();
-	
+	public static final String MERGE_POLICY = "mergePolicy";
+
+	/**
+	 * 合并策略:后执行完毕的分支覆盖先执行完毕的分支(默认)
+	 */
+	public static final String MERGE_LAST = "last";
+
+	/**
+	 * 合并策略:按执行完毕的顺序将各分支的变量收集为List
+	 */
+	public static final String MERGE_LIST = "list";
+
 	@Override
 	public void execute(SpiderNode node, SpiderContext context, Map<String, Object> variables) {
 	}
@@ -31,22 +44,39 @@ public class ForkJoinExecutor implements ShapeExecutor {
 
 	@Override
 	public boolean allowExecuteNext(SpiderNode node, SpiderContext context, Map<String, Object> variables) {
-		String key = context.getId() + "-" + node.getNodeId();
-		synchronized (node){
-			boolean isDone = node.isDone();
-			Map<String, Object> cached = cachedVariables.get(key);
-			if(!isDone){
-				if(cached == null){
-					cached = new HashMap<>();
-					cachedVariables.put(key, cached);
+		ForkJoinContext forkJoinContext = ForkJoinContext.current(context);
+		boolean collect = MERGE_LIST.equals(node.getStringJsonValue(MERGE_POLICY));
+		Map<String, Object> merged = forkJoinContext.getVariables(node.getNodeId());
+		//只合并分支自己修改的变量,分支开始前继承的变量仍在当前变量中,不参与合并
+		Map<String, Object> changed = variables instanceof VariableScope ? ((VariableScope) variables).getChangedVariables() : variables;
+		synchronized (merged) {
+			for (Map.Entry<String, Object> entry : changed.entrySet()) {
+				if (entry.getValue() == null) {
+					continue;
 				}
-				cached.putAll(variables);
-			}else if(cached != null){
-				//将缓存的变量存入到当前变量中,传递给下一级
-				variables.putAll(cached);
-				cachedVariables.remove(key);
+				if (collect) {
+					collect(merged, entry.getKey(), entry.getValue());
+				} else {
+					merged.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		if (!forkJoinContext.isDone(node)) {
+			return false;
+		}
+		//将合并后的变量存入到当前变量中,传递给下一级
+		merged = forkJoinContext.removeVariables(node.getNodeId());
+		if (merged != null) {
+			synchronized (merged) {
+				variables.putAll(merged);
 			}
-			return isDone;
 		}
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void collect(Map<String, Object> merged, String key, Object value) {
+		List<Object> values = (List<Object>) merged.computeIfAbsent(key, k -> new ArrayList<>());
+		values.add(value);
 	}
 }
@@ -20,6 +20,16 @@ public class LoopExecutor implements ShapeExecutor{
 	public static final String LOOP_START = "loopStart";
 
 	public static final String LOOP_END = "loopEnd";
+
+	/**
+	 * 流式循环:按需读取数据并创建任务
+	 */
+	public static final String LOOP_STREAM = "loopStream";
+
+	/**
+	 * 流式循环时同时执行中的最大任务数
+	 */
+	public static final String LOOP_IN_FLIGHT = "loopInFlight";
 	
 	@Override
 	public void execute(SpiderNode node, SpiderContext context, Map<String,Object> variables) {
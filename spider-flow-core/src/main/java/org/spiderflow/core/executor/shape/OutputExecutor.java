@@ -12,6 +12,8 @@ import org.spiderflow.context.SpiderContext;
 import org.spiderflow.core.serializer.FastJsonSerializer;
 import org.spiderflow.core.utils.DataSourceUtils;
 import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.core.utils.ParallelExpressionUtils;
+import org.spiderflow.core.utils.ParallelExpressionUtils.Result;
 import org.spiderflow.executor.ShapeExecutor;
 import org.spiderflow.io.SpiderResponse;
 import org.spiderflow.listener.SpiderListener;
@@ -72,15 +74,32 @@ public class OutputExecutor implements ShapeExecutor, SpiderListener {
 		if (databaseFlag || csvFlag) {
 			outputData = new HashMap<>(outputs.size());
 		}
-		for (Map<String, String> item : outputs) {
+		int parallelism = ParallelExpressionUtils.getParallelism(node);
+		Result[] results = null;
+		if (parallelism > 1 && outputs.size() > 1) {
+			//输出项之间相互独立,全部并行计算
+			List<String> expressions = new ArrayList<>(outputs.size());
+			for (Map<String, String> item : outputs) {
+				expressions.add(item.get(OUTPUT_VALUE));
+			}
+			results = ParallelExpressionUtils.execute(expressions, null, variables, parallelism);
+		}
+		for (int i = 0; i < outputs.size(); i++) {
+			Map<String, String> item = outputs.get(i);
 			Object value = null;
 			String outputValue = item.get(OUTPUT_VALUE);
 			String outputName = item.get(OUTPUT_NAME);
 			try {
-				value = ExpressionUtils.execute(outputValue, variables);
+				if (results == null) {
+					value = ExpressionUtils.execute(outputValue, variables);
+				} else if (results[i].getError() != null) {
+					throw results[i].getError();
+				} else {
+					value = results[i].getValue();
+				}
 				context.pause(node.getNodeId(),"common",outputName,value);
 				logger.debug("输出{}={}", outputName,value);
-			} catch (Exception e) {
+			} catch (Throwable e) {
 				logger.error("输出{}出错，异常信息：{}", outputName,e);
 			}
 			output.addOutput(outputName, value);
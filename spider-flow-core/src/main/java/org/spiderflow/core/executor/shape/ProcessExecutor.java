@@ -1,14 +1,15 @@
 package org.spiderflow.core.executor.shape;
 
+import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.context.SpiderContext;
+import org.spiderflow.context.VariableScope;
 import org.spiderflow.core.Spider;
-import org.spiderflow.core.model.SpiderFlow;
 import org.spiderflow.core.service.SpiderFlowService;
-import org.spiderflow.core.utils.SpiderFlowUtils;
 import org.spiderflow.executor.ShapeExecutor;
 import org.spiderflow.model.SpiderNode;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * 子流程执行器
+ * 子流程解析后缓存复用,其节点作为普通任务调度,执行本节点的线程只负责提交
  * @author Administrator
  *
  */
@@ -24,6 +26,31 @@ public class ProcessExecutor implements ShapeExecutor{
 	
 	public static final String FLOW_ID = "flowId";
 
+	/**
+	 * 子流程同时执行的任务数上限
+	 */
+	public static final String PROCESS_THREADS = "processThreads";
+
+	/**
+	 * 子流程是否使用独立的变量(不继承当前节点的变量)
+	 */
+	public static final String PROCESS_ISOLATE = "processIsolate";
+
+	/**
+	 * 是否等待子流程结束后再执行下一级
+	 */
+	public static final String PROCESS_WAIT = "processWait";
+
+	/**
+	 * 返回变量名,子流程结束后存入当前流程
+	 */
+	public static final String OUTPUT_NAME = "output-name";
+
+	/**
+	 * 返回变量值,在子流程结束时的变量中计算
+	 */
+	public static final String OUTPUT_VALUE = "output-value";
+
 	private static Logger logger = LoggerFactory.getLogger(ProcessExecutor.class);
 	
 	@Autowired
@@ -34,17 +61,39 @@ public class ProcessExecutor implements ShapeExecutor{
 	
 	@Override
 	public void execute(SpiderNode node, SpiderContext context, Map<String,Object> variables) {
-		String flowId = node.getStringJsonValue("flowId");
-		SpiderFlow spiderFlow = spiderFlowService.getById(flowId);
-		if(spiderFlow != null){
-			logger.info("执行子流程:{}", spiderFlow.getName());
-			SpiderNode root = SpiderFlowUtils.loadXMLFromString(spiderFlow.getXml());
-			spider.executeNode(null,root,context,variables);
+		String flowId = node.getStringJsonValue(FLOW_ID);
+		SpiderNode root = spiderFlowService.getCompiledFlow(flowId);
+		if(root != null){
+			logger.info("执行子流程:{}", flowId);
+			Map<String, Object> processVariables = "1".equals(node.getStringJsonValue(PROCESS_ISOLATE)) ? new VariableScope() : new VariableScope(variables);
+			int threads = NumberUtils.toInt(node.getStringJsonValue(PROCESS_THREADS), 0);
+			spider.executeProcess(node, root, context, processVariables, variables, threads, isWait(node));
 		}else{
 			logger.info("执行子流程:{}失败，找不到该子流程", flowId);
+			if(isWait(node)){
+				//等待子流程时,通过异常流转继续执行
+				throw new IllegalArgumentException("找不到子流程:" + flowId);
+			}
 		}
 	}
 
+	@Override
+	public boolean allowExecuteNext(SpiderNode node, SpiderContext context, Map<String, Object> variables) {
+		//等待子流程时,由子流程结束后执行下一级
+		return !isWait(node) || variables.get("ex") != null;
+	}
+
+	/**
+	 * 是否等待子流程结束,配置了返回变量时总是等待
+	 */
+	public static boolean isWait(SpiderNode node) {
+		return "1".equals(node.getStringJsonValue(PROCESS_WAIT)) || !getOutputs(node).isEmpty();
+	}
+
+	public static List<Map<String, String>> getOutputs(SpiderNode node) {
+		return node.getListJsonValue(OUTPUT_NAME, OUTPUT_VALUE);
+	}
+
 	@Override
 	public String supportShape() {
 		return "process";
@@ -3,7 +3,6 @@ package org.spiderflow.core.executor.shape;
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.Funnels;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -11,6 +10,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.Grammerable;
 import org.spiderflow.context.CookieContext;
+import org.spiderflow.context.FlowMetrics;
+import org.spiderflow.context.NodeMetrics;
 import org.spiderflow.context.SpiderContext;
 import org.spiderflow.core.executor.function.MD5FunctionExecutor;
 import org.spiderflow.core.io.HttpRequest;
@@ -27,6 +28,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -91,6 +93,8 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
 
 	public static final String BLOOM_FILTER_KEY = "_bloomfilter";
 
+	public static final String ACCESS_ERROR_WRITER_KEY = "_access_error_writer";
+
 	@Value("${spider.workspace}")
 	private String workspcace;
 
@@ -257,6 +261,11 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
 			Throwable exception = null;
 			try {
 				HttpResponse response = request.execute();
+				//记录状态码及下载字节数
+				NodeMetrics metrics = FlowMetrics.current();
+				if(metrics != null){
+					metrics.recordResponse(response.getStatusCode(), response.getContentLength());
+				}
                 successed = response.getStatusCode() == 200;
                 if(successed){
                 	if(bloomFilter != null){
@@ -299,15 +308,7 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
                         //记录访问失败的日志
 						if(context.getFlowId() != null){ //测试环境
 							//TODO 需增加记录请求参数
-							File file = new File(workspcace, context.getFlowId() + File.separator + "logs" + File.separator + "access_error.log");
-							try {
-								File directory = file.getParentFile();
-								if(!directory.exists()){
-									directory.mkdirs();
-								}
-								FileUtils.write(file,url + "\r\n","UTF-8",true);
-							} catch (IOException ignored) {
-							}
+							writeAccessError(context, url);
 						}
                         logger.error("请求{}出错,异常信息:{}",url,exception);
                     }
@@ -425,6 +426,34 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
 		}
 	}
 
+	/**
+	 * 记录访问失败的url，同一任务共用一个带缓冲的Writer，任务结束时关闭
+	 */
+	private void writeAccessError(SpiderContext context, String url){
+		try {
+			Writer writer = context.get(ACCESS_ERROR_WRITER_KEY);
+			if(writer == null){
+				synchronized (context){
+					writer = context.get(ACCESS_ERROR_WRITER_KEY);
+					if(writer == null){
+						File file = new File(workspcace, context.getFlowId() + File.separator + "logs" + File.separator + "access_error.log");
+						File directory = file.getParentFile();
+						if(!directory.exists()){
+							directory.mkdirs();
+						}
+						writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+						context.put(ACCESS_ERROR_WRITER_KEY, writer);
+					}
+				}
+			}
+			synchronized (writer){
+				writer.write(url);
+				writer.write("\r\n");
+			}
+		} catch (IOException ignored) {
+		}
+	}
+
 	@Override
 	public List<Grammer> grammers() {
 		List<Grammer> grammers = Grammer.findGrammers(SpiderResponse.class,"resp" , "SpiderResponse", false);
@@ -464,6 +493,26 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
 
 	@Override
 	public void afterEnd(SpiderContext context) {
+		Writer writer = context.get(ACCESS_ERROR_WRITER_KEY);
+		if(writer != null){
+			try {
+				writer.close();
+			} catch (IOException e) {
+				logger.error("关闭访问失败日志出错",e);
+			}
+		}
+		saveBloomFilter(context);
+	}
+
+	/**
+	 * 保存检查点时同时保存布隆过滤器,恢复执行时继续过滤已请求的URL
+	 */
+	@Override
+	public void checkpoint(SpiderContext context) {
+		saveBloomFilter(context);
+	}
+
+	private void saveBloomFilter(SpiderContext context){
 		BloomFilter<String> filter = context.get(BLOOM_FILTER_KEY);
 		if(filter != null){
 			File file = new File(workspcace,context.getFlowId() + File.separator + "url.bf");
@@ -471,7 +520,9 @@ public class RequestExecutor implements ShapeExecutor,Grammerable, SpiderListene
 				file.getParentFile().mkdirs();
 			}
 			try(FileOutputStream fos = new FileOutputStream(file)){
-				filter.writeTo(fos);
+				synchronized (filter){
+					filter.writeTo(fos);
+				}
 				fos.flush();
 			}catch(IOException e){
 				logger.error("保存布隆过滤器出错",e);
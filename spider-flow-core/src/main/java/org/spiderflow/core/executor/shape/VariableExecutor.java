@@ -2,12 +2,15 @@ package org.spiderflow.core.executor.shape;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.context.SpiderContext;
 import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.core.utils.ParallelExpressionUtils;
+import org.spiderflow.core.utils.ParallelExpressionUtils.Result;
 import org.spiderflow.executor.ShapeExecutor;
 import org.spiderflow.model.SpiderNode;
 import org.springframework.stereotype.Component;
@@ -29,6 +32,11 @@ public class VariableExecutor implements ShapeExecutor{
 	@Override
 	public void execute(SpiderNode node, SpiderContext context, Map<String,Object> variables) {
 		List<Map<String, String>> variableList = node.getListJsonValue(VARIABLE_NAME,VARIABLE_VALUE);
+		int parallelism = ParallelExpressionUtils.getParallelism(node);
+		if(parallelism > 1 && variableList.size() > 1){
+			executeParallel(node, context, variables, variableList, parallelism);
+			return;
+		}
 		for (Map<String, String> nameValue : variableList) {
 			Object value = null;
 			String variableName = nameValue.get(VARIABLE_NAME);
@@ -45,6 +53,26 @@ public class VariableExecutor implements ShapeExecutor{
 		}
 	}
 
+	/**
+	 * 并行计算变量,引用了前面变量的表达式仍按依赖顺序执行
+	 */
+	private void executeParallel(SpiderNode node, SpiderContext context, Map<String,Object> variables, List<Map<String, String>> variableList, int parallelism) {
+		List<String> names = variableList.stream().map(item -> item.get(VARIABLE_NAME)).collect(Collectors.toList());
+		List<String> expressions = variableList.stream().map(item -> item.get(VARIABLE_VALUE)).collect(Collectors.toList());
+		Result[] results = ParallelExpressionUtils.execute(expressions, names, variables, parallelism);
+		for (int i = 0; i < results.length && results[i] != null; i++) {
+			String variableName = names.get(i);
+			if(results[i].getError() != null){
+				logger.error("设置变量{}出错，异常信息：{}",variableName,results[i].getError());
+				ExceptionUtils.wrapAndThrow(results[i].getError());
+			}
+			Object value = results[i].getValue();
+			logger.debug("设置变量{}={}",variableName,value);
+			context.pause(node.getNodeId(),"common",variableName,value);
+			variables.put(variableName, value);
+		}
+	}
+
 	@Override
 	public String supportShape() {
 		return "variable";
@@ -1,13 +1,18 @@
 package org.spiderflow.core.expression;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.StringUtils;
 import org.spiderflow.ExpressionEngine;
+import org.spiderflow.core.expression.ExpressionTemplateContext.LazyValue;
 import org.spiderflow.core.expression.interpreter.Reflection;
+import org.spiderflow.core.expression.parsing.Ast.Text;
 import org.spiderflow.executor.FunctionExecutor;
 import org.spiderflow.executor.FunctionExtension;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +26,16 @@ public class DefaultExpressionEngine implements ExpressionEngine{
 	
 	@Autowired
 	private List<FunctionExtension> functionExtensions;
+
+	/**
+	 * 所有表达式共享的作用域(函数执行器及全局变量)
+	 */
+	private volatile Map<String, Object> sharedScope;
+
+	/**
+	 * 构建sharedScope时的全局变量
+	 */
+	private volatile Map<String, String> sharedGlobalVariables;
 	
 	@PostConstruct
 	private void init(){
@@ -34,13 +49,8 @@ public class DefaultExpressionEngine implements ExpressionEngine{
 		if(StringUtils.isBlank(expression)){
 			return expression;
 		}
-		ExpressionTemplateContext context = new ExpressionTemplateContext(variables);
-		for (FunctionExecutor executor : functionExecutors) {
-			context.set(executor.getFunctionPrefix(), executor);
-		}
-		ExpressionGlobalVariables.getVariables().entrySet().forEach(entry->{
-			context.set(entry.getKey(),ExpressionTemplate.create(entry.getValue()).render(context));
-		});
+		//变量直接作为上下文的底层作用域,不再复制
+		ExpressionTemplateContext context = new ExpressionTemplateContext(variables, getSharedScope());
 		try {
 			ExpressionTemplateContext.set(context);
 			return ExpressionTemplate.create(expression).render(context);
@@ -49,4 +59,56 @@ public class DefaultExpressionEngine implements ExpressionEngine{
 		}
 	}
 	
+	/**
+	 * 获取共享作用域,全局变量修改后重新构建
+	 */
+	private Map<String, Object> getSharedScope() {
+		Map<String, String> globalVariables = ExpressionGlobalVariables.getVariables();
+		Map<String, Object> scope = sharedScope;
+		if (scope == null || globalVariables != sharedGlobalVariables) {
+			scope = new HashMap<>();
+			for (FunctionExecutor executor : functionExecutors) {
+				scope.put(executor.getFunctionPrefix(), executor);
+			}
+			for (Map.Entry<String, String> entry : globalVariables.entrySet()) {
+				scope.put(entry.getKey(), createGlobalValue(entry.getValue()));
+			}
+			scope = Collections.unmodifiableMap(scope);
+			sharedScope = scope;
+			sharedGlobalVariables = globalVariables;
+		}
+		return scope;
+	}
+
+	/**
+	 * 纯文本的全局变量直接使用其值,含表达式的在使用时才计算
+	 */
+	private Object createGlobalValue(String value) {
+		if (StringUtils.isBlank(value)) {
+			return value;
+		}
+		try {
+			ExpressionTemplate template = ExpressionTemplate.create(value);
+			if (template.getNodes().stream().allMatch(node -> node instanceof Text)) {
+				return template.render(new ExpressionTemplateContext());
+			}
+		} catch (Exception ignored) {
+			//语法错误时在使用时报错
+		}
+		return new LazyValue(value);
+	}
+
+	@Override
+	public Set<String> getVariables(String expression) {
+		if(StringUtils.isBlank(expression)){
+			return Collections.emptySet();
+		}
+		try {
+			return ExpressionTemplate.create(expression).getVariableNames();
+		} catch (Exception e) {
+			//语法错误等无法分析的情况
+			return null;
+		}
+	}
+	
 }
@@ -1,34 +1,24 @@
 package org.spiderflow.core.expression;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class ExpressionGlobalVariables {
 
-	private static Map<String, String> variables = new HashMap<>();
-
-	private static ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+	/**
+	 * 全局变量,修改时整体替换,读取时无需加锁
+	 */
+	private static volatile Map<String, String> variables = Collections.emptyMap();
 
 	public static void reset(Map<String, String> map){
-		Lock lock = readWriteLock.writeLock();
-		lock.lock();
-		try {
-			variables.clear();
-			variables.putAll(map);
-		} finally {
-			lock.unlock();
-		}
+		variables = Collections.unmodifiableMap(new HashMap<>(map));
 	}
 
+	/**
+	 * 获取全局变量,每次reset后返回新的实例
+	 */
 	public static Map<String, String> getVariables(){
-		Lock lock = readWriteLock.readLock();
-		lock.lock();
-		try {
-			return variables;
-		} finally {
-			lock.unlock();
-		}
+		return variables;
 	}
 }
@@ -2,11 +2,23 @@
 package org.spiderflow.core.expression;
 
 import java.io.OutputStream;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.spiderflow.core.expression.interpreter.AstInterpreter;
 import org.spiderflow.core.expression.parsing.Ast;
+import org.spiderflow.core.expression.parsing.Ast.BinaryOperation;
+import org.spiderflow.core.expression.parsing.Ast.FunctionCall;
+import org.spiderflow.core.expression.parsing.Ast.ListLiteral;
+import org.spiderflow.core.expression.parsing.Ast.MapLiteral;
+import org.spiderflow.core.expression.parsing.Ast.MapOrArrayAccess;
+import org.spiderflow.core.expression.parsing.Ast.MemberAccess;
+import org.spiderflow.core.expression.parsing.Ast.MethodCall;
 import org.spiderflow.core.expression.parsing.Ast.Node;
+import org.spiderflow.core.expression.parsing.Ast.TernaryOperation;
+import org.spiderflow.core.expression.parsing.Ast.UnaryOperation;
+import org.spiderflow.core.expression.parsing.Ast.VariableAccess;
 import org.spiderflow.core.expression.parsing.Parser;
 
 
@@ -31,6 +43,53 @@ public class ExpressionTemplate {
 		return nodes;
 	}
 
+	/** Returns the names of all variables referenced by this template, found by walking the AST without evaluating it. **/
+	public Set<String> getVariableNames () {
+		Set<String> names = new HashSet<String>();
+		for (Node node : nodes) {
+			collectVariableNames(node, names);
+		}
+		return names;
+	}
+
+	private static void collectVariableNames (Node node, Set<String> names) {
+		if (node instanceof VariableAccess) {
+			names.add(((VariableAccess)node).getVariableName().getText());
+		} else if (node instanceof UnaryOperation) {
+			collectVariableNames(((UnaryOperation)node).getOperand(), names);
+		} else if (node instanceof BinaryOperation) {
+			collectVariableNames(((BinaryOperation)node).getLeftOperand(), names);
+			collectVariableNames(((BinaryOperation)node).getRightOperand(), names);
+		} else if (node instanceof TernaryOperation) {
+			collectVariableNames(((TernaryOperation)node).getCondition(), names);
+			collectVariableNames(((TernaryOperation)node).getTrueExpression(), names);
+			collectVariableNames(((TernaryOperation)node).getFalseExpression(), names);
+		} else if (node instanceof MapOrArrayAccess) {
+			collectVariableNames(((MapOrArrayAccess)node).getMapOrArray(), names);
+			collectVariableNames(((MapOrArrayAccess)node).getKeyOrIndex(), names);
+		} else if (node instanceof MemberAccess) {
+			collectVariableNames(((MemberAccess)node).getObject(), names);
+		} else if (node instanceof FunctionCall) {
+			collectVariableNames(((FunctionCall)node).getFunction(), names);
+			for (Node argument : ((FunctionCall)node).getArguments()) {
+				collectVariableNames(argument, names);
+			}
+		} else if (node instanceof MethodCall) {
+			collectVariableNames(((MethodCall)node).getObject(), names);
+			for (Node argument : ((MethodCall)node).getArguments()) {
+				collectVariableNames(argument, names);
+			}
+		} else if (node instanceof MapLiteral) {
+			for (Node value : ((MapLiteral)node).getValues()) {
+				collectVariableNames(value, names);
+			}
+		} else if (node instanceof ListLiteral) {
+			for (Node value : ((ListLiteral)node).getValues()) {
+				collectVariableNames(value, names);
+			}
+		}
+	}
+
 	/** Renders the template using the TemplateContext to resolve variable values referenced in the template. **/
 	public Object render (ExpressionTemplateContext context) {
 		return AstInterpreter.interpret(this, context);
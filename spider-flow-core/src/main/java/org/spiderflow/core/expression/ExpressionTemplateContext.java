@@ -2,6 +2,7 @@
 package org.spiderflow.core.expression;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -29,6 +30,17 @@ public class ExpressionTemplateContext {
 	 * generating garbage. **/
 	private final List<Map<String, Object>> freeScopes = new ArrayList<Map<String, Object>>();
 
+	/** Variables supplied by the caller. They are looked up directly instead of being copied and are never written to;
+	 * assignments go to the scope stack. **/
+	private final Map<String, Object> variables;
+
+	/** Scope shared by all contexts (function executors and global variables). Looked up after the scope stack and before
+	 * {@link #variables}, it must not be modified. **/
+	private final Map<String, Object> shared;
+
+	/** Values of {@link LazyValue}s from the shared scope rendered by this context. **/
+	private Map<String, Object> resolved;
+
 	private final static ThreadLocal<ExpressionTemplateContext> CONTEXT_THREAD_LOCAL = new ThreadLocal<>();
 
 	public static ExpressionTemplateContext get(){
@@ -44,14 +56,17 @@ public class ExpressionTemplateContext {
 	}
 
 	public ExpressionTemplateContext () {
-		push();
+		this(null);
 	}
 	
 	public ExpressionTemplateContext(Map<String,Object> variables) {
-		this();
-		if(variables != null){
-			variables.forEach(this::set);
-		}
+		this(variables, null);
+	}
+
+	public ExpressionTemplateContext(Map<String,Object> variables, Map<String,Object> shared) {
+		this.variables = variables == null ? Collections.emptyMap() : variables;
+		this.shared = shared == null ? Collections.emptyMap() : shared;
+		push();
 	}
 
 	/** Sets the value of the variable with the given name. If the variable already exists in one of the scopes, that variable is
@@ -85,7 +100,26 @@ public class ExpressionTemplateContext {
 			Object value = ctx.get(name);
 			if (value != null) return value;
 		}
-		return null;
+		Object value = shared.get(name);
+		if (value instanceof LazyValue) {
+			value = resolve(name, (LazyValue)value);
+		}
+		if (value != null) return value;
+		return variables.get(name);
+	}
+
+	/** Renders a lazily evaluated value from the shared scope once per context. **/
+	private Object resolve (String name, LazyValue lazyValue) {
+		if (resolved == null) {
+			resolved = new HashMap<String, Object>();
+		} else if (resolved.containsKey(name)) {
+			return resolved.get(name);
+		}
+		// guards against a value referencing itself
+		resolved.put(name, null);
+		Object value = ExpressionTemplate.create(lazyValue.getExpression()).render(this);
+		resolved.put(name, value);
+		return value;
 	}
 
 	/** Internal. Returns all variables currently defined in this context. */
@@ -94,6 +128,8 @@ public class ExpressionTemplateContext {
 		for (int i = 0, n = scopes.size(); i < n; i++) {
 			variables.addAll(scopes.get(i).keySet());
 		}
+		variables.addAll(shared.keySet());
+		variables.addAll(this.variables.keySet());
 		return variables;
 	}
 
@@ -109,4 +145,17 @@ public class ExpressionTemplateContext {
 		oldScope.clear();
 		freeScopes.add(oldScope);
 	}
+
+	/** A value in the shared scope that is an expression, rendered with the context that first looks it up. **/
+	public static class LazyValue {
+		private final String expression;
+
+		public LazyValue (String expression) {
+			this.expression = expression;
+		}
+
+		public String getExpression () {
+			return expression;
+		}
+	}
 }
@@ -0,0 +1,170 @@
+package org.spiderflow.core.frontier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 磁盘队列中任务的二进制编码:节点ID + 变量
+ * 变量只支持VariableSnapshotUtils快照后的值(字符串、数字、布尔、日期、Map、List)
+ * @author jmxd
+ *
+ */
+public class FrontierCodec {
+
+	private static final byte NULL = 0;
+
+	private static final byte STRING = 1;
+
+	private static final byte INTEGER = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte DOUBLE = 4;
+
+	private static final byte BOOLEAN = 5;
+
+	private static final byte DATE = 6;
+
+	private static final byte MAP = 7;
+
+	private static final byte LIST = 8;
+
+	private static final byte BIG_DECIMAL = 9;
+
+	private static final byte BIG_INTEGER = 10;
+
+	public static byte[] encode(String nodeId, Map<String, Object> variables) {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+		try (DataOutputStream out = new DataOutputStream(bos)) {
+			writeString(out, nodeId);
+			writeValue(out, variables);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bos.toByteArray();
+	}
+
+	public static FrontierItem decode(byte[] data) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			String nodeId = readString(in);
+			@SuppressWarnings("unchecked")
+			Map<String, Object> variables = (Map<String, Object>) readValue(in);
+			return new FrontierItem(nodeId, variables);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) value);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			out.writeByte(INTEGER);
+			out.writeInt(((Number) value).intValue());
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double || value instanceof Float) {
+			out.writeByte(DOUBLE);
+			out.writeDouble(((Number) value).doubleValue());
+		} else if (value instanceof BigInteger) {
+			out.writeByte(BIG_INTEGER);
+			writeString(out, value.toString());
+		} else if (value instanceof Number) {
+			out.writeByte(BIG_DECIMAL);
+			writeString(out, value.toString());
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				writeString(out, String.valueOf(entry.getKey()));
+				writeValue(out, entry.getValue());
+			}
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (Object item : list) {
+				writeValue(out, item);
+			}
+		} else {
+			out.writeByte(STRING);
+			writeString(out, value.toString());
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case STRING:
+				return readString(in);
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case DOUBLE:
+				return in.readDouble();
+			case BIG_INTEGER:
+				return new BigInteger(readString(in));
+			case BIG_DECIMAL:
+				return new BigDecimal(readString(in));
+			case BOOLEAN:
+				return in.readBoolean();
+			case DATE:
+				return new Date(in.readLong());
+			case MAP:
+				int size = in.readInt();
+				Map<String, Object> map = new LinkedHashMap<>(Math.max(size * 4 / 3 + 1, 16));
+				for (int i = 0; i < size; i++) {
+					String key = readString(in);
+					map.put(key, readValue(in));
+				}
+				return map;
+			case LIST:
+				int length = in.readInt();
+				List<Object> list = new ArrayList<>(length);
+				for (int i = 0; i < length; i++) {
+					list.add(readValue(in));
+				}
+				return list;
+			default:
+				throw new IOException("无法识别的数据类型:" + type);
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.spiderflow.core.frontier;
+
+import java.util.Map;
+
+/**
+ * 从磁盘队列中读取的任务
+ * @author jmxd
+ *
+ */
+public class FrontierItem {
+
+	private final String nodeId;
+
+	private final Map<String, Object> variables;
+
+	public FrontierItem(String nodeId, Map<String, Object> variables) {
+		this.nodeId = nodeId;
+		this.variables = variables;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public Map<String, Object> getVariables() {
+		return variables;
+	}
+}
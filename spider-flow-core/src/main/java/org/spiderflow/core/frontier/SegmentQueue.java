@@ -0,0 +1,167 @@
+package org.spiderflow.core.frontier;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+import org.spiderflow.io.MappedFileSource;
+
+/**
+ * 基于内存映射文件的先进先出队列,数据按段存储,每条记录为长度+内容
+ * 只有队首(读取)和队尾(写入)的段会被映射,读取完毕的段会被删除
+ * 非线程安全,由调用方加锁
+ * @author jmxd
+ *
+ */
+public class SegmentQueue {
+
+	private final File directory;
+
+	private final String name;
+
+	private final int segmentSize;
+
+	private final Deque<Segment> segments = new ArrayDeque<>();
+
+	private int sequence;
+
+	private long size;
+
+	public SegmentQueue(File directory, String name, int segmentSize) {
+		this.directory = directory;
+		this.name = name;
+		this.segmentSize = segmentSize;
+	}
+
+	public void add(byte[] data) throws IOException {
+		int length = data.length + 4;
+		Segment tail = segments.peekLast();
+		if (tail == null || tail.capacity - tail.writePos < length) {
+			if (tail != null && tail != segments.peekFirst()) {
+				//写满的段在读取时重新映射
+				tail.unmap();
+			}
+			if (!directory.exists()) {
+				directory.mkdirs();
+			}
+			tail = new Segment(new File(directory, name + "-" + (sequence++) + ".seg"), Math.max(segmentSize, length));
+			segments.addLast(tail);
+		}
+		ByteBuffer buffer = tail.map().duplicate();
+		buffer.position(tail.writePos);
+		buffer.putInt(data.length);
+		buffer.put(data);
+		tail.writePos += length;
+		size++;
+	}
+
+	/**
+	 * 取出队首的记录,队列为空时返回null
+	 */
+	public byte[] poll() throws IOException {
+		Segment head;
+		while ((head = segments.peekFirst()) != null && head.readPos >= head.writePos) {
+			if (head == segments.peekLast()) {
+				//只剩一个段时从头复用
+				head.readPos = head.writePos = 0;
+				return null;
+			}
+			segments.pollFirst().delete();
+		}
+		if (head == null) {
+			return null;
+		}
+		ByteBuffer buffer = head.map().duplicate();
+		buffer.position(head.readPos);
+		byte[] data = new byte[buffer.getInt()];
+		buffer.get(data);
+		head.readPos += data.length + 4;
+		size--;
+		return data;
+	}
+
+	/**
+	 * 遍历队列中的记录,不取出
+	 */
+	public void forEach(Consumer<byte[]> consumer) throws IOException {
+		for (Segment segment : segments) {
+			boolean mapped = segment.buffer != null;
+			ByteBuffer buffer = segment.map().duplicate();
+			buffer.position(segment.readPos);
+			while (buffer.position() < segment.writePos) {
+				byte[] data = new byte[buffer.getInt()];
+				buffer.get(data);
+				consumer.accept(data);
+			}
+			if (!mapped) {
+				segment.unmap();
+			}
+		}
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 清空队列并删除文件
+	 */
+	public void clear() {
+		Segment segment;
+		while ((segment = segments.pollFirst()) != null) {
+			segment.delete();
+		}
+		size = 0;
+	}
+
+	static class Segment {
+
+		private final File file;
+
+		private final int capacity;
+
+		private int readPos;
+
+		private int writePos;
+
+		private MappedByteBuffer buffer;
+
+		Segment(File file, int capacity) {
+			this.file = file;
+			this.capacity = capacity;
+		}
+
+		MappedByteBuffer map() throws IOException {
+			if (buffer == null) {
+				try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+					buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+				}
+			}
+			return buffer;
+		}
+
+		void unmap() {
+			if (buffer != null) {
+				MappedFileSource.unmap(buffer);
+				buffer = null;
+			}
+		}
+
+		void delete() {
+			unmap();
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
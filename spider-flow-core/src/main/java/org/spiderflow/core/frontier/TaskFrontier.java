@@ -0,0 +1,286 @@
+package org.spiderflow.core.frontier;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.core.executor.shape.RequestExecutor;
+import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.core.utils.VariableSnapshotUtils;
+import org.spiderflow.model.SpiderNode;
+
+/**
+ * 待执行任务的磁盘队列(爬取边界)
+ * 内存中的任务数超过上限时,新任务编码后写入磁盘,内存中的任务数降到一半时再按批读回,
+ * 可按优先级或按域名轮流读取,使同一域名的任务分散执行
+ * @author jmxd
+ *
+ */
+public class TaskFrontier {
+
+	/**
+	 * 读取顺序:先进先出
+	 */
+	public static final String ORDER_FIFO = "fifo";
+
+	/**
+	 * 读取顺序:按优先级(0-99,越大越先执行)
+	 */
+	public static final String ORDER_PRIORITY = "priority";
+
+	/**
+	 * 读取顺序:按域名轮流
+	 */
+	public static final String ORDER_HOST = "host";
+
+	/**
+	 * 按域名读取时的分组数
+	 */
+	private static final int HOST_BUCKETS = 64;
+
+	private static final int MAX_PRIORITY = 99;
+
+	/**
+	 * 子流程节点,执行的流程不在当前节点图中
+	 */
+	private static final String PROCESS_SHAPE = "process";
+
+	private static Logger logger = LoggerFactory.getLogger(TaskFrontier.class);
+
+	private final File directory;
+
+	/**
+	 * 内存中任务数上限
+	 */
+	private final int memoryLimit;
+
+	private final int segmentSize;
+
+	private final String order;
+
+	private final String priorityExpression;
+
+	/**
+	 * 分组 -> 队列,按优先级读取时优先级高的在前
+	 */
+	private final TreeMap<Integer, SegmentQueue> queues = new TreeMap<>(Comparator.reverseOrder());
+
+	/**
+	 * 节点ID -> 节点及其后续所有节点中引用的变量名(为null时表示无法分析)
+	 */
+	private final Map<String, Set<String>> references = new HashMap<>();
+
+	/**
+	 * 按域名轮流读取时上次读取的分组
+	 */
+	private Integer cursor;
+
+	private long size;
+
+	public TaskFrontier(File directory, int memoryLimit, int segmentSize, String order, String priorityExpression) {
+		this.directory = directory;
+		this.memoryLimit = memoryLimit;
+		this.segmentSize = segmentSize;
+		this.order = StringUtils.defaultIfBlank(order, ORDER_FIFO);
+		this.priorityExpression = priorityExpression;
+	}
+
+	/**
+	 * 内存中的任务数是否超过上限
+	 * @param total	已创建未执行完毕的任务数(包括磁盘中的任务)
+	 */
+	public synchronized boolean isFull(int total) {
+		return total - size > memoryLimit;
+	}
+
+	/**
+	 * 获取需要从磁盘读回的任务数,内存中的任务数降到上限的一半时读回至上限
+	 */
+	public synchronized int getRefillCount(int total) {
+		long inMemory = total - size;
+		return size > 0 && inMemory <= memoryLimit / 2 ? (int) Math.min(memoryLimit - inMemory, size) : 0;
+	}
+
+	/**
+	 * 将任务写入磁盘,节点引用了无法序列化的变量(如请求结果resp)时返回false,任务仍保留在内存中
+	 */
+	public synchronized boolean offer(SpiderNode node, Map<String, Object> variables) {
+		Map<String, Object> values = new HashMap<>(variables);
+		Map<String, Object> snapshot = VariableSnapshotUtils.snapshot(values, false);
+		if (snapshot.size() < values.size()) {
+			if (!references.containsKey(node.getNodeId())) {
+				references.put(node.getNodeId(), getReferences(node));
+			}
+			Set<String> names = references.get(node.getNodeId());
+			if (names == null) {
+				return false;
+			}
+			for (String name : values.keySet()) {
+				if (!snapshot.containsKey(name) && names.contains(name)) {
+					return false;
+				}
+			}
+		}
+		try {
+			int group = getGroup(node, values);
+			queues.computeIfAbsent(group, key -> new SegmentQueue(directory, "frontier-" + key, segmentSize)).add(FrontierCodec.encode(node.getNodeId(), snapshot));
+			size++;
+			return true;
+		} catch (IOException e) {
+			logger.error("写入磁盘队列出错", e);
+			return false;
+		}
+	}
+
+	/**
+	 * 按顺序读取任务
+	 */
+	public synchronized List<FrontierItem> poll(int count) {
+		List<FrontierItem> items = new ArrayList<>(Math.min(count, 1024));
+		try {
+			if (ORDER_HOST.equals(order)) {
+				//各分组轮流读取
+				while (items.size() < count && size > 0) {
+					Map.Entry<Integer, SegmentQueue> entry = cursor == null ? null : queues.higherEntry(cursor);
+					if (entry == null) {
+						entry = queues.firstEntry();
+					}
+					cursor = entry.getKey();
+					byte[] data = entry.getValue().poll();
+					if (data != null) {
+						items.add(FrontierCodec.decode(data));
+						size--;
+					}
+				}
+			} else {
+				Iterator<SegmentQueue> iterator = queues.values().iterator();
+				SegmentQueue queue = iterator.hasNext() ? iterator.next() : null;
+				while (items.size() < count && queue != null) {
+					byte[] data = queue.poll();
+					if (data == null) {
+						queue = iterator.hasNext() ? iterator.next() : null;
+					} else {
+						items.add(FrontierCodec.decode(data));
+						size--;
+					}
+				}
+			}
+		} catch (IOException e) {
+			logger.error("读取磁盘队列出错", e);
+		}
+		return items;
+	}
+
+	/**
+	 * 遍历磁盘中的任务(保存检查点时使用)
+	 */
+	public synchronized void forEach(BiConsumer<String, Map<String, Object>> consumer) throws IOException {
+		for (SegmentQueue queue : queues.values()) {
+			queue.forEach(data -> {
+				FrontierItem item = FrontierCodec.decode(data);
+				consumer.accept(item.getNodeId(), item.getVariables());
+			});
+		}
+	}
+
+	public synchronized long size() {
+		return size;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 清空队列并删除目录
+	 */
+	public synchronized void clear() {
+		queues.values().forEach(SegmentQueue::clear);
+		queues.clear();
+		size = 0;
+		FileUtils.deleteQuietly(directory);
+	}
+
+	private int getGroup(SpiderNode node, Map<String, Object> variables) {
+		if (ORDER_PRIORITY.equals(order) && StringUtils.isNotBlank(priorityExpression)) {
+			try {
+				Object value = ExpressionUtils.execute(priorityExpression, variables);
+				return Math.min(Math.max(NumberUtils.toInt(String.valueOf(value), 0), 0), MAX_PRIORITY);
+			} catch (Throwable t) {
+				logger.warn("获取任务优先级出错,异常信息：{}", t.getMessage());
+			}
+		} else if (ORDER_HOST.equals(order)) {
+			String url = node.getStringJsonValue(RequestExecutor.URL);
+			if (StringUtils.isNotBlank(url)) {
+				try {
+					String host = URI.create(String.valueOf(ExpressionUtils.execute(url, variables)).trim()).getHost();
+					return host == null ? 0 : (host.hashCode() & Integer.MAX_VALUE) % HOST_BUCKETS;
+				} catch (Throwable ignored) {
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 获取节点及其后续所有节点(变量会传递到的节点)的配置、连线条件中引用的变量名,
+	 * 后续有子流程节点时无法分析
+	 */
+	private Set<String> getReferences(SpiderNode node) {
+		Set<String> names = new HashSet<>();
+		List<String> expressions = new ArrayList<>();
+		Set<String> visited = new HashSet<>();
+		LinkedList<SpiderNode> pending = new LinkedList<>();
+		pending.add(node);
+		visited.add(node.getNodeId());
+		while (!pending.isEmpty()) {
+			SpiderNode current = pending.poll();
+			if (PROCESS_SHAPE.equals(current.getStringJsonValue("shape"))) {
+				return null;
+			}
+			for (Object value : current.getJsonProperty().values()) {
+				if (value instanceof String) {
+					expressions.add((String) value);
+				} else if (value instanceof Collection) {
+					for (Object item : (Collection<?>) value) {
+						if (item instanceof String) {
+							expressions.add((String) item);
+						}
+					}
+				}
+			}
+			for (SpiderNode nextNode : current.getNextNodes()) {
+				expressions.add(nextNode.getCondition(current.getNodeId()));
+				//不传递变量的连线,后续节点不会读取到这些变量
+				if (nextNode.isTransmitVariable(current.getNodeId()) && visited.add(nextNode.getNodeId())) {
+					pending.add(nextNode);
+				}
+			}
+		}
+		for (String expression : expressions) {
+			Set<String> variables = ExpressionUtils.getVariables(expression);
+			if (variables == null) {
+				return null;
+			}
+			names.addAll(variables);
+		}
+		return names;
+	}
+}
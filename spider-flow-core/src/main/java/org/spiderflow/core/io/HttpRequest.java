@@ -2,12 +2,17 @@ package org.spiderflow.core.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Map;
 
 import org.jsoup.Connection;
 import org.jsoup.Connection.Method;
 import org.jsoup.Connection.Response;
 import org.jsoup.Jsoup;
+import org.spiderflow.context.FlowTrace;
+import org.spiderflow.context.Span;
+import org.spiderflow.core.metrics.SpiderMetrics;
 
 /**
  * 请求对象包装类
@@ -123,7 +128,53 @@ public class HttpRequest {
 		this.connection.ignoreHttpErrors(true);
 		this.connection.maxBodySize(0);
 
-		Response response = connection.execute();
-		return new HttpResponse(response);
+		long start = System.nanoTime();
+		String host = connection.request().url().getHost();
+		//被采样时记录DNS解析、建立连接至收到响应头的耗时,响应内容的下载在读取时记录
+		Span span = FlowTrace.startSpan("http.request");
+		Span headers = null;
+		if (span != null) {
+			span.setAttribute("http.method", connection.request().method().name()).setAttribute("http.url", connection.request().url().toExternalForm());
+			if (connection.request().proxy() == null) {
+				resolve(host, span);
+			}
+			headers = span.child("http.headers");
+		}
+		Response response;
+		try {
+			response = connection.execute();
+		} catch (IOException e) {
+			SpiderMetrics.recordRequest(host, null, System.nanoTime() - start, -1);
+			if (span != null) {
+				headers.setError(e);
+				headers.end();
+				span.setError(e);
+				span.end();
+			}
+			throw e;
+		}
+		HttpResponse httpResponse = new HttpResponse(response);
+		SpiderMetrics.recordRequest(host, response.statusCode(), System.nanoTime() - start, httpResponse.getContentLength());
+		if (span != null) {
+			headers.end();
+			span.setAttribute("http.status_code", response.statusCode());
+			span.end();
+		}
+		return httpResponse;
+	}
+
+	/**
+	 * 预先解析域名并记录耗时,解析结果由JVM缓存,请求时不再重复解析
+	 */
+	private void resolve(String host, Span parent) {
+		Span span = parent.child("dns");
+		span.setAttribute("net.peer.name", host);
+		try {
+			InetAddress.getAllByName(host);
+		} catch (UnknownHostException e) {
+			span.setError(e);
+		} finally {
+			span.end();
+		}
 	}
 }
@@ -1,12 +1,17 @@
 package org.spiderflow.core.io;
 
 import com.alibaba.fastjson.JSON;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.jsoup.Connection.Response;
 import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.spiderflow.context.FlowTrace;
+import org.spiderflow.context.Span;
 import org.spiderflow.io.SpiderResponse;
 
 import java.io.InputStream;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * 响应对象包装类
@@ -27,6 +32,11 @@ public class HttpResponse implements SpiderResponse{
 
 	private Object jsonValue;
 
+	/**
+	 * 解析后的文档,所有抽取函数共用,只解析一次,只读
+	 */
+	private volatile Document document;
+
 	public HttpResponse(Response response){
 		super();
 		this.response = response;
@@ -43,7 +53,7 @@ public class HttpResponse implements SpiderResponse{
 	public String getTitle() {
 		if (titleName == null) {
 			synchronized (this){
-				titleName = Jsoup.parse(getHtml()).title();
+				titleName = getReadOnlyDocument().title();
 			}
 		}
 		return titleName;
@@ -53,12 +63,45 @@ public class HttpResponse implements SpiderResponse{
 	public String getHtml(){
 		if(htmlValue == null){
 			synchronized (this){
-				htmlValue = response.body();
+				htmlValue = download(response::body);
 			}
 		}
 		return htmlValue;
 	}
 	
+	/**
+	 * 获取解析后的文档副本,可以交给表达式任意修改
+	 */
+	@Override
+	public Document getDocument() {
+		return getReadOnlyDocument().clone();
+	}
+
+	/**
+	 * 获取共用的解析结果,只能用于查询,不能修改
+	 * 直接解析并保存在响应中,不放入运行的解析缓存,避免每个响应多保留一份副本
+	 */
+	public Document getReadOnlyDocument() {
+		Document doc = document;
+		if (doc == null) {
+			synchronized (this) {
+				doc = document;
+				if (doc == null) {
+					String html = getHtml();
+					Span span = FlowTrace.startSpan("parse");
+					try {
+						document = doc = Jsoup.parse(html, urlLink);
+					} finally {
+						if (span != null) {
+							span.end();
+						}
+					}
+				}
+			}
+		}
+		return doc;
+	}
+	
 	@Override
 	public Object getJson(){
 		if(jsonValue == null){
@@ -79,9 +122,30 @@ public class HttpResponse implements SpiderResponse{
 	
 	@Override
 	public byte[] getBytes(){
-		return response.bodyAsBytes();
+		return download(response::bodyAsBytes);
+	}
+
+	/**
+	 * 读取响应内容,被采样时记录下载耗时(首次读取时从连接中下载)
+	 */
+	private <T> T download(Supplier<T> reader) {
+		Span span = FlowTrace.startSpan("http.download");
+		try {
+			return reader.get();
+		} finally {
+			if (span != null) {
+				span.end();
+			}
+		}
 	}
 	
+	/**
+	 * 获取响应头中的内容长度,未知时返回-1(不读取响应内容)
+	 */
+	public long getContentLength(){
+		return NumberUtils.toLong(response.header("Content-Length"), -1);
+	}
+
 	@Override
 	public String getContentType(){
 		return response.contentType();
@@ -90,6 +154,12 @@ public class HttpResponse implements SpiderResponse{
 	@Override
 	public void setCharset(String charset) {
 		this.response.charset(charset);
+		synchronized (this){
+			this.htmlValue = null;
+			this.titleName = null;
+			this.jsonValue = null;
+			this.document = null;
+		}
 	}
 
 	@Override
@@ -0,0 +1,172 @@
+package org.spiderflow.core.io;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONToken;
+
+/**
+ * 基于fastjson JSONReader的JSON流式抽取,不构建完整的JSON树
+ * 规则支持jsonpath子集:$.a.b、$['a'].b,以[*]或.*结尾时逐个返回数组元素或对象的值
+ * @author jmxd
+ *
+ */
+public class JsonStreamIterator implements Iterator<Object> {
+
+	private final JSONReader reader;
+
+	/**
+	 * 路径中各级属性名
+	 */
+	private final List<String> keys = new ArrayList<>();
+
+	/**
+	 * 是否逐个返回目标数组/对象中的元素
+	 */
+	private boolean wildcard;
+
+	/**
+	 * 目标是否为对象(逐个返回值时需要先读取key)
+	 */
+	private boolean objectTarget;
+
+	private boolean started;
+
+	private boolean finished;
+
+	public JsonStreamIterator(InputStream stream, Charset charset, String jsonPath) {
+		parse(jsonPath);
+		this.reader = new JSONReader(new InputStreamReader(stream, charset));
+	}
+
+	private void parse(String jsonPath) {
+		if (StringUtils.isBlank(jsonPath) || !jsonPath.trim().startsWith("$")) {
+			throw new IllegalArgumentException("不支持的jsonpath:" + jsonPath);
+		}
+		String path = jsonPath.trim().substring(1);
+		if (path.endsWith("[*]") || path.endsWith(".*")) {
+			wildcard = true;
+			path = path.substring(0, path.length() - (path.endsWith("[*]") ? 3 : 2));
+		}
+		int index = 0;
+		while (index < path.length()) {
+			char c = path.charAt(index);
+			if (c == '.') {
+				int end = index + 1;
+				while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+					end++;
+				}
+				keys.add(path.substring(index + 1, end));
+				index = end;
+			} else if (path.startsWith("['", index)) {
+				int end = path.indexOf("']", index + 2);
+				if (end < 0) {
+					throw new IllegalArgumentException("不支持的jsonpath:" + jsonPath);
+				}
+				keys.add(path.substring(index + 2, end));
+				index = end + 2;
+			} else {
+				throw new IllegalArgumentException("流式抽取仅支持$.a.b[*]形式的jsonpath:" + jsonPath);
+			}
+		}
+	}
+
+	/**
+	 * 定位到目标节点,找不到时返回false
+	 */
+	private boolean locate() {
+		for (String key : keys) {
+			if (reader.peek() != JSONToken.LBRACE) {
+				return false;
+			}
+			reader.startObject();
+			boolean found = false;
+			while (reader.hasNext()) {
+				String name = reader.readString();
+				if (key.equals(name)) {
+					found = true;
+					break;
+				}
+				//跳过不需要的值
+				reader.readObject();
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		if (wildcard) {
+			int token = reader.peek();
+			if (token == JSONToken.LBRACKET) {
+				reader.startArray();
+			} else if (token == JSONToken.LBRACE) {
+				reader.startObject();
+				objectTarget = true;
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (finished) {
+			return false;
+		}
+		try {
+			if (!started) {
+				started = true;
+				if (!locate()) {
+					close();
+					return false;
+				}
+				if (!wildcard) {
+					return true;
+				}
+			}
+			if (!wildcard || reader.hasNext()) {
+				return true;
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			if (objectTarget) {
+				reader.readString();
+			}
+			Object value = reader.readObject();
+			if (!wildcard) {
+				close();
+			}
+			return value;
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private void close() {
+		if (!finished) {
+			finished = true;
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package org.spiderflow.core.io;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需从迭代器中读取元素的List
+ * 只有访问到的元素才会被读取,已读取的元素会被保留,以便多次遍历
+ * @author jmxd
+ *
+ */
+public class LazyList<E> extends AbstractList<E> {
+
+	private final Iterator<E> source;
+
+	private final List<E> buffer = new ArrayList<>();
+
+	public LazyList(Iterator<E> source) {
+		this.source = source;
+	}
+
+	/**
+	 * 读取元素直至缓冲区达到指定数量或数据源读取完毕
+	 */
+	private synchronized boolean fill(int count) {
+		while (buffer.size() < count && source.hasNext()) {
+			buffer.add(source.next());
+		}
+		return buffer.size() >= count;
+	}
+
+	@Override
+	public synchronized E get(int index) {
+		if (index < 0 || !fill(index + 1)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + buffer.size());
+		}
+		return buffer.get(index);
+	}
+
+	/**
+	 * 获取元素个数,会读取全部数据
+	 */
+	@Override
+	public synchronized int size() {
+		fill(Integer.MAX_VALUE);
+		return buffer.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return !fill(1);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return fill(index + 1);
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return get(index++);
+			}
+		};
+	}
+}
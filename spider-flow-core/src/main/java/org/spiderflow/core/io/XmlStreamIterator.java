@@ -0,0 +1,304 @@
+package org.spiderflow.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * 基于StAX的XML流式抽取(要求内容格式良好,如sitemap、rss),不构建DOM
+ * 规则支持xpath子集(/a/b、//a/b、//a/text()、//a/@href)和css子集(a b、a > b),
+ * 匹配的元素有子元素时返回Map(子元素名称->文本),否则返回文本
+ * @author jmxd
+ *
+ */
+public class XmlStreamIterator implements Iterator<Object> {
+
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		//禁止DTD及外部实体,防止XXE
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+	}
+
+	private final InputStream stream;
+
+	private final XMLStreamReader reader;
+
+	private final List<Rule> rules = new ArrayList<>();
+
+	/**
+	 * 当前元素路径
+	 */
+	private final List<String> stack = new ArrayList<>();
+
+	private Object next;
+
+	private boolean finished;
+
+	public XmlStreamIterator(InputStream stream, String... rules) {
+		this.stream = stream;
+		for (String rule : rules) {
+			this.rules.add(Rule.parse(rule));
+		}
+		try {
+			this.reader = FACTORY.createXMLStreamReader(stream);
+		} catch (XMLStreamException e) {
+			close();
+			throw new IllegalArgumentException("创建XML流读取器失败", e);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !finished) {
+			try {
+				next = advance();
+			} catch (XMLStreamException e) {
+				close();
+				throw new IllegalStateException("读取XML流失败", e);
+			}
+			if (next == null) {
+				close();
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Object next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Object value = next;
+		next = null;
+		return value;
+	}
+
+	private Object advance() throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				stack.add(name());
+				for (Rule rule : rules) {
+					if (!rule.matches(stack)) {
+						continue;
+					}
+					if (rule.attribute != null) {
+						String value = attribute(rule.attribute);
+						if (value != null) {
+							return value;
+						}
+					} else {
+						Object value = capture(rule.text);
+						stack.remove(stack.size() - 1);
+						return value;
+					}
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				stack.remove(stack.size() - 1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 读取当前元素直至其结束标签
+	 */
+	private Object capture(boolean textOnly) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		Map<String, Object> fields = new LinkedHashMap<>();
+		String childName = null;
+		StringBuilder childText = null;
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					if (++depth == 2) {
+						childName = name();
+						childText = new StringBuilder();
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					String value = reader.getText();
+					text.append(value);
+					if (depth >= 2) {
+						childText.append(value);
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if (depth-- == 2) {
+						putField(fields, childName, childText.toString().trim());
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		if (textOnly || fields.isEmpty()) {
+			return text.toString().trim();
+		}
+		return fields;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void putField(Map<String, Object> fields, String name, String value) {
+		Object exists = fields.get(name);
+		if (exists == null) {
+			fields.put(name, value);
+		} else if (exists instanceof List) {
+			((List<Object>) exists).add(value);
+		} else {
+			List<Object> values = new ArrayList<>();
+			values.add(exists);
+			values.add(value);
+			fields.put(name, values);
+		}
+	}
+
+	private String name() {
+		String prefix = reader.getPrefix();
+		String localName = reader.getLocalName();
+		return StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName;
+	}
+
+	private String attribute(String name) {
+		for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+			String prefix = reader.getAttributePrefix(i);
+			String localName = reader.getAttributeLocalName(i);
+			if (name.equals(StringUtils.isEmpty(prefix) ? localName : prefix + ":" + localName)) {
+				return reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+	private void close() {
+		finished = true;
+		try {
+			if (reader != null) {
+				reader.close();
+			}
+		} catch (XMLStreamException ignored) {
+		}
+		try {
+			stream.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	/**
+	 * 抽取规则
+	 */
+	static class Rule {
+
+		/**
+		 * 各级元素名称,*表示任意元素
+		 */
+		private final List<String> names = new ArrayList<>();
+
+		/**
+		 * 与上一级之间是否为后代关系(否则为直接子元素)
+		 */
+		private final List<Boolean> descendants = new ArrayList<>();
+
+		/**
+		 * 抽取的属性名,为空时抽取元素
+		 */
+		private String attribute;
+
+		/**
+		 * 是否只抽取文本
+		 */
+		private boolean text;
+
+		static Rule parse(String expression) {
+			if (StringUtils.isBlank(expression)) {
+				throw new IllegalArgumentException("抽取规则不能为空");
+			}
+			Rule rule = new Rule();
+			String path = expression.trim();
+			if (path.contains("/")) {
+				if (path.endsWith("/text()")) {
+					rule.text = true;
+					path = path.substring(0, path.length() - 7);
+				} else {
+					int index = path.lastIndexOf("/@");
+					if (index >= 0) {
+						rule.attribute = path.substring(index + 2);
+						path = path.substring(0, index);
+					}
+				}
+				boolean descendant = !path.startsWith("/");
+				String[] names = path.split("/");
+				for (int i = 0; i < names.length; i++) {
+					String name = names[i];
+					if (name.isEmpty()) {
+						//开头的/表示从根节点开始,其余空段为//
+						descendant = descendant || i > 0;
+						continue;
+					}
+					rule.add(name, descendant);
+					descendant = false;
+				}
+			} else {
+				boolean descendant = true;
+				for (String name : path.replace(">", " > ").split("\\s+")) {
+					if (">".equals(name)) {
+						descendant = false;
+					} else if (!name.isEmpty()) {
+						rule.add(name, descendant);
+						descendant = true;
+					}
+				}
+			}
+			if (rule.names.isEmpty()) {
+				throw new IllegalArgumentException("不支持的抽取规则:" + expression);
+			}
+			return rule;
+		}
+
+		private void add(String name, boolean descendant) {
+			names.add(name);
+			descendants.add(descendant);
+		}
+
+		boolean matches(List<String> stack) {
+			return matches(names.size() - 1, stack.size() - 1, stack);
+		}
+
+		private boolean matches(int step, int depth, List<String> stack) {
+			String name = names.get(step);
+			if (!"*".equals(name) && !name.equals(stack.get(depth))) {
+				return false;
+			}
+			if (step == 0) {
+				return descendants.get(0) || depth == 0;
+			}
+			if (descendants.get(step)) {
+				for (int i = depth - 1; i >= 0; i--) {
+					if (matches(step - 1, i, stack)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			return depth > 0 && matches(step - 1, depth - 1, stack);
+		}
+	}
+}
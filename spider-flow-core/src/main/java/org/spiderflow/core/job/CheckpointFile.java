@@ -0,0 +1,160 @@
+package org.spiderflow.core.job;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 检查点文件,位于{workspace}/{flowId}/checkpoints/{taskId}.ckpt
+ * 每次保存时在文件末尾追加一组记录(每行一条JSON),以#begin开始,#end结束,
+ * 恢复时读取最后一组完整的记录,写入中断的记录会被忽略;文件超过一定大小时只保留最新一组记录
+ * @author jmxd
+ *
+ */
+public class CheckpointFile {
+
+	/**
+	 * 检查点记录类型:未执行完毕的任务
+	 */
+	public static final String TYPE_NODE = "node";
+
+	/**
+	 * 检查点记录类型:已执行完毕,未执行下一级的任务
+	 */
+	public static final String TYPE_NEXT = "next";
+
+	/**
+	 * 检查点记录类型:未读取完毕的流式循环
+	 */
+	public static final String TYPE_LOOP = "loop";
+
+	/**
+	 * 检查点记录类型:Join节点已合并的变量
+	 */
+	public static final String TYPE_JOIN = "join";
+
+	/**
+	 * 检查点记录类型:上下文中的变量
+	 */
+	public static final String TYPE_CONTEXT = "context";
+
+	/**
+	 * 检查点记录类型:Cookie
+	 */
+	public static final String TYPE_COOKIE = "cookie";
+
+	private static final String BEGIN = "#begin";
+
+	private static final String END = "#end";
+
+	/**
+	 * 文件超过该大小时只保留最新一组记录
+	 */
+	private static final long COMPACT_SIZE = 16 * 1024 * 1024;
+
+	private static Logger logger = LoggerFactory.getLogger(CheckpointFile.class);
+
+	public static File getFile(String workspace, String flowId, Integer taskId) {
+		return new File(new File(workspace), flowId + File.separator + "checkpoints" + File.separator + taskId + ".ckpt");
+	}
+
+	/**
+	 * 保存一组检查点记录
+	 * @param records	逐条输出记录,记录较多时(如磁盘队列中的任务)无需全部放入内存
+	 */
+	public static void write(File file, Consumer<Consumer<Map<String, Object>>> records) throws IOException {
+		File dirFile = file.getParentFile();
+		if (!dirFile.exists()) {
+			dirFile.mkdirs();
+		}
+		if (file.length() > COMPACT_SIZE) {
+			//先写入临时文件再替换,避免压缩过程中中断导致检查点丢失
+			File temp = new File(dirFile, file.getName() + ".tmp");
+			append(temp, records, false);
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} else {
+			append(file, records, true);
+		}
+	}
+
+	private static void append(File file, Consumer<Consumer<Map<String, Object>>> records, boolean append) throws IOException {
+		try (FileOutputStream fos = new FileOutputStream(file, append); Writer writer = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
+			writer.write(BEGIN + " " + System.currentTimeMillis() + "\n");
+			int[] count = { 0 };
+			try {
+				records.accept(record -> {
+					try {
+						writer.write(JSON.toJSONString(record));
+						writer.write('\n');
+						count[0]++;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			writer.write(END + " " + count[0] + "\n");
+			writer.flush();
+			fos.getFD().sync();
+		}
+	}
+
+	/**
+	 * 读取最后一组完整的检查点记录,文件不存在时返回null
+	 */
+	public static List<JSONObject> read(File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		List<JSONObject> last = null;
+		List<JSONObject> current = null;
+		try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(BEGIN)) {
+					current = new ArrayList<>();
+				} else if (line.startsWith(END)) {
+					if (current != null && NumberUtils.toInt(line.substring(END.length()).trim(), -1) == current.size()) {
+						last = current;
+					}
+					current = null;
+				} else if (current != null && !line.isEmpty()) {
+					try {
+						current.add(JSON.parseObject(line));
+					} catch (Exception e) {
+						//写入中断的记录
+						logger.warn("读取检查点记录出错:{}", file, e);
+						current = null;
+					}
+				}
+			}
+		}
+		return last == null ? null : Collections.unmodifiableList(last);
+	}
+
+	public static void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			logger.warn("删除检查点文件{}失败", file);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package org.spiderflow.core.job;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.io.BlockCompressedSource;
+import org.spiderflow.io.LogArchives;
+
+/**
+ * 按大小滚动的任务日志输出流
+ * 日志文件超过maxSize时(在flush时检查，保证不会截断一条日志)重命名为{日志文件名}.{序号}，然后重新开始写入，
+ * 由后台线程分块压缩为{日志文件名}.{序号}.gz，压缩不占用日志写线程
+ *
+ * @author jmxd
+ */
+public class RotatingLogOutputStream extends OutputStream {
+
+	private static Logger logger = LoggerFactory.getLogger(RotatingLogOutputStream.class);
+
+	/**
+	 * 压缩归档的线程
+	 */
+	private static final ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "spider-flow-log-compressor");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final File file;
+
+	private final long maxSize;
+
+	private FileOutputStream out;
+
+	private long size;
+
+	/**
+	 * 下次尝试滚动的大小(滚动失败时延后重试)
+	 */
+	private long rotateAt;
+
+	public RotatingLogOutputStream(File file, long maxSize) throws IOException {
+		this.file = file;
+		this.maxSize = maxSize;
+		this.out = new FileOutputStream(file, true);
+		this.size = file.length();
+		this.rotateAt = maxSize;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		size++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		size += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+		if (maxSize > 0 && size >= rotateAt) {
+			rotate();
+		}
+	}
+
+	private void rotate() throws IOException {
+		out.close();
+		boolean rotated = false;
+		try {
+			Files.move(file.toPath(), LogArchives.next(file).toPath());
+			rotated = true;
+		} catch (IOException e) {
+			//文件正在被读取时(如Windows下被映射)可能重命名失败，此时放弃本次滚动
+			logger.debug("滚动日志文件失败,稍后重试", e);
+		}
+		if (rotated) {
+			out = new FileOutputStream(file, false);
+			size = 0;
+			rotateAt = maxSize;
+			COMPRESSOR.execute(() -> compress(file));
+		} else {
+			out = new FileOutputStream(file, true);
+			rotateAt = size + maxSize / 4;
+		}
+	}
+
+	/**
+	 * 压缩日志文件所有未压缩的归档(包括上次未压缩完成的),压缩失败时保留未压缩的文件,仍可读取
+	 */
+	static void compress(File file) {
+		for (File pending : LogArchives.listPending(file)) {
+			try {
+				BlockCompressedSource.compress(pending, LogArchives.compressed(pending), BlockCompressedSource.DEFAULT_BLOCK_SIZE);
+				//读取时已压缩的优先,删除失败(如Windows下被映射)不影响读取
+				if (!pending.delete()) {
+					pending.deleteOnExit();
+				}
+			} catch (IOException e) {
+				logger.error("压缩日志文件{}出错", pending, e);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,249 @@
+package org.spiderflow.core.job;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.model.SpiderFlow;
+import org.spiderflow.core.service.SpiderFlowService;
+import org.spiderflow.enums.RunPriority;
+import org.spiderflow.model.SpiderNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 流程运行的准入控制
+ * 手动运行、接口运行、恢复运行及定时任务触发的运行都先进入有界的运行队列,按流程的优先级(同优先级先进先出)
+ * 由单独的调度线程池执行,同时运行的数量不超过上限;调度线程只负责调度,节点任务仍在全局线程池中执行,
+ * 二者不再相互占用。队列已满时拒绝运行,同一流程已有等待中的定时触发时忽略新的触发,同一任务正在恢复时拒绝再次恢复
+ * @author jmxd
+ *
+ */
+@Component
+public class RunAdmission {
+
+	private static Logger logger = LoggerFactory.getLogger(RunAdmission.class);
+
+	@Autowired
+	private SpiderFlowService spiderFlowService;
+
+	/**
+	 * 同时运行的流程数量上限(调度线程数)
+	 */
+	@Value("${spider.run.max-concurrent:16}")
+	private int maxConcurrent;
+
+	/**
+	 * 等待运行的数量上限
+	 */
+	@Value("${spider.run.queue-size:200}")
+	private int queueSize;
+
+	private ThreadPoolExecutor executor;
+
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * 等待中的定时触发,流程ID -> 运行
+	 */
+	private final Map<String, PendingRun> scheduledRuns = new ConcurrentHashMap<>();
+
+	/**
+	 * 等待中及正在执行的恢复运行,任务ID -> 运行
+	 */
+	private final Map<Integer, PendingRun> resumeRuns = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	private void init() {
+		int threads = Math.max(maxConcurrent, 1);
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), runnable -> {
+			Thread thread = new Thread(runnable, "spider-flow-run-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	@PreDestroy
+	private void destroy() {
+		int dropped = executor.getQueue().size();
+		executor.getQueue().clear();
+		executor.shutdown();
+		if (dropped > 0) {
+			logger.warn("关闭时丢弃{}个等待中的运行", dropped);
+		}
+	}
+
+	/**
+	 * 提交运行
+	 * @return	队列已满时返回false
+	 */
+	public boolean submit(SpiderFlow spiderFlow, Runnable runnable) {
+		return offer(new PendingRun(spiderFlow, getPriority(spiderFlow), false, null, runnable));
+	}
+
+	/**
+	 * 提交从检查点恢复任务的运行,同一任务在等待或执行恢复时拒绝再次恢复
+	 * @return	同一任务已在恢复或队列已满时返回false
+	 */
+	public boolean submitResume(SpiderFlow spiderFlow, Integer taskId, Runnable runnable) {
+		PendingRun run = new PendingRun(spiderFlow, getPriority(spiderFlow), false, taskId, runnable);
+		if (resumeRuns.putIfAbsent(taskId, run) != null) {
+			logger.info("任务{}正在等待恢复执行,忽略本次恢复", taskId);
+			return false;
+		}
+		if (!offer(run)) {
+			resumeRuns.remove(taskId, run);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 任务是否在等待或执行恢复
+	 */
+	public boolean isResuming(Integer taskId) {
+		return resumeRuns.containsKey(taskId);
+	}
+
+	/**
+	 * 提交定时任务触发的运行,同一流程已有等待中的触发时忽略本次触发
+	 * @return	已有等待中的触发或队列已满时返回false
+	 */
+	public boolean submitScheduled(SpiderFlow spiderFlow, Runnable runnable) {
+		PendingRun run = new PendingRun(spiderFlow, getPriority(spiderFlow), true, null, runnable);
+		if (scheduledRuns.putIfAbsent(spiderFlow.getId(), run) != null) {
+			logger.info("流程{}上次触发仍在等待运行,忽略本次触发", spiderFlow.getName());
+			return false;
+		}
+		if (!offer(run)) {
+			scheduledRuns.remove(spiderFlow.getId(), run);
+			return false;
+		}
+		return true;
+	}
+
+	private boolean offer(PendingRun run) {
+		//先占用名额再加入队列,避免并发提交时超过上限
+		if (queued.incrementAndGet() > queueSize) {
+			queued.decrementAndGet();
+			rejected.incrementAndGet();
+			logger.warn("运行队列已满({}),拒绝运行流程{}", queueSize, run.spiderFlow.getName());
+			return false;
+		}
+		boolean full = running.get() >= executor.getMaximumPoolSize();
+		executor.execute(run);
+		if (full) {
+			logger.info("运行中的流程数已达上限{},流程{}进入队列等待,当前等待数:{}", executor.getMaximumPoolSize(), run.spiderFlow.getName(), queued.get());
+		}
+		return true;
+	}
+
+	/**
+	 * 读取流程配置的优先级
+	 */
+	private RunPriority getPriority(SpiderFlow spiderFlow) {
+		SpiderNode root = spiderFlowService.getCompiledFlow(spiderFlow.getId());
+		return RunPriority.of(root == null ? null : root.getStringJsonValue(Spider.RUN_PRIORITY));
+	}
+
+	/**
+	 * 等待运行的数量
+	 */
+	public int getQueuedCount() {
+		return queued.get();
+	}
+
+	/**
+	 * 正在运行的数量
+	 */
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	/**
+	 * 因队列已满被拒绝的次数
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	public int getMaxConcurrent() {
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * 等待中的运行,按优先级排序,同优先级按提交顺序
+	 */
+	private class PendingRun implements Runnable, Comparable<PendingRun> {
+
+		private final SpiderFlow spiderFlow;
+
+		private final RunPriority priority;
+
+		private final boolean scheduled;
+
+		/**
+		 * 恢复执行的任务ID,不是恢复执行时为null
+		 */
+		private final Integer resumeTaskId;
+
+		private final Runnable runnable;
+
+		private final long seq = sequence.getAndIncrement();
+
+		PendingRun(SpiderFlow spiderFlow, RunPriority priority, boolean scheduled, Integer resumeTaskId, Runnable runnable) {
+			this.spiderFlow = spiderFlow;
+			this.priority = priority;
+			this.scheduled = scheduled;
+			this.resumeTaskId = resumeTaskId;
+			this.runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			queued.decrementAndGet();
+			if (scheduled) {
+				scheduledRuns.remove(spiderFlow.getId(), this);
+			}
+			running.incrementAndGet();
+			try {
+				runnable.run();
+			} catch (Throwable t) {
+				logger.error("运行流程{}出错", spiderFlow.getName(), t);
+			} finally {
+				//执行完毕后才移除,执行期间仍视为正在恢复
+				if (resumeTaskId != null) {
+					resumeRuns.remove(resumeTaskId, this);
+				}
+				running.decrementAndGet();
+			}
+		}
+
+		@Override
+		public int compareTo(PendingRun o) {
+			//枚举按优先级从高到低声明
+			int result = Integer.compare(priority.ordinal(), o.priority.ordinal());
+			return result != 0 ? result : Long.compare(seq, o.seq);
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package org.spiderflow.core.job;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.mapper.SpiderInstanceMapper;
+import org.spiderflow.core.model.SpiderInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 集群调度时按负载分配定时任务
+ * Quartz集群中由先获取到触发器的实例执行任务,不考虑负载;各实例定时上报负载(运行中的任务数、空闲线程数),
+ * 空闲线程比例与最空闲实例相差超过容差的实例暂停触发(standby),定时任务由较空闲的实例触发,
+ * 负载最低的实例始终触发,保证至少有一个实例在触发定时任务;未开启集群时不做处理
+ * @author jmxd
+ *
+ */
+@Component
+public class SchedulePlacement {
+
+	private static Logger logger = LoggerFactory.getLogger(SchedulePlacement.class);
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private SpiderInstanceMapper instanceMapper;
+
+	@Autowired
+	private RunAdmission runAdmission;
+
+	@Value("${spider.job.enable:true}")
+	private boolean spiderJobEnable;
+
+	/**
+	 * 空闲线程比例的容差
+	 */
+	@Value("${spider.cluster.placement.tolerance:0.2}")
+	private double tolerance;
+
+	/**
+	 * 上报间隔(毫秒),超过3个间隔未上报的实例视为已下线
+	 */
+	@Value("${spider.cluster.check-in-interval:10000}")
+	private long checkinInterval;
+
+	private String instanceId;
+
+	private String host;
+
+	@Scheduled(initialDelayString = "${spider.cluster.check-in-interval:10000}", fixedDelayString = "${spider.cluster.check-in-interval:10000}")
+	public void checkIn() {
+		try {
+			if (!scheduler.getMetaData().isJobStoreClustered() || Spider.executorInstance == null) {
+				return;
+			}
+			if (instanceId == null) {
+				instanceId = scheduler.getSchedulerInstanceId();
+				host = getHostName();
+			}
+			if (!spiderJobEnable) {
+				//未启用定时任务的实例不触发,否则获取到的触发会被丢弃
+				standby();
+				return;
+			}
+			SpiderInstance local = report();
+			Date expired = new Date(System.currentTimeMillis() - checkinInterval * 3);
+			instanceMapper.deleteExpired(expired);
+			List<SpiderInstance> instances = instanceMapper.selectAlive(expired);
+			if (isPreferred(local, instances)) {
+				if (scheduler.isInStandbyMode()) {
+					logger.info("实例{}负载较低,开始触发定时任务", instanceId);
+					scheduler.start();
+				}
+			} else {
+				standby();
+			}
+		} catch (Exception e) {
+			logger.error("上报实例负载出错", e);
+		}
+	}
+
+	/**
+	 * 上报本实例的负载
+	 */
+	private SpiderInstance report() throws SchedulerException {
+		SpiderFlowThreadPoolExecutor executor = Spider.executorInstance;
+		SpiderInstance instance = new SpiderInstance();
+		instance.setId(instanceId);
+		instance.setHost(host);
+		//等待运行的也计入
+		instance.setActiveRuns(SpiderJob.getRunningCount() + runAdmission.getQueuedCount());
+		instance.setMaxThreads(executor.getMaxThreads());
+		//有流程在队列中等待运行时视为没有空闲线程
+		instance.setFreeThreads(runAdmission.getQueuedCount() > 0 ? 0 : Math.max(executor.getMaxThreads() - executor.getActiveCount(), 0));
+		instance.setScheduling(scheduler.isInStandbyMode() ? "0" : "1");
+		instance.setCheckinTime(new Date());
+		if (instanceMapper.updateById(instance) == 0) {
+			instanceMapper.insert(instance);
+		}
+		return instance;
+	}
+
+	/**
+	 * 判断本实例是否应触发定时任务:空闲线程比例不低于最空闲实例减去容差,
+	 * 最空闲的实例(比例相同时运行任务数少者优先,再按ID)始终触发
+	 */
+	private boolean isPreferred(SpiderInstance local, List<SpiderInstance> instances) {
+		SpiderInstance best = local;
+		for (SpiderInstance instance : instances) {
+			if (!instance.getId().equals(local.getId()) && compare(instance, best) < 0) {
+				best = instance;
+			}
+		}
+		return best == local || freeRatio(local) >= freeRatio(best) - tolerance;
+	}
+
+	private int compare(SpiderInstance a, SpiderInstance b) {
+		int result = Double.compare(freeRatio(b), freeRatio(a));
+		if (result == 0) {
+			result = Integer.compare(value(a.getActiveRuns()), value(b.getActiveRuns()));
+		}
+		return result == 0 ? a.getId().compareTo(b.getId()) : result;
+	}
+
+	private double freeRatio(SpiderInstance instance) {
+		int maxThreads = value(instance.getMaxThreads());
+		return maxThreads == 0 ? 0 : (double) value(instance.getFreeThreads()) / maxThreads;
+	}
+
+	private int value(Integer value) {
+		return value == null ? 0 : value;
+	}
+
+	private void standby() throws SchedulerException {
+		if (!scheduler.isInStandbyMode()) {
+			logger.info("实例{}负载较高,暂停触发定时任务", instanceId);
+			scheduler.standby();
+		}
+	}
+
+	private String getHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return null;
+		}
+	}
+
+	@PreDestroy
+	private void destroy() {
+		if (instanceId != null && spiderJobEnable) {
+			try {
+				instanceMapper.deleteById(instanceId);
+			} catch (Exception e) {
+				logger.warn("删除实例{}出错", instanceId, e);
+			}
+		}
+	}
+}
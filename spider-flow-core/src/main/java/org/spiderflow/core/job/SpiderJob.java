@@ -3,11 +3,13 @@ package org.spiderflow.core.job;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.quartz.JobDataMap;
 import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.context.SpiderContext;
 import org.spiderflow.context.SpiderContextHolder;
 import org.spiderflow.core.Spider;
+import org.spiderflow.core.metrics.SpiderMetrics;
 import org.spiderflow.core.model.SpiderFlow;
 import org.spiderflow.core.model.Task;
 import org.spiderflow.core.service.SpiderFlowService;
@@ -18,8 +20,8 @@ import org.springframework.scheduling.quartz.QuartzJobBean;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 爬虫定时执行
@@ -38,7 +40,10 @@ public class SpiderJob extends QuartzJobBean {
 	@Autowired
 	private TaskService taskService;
 
-	private static Map<Integer, SpiderContext> contextMap = new HashMap<>();
+	@Autowired
+	private RunAdmission runAdmission;
+
+	private static Map<Integer, SpiderContext> contextMap = new ConcurrentHashMap<>();
 
 	@Value("${spider.job.enable:true}")
 	private boolean spiderJobEnable;
@@ -46,20 +51,70 @@ public class SpiderJob extends QuartzJobBean {
 	@Value("${spider.workspace}")
 	private String workspace;
 
+	/**
+	 * 错过触发时最多补执行的次数
+	 */
+	@Value("${spider.job.misfire.catch-up:0}")
+	private int misfireCatchUp;
+
 	private static Logger logger = LoggerFactory.getLogger(SpiderJob.class);
 
+	/**
+	 * 任务日志滚动大小(字节)
+	 */
+	@Value("${spider.log.rotate-size:67108864}")
+	public void setLogRotateSize(long logRotateSize) {
+		SpiderJobContext.setLogRotateSize(logRotateSize);
+	}
+
 	@Override
 	protected void executeInternal(JobExecutionContext context) {
 		if (!spiderJobEnable) {
 			return;
 		}
 		JobDataMap dataMap = context.getMergedJobDataMap();
-		SpiderFlow spiderFlow = (SpiderFlow) dataMap.get(SpiderJobManager.JOB_PARAM_NAME);
-		if("1".equalsIgnoreCase(spiderFlow.getEnabled())){
-			run(spiderFlow, context.getNextFireTime());
+		String flowId = dataMap.getString(SpiderJobManager.JOB_PARAM_NAME);
+		SpiderMetrics.recordJobLag(flowId, context.getScheduledFireTime(), context.getFireTime());
+		if (isSkippedMisfire(context)) {
+			logger.info("流程{}错过{}的执行,超过补执行次数上限,忽略本次执行", flowId, DateFormatUtils.format(context.getScheduledFireTime(), "yyyy-MM-dd HH:mm:ss"));
+			return;
+		}
+		//从数据库读取流程,使用最新的流程图(集群中其他实例可能已修改)
+		SpiderFlow spiderFlow = spiderFlowService.getById(flowId);
+		if(spiderFlow != null && "1".equalsIgnoreCase(spiderFlow.getEnabled())){
+			//进入运行队列后立即返回,不占用Quartz的线程
+			Date nextFireTime = context.getNextFireTime();
+			runAdmission.submitScheduled(spiderFlow, () -> run(spiderFlow, nextFireTime));
 		}
 	}
 
+	/**
+	 * 错过的触发由Quartz依次补触发,只执行最近的misfireCatchUp次,更早的忽略
+	 */
+	private boolean isSkippedMisfire(JobExecutionContext context) {
+		Date scheduledFireTime = context.getScheduledFireTime();
+		if (misfireCatchUp <= 0 || scheduledFireTime == null) {
+			return false;
+		}
+		Trigger trigger = context.getTrigger();
+		Date now = context.getFireTime();
+		//统计本次之后仍已错过的触发次数
+		int missed = 0;
+		Date next = trigger.getFireTimeAfter(scheduledFireTime);
+		while (next != null && next.before(now) && missed < misfireCatchUp) {
+			missed++;
+			next = trigger.getFireTimeAfter(next);
+		}
+		return missed >= misfireCatchUp;
+	}
+
+	/**
+	 * 本实例正在运行的任务数
+	 */
+	public static int getRunningCount() {
+		return contextMap.size();
+	}
+
 	public void run(String id) {
 		run(spiderFlowService.getById(id), null);
 	}
@@ -73,14 +128,31 @@ public class SpiderJob extends QuartzJobBean {
 	}
 
 	public void run(SpiderFlow spiderFlow, Task task,Date nextExecuteTime) {
+		execute(spiderFlow, task, nextExecuteTime, false);
+	}
+
+	/**
+	 * 从检查点恢复执行任务
+	 */
+	public void resume(SpiderFlow spiderFlow, Task task) {
+		execute(spiderFlow, task, null, true);
+	}
+
+	private void execute(SpiderFlow spiderFlow, Task task, Date nextExecuteTime, boolean resume) {
 		SpiderJobContext context = null;
 		Date now = new Date();
 		try {
 			context = SpiderJobContext.create(this.workspace, spiderFlow.getId(),task.getId(),false);
+			context.setTaskId(task.getId());
 			SpiderContextHolder.set(context);
 			contextMap.put(task.getId(), context);
-			logger.info("开始执行任务{}", spiderFlow.getName());
-			spider.run(spiderFlow, context);
+			if (resume) {
+				logger.info("开始恢复执行任务{}", spiderFlow.getName());
+				spider.resume(spiderFlow, context);
+			} else {
+				logger.info("开始执行任务{}", spiderFlow.getName());
+				spider.run(spiderFlow, context);
+			}
 			logger.info("执行任务{}完毕，下次执行时间：{}", spiderFlow.getName(), nextExecuteTime == null ? null : DateFormatUtils.format(nextExecuteTime, "yyyy-MM-dd HH:mm:ss"));
 		} catch (Exception e) {
 			logger.error("执行任务{}出错", spiderFlow.getName(), e);
@@ -93,7 +165,9 @@ public class SpiderJob extends QuartzJobBean {
 			contextMap.remove(task.getId());
 			SpiderContextHolder.remove();
 		}
-		spiderFlowService.executeCountIncrement(spiderFlow.getId(), now, nextExecuteTime);
+		if (!resume) {
+			spiderFlowService.executeCountIncrement(spiderFlow.getId(), now, nextExecuteTime);
+		}
 	}
 
 	public static SpiderContext getSpiderContext(Integer taskId) {
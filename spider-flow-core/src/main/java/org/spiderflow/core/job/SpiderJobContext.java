@@ -1,7 +1,6 @@
 package org.spiderflow.core.job;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,19 +18,42 @@ public class SpiderJobContext extends SpiderContext{
 	
 	private OutputStream outputstream;
 
+	/**
+	 * 日志缓冲区，由TaskLogWriter异步批量写入outputstream
+	 */
+	private TaskLogBuffer logBuffer;
+
 	private List<SpiderOutput> outputs = new ArrayList<>();
 
 	private boolean output;
 
+	/**
+	 * 任务ID,定时或异步执行时设置,用于保存检查点
+	 */
+	private Integer taskId;
+
+	/**
+	 * 日志文件滚动大小，小于等于0时不滚动
+	 */
+	private static long logRotateSize = 64 * 1024 * 1024;
+
 	public SpiderJobContext(OutputStream outputstream,boolean output) {
 		super();
 		this.outputstream = outputstream;
 		this.output = output;
+		if(outputstream != null){
+			this.logBuffer = TaskLogWriter.getInstance().register(outputstream);
+		}
 	}
 	
 	public void close(){
 		try {
-			this.outputstream.close();
+			if(this.logBuffer != null){
+				//写入剩余日志并关闭文件
+				this.logBuffer.close();
+			}else{
+				this.outputstream.close();
+			}
 		} catch (Exception e) {
 		}
 	}
@@ -53,7 +75,23 @@ public class SpiderJobContext extends SpiderContext{
 	public OutputStream getOutputstream(){
 		return this.outputstream;
 	}
+
+	public TaskLogBuffer getLogBuffer() {
+		return logBuffer;
+	}
+
+	public Integer getTaskId() {
+		return taskId;
+	}
+
+	public void setTaskId(Integer taskId) {
+		this.taskId = taskId;
+	}
 	
+	public static void setLogRotateSize(long logRotateSize) {
+		SpiderJobContext.logRotateSize = logRotateSize;
+	}
+
 	public static SpiderJobContext create(String directory,String id,Integer taskId,boolean output){
 		OutputStream os = null;
 		try {
@@ -62,7 +100,7 @@ public class SpiderJobContext extends SpiderContext{
 			if(!dirFile.exists()){
 				dirFile.mkdirs();
 			}
-			os = new FileOutputStream(file, true);
+			os = new RotatingLogOutputStream(file, logRotateSize);
 		} catch (Exception e) {
 			logger.error("创建日志文件出错",e);
 		}
@@ -11,11 +11,12 @@ import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.spiderflow.core.Spider;
 import org.spiderflow.core.model.SpiderFlow;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -30,10 +31,22 @@ public class SpiderJobManager {
 	
 	private final static String JOB_NAME = "SPIDER_TASK_";
 	
+	/**
+	 * 定时任务参数:流程ID(使用数据库保存定时任务时参数需要可序列化,执行时再读取流程)
+	 */
 	public final static String JOB_PARAM_NAME = "SPIDER_FLOW";
+
+	/**
+	 * 错过触发时最多补执行的次数,为0时不补执行
+	 */
+	@Value("${spider.job.misfire.catch-up:0}")
+	private int misfireCatchUp;
 	
 	@Autowired
 	private SpiderJob spiderJob;
+
+	@Autowired
+	private RunAdmission runAdmission;
 	
 	/**
 	 * 调度器
@@ -57,22 +70,30 @@ public class SpiderJobManager {
 	public Date addJob(SpiderFlow spiderFlow){
 		try {
 			JobDetail job = JobBuilder.newJob(SpiderJob.class).withIdentity(getJobKey(spiderFlow.getId())).build();
-			job.getJobDataMap().put(JOB_PARAM_NAME, spiderFlow);
+			job.getJobDataMap().put(JOB_PARAM_NAME, spiderFlow.getId());
 			
-			CronScheduleBuilder cronScheduleBuilder = CronScheduleBuilder.cronSchedule(spiderFlow.getCron()).withMisfireHandlingInstructionDoNothing();
+			CronScheduleBuilder cronScheduleBuilder = CronScheduleBuilder.cronSchedule(spiderFlow.getCron());
+			//补执行时错过的触发全部交给SpiderJob,由其按次数上限丢弃较早的触发
+			cronScheduleBuilder = misfireCatchUp > 0 ? cronScheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires() : cronScheduleBuilder.withMisfireHandlingInstructionDoNothing();
 			
 			CronTrigger trigger = TriggerBuilder.newTrigger().withIdentity(getTriggerKey(spiderFlow.getId())).withSchedule(cronScheduleBuilder).build();
 			
-			return scheduler.scheduleJob(job,trigger);
+			//集群中其他实例可能已添加过该任务,直接替换
+			scheduler.scheduleJob(job, Collections.singleton(trigger), true);
+			return trigger.getFireTimeAfter(new Date());
 		} catch (SchedulerException e) {
 			logger.error("创建定时任务出错",e);
 			return null;
 		}
 	}
 	
-	public void run(String id){
-		Spider.executorInstance.submit(()->{
-			spiderJob.run(id);
+	/**
+	 * 手动运行一次,进入运行队列等待
+	 * @return 运行队列已满时返回false
+	 */
+	public boolean run(SpiderFlow spiderFlow){
+		return runAdmission.submit(spiderFlow, ()->{
+			spiderJob.run(spiderFlow, null);
 		});
 	}
 	
@@ -0,0 +1,153 @@
+package org.spiderflow.core.job;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个任务的日志缓冲区
+ * 日志线程只负责把编码后的日志放入队列，由TaskLogWriter统一批量写入文件
+ *
+ * @author jmxd
+ */
+public class TaskLogBuffer implements Closeable {
+
+	/**
+	 * 单次写入的缓冲区大小
+	 */
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream outputStream;
+
+	private final ArrayBlockingQueue<byte[]> queue;
+
+	/**
+	 * 队列超过该值时立即唤醒写线程
+	 */
+	private final int wakeupThreshold;
+
+	private final byte[] writeBuffer = new byte[WRITE_BUFFER_SIZE];
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * 已写入文件提示的丢弃数量
+	 */
+	private long reportedDropped;
+
+	private volatile boolean closed;
+
+	public TaskLogBuffer(OutputStream outputStream, int capacity) {
+		this.outputStream = outputStream;
+		this.queue = new ArrayBlockingQueue<>(Math.max(capacity, 16));
+		this.wakeupThreshold = Math.max(capacity, 16) / 2;
+	}
+
+	/**
+	 * 放入一条日志
+	 *
+	 * @param data           编码后的日志
+	 * @param maxBlockMillis 队列已满时最长等待时间，小于等于0时直接丢弃
+	 * @return 是否放入成功
+	 */
+	public boolean offer(byte[] data, long maxBlockMillis) {
+		if (closed || data == null || data.length == 0) {
+			return false;
+		}
+		boolean success = queue.offer(data);
+		if (!success && maxBlockMillis > 0) {
+			TaskLogWriter.getInstance().wakeup();
+			try {
+				success = queue.offer(data, maxBlockMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (!success) {
+			dropped.incrementAndGet();
+			TaskLogWriter.getInstance().recordDropped();
+		} else if (queue.size() >= wakeupThreshold) {
+			TaskLogWriter.getInstance().wakeup();
+		}
+		return success;
+	}
+
+	/**
+	 * 把队列中的日志合并后写入文件
+	 */
+	synchronized void drain() throws IOException {
+		long droppedCount = dropped.get();
+		if (droppedCount > reportedDropped) {
+			//在日志中提示丢弃的数量,避免日志缺失而无从察觉
+			outputStream.write(("[日志缓冲区已满,已丢弃" + (droppedCount - reportedDropped) + "条日志]" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+			reportedDropped = droppedCount;
+		} else if (queue.isEmpty()) {
+			return;
+		}
+		int count = 0;
+		byte[] data;
+		while ((data = queue.poll()) != null) {
+			if (count + data.length > writeBuffer.length) {
+				outputStream.write(writeBuffer, 0, count);
+				count = 0;
+				if (data.length > writeBuffer.length) {
+					outputStream.write(data);
+					continue;
+				}
+			}
+			System.arraycopy(data, 0, writeBuffer, count, data.length);
+			count += data.length;
+		}
+		if (count > 0) {
+			outputStream.write(writeBuffer, 0, count);
+		}
+		outputStream.flush();
+	}
+
+	/**
+	 * 因队列已满被丢弃的日志数量
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * 写入失败时关闭,丢弃队列中的日志并唤醒等待放入的线程
+	 */
+	synchronized void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		TaskLogWriter.getInstance().unregister(this);
+		//清空队列会唤醒因队列已满而等待的线程,关闭后的放入直接返回
+		int count = queue.size();
+		queue.clear();
+		dropped.addAndGet(count);
+		try {
+			outputStream.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	/**
+	 * 关闭时写入剩余日志
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		TaskLogWriter.getInstance().unregister(this);
+		try {
+			drain();
+		} finally {
+			outputStream.close();
+		}
+	}
+}
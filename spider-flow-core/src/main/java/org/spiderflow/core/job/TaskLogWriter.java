@@ -0,0 +1,122 @@
+package org.spiderflow.core.job;
+
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.context.SpiderContextHolder;
+
+/**
+ * 任务日志写线程
+ * 定时(或缓冲区达到阈值时)把所有任务的日志缓冲区批量写入文件
+ *
+ * @author jmxd
+ */
+public class TaskLogWriter implements Runnable {
+
+	private static final TaskLogWriter INSTANCE = new TaskLogWriter();
+
+	private static Logger logger = LoggerFactory.getLogger(TaskLogWriter.class);
+
+	private final Set<TaskLogBuffer> buffers = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 最长刷新间隔(毫秒)
+	 */
+	private volatile long flushInterval = 200;
+
+	/**
+	 * 每个任务的缓冲队列大小
+	 */
+	private volatile int queueSize = 8192;
+
+	private volatile Thread thread;
+
+	/**
+	 * 所有任务因队列已满被丢弃的日志数量
+	 */
+	private final AtomicLong dropped = new AtomicLong();
+
+	private TaskLogWriter() {
+	}
+
+	public static TaskLogWriter getInstance() {
+		return INSTANCE;
+	}
+
+	public void setFlushInterval(long flushInterval) {
+		this.flushInterval = Math.max(flushInterval, 1);
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * 为任务日志创建缓冲区并注册到写线程
+	 */
+	public TaskLogBuffer register(OutputStream outputStream) {
+		TaskLogBuffer buffer = new TaskLogBuffer(outputStream, queueSize);
+		buffers.add(buffer);
+		start();
+		return buffer;
+	}
+
+	void unregister(TaskLogBuffer buffer) {
+		buffers.remove(buffer);
+	}
+
+	void recordDropped() {
+		dropped.incrementAndGet();
+	}
+
+	/**
+	 * 所有任务因队列已满被丢弃的日志数量
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	void wakeup() {
+		Thread t = this.thread;
+		if (t != null) {
+			LockSupport.unpark(t);
+		}
+	}
+
+	private void start() {
+		if (thread == null) {
+			synchronized (this) {
+				if (thread == null) {
+					Thread t = new Thread(this, "spider-flow-log-writer");
+					t.setDaemon(true);
+					t.start();
+					thread = t;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		//线程创建时会继承当前的爬虫上下文，需移除，否则写线程自身的日志会进入任务日志
+		SpiderContextHolder.remove();
+		while (!Thread.currentThread().isInterrupted()) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+			for (TaskLogBuffer buffer : buffers) {
+				try {
+					buffer.drain();
+				} catch (Throwable t) {
+					//写入失败时关闭并移除，避免反复出错，同时唤醒等待放入的线程
+					buffer.abort();
+					logger.error("写入任务日志出错", t);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package org.spiderflow.core.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.context.FlowTrace;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 导出调用链:按OTLP/JSON格式写入{workspace}/{flowId}/traces/{taskId}.json,配置了收集器地址时同时发送到收集器(OTLP/HTTP)
+ * @author jmxd
+ *
+ */
+public class TraceExporter {
+
+	public static final String SERVICE_NAME = "spider-flow";
+
+	private static Logger logger = LoggerFactory.getLogger(TraceExporter.class);
+
+	public static File getFile(String workspace, String flowId, Integer taskId) {
+		return new File(new File(workspace), flowId + File.separator + "traces" + File.separator + taskId + ".json");
+	}
+
+	/**
+	 * 导出调用链,导出失败只记录日志,不影响任务执行
+	 * @param file	写入的文件,为空时不写入
+	 * @param endpoint	收集器地址,如http://localhost:4318/v1/traces,为空时不发送
+	 * @param resource	运行的属性
+	 */
+	public static void export(FlowTrace trace, File file, String endpoint, Map<String, Object> resource) {
+		if (file == null && StringUtils.isBlank(endpoint)) {
+			return;
+		}
+		byte[] data = JSON.toJSONString(trace.toOtlp(SERVICE_NAME, resource)).getBytes(StandardCharsets.UTF_8);
+		if (file != null) {
+			try {
+				FileUtils.writeByteArrayToFile(file, data);
+			} catch (IOException e) {
+				logger.error("写入调用链文件{}出错", file, e);
+			}
+		}
+		if (StringUtils.isNotBlank(endpoint)) {
+			send(endpoint, data);
+		}
+	}
+
+	private static void send(String endpoint, byte[] data) {
+		HttpURLConnection connection = null;
+		try {
+			connection = (HttpURLConnection) new URL(endpoint).openConnection();
+			connection.setConnectTimeout(5000);
+			connection.setReadTimeout(10000);
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream os = connection.getOutputStream()) {
+				os.write(data);
+			}
+			int status = connection.getResponseCode();
+			if (status >= 300) {
+				logger.warn("发送调用链到{}失败,状态码:{}", endpoint, status);
+			}
+		} catch (IOException e) {
+			logger.warn("发送调用链到{}失败:{}", endpoint, e.getMessage());
+		} finally {
+			if (connection != null) {
+				connection.disconnect();
+			}
+		}
+	}
+
+	/**
+	 * 读取已导出的调用链
+	 * @return 文件不存在时返回null
+	 */
+	public static JSONObject read(File file) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		return JSON.parseObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,28 @@
+package org.spiderflow.core.mapper;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.spiderflow.core.model.SpiderInstance;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+@Mapper
+public interface SpiderInstanceMapper extends BaseMapper<SpiderInstance> {
+
+	/**
+	 * 查询在指定时间之后上报过的实例
+	 */
+	@Select("select id,host,active_runs,max_threads,free_threads,scheduling,checkin_time from sp_instance where checkin_time > #{after} order by id")
+	List<SpiderInstance> selectAlive(@Param("after") Date after);
+
+	/**
+	 * 删除长时间未上报的实例
+	 */
+	@Delete("delete from sp_instance where checkin_time < #{before}")
+	int deleteExpired(@Param("before") Date before);
+}
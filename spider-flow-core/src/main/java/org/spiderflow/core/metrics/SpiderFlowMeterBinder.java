@@ -0,0 +1,248 @@
+package org.spiderflow.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor;
+import org.spiderflow.concurrent.SpiderFlowThreadPoolExecutor.SubThreadPoolExecutor;
+import org.spiderflow.context.SpiderContext;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.job.RunAdmission;
+import org.spiderflow.core.job.TaskLogWriter;
+import org.spiderflow.listener.SpiderListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 注册线程池、各流程运行情况及定时任务的监控指标
+ * @author jmxd
+ *
+ */
+@Component
+public class SpiderFlowMeterBinder implements MeterBinder, SpiderListener {
+
+	@Autowired
+	private Scheduler scheduler;
+
+	@Autowired
+	private RunAdmission runAdmission;
+
+	/**
+	 * 流程ID -> 运行统计
+	 */
+	private final Map<String, FlowStatistics> flows = new ConcurrentHashMap<>();
+
+	private volatile MeterRegistry registry;
+
+	@Value("${spider.metrics.max-hosts:500}")
+	public void setMaxHosts(int maxHosts) {
+		SpiderMetrics.setMaxHosts(maxHosts);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+		poolGauge(registry, "spider.pool.threads", "全局线程池大小", SpiderFlowThreadPoolExecutor::getMaxThreads);
+		poolGauge(registry, "spider.pool.active", "全局线程池中正在执行任务的线程数", SpiderFlowThreadPoolExecutor::getActiveCount);
+		poolGauge(registry, "spider.pool.queued", "全局线程池中等待执行的任务数", SpiderFlowThreadPoolExecutor::getQueueSize);
+		FunctionCounter.builder("spider.pool.completed", this, binder -> Spider.executorInstance == null ? 0 : Spider.executorInstance.getCompletedTaskCount())
+			.description("全局线程池中执行完毕的任务数")
+			.register(registry);
+		FunctionCounter.builder("spider.log.dropped", TaskLogWriter.getInstance(), TaskLogWriter::getDropped)
+			.description("任务日志缓冲区已满被丢弃的日志数")
+			.register(registry);
+		Gauge.builder("spider.pool.reserved", this, SpiderFlowMeterBinder::reservedThreads)
+			.description("各运行中流程的子线程池大小之和")
+			.register(registry);
+		Gauge.builder("spider.run.queued", runAdmission, RunAdmission::getQueuedCount)
+			.description("等待运行的流程数")
+			.register(registry);
+		Gauge.builder("spider.run.active", runAdmission, RunAdmission::getRunningCount)
+			.description("正在运行的流程数(不含测试运行及同步接口运行)")
+			.register(registry);
+		Gauge.builder("spider.run.max", runAdmission, RunAdmission::getMaxConcurrent)
+			.description("同时运行的流程数上限")
+			.register(registry);
+		FunctionCounter.builder("spider.run.rejected", runAdmission, RunAdmission::getRejectedCount)
+			.description("运行队列已满被拒绝的次数")
+			.register(registry);
+		Gauge.builder("spider.job.executing", scheduler, SpiderFlowMeterBinder::executingJobs)
+			.description("正在执行的定时任务数")
+			.register(registry);
+		Gauge.builder("spider.job.scheduled", scheduler, SpiderFlowMeterBinder::scheduledJobs)
+			.description("已添加的定时任务数")
+			.register(registry);
+		flows.values().forEach(statistics -> statistics.bindTo(registry));
+	}
+
+	private void poolGauge(MeterRegistry registry, String name, String description, ToDoubleFunction<SpiderFlowThreadPoolExecutor> function) {
+		Gauge.builder(name, this, binder -> Spider.executorInstance == null ? 0 : function.applyAsDouble(Spider.executorInstance))
+			.description(description)
+			.register(registry);
+	}
+
+	private static double executingJobs(Scheduler scheduler) {
+		try {
+			return scheduler.getCurrentlyExecutingJobs().size();
+		} catch (SchedulerException e) {
+			return 0;
+		}
+	}
+
+	private static double scheduledJobs(Scheduler scheduler) {
+		try {
+			return scheduler.getJobKeys(GroupMatcher.anyJobGroup()).size();
+		} catch (SchedulerException e) {
+			return 0;
+		}
+	}
+
+	private double reservedThreads() {
+		double threads = 0;
+		for (FlowStatistics statistics : flows.values()) {
+			threads += statistics.sum(SubThreadPoolExecutor::getThreads);
+		}
+		return threads;
+	}
+
+	@Override
+	public void beforeStart(SpiderContext context) {
+		String flowId = context.getFlowId();
+		if (flowId == null) {
+			return;
+		}
+		FlowStatistics statistics = flows.computeIfAbsent(flowId, FlowStatistics::new);
+		statistics.contexts.put(context.getId(), context);
+		MeterRegistry registry = this.registry;
+		if (registry != null) {
+			statistics.bindTo(registry);
+		}
+	}
+
+	@Override
+	public void afterEnd(SpiderContext context) {
+		String flowId = context.getFlowId();
+		FlowStatistics statistics = flowId == null ? null : flows.get(flowId);
+		if (statistics != null) {
+			statistics.finish(context);
+		}
+	}
+
+	/**
+	 * 单个流程所有运行的统计,运行结束后执行次数累加到已结束部分,保证计数单调递增
+	 */
+	private class FlowStatistics {
+
+		private final String flowId;
+
+		/**
+		 * 运行中的上下文,SpiderContext的hashCode随内容变化,按ID保存
+		 */
+		private final Map<String, SpiderContext> contexts = new ConcurrentHashMap<>();
+
+		private long finishedExecutions;
+
+		private long finishedErrors;
+
+		private volatile boolean bound;
+
+		FlowStatistics(String flowId) {
+			this.flowId = flowId;
+		}
+
+		synchronized void bindTo(MeterRegistry registry) {
+			if (bound) {
+				return;
+			}
+			bound = true;
+			Gauge.builder("spider.flow.runs", this, statistics -> statistics.contexts.size())
+				.description("流程正在运行的数量")
+				.tags("flow", flowId)
+				.register(registry);
+			Gauge.builder("spider.flow.tasks.active", this, statistics -> statistics.sum(SubThreadPoolExecutor::getActiveCount))
+				.description("流程正在执行的任务数")
+				.tags("flow", flowId)
+				.register(registry);
+			Gauge.builder("spider.flow.tasks.queued", this, FlowStatistics::queued)
+				.description("流程已创建但未开始执行的任务数")
+				.tags("flow", flowId)
+				.register(registry);
+			Gauge.builder("spider.flow.pool.limit", this, statistics -> statistics.sum(SubThreadPoolExecutor::getLimit))
+				.description("流程按优先级权重分配到的线程数")
+				.tags("flow", flowId)
+				.register(registry);
+			Gauge.builder("spider.flow.pool.utilization", this, FlowStatistics::utilization)
+				.description("流程子线程池的占用率")
+				.tags("flow", flowId)
+				.register(registry);
+			FunctionCounter.builder("spider.flow.tasks.completed", this, FlowStatistics::executions)
+				.description("流程执行完毕的任务数")
+				.tags("flow", flowId)
+				.register(registry);
+			FunctionCounter.builder("spider.flow.tasks.errors", this, FlowStatistics::errors)
+				.description("流程执行出错的任务数")
+				.tags("flow", flowId)
+				.register(registry);
+		}
+
+		synchronized void finish(SpiderContext context) {
+			if (contexts.remove(context.getId()) != null) {
+				finishedExecutions += context.getMetrics().getExecutions();
+				finishedErrors += context.getMetrics().getErrors();
+			}
+		}
+
+		/**
+		 * 汇总运行中的子线程池数据
+		 */
+		double sum(ToDoubleFunction<SubThreadPoolExecutor> function) {
+			double value = 0;
+			for (SpiderContext context : contexts.values()) {
+				SubThreadPoolExecutor pool = context.getThreadPool();
+				if (pool != null) {
+					value += function.applyAsDouble(pool);
+				}
+			}
+			return value;
+		}
+
+		double queued() {
+			double backlog = 0;
+			for (SpiderContext context : contexts.values()) {
+				backlog += context.getTaskBacklog().getTotal();
+			}
+			return Math.max(backlog - sum(SubThreadPoolExecutor::getActiveCount), 0);
+		}
+
+		double utilization() {
+			double threads = sum(SubThreadPoolExecutor::getThreads);
+			return threads == 0 ? 0 : sum(SubThreadPoolExecutor::getActiveCount) / threads;
+		}
+
+		synchronized double executions() {
+			long count = finishedExecutions;
+			for (SpiderContext context : contexts.values()) {
+				count += context.getMetrics().getExecutions();
+			}
+			return count;
+		}
+
+		synchronized double errors() {
+			long count = finishedErrors;
+			for (SpiderContext context : contexts.values()) {
+				count += context.getMetrics().getErrors();
+			}
+			return count;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.spiderflow.core.metrics;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.commons.lang3.StringUtils;
+import org.spiderflow.core.utils.DataSourceUtils;
+import org.spiderflow.core.utils.MonitoredDruidDataSource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * 非Spring管理的组件(HTTP请求、连接池等)记录监控指标的入口,指标写入全局注册表,
+ * 由Spring Boot注册的Prometheus注册表采集
+ * @author jmxd
+ *
+ */
+public class SpiderMetrics {
+
+	/**
+	 * 已作为标签使用的host
+	 */
+	private static final Set<String> HOSTS = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 已注册指标的数据源ID
+	 */
+	private static final Set<String> DATASOURCES = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 请求耗时,host + 状态码 -> Timer,避免每次请求都创建Builder并在注册表中查找
+	 */
+	private static final Map<String, Timer> REQUEST_TIMERS = new ConcurrentHashMap<>();
+
+	/**
+	 * 响应字节数,host -> DistributionSummary
+	 */
+	private static final Map<String, DistributionSummary> RESPONSE_SIZES = new ConcurrentHashMap<>();
+
+	private static final String OTHER_HOST = "other";
+
+	/**
+	 * 按host区分的最大数量,避免爬取大量站点时标签无限增长
+	 */
+	private static volatile int maxHosts = 500;
+
+	private static MeterRegistry registry() {
+		return Metrics.globalRegistry;
+	}
+
+	static void setMaxHosts(int maxHosts) {
+		SpiderMetrics.maxHosts = maxHosts;
+	}
+
+	/**
+	 * 记录一次HTTP请求
+	 * @param host	请求的host
+	 * @param status	状态码,请求失败时为空
+	 * @param nanos	耗时(纳秒)
+	 * @param length	响应字节数,未知时小于0
+	 */
+	public static void recordRequest(String host, Integer status, long nanos, long length) {
+		String hostTag = hostTag(host);
+		String statusTag = status == null ? "error" : String.valueOf(status);
+		REQUEST_TIMERS.computeIfAbsent(hostTag + " " + statusTag, key -> Timer.builder("spider.http.requests")
+			.description("HTTP请求耗时")
+			.tags("host", hostTag, "status", statusTag)
+			.register(registry()))
+			.record(nanos, TimeUnit.NANOSECONDS);
+		if (length > 0) {
+			RESPONSE_SIZES.computeIfAbsent(hostTag, key -> DistributionSummary.builder("spider.http.response.size")
+				.description("HTTP响应字节数")
+				.baseUnit("bytes")
+				.tags("host", hostTag)
+				.register(registry()))
+				.record(length);
+		}
+	}
+
+	private static String hostTag(String host) {
+		if (StringUtils.isBlank(host)) {
+			return OTHER_HOST;
+		}
+		host = host.toLowerCase();
+		if (HOSTS.contains(host) || (HOSTS.size() < maxHosts && HOSTS.add(host))) {
+			return host;
+		}
+		return OTHER_HOST;
+	}
+
+	/**
+	 * 记录定时任务的延迟(实际触发时间-计划触发时间)
+	 */
+	public static void recordJobLag(String flowId, Date scheduledFireTime, Date fireTime) {
+		if (scheduledFireTime == null || fireTime == null) {
+			return;
+		}
+		Timer.builder("spider.job.lag")
+			.description("定时任务实际触发时间与计划触发时间的差")
+			.tags("flow", flowId)
+			.register(registry())
+			.record(Math.max(fireTime.getTime() - scheduledFireTime.getTime(), 0), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 注册Jedis连接池的指标,waiters大于0表示连接池已耗尽
+	 * @param name	连接池名称
+	 */
+	public static void bindJedisPool(String name, JedisPool pool) {
+		jedisGauge("spider.redis.pool.active", "借出的连接数", name, pool, JedisPool::getNumActive);
+		jedisGauge("spider.redis.pool.idle", "空闲的连接数", name, pool, JedisPool::getNumIdle);
+		jedisGauge("spider.redis.pool.waiters", "等待获取连接的线程数", name, pool, JedisPool::getNumWaiters);
+		jedisGauge("spider.redis.pool.wait.mean", "获取连接的平均等待时间(毫秒)", name, pool, JedisPool::getMeanBorrowWaitTimeMillis);
+		jedisGauge("spider.redis.pool.wait.max", "获取连接的最大等待时间(毫秒)", name, pool, JedisPool::getMaxBorrowWaitTimeMillis);
+	}
+
+	private static void jedisGauge(String meterName, String description, String name, JedisPool pool, ToDoubleFunction<JedisPool> function) {
+		Gauge.builder(meterName, pool, p -> p.isClosed() ? 0 : function.applyAsDouble(p))
+			.description(description)
+			.tags("pool", name)
+			.register(registry());
+	}
+
+	/**
+	 * 注册数据源连接池的指标,按数据源ID读取,数据源重建后指标仍然有效
+	 */
+	public static void bindDataSource(String id, String name) {
+		//指标只持有ID的弱引用,由DATASOURCES保持引用
+		if (!DATASOURCES.add(id)) {
+			return;
+		}
+		String tag = StringUtils.defaultIfBlank(name, id);
+		dataSourceGauge("spider.jdbc.active", "借出的连接数", id, tag, MonitoredDruidDataSource::getActiveCount);
+		dataSourceGauge("spider.jdbc.idle", "空闲的连接数", id, tag, MonitoredDruidDataSource::getPoolingCount);
+		dataSourceGauge("spider.jdbc.max", "最大连接数", id, tag, MonitoredDruidDataSource::getMaxActive);
+		dataSourceGauge("spider.jdbc.waiting", "等待获取连接的线程数", id, tag, MonitoredDruidDataSource::getWaitThreadCount);
+		FunctionCounter.builder("spider.jdbc.wait.time", id, key -> dataSourceValue(key, MonitoredDruidDataSource::getWaitMillisTotal))
+			.description("获取连接的累计等待时间(毫秒)")
+			.tags("datasource", tag)
+			.register(registry());
+		FunctionCounter.builder("spider.jdbc.wait.timeouts", id, key -> dataSourceValue(key, MonitoredDruidDataSource::getWaitTimeoutCount))
+			.description("获取连接失败的次数")
+			.tags("datasource", tag)
+			.register(registry());
+	}
+
+	private static void dataSourceGauge(String meterName, String description, String id, String tag, ToDoubleFunction<MonitoredDruidDataSource> function) {
+		Gauge.builder(meterName, id, key -> dataSourceValue(key, function))
+			.description(description)
+			.tags("datasource", tag)
+			.register(registry());
+	}
+
+	private static double dataSourceValue(String dataSourceId, ToDoubleFunction<MonitoredDruidDataSource> function) {
+		MonitoredDruidDataSource dataSource = DataSourceUtils.getMonitoredDataSource(dataSourceId);
+		return dataSource == null ? 0 : function.applyAsDouble(dataSource);
+	}
+}
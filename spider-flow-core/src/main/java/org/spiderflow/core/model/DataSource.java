@@ -22,6 +22,46 @@ public class DataSource {
 
     private String password;
 
+    /**
+     * 初始连接数
+     */
+    private Integer initialSize;
+
+    /**
+     * 最小空闲连接数
+     */
+    private Integer minIdle;
+
+    /**
+     * 最大连接数
+     */
+    private Integer maxActive;
+
+    /**
+     * 获取连接最大等待时间(毫秒)
+     */
+    private Integer maxWait;
+
+    /**
+     * 连接校验SQL
+     */
+    private String validationQuery;
+
+    /**
+     * 空闲时是否校验连接，1校验，0不校验
+     */
+    private String testWhileIdle;
+
+    /**
+     * 是否缓存PreparedStatement，1缓存，0不缓存
+     */
+    private String poolPreparedStatements;
+
+    /**
+     * 每个连接缓存PreparedStatement的数量
+     */
+    private Integer maxOpenPreparedStatements;
+
     private Date createDate;
 
     public DataSource() {
@@ -80,6 +120,70 @@ public class DataSource {
         this.password = password;
     }
 
+    public Integer getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(Integer initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public Integer getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(Integer minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public Integer getMaxActive() {
+        return maxActive;
+    }
+
+    public void setMaxActive(Integer maxActive) {
+        this.maxActive = maxActive;
+    }
+
+    public Integer getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Integer maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    public String getTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    public void setTestWhileIdle(String testWhileIdle) {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public String getPoolPreparedStatements() {
+        return poolPreparedStatements;
+    }
+
+    public void setPoolPreparedStatements(String poolPreparedStatements) {
+        this.poolPreparedStatements = poolPreparedStatements;
+    }
+
+    public Integer getMaxOpenPreparedStatements() {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(Integer maxOpenPreparedStatements) {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+
     public Date getCreateDate() {
         return createDate;
     }
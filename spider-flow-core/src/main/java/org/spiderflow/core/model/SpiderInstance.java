@@ -0,0 +1,103 @@
+package org.spiderflow.core.model;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+
+import java.util.Date;
+
+/**
+ * 集群中的实例及其负载,由各实例定时上报,用于分配定时任务
+ */
+@TableName("sp_instance")
+public class SpiderInstance {
+
+	/**
+	 * 调度器的实例ID
+	 */
+	@TableId(type = IdType.INPUT)
+	private String id;
+
+	private String host;
+
+	/**
+	 * 正在运行的任务数
+	 */
+	private Integer activeRuns;
+
+	/**
+	 * 全局线程池大小
+	 */
+	private Integer maxThreads;
+
+	/**
+	 * 全局线程池中空闲的线程数
+	 */
+	private Integer freeThreads;
+
+	/**
+	 * 是否正在触发定时任务:1:是,0:否
+	 */
+	private String scheduling;
+
+	/**
+	 * 最后上报时间
+	 */
+	private Date checkinTime;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	public Integer getActiveRuns() {
+		return activeRuns;
+	}
+
+	public void setActiveRuns(Integer activeRuns) {
+		this.activeRuns = activeRuns;
+	}
+
+	public Integer getMaxThreads() {
+		return maxThreads;
+	}
+
+	public void setMaxThreads(Integer maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	public Integer getFreeThreads() {
+		return freeThreads;
+	}
+
+	public void setFreeThreads(Integer freeThreads) {
+		this.freeThreads = freeThreads;
+	}
+
+	public String getScheduling() {
+		return scheduling;
+	}
+
+	public void setScheduling(String scheduling) {
+		this.scheduling = scheduling;
+	}
+
+	public Date getCheckinTime() {
+		return checkinTime;
+	}
+
+	public void setCheckinTime(Date checkinTime) {
+		this.checkinTime = checkinTime;
+	}
+}
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.quartz.CronScheduleBuilder;
@@ -17,6 +19,8 @@ import org.spiderflow.core.job.SpiderJobManager;
 import org.spiderflow.core.mapper.FlowNoticeMapper;
 import org.spiderflow.core.mapper.SpiderFlowMapper;
 import org.spiderflow.core.model.SpiderFlow;
+import org.spiderflow.core.utils.SpiderFlowUtils;
+import org.spiderflow.model.SpiderNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -26,6 +30,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +55,15 @@ public class SpiderFlowService extends ServiceImpl<SpiderFlowMapper, SpiderFlow>
 	@Value("${spider.workspace}")
 	private String workspace;
 
+	/**
+	 * 解析后的流程图缓存(子流程使用),修改、删除流程时清除,
+	 * 其他实例修改的流程在过期后重新加载
+	 */
+	private final Cache<String, SpiderNode> compiledFlows = CacheBuilder.newBuilder()
+			.maximumSize(256)
+			.expireAfterWrite(1, TimeUnit.MINUTES)
+			.build();
+
 	//项目启动后自动查询需要执行的任务进行爬取
 	@PostConstruct
 	private void initJobs(){
@@ -100,6 +114,23 @@ public class SpiderFlowService extends ServiceImpl<SpiderFlowMapper, SpiderFlow>
 		}
 	}
 
+	/**
+	 * 获取解析后的流程图,流程不存在时返回null
+	 * 返回的流程图会被多次运行共享,运行状态不能保存在节点中
+	 */
+	public SpiderNode getCompiledFlow(String id){
+		SpiderNode root = compiledFlows.getIfPresent(id);
+		if(root == null){
+			SpiderFlow spiderFlow = getById(id);
+			if(spiderFlow == null){
+				return null;
+			}
+			root = SpiderFlowUtils.loadXMLFromString(spiderFlow.getXml());
+			compiledFlows.put(id, root);
+		}
+		return root;
+	}
+
 	@Override
 	public boolean save(SpiderFlow spiderFlow){
 		//解析corn,获取并设置任务的开始时间
@@ -112,6 +143,7 @@ public class SpiderFlowService extends ServiceImpl<SpiderFlowMapper, SpiderFlow>
 		}
 		if(StringUtils.isNotEmpty(spiderFlow.getId())){	//update 任务
 			sfMapper.updateSpiderFlow(spiderFlow.getId(), spiderFlow.getName(), spiderFlow.getXml());
+			compiledFlows.invalidate(spiderFlow.getId());
 			spiderJobManager.remove(spiderFlow.getId());
 			spiderFlow = getById(spiderFlow.getId());
 			if("1".equals(spiderFlow.getEnabled()) && StringUtils.isNotEmpty(spiderFlow.getCron())){
@@ -148,8 +180,9 @@ public class SpiderFlowService extends ServiceImpl<SpiderFlowMapper, SpiderFlow>
 		}
 	}
 	
-	public void run(String id){
-		spiderJobManager.run(id);
+	public boolean run(String id){
+		SpiderFlow spiderFlow = getById(id);
+		return spiderFlow != null && spiderJobManager.run(spiderFlow);
 	}
 	
 	public void resetExecuteCount(String id){
@@ -157,6 +190,7 @@ public class SpiderFlowService extends ServiceImpl<SpiderFlowMapper, SpiderFlow>
 	}
 	public void remove(String id){
 		sfMapper.deleteById(id);
+		compiledFlows.invalidate(id);
 		spiderJobManager.remove(id);
 		flowNoticeMapper.deleteById(id);
 	}
@@ -1,12 +1,23 @@
 package org.spiderflow.core.utils;
 
-import java.util.HashMap;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.core.metrics.SpiderMetrics;
 import org.spiderflow.core.service.DataSourceService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import com.alibaba.druid.pool.DruidDataSource;
@@ -19,41 +30,126 @@ import com.alibaba.druid.pool.DruidDataSource;
 @Component
 public class DataSourceUtils {
 	
-	private static final Map<String,DataSource> datasources = new HashMap<>();
+	private static final Map<String,DataSource> datasources = new ConcurrentHashMap<>();
 	
 	private static DataSourceService dataSourceService;
+
+	private static Logger logger = LoggerFactory.getLogger(DataSourceUtils.class);
+
+	/**
+	 * 启动时是否预热连接池
+	 */
+	@Value("${spider.datasource.warm-up:true}")
+	private boolean warmUp;
 	
 	public static DataSource createDataSource(String className,String url,String username,String password){
-		DruidDataSource datasource = new DruidDataSource();
-		datasource.setDriverClassName(className);
-		datasource.setUrl(url);
-		datasource.setUsername(username);
-		datasource.setPassword(password);
+		org.spiderflow.core.model.DataSource ds = new org.spiderflow.core.model.DataSource();
+		ds.setDriverClassName(className);
+		ds.setJdbcUrl(url);
+		ds.setUsername(username);
+		ds.setPassword(password);
+		return createDataSource(ds);
+	}
+
+	/**
+	 * 根据数据源配置创建连接池，未配置的项使用默认值
+	 */
+	public static DataSource createDataSource(org.spiderflow.core.model.DataSource ds){
+		MonitoredDruidDataSource datasource = new MonitoredDruidDataSource();
+		datasource.setName(ds.getName());
+		datasource.setDriverClassName(ds.getDriverClassName());
+		datasource.setUrl(ds.getJdbcUrl());
+		datasource.setUsername(ds.getUsername());
+		datasource.setPassword(ds.getPassword());
 		datasource.setDefaultAutoCommit(true);
-		datasource.setMinIdle(1);
-		datasource.setInitialSize(2);
+		int maxActive = valueOf(ds.getMaxActive(), 8);
+		datasource.setMaxActive(maxActive);
+		datasource.setMinIdle(Math.min(valueOf(ds.getMinIdle(), 1), maxActive));
+		datasource.setInitialSize(Math.min(valueOf(ds.getInitialSize(), 2), maxActive));
+		//获取连接最大等待时间，默认60秒，避免连接池耗尽时无限等待
+		datasource.setMaxWait(valueOf(ds.getMaxWait(), 60000));
+		if(StringUtils.isNotBlank(ds.getValidationQuery())){
+			datasource.setValidationQuery(ds.getValidationQuery());
+			datasource.setTestWhileIdle(!"0".equals(ds.getTestWhileIdle()));
+		}else{
+			datasource.setTestWhileIdle(false);
+		}
+		if("1".equals(ds.getPoolPreparedStatements())){
+			datasource.setPoolPreparedStatements(true);
+			datasource.setMaxPoolPreparedStatementPerConnectionSize(valueOf(ds.getMaxOpenPreparedStatements(), 20));
+		}
 		return datasource;
 	}
+
+	private static int valueOf(Integer value, int defaultValue){
+		return value == null || value <= 0 ? defaultValue : value;
+	}
 	
 	public static void remove(String dataSourceId){
-		DataSource dataSource = datasources.get(dataSourceId);
+		DataSource dataSource = datasources.remove(dataSourceId);
 		if(dataSource != null){
-			DruidDataSource ds = (DruidDataSource) dataSource;
-			ds.close();
-			datasources.remove(dataSourceId);
+			((DruidDataSource) dataSource).close();
 		}
 	}
 	
-	public synchronized static DataSource getDataSource(String dataSourceId){
+	public static DataSource getDataSource(String dataSourceId){
+		DataSource dataSource = datasources.get(dataSourceId);
+		if(dataSource != null){
+			return dataSource;
+		}
+		return datasources.computeIfAbsent(dataSourceId, id -> {
+			org.spiderflow.core.model.DataSource ds = dataSourceService.getById(id);
+			if(ds == null){
+				return null;
+			}
+			SpiderMetrics.bindDataSource(id, ds.getName());
+			return createDataSource(ds);
+		});
+	}
+
+	/**
+	 * 获取已创建的连接池,未创建时返回null
+	 */
+	public static MonitoredDruidDataSource getMonitoredDataSource(String dataSourceId){
 		DataSource dataSource = datasources.get(dataSourceId);
-		if(dataSource == null){
-			org.spiderflow.core.model.DataSource ds = dataSourceService.getById(dataSourceId);
-			if(ds != null){
-				dataSource = createDataSource(ds.getDriverClassName(), ds.getJdbcUrl(), ds.getUsername(), ds.getPassword());
-				datasources.put(dataSourceId, dataSource);
+		return dataSource instanceof MonitoredDruidDataSource ? (MonitoredDruidDataSource) dataSource : null;
+	}
+
+	/**
+	 * 获取所有已创建连接池的统计信息
+	 */
+	public static List<Map<String, Object>> getStatistics(){
+		List<Map<String, Object>> result = new ArrayList<>();
+		datasources.forEach((id, dataSource) -> {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("id", id);
+			if(dataSource instanceof MonitoredDruidDataSource){
+				MonitoredDruidDataSource ds = (MonitoredDruidDataSource) dataSource;
+				item.put("name", ds.getName());
+				item.putAll(ds.getPoolStatistics());
 			}
+			result.add(item);
+		});
+		return result;
+	}
+
+	@PostConstruct
+	private void init(){
+		if(!warmUp){
+			return;
 		}
-		return dataSource;
+		//异步预热，避免数据库不可用时阻塞启动
+		CompletableFuture.runAsync(() -> {
+			for (org.spiderflow.core.model.DataSource ds : dataSourceService.list()) {
+				DataSource dataSource = getDataSource(ds.getId());
+				try {
+					((DruidDataSource) dataSource).init();
+					logger.info("预热数据源{}完毕", ds.getName());
+				} catch (SQLException e) {
+					logger.warn("预热数据源{}失败:{}", ds.getName(), e.getMessage());
+				}
+			}
+		});
 	}
 
 	@Autowired
@@ -0,0 +1,152 @@
+package org.spiderflow.core.utils;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.spiderflow.context.SpiderContext;
+import org.spiderflow.context.SpiderContextHolder;
+
+/**
+ * 单次运行内的HTML解析、序列化缓存
+ * 以对象的引用(而非内容)及baseUri作为key,同一个html字符串在一次运行中只解析一次,
+ * 同一个Element/Elements只序列化一次,
+ * 如 ${extract.xpath(resp.html,'...')}、${elementVar.regx('...')} 多次调用时不再重复处理
+ * 缓存的Document由多个表达式、多个线程共用,只能以只读方式使用(parseReadOnly),
+ * 需要把Element交给表达式时使用parse获取副本,避免修改影响其他调用
+ * @author jmxd
+ *
+ */
+public class DocumentCache {
+
+	/**
+	 * 解析结果缓存在SpiderContext中的key
+	 */
+	private static final String DOCUMENT_CONTEXT_KEY = "_document_cache";
+
+	/**
+	 * 序列化结果缓存在SpiderContext中的key
+	 */
+	private static final String HTML_CONTEXT_KEY = "_html_cache";
+
+	/**
+	 * 每次运行每类最多缓存的数量
+	 */
+	private static final int CAPACITY = 16;
+
+	private final Object[] keys = new Object[CAPACITY];
+
+	private final String[] baseUris = new String[CAPACITY];
+
+	private final Object[] values = new Object[CAPACITY];
+
+	/**
+	 * 下一个被替换的位置
+	 */
+	private int next;
+
+	private DocumentCache() {
+	}
+
+	/**
+	 * 解析html,返回缓存Document的副本,调用方可以任意修改
+	 * @param html	html内容
+	 * @param baseUri	基础url,用于abs:属性,可为空
+	 * @return 解析后的Document
+	 */
+	public static Document parse(String html, String baseUri) {
+		Document document = parseReadOnly(html, baseUri);
+		return document == null ? null : document.clone();
+	}
+
+	public static Document parse(String html) {
+		return parse(html, null);
+	}
+
+	/**
+	 * 解析html,当前线程处于运行中时相同的html对象(及baseUri)只会解析一次
+	 * 返回的Document是共用的,只能用于查询,不能修改,也不能把其中的元素交给表达式
+	 * @param html	html内容
+	 * @param baseUri	基础url,用于abs:属性,可为空
+	 * @return 解析后的Document
+	 */
+	public static Document parseReadOnly(String html, String baseUri) {
+		if (html == null) {
+			return null;
+		}
+		return lookup(DOCUMENT_CONTEXT_KEY, html, baseUri, source -> doParse(source, baseUri));
+	}
+
+	public static Document parseReadOnly(String html) {
+		return parseReadOnly(html, null);
+	}
+
+	/**
+	 * 获取元素的html,当前线程处于运行中时相同的元素只会序列化一次
+	 */
+	public static String html(Element element) {
+		return element == null ? null : lookup(HTML_CONTEXT_KEY, element, null, Element::html);
+	}
+
+	/**
+	 * 获取元素集合的html,当前线程处于运行中时相同的集合只会序列化一次
+	 */
+	public static String html(Elements elements) {
+		return elements == null ? null : lookup(HTML_CONTEXT_KEY, elements, null, Elements::html);
+	}
+
+	private static <K, V> V lookup(String contextKey, K key, String baseUri, Function<K, V> loader) {
+		SpiderContext context = SpiderContextHolder.get();
+		if (context == null) {
+			return loader.apply(key);
+		}
+		DocumentCache cache;
+		synchronized (context) {
+			cache = context.get(contextKey);
+			if (cache == null) {
+				cache = new DocumentCache();
+				context.put(contextKey, cache);
+			}
+		}
+		return cache.get(key, baseUri, loader);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <K, V> V get(K key, String baseUri, Function<K, V> loader) {
+		synchronized (this) {
+			Object value = find(key, baseUri);
+			if (value != null) {
+				return (V) value;
+			}
+		}
+		// 解析、序列化放在锁外,避免大页面阻塞其他线程
+		V value = loader.apply(key);
+		synchronized (this) {
+			Object exists = find(key, baseUri);
+			if (exists != null) {
+				return (V) exists;
+			}
+			keys[next] = key;
+			baseUris[next] = baseUri;
+			values[next] = value;
+			next = (next + 1) % CAPACITY;
+		}
+		return value;
+	}
+
+	private Object find(Object key, String baseUri) {
+		for (int i = 0; i < CAPACITY; i++) {
+			if (keys[i] == key && Objects.equals(baseUris[i], baseUri)) {
+				return values[i];
+			}
+		}
+		return null;
+	}
+
+	private static Document doParse(String html, String baseUri) {
+		return baseUri == null ? Jsoup.parse(html) : Jsoup.parse(html, baseUri);
+	}
+}
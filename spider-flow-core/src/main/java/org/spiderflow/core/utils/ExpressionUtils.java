@@ -4,12 +4,16 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.ExpressionEngine;
+import org.spiderflow.context.FlowMetrics;
+import org.spiderflow.context.FlowTrace;
+import org.spiderflow.context.Span;
 import org.spiderflow.model.SpiderNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * Created on 2020-03-11
@@ -53,6 +57,26 @@ public class ExpressionUtils {
     }
 
     public static Object execute(String expression, Map<String, Object> variables) {
-        return engine.execute(expression, variables);
+        long start = System.nanoTime();
+        Span span = FlowTrace.startSpan("expression");
+        if (span != null) {
+            span.setAttribute("expression", StringUtils.abbreviate(expression, 256));
+        }
+        try {
+            return engine.execute(expression, variables);
+        } finally {
+            //计入当前节点的表达式耗时
+            FlowMetrics.recordExpression(System.nanoTime() - start);
+            if (span != null) {
+                span.end();
+            }
+        }
+    }
+
+    /**
+     * 获取表达式中引用的变量名,无法分析时返回null
+     */
+    public static Set<String> getVariables(String expression) {
+        return engine.getVariables(expression);
     }
 }
@@ -1,16 +1,22 @@
 package org.spiderflow.core.utils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 
 import com.alibaba.fastjson.JSONPath;
+import us.codecraft.xsoup.XPathEvaluator;
 import us.codecraft.xsoup.Xsoup;
 
 /**
@@ -20,15 +26,66 @@ import us.codecraft.xsoup.Xsoup;
  */
 public class ExtractUtils {
 	
-	private static Map<String,Pattern> patterns = new HashMap<>();
+	/**
+	 * 每类表达式最多缓存的数量
+	 */
+	private static final int QUERY_CACHE_SIZE = 1024;
 	
-	private static Pattern compile(String regx){
-		Pattern pattern = patterns.get(regx);
-		if(pattern == null){
-			pattern = Pattern.compile(regx,Pattern.DOTALL);
-			patterns.put(regx, pattern);
+	private static final QueryCache<Pattern> patterns = new QueryCache<>("regx", QUERY_CACHE_SIZE, regx -> Pattern.compile(regx, Pattern.DOTALL));
+	
+	private static final QueryCache<Evaluator> selectors = new QueryCache<>("selector", QUERY_CACHE_SIZE, QueryParser::parse);
+	
+	private static final QueryCache<XPathEvaluator> xpaths = new QueryCache<>("xpath", QUERY_CACHE_SIZE, Xsoup::compile);
+	
+	private static final QueryCache<JSONPath> jsonPaths = new QueryCache<>("jsonpath", QUERY_CACHE_SIZE, JSONPath::compile);
+	
+	/**
+	 * 集合的内容以前重新解析为文档后位于body下,这些前缀对应集合中的各元素
+	 */
+	private static final String[] COLLECTION_ROOT_PATHS = {"/html/body", "//body"};
+	
+	public static Pattern compile(String regx){
+		return patterns.get(regx);
+	}
+	
+	/**
+	 * 获取表达式缓存的命中统计
+	 */
+	public static List<Map<String,Object>> getQueryCacheStatistics(){
+		return Arrays.asList(patterns, selectors, xpaths, jsonPaths).stream()
+				.map(QueryCache::getStatistics)
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * 根据css选择器查找第一个元素,选择器只编译一次
+	 */
+	public static Element selectFirst(Element element,String selector){
+		return Collector.findFirst(selectors.get(selector), element);
+	}
+	
+	/**
+	 * 根据css选择器查找元素,选择器只编译一次
+	 */
+	public static Elements select(Element element,String selector){
+		return Collector.collect(selectors.get(selector), element);
+	}
+	
+	/**
+	 * 在多个元素中根据css选择器查找,结果去重并保持顺序
+	 */
+	public static Elements select(Elements elements,String selector){
+		Evaluator evaluator = selectors.get(selector);
+		Elements results = new Elements();
+		IdentityHashMap<Element,Boolean> seen = new IdentityHashMap<>();
+		for (Element root : elements) {
+			for (Element found : Collector.collect(evaluator, root)) {
+				if(seen.put(found, Boolean.TRUE) == null){
+					results.add(found);
+				}
+			}
 		}
-		return pattern;
+		return results;
 	}
 	
 	public static List<String> getMatchers(String content,String regx,boolean isGroup){
@@ -106,15 +163,15 @@ public class ExtractUtils {
 	}
 	
 	public static Element getFirstElement(Element element,String selector){
-		return element.selectFirst(selector);
+		return selectFirst(element, selector);
 	}
 	
-	public static List<Element> getElements(Element element,String selector){
-		return element.select(selector);
+	public static Elements getElements(Element element,String selector){
+		return select(element, selector);
 	}
 	
 	public static List<String> getHTMLBySelector(Element element,String selector){
-		Elements elements = element.select(selector);
+		Elements elements = select(element, selector);
 		List<String> result = new ArrayList<>();
 		for (Element elem : elements) {
 			result.add(elem.html());
@@ -123,7 +180,7 @@ public class ExtractUtils {
 	}
 	
 	public static List<String> getOuterHTMLBySelector(Element element,String selector){
-		Elements elements = element.select(selector);
+		Elements elements = select(element, selector);
 		List<String> result = new ArrayList<>();
 		for (Element elem : elements) {
 			result.add(elem.outerHtml());
@@ -132,7 +189,7 @@ public class ExtractUtils {
 	}
 	
 	public static List<String> getTextBySelector(Element element,String selector){
-		Elements elements = element.select(selector);
+		Elements elements = select(element, selector);
 		List<String> result = new ArrayList<>();
 		for (Element elem : elements) {
 			result.add(elem.text());
@@ -141,7 +198,7 @@ public class ExtractUtils {
 	}
 	
 	public static List<String> getAttrBySelector(Element element,String selector,String attr){
-		Elements elements = element.select(selector);
+		Elements elements = select(element, selector);
 		List<String> result = new ArrayList<>();
 		for (Element elem : elements) {
 			result.add(elem.attr(attr));
@@ -150,27 +207,59 @@ public class ExtractUtils {
 	}
 	
 	public static Object getValueByJsonPath(Object root,String jsonPath){
-		return JSONPath.eval(root, jsonPath);
+		return jsonPaths.get(jsonPath).eval(root);
 	}
 	
 	public static List<String> getValuesByXPath(Element element,String xpath){
-		return Xsoup.select(element,xpath).list();
+		return xpaths.get(xpath).evaluate(element).list();
 	}
 
+	/**
+	 * 以集合中的各元素作为上下文节点执行xpath,不再序列化后重新解析
+	 * 路径经toContextPath转换,结果与以前在集合html解析出的文档上执行时一致
+	 */
 	public static List<String> getValuesByXPath(Elements elements,String xpath){
-		return Xsoup.select(elements.html(),xpath).list();
+		XPathEvaluator evaluator = xpaths.get(toContextPath(xpath));
+		List<String> results = new ArrayList<>();
+		for (Element element : elements) {
+			results.addAll(evaluator.evaluate(element).list());
+		}
+		return results;
 	}
 	
 	public static String getValueByXPath(Element element,String xpath){
-		return Xsoup.select(element,xpath).get();
+		return xpaths.get(xpath).evaluate(element).get();
 	}
 
 	public static String getValueByXPath(Elements elements,String xpath){
-		return Xsoup.select(elements.html(),xpath).get();
+		XPathEvaluator evaluator = xpaths.get(toContextPath(xpath));
+		for (Element element : elements) {
+			String value = evaluator.evaluate(element).get();
+			if(value != null){
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 将以集合为根的xpath转为以集合中的元素为根:
+	 * 以前元素本身不在文档中,相对路径(如a/@href)从元素的子孙开始匹配,需加上//,
+	 * 否则会匹配到元素本身,且xsoup的父节点判断会越过元素到原文档中;
+	 * /html/body、//body开头的路径去掉该前缀,从元素开始匹配
+	 */
+	private static String toContextPath(String xpath){
+		String path = xpath.trim();
+		for (String root : COLLECTION_ROOT_PATHS) {
+			if(path.startsWith(root + "/")){
+				return path.substring(root.length());
+			}
+		}
+		return path.startsWith("/") ? path : "//" + path;
 	}
 	
 	public static String getElementByXPath(Element element,String xpath){
-		return Xsoup.select(element,xpath).get();
+		return xpaths.get(xpath).evaluate(element).get();
 	}
 	
 	public static boolean isNumber(String str) {
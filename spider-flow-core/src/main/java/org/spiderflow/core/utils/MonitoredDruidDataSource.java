@@ -0,0 +1,94 @@
+package org.spiderflow.core.utils;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import com.alibaba.druid.pool.GetConnectionTimeoutException;
+
+/**
+ * 带获取连接等待时间统计的Druid连接池
+ * @author jmxd
+ *
+ */
+public class MonitoredDruidDataSource extends DruidDataSource {
+
+	private static final long serialVersionUID = -2750371340425281873L;
+
+	/**
+	 * 等待时间直方图的区间上限(毫秒)，最后一个区间为大于最大值
+	 */
+	private static final long[] WAIT_BUCKETS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+	private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS.length + 1);
+
+	private final AtomicLong waitMillisTotal = new AtomicLong();
+
+	private final AtomicLong waitMillisMax = new AtomicLong();
+
+	private final AtomicLong waitTimeoutCount = new AtomicLong();
+
+	@Override
+	public DruidPooledConnection getConnection(long maxWaitMillis) throws SQLException {
+		long start = System.nanoTime();
+		try {
+			return super.getConnection(maxWaitMillis);
+		} catch (GetConnectionTimeoutException e) {
+			//只统计等待超时,创建连接失败等其他异常不计入
+			waitTimeoutCount.incrementAndGet();
+			throw e;
+		} finally {
+			recordWait((System.nanoTime() - start) / 1000000);
+		}
+	}
+
+	private void recordWait(long millis) {
+		int index = 0;
+		while (index < WAIT_BUCKETS.length && millis > WAIT_BUCKETS[index]) {
+			index++;
+		}
+		waitHistogram.incrementAndGet(index);
+		waitMillisTotal.addAndGet(millis);
+		waitMillisMax.accumulateAndGet(millis, Math::max);
+	}
+
+	public long getWaitMillisTotal() {
+		return waitMillisTotal.get();
+	}
+
+	public long getWaitTimeoutCount() {
+		return waitTimeoutCount.get();
+	}
+
+	/**
+	 * 获取连接池统计信息
+	 */
+	public Map<String, Object> getPoolStatistics() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("inited", isInited());
+		stats.put("maxActive", getMaxActive());
+		stats.put("minIdle", getMinIdle());
+		stats.put("active", getActiveCount());
+		stats.put("activePeak", getActivePeak());
+		stats.put("idle", getPoolingCount());
+		stats.put("waiting", getWaitThreadCount());
+		stats.put("connectCount", getConnectCount());
+		stats.put("createCount", getCreateCount());
+		stats.put("destroyCount", getDestroyCount());
+		stats.put("errorCount", getErrorCount());
+		stats.put("waitTimeoutCount", waitTimeoutCount.get());
+		stats.put("waitMillisTotal", waitMillisTotal.get());
+		stats.put("waitMillisMax", waitMillisMax.get());
+		Map<String, Long> histogram = new LinkedHashMap<>();
+		for (int i = 0; i < WAIT_BUCKETS.length; i++) {
+			histogram.put("<=" + WAIT_BUCKETS[i] + "ms", waitHistogram.get(i));
+		}
+		histogram.put(">" + WAIT_BUCKETS[WAIT_BUCKETS.length - 1] + "ms", waitHistogram.get(WAIT_BUCKETS.length));
+		stats.put("waitHistogram", histogram);
+		return stats;
+	}
+}
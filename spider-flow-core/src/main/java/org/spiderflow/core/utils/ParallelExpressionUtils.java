@@ -0,0 +1,211 @@
+package org.spiderflow.core.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.spiderflow.context.SpiderContextHolder;
+import org.spiderflow.context.VariableScope;
+import org.spiderflow.model.SpiderNode;
+
+import com.alibaba.ttl.TtlCallable;
+
+/**
+ * 并行执行一组表达式(输出、定义变量节点使用)
+ * 根据表达式AST中引用的变量分析依赖关系,按依赖分批执行,同一批次内的表达式并行执行,
+ * 结果按声明顺序返回
+ * @author jmxd
+ *
+ */
+public class ParallelExpressionUtils {
+
+	/**
+	 * 节点配置:并行数,为空或小于等于1时顺序执行
+	 */
+	public static final String PARALLELISM = "parallelism";
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), pool -> {
+		ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool) {
+			@Override
+			protected void onStart() {
+				super.onStart();
+				//线程创建时会继承提交线程的上下文,执行任务时由TtlCallable传递
+				SpiderContextHolder.remove();
+			}
+		};
+		thread.setName("spider-flow-expression-" + thread.getPoolIndex());
+		thread.setDaemon(true);
+		return thread;
+	}, null, true);
+
+	/**
+	 * 获取节点配置的并行数
+	 */
+	public static int getParallelism(SpiderNode node) {
+		return Math.max(NumberUtils.toInt(node.getStringJsonValue(PARALLELISM), 1), 1);
+	}
+
+	/**
+	 * 执行一组表达式
+	 * @param expressions	表达式
+	 * @param names	各表达式结果写入的变量名,后面的表达式可以引用前面的结果;为null时各表达式相互独立
+	 * @param variables	变量,不会被修改
+	 * @param parallelism	最大并行数
+	 * @return 与expressions顺序一致的执行结果,names不为null且出现异常时,异常之后的结果可能为null(未执行)
+	 */
+	public static Result[] execute(List<String> expressions, List<String> names, Map<String, Object> variables, int parallelism) {
+		int size = expressions.size();
+		Result[] results = new Result[size];
+		List<List<Integer>> batches = names == null ? independent(size) : batches(expressions, names);
+		Map<String, Object> scope = names == null ? variables : new VariableScope(variables);
+		//最早出现异常的位置,顺序执行时其后的表达式不会被执行
+		int failed = size;
+		for (List<Integer> batch : batches) {
+			List<Integer> indexes = new ArrayList<>(batch.size());
+			for (Integer index : batch) {
+				if (index < failed) {
+					indexes.add(index);
+				}
+			}
+			run(expressions, indexes, scope, parallelism, results);
+			for (Integer index : indexes) {
+				if (results[index].getError() != null) {
+					failed = Math.min(failed, index);
+				}
+			}
+			if (names != null) {
+				for (Integer index : indexes) {
+					if (index < failed) {
+						scope.put(names.get(index), results[index].getValue());
+					}
+				}
+			}
+		}
+		if (names != null) {
+			for (int i = failed + 1; i < size; i++) {
+				results[i] = null;
+			}
+		}
+		return results;
+	}
+
+	private static void run(List<String> expressions, List<Integer> indexes, Map<String, Object> scope, int parallelism, Result[] results) {
+		if (indexes.size() == 1 || parallelism <= 1) {
+			for (Integer index : indexes) {
+				results[index] = evaluate(expressions.get(index), scope);
+			}
+			return;
+		}
+		CompletionService<Integer> service = new ExecutorCompletionService<>(POOL);
+		int submitted = 0;
+		int completed = 0;
+		while (completed < indexes.size()) {
+			while (submitted < indexes.size() && submitted - completed < parallelism) {
+				Integer index = indexes.get(submitted++);
+				service.submit(TtlCallable.get(() -> {
+					results[index] = evaluate(expressions.get(index), scope);
+					return index;
+				}));
+			}
+			try {
+				Future<Integer> future = service.take();
+				future.get();
+				completed++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("执行表达式被中断", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("执行表达式出错", e.getCause());
+			}
+		}
+	}
+
+	private static Result evaluate(String expression, Map<String, Object> scope) {
+		try {
+			return new Result(ExpressionUtils.execute(expression, scope), null);
+		} catch (Throwable t) {
+			return new Result(null, t);
+		}
+	}
+
+	private static List<List<Integer>> independent(int size) {
+		List<Integer> batch = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			batch.add(i);
+		}
+		List<List<Integer>> batches = new ArrayList<>();
+		batches.add(batch);
+		return batches;
+	}
+
+	/**
+	 * 根据依赖关系分批,依赖只会指向声明在前的表达式:
+	 * 引用了前面定义的变量、前面的表达式引用了本变量(避免提前覆盖)、与前面的变量同名
+	 */
+	private static List<List<Integer>> batches(List<String> expressions, List<String> names) {
+		int size = expressions.size();
+		List<Set<String>> references = new ArrayList<>(size);
+		for (String expression : expressions) {
+			references.add(ExpressionUtils.getVariables(expression));
+		}
+		int[] levels = new int[size];
+		List<List<Integer>> batches = new ArrayList<>();
+		for (int j = 0; j < size; j++) {
+			int level = 0;
+			for (int i = 0; i < j; i++) {
+				if (dependsOn(references, names, i, j)) {
+					level = Math.max(level, levels[i] + 1);
+				}
+			}
+			levels[j] = level;
+			while (batches.size() <= level) {
+				batches.add(new ArrayList<>());
+			}
+			batches.get(level).add(j);
+		}
+		return batches;
+	}
+
+	private static boolean dependsOn(List<Set<String>> references, List<String> names, int i, int j) {
+		Set<String> before = references.get(i);
+		Set<String> after = references.get(j);
+		//无法分析的表达式与前后所有表达式都按顺序执行
+		if (before == null || after == null) {
+			return true;
+		}
+		String beforeName = names.get(i);
+		String afterName = names.get(j);
+		return after.contains(beforeName) || before.contains(afterName) || (beforeName != null && beforeName.equals(afterName));
+	}
+
+	/**
+	 * 表达式执行结果
+	 */
+	public static class Result {
+
+		private final Object value;
+
+		private final Throwable error;
+
+		Result(Object value, Throwable error) {
+			this.value = value;
+			this.error = error;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+
+		public Throwable getError() {
+			return error;
+		}
+	}
+}
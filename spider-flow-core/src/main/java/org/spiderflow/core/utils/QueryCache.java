@@ -0,0 +1,67 @@
+package org.spiderflow.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * 编译后的查询表达式缓存(正则、css选择器、xpath、jsonpath)
+ * 有界、线程安全,并记录命中统计
+ * @author jmxd
+ *
+ */
+public class QueryCache<T> {
+
+	/**
+	 * 缓存名称
+	 */
+	private final String name;
+
+	private final Cache<String, T> cache;
+
+	/**
+	 * 编译函数,编译失败时异常直接抛给调用方
+	 */
+	private final Function<String, T> compiler;
+
+	public QueryCache(String name, int maximumSize, Function<String, T> compiler) {
+		this.name = name;
+		this.compiler = compiler;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build();
+	}
+
+	public T get(String query) {
+		T compiled = cache.getIfPresent(query);
+		if (compiled == null) {
+			compiled = compiler.apply(query);
+			cache.put(query, compiled);
+		}
+		return compiled;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 获取缓存统计信息
+	 */
+	public Map<String, Object> getStatistics() {
+		CacheStats stats = cache.stats();
+		Map<String, Object> statistics = new LinkedHashMap<>();
+		statistics.put("name", name);
+		statistics.put("size", cache.size());
+		statistics.put("hitCount", stats.hitCount());
+		statistics.put("missCount", stats.missCount());
+		statistics.put("hitRate", stats.hitRate());
+		statistics.put("evictionCount", stats.evictionCount());
+		return statistics;
+	}
+}
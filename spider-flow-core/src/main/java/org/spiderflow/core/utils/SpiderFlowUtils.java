@@ -66,13 +66,47 @@ public class SpiderFlowUtils {
 				//设置流转特性
 				targetNode.setExceptionFlow(sourceNode.getNodeId(),edgeNode.getStringJsonValue("exception-flow"));
 				targetNode.setTransmitVariable(sourceNode.getNodeId(),edgeNode.getStringJsonValue("transmit-variable"));
+				//设置排队上限
+				targetNode.setQueueLimit(sourceNode.getNodeId(),edgeNode.getStringJsonValue("queue-limit"));
 				sourceNode.addNextNode(targetNode);
 			}
 		}
 		firstNode.addNextNode(root);
+		//预先计算各节点需要通知的Join节点,运行时判断Join节点是否执行完毕无需遍历流程图
+		for (SpiderNode node : nodeMap.values()) {
+			//根节点(id为1)等没有JsonProperty
+			if (node.getJsonProperty() != null && "forkJoin".equals(node.getStringJsonValue("shape"))) {
+				node.addJoinNodeId(node.getNodeId());
+				for (String parentNodeId : node.getParentNodes()) {
+					SpiderNode parentNode = nodeMap.get(parentNodeId);
+					if (parentNode != null && parentNode != node) {
+						parentNode.addJoinNodeId(node.getNodeId());
+					}
+				}
+			}
+		}
 		return firstNode;
 	}
 	
+	/**
+	 * 获取流程图中的全部节点
+	 * @param root 爬虫的开始节点
+	 * @return 节点ID -> 节点
+	 */
+	public static Map<String,SpiderNode> getNodeMap(SpiderNode root){
+		Map<String,SpiderNode> nodeMap = new HashMap<>();
+		collectNodes(root, nodeMap);
+		return nodeMap;
+	}
+
+	private static void collectNodes(SpiderNode node, Map<String,SpiderNode> nodeMap){
+		if(nodeMap.putIfAbsent(node.getNodeId(), node) == null){
+			for (SpiderNode nextNode : node.getNextNodes()) {
+				collectNodes(nextNode, nodeMap);
+			}
+		}
+	}
+
 	/**
 	 * 提取配置的json属性
 	 */
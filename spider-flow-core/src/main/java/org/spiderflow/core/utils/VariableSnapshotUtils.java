@@ -0,0 +1,94 @@
+package org.spiderflow.core.utils;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Elements;
+
+/**
+ * 变量快照,将变量转为可以JSON序列化的值(分布式执行、检查点使用)
+ * @author jmxd
+ *
+ */
+public class VariableSnapshotUtils {
+
+	/**
+	 * 标记无法序列化的值
+	 */
+	private static final Object UNSUPPORTED = new Object();
+
+	/**
+	 * 生成变量快照
+	 * @param variables	变量
+	 * @param keepAsString	无法序列化的值(如请求结果)是否转为字符串,为false时丢弃
+	 * 						(集合、数组或Map中包含无法序列化的元素时整个丢弃,避免恢复后得到不完整的值)
+	 */
+	public static Map<String, Object> snapshot(Map<String, Object> variables, boolean keepAsString) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> entry : variables.entrySet()) {
+			Object value = convert(entry.getValue(), keepAsString);
+			if (value != UNSUPPORTED) {
+				result.put(entry.getKey(), value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 转为可以JSON序列化的值,无法转换时返回null
+	 */
+	public static Object toSerializable(Object value, boolean keepAsString) {
+		Object result = convert(value, keepAsString);
+		return result == UNSUPPORTED ? null : result;
+	}
+
+	private static Object convert(Object value, boolean keepAsString) {
+		if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Date) {
+			return value;
+		}
+		//Elements是ArrayList,需在集合之前判断
+		if (value instanceof Node || value instanceof Elements) {
+			return keepAsString ? value.toString() : UNSUPPORTED;
+		}
+		if (value instanceof Map) {
+			Map<String, Object> result = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				Object item = convert(entry.getValue(), keepAsString);
+				if (item == UNSUPPORTED) {
+					return UNSUPPORTED;
+				}
+				result.put(String.valueOf(entry.getKey()), item);
+			}
+			return result;
+		}
+		if (value instanceof Collection) {
+			List<Object> result = new ArrayList<>();
+			for (Object v : (Collection<?>) value) {
+				Object item = convert(v, keepAsString);
+				if (item == UNSUPPORTED) {
+					return UNSUPPORTED;
+				}
+				result.add(item);
+			}
+			return result;
+		}
+		if (value.getClass().isArray() && !(value instanceof byte[])) {
+			List<Object> result = new ArrayList<>();
+			for (int i = 0, len = Array.getLength(value); i < len; i++) {
+				Object item = convert(Array.get(value, i), keepAsString);
+				if (item == UNSUPPORTED) {
+					return UNSUPPORTED;
+				}
+				result.add(item);
+			}
+			return result;
+		}
+		return keepAsString ? value.toString() : UNSUPPORTED;
+	}
+}
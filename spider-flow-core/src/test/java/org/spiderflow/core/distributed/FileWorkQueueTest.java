@@ -0,0 +1,134 @@
+package org.spiderflow.core.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileWorkQueueTest {
+
+	private static final long VISIBILITY_TIMEOUT = 60000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void pollsInPublishOrder() throws Exception {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		for (int i = 0; i < 3; i++) {
+			queue.publish(new WorkItem("run", "flow", String.valueOf(i), "{}"));
+			//文件名以毫秒时间开头
+			Thread.sleep(2);
+		}
+		for (int i = 0; i < 3; i++) {
+			WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+			assertEquals(String.valueOf(i), item.getNodeId());
+			assertEquals("run", item.getRunId());
+			assertNotNull(item.getReceipt());
+			queue.ack(item);
+		}
+		assertNull(queue.poll(0, TimeUnit.SECONDS));
+		assertEquals(0, processing().length);
+	}
+
+	@Test
+	public void unacknowledgedItemIsRedelivered() throws Exception {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		WorkItem published = new WorkItem("run", "flow", "1", "{}");
+		queue.publish(published);
+		WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+		assertNull(queue.poll(0, TimeUnit.SECONDS));
+
+		//模拟领取任务的实例停止后超时
+		for (File file : processing()) {
+			assertTrue(file.setLastModified(System.currentTimeMillis() - VISIBILITY_TIMEOUT * 2));
+		}
+		FileWorkQueue other = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		WorkItem redelivered = other.poll(1, TimeUnit.SECONDS);
+		assertNotNull(redelivered);
+		assertEquals(published.getId(), redelivered.getId());
+		assertEquals(item.getId(), redelivered.getId());
+		other.ack(redelivered);
+		assertEquals(0, processing().length);
+	}
+
+	@Test
+	public void touchedItemIsNotRedelivered() throws Exception {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		queue.publish(new WorkItem("run", "flow", "1", "{}"));
+		WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+		for (File file : processing()) {
+			assertTrue(file.setLastModified(System.currentTimeMillis() - VISIBILITY_TIMEOUT * 2));
+		}
+		//执行中的任务定期延长超时时间
+		queue.touch(item);
+		FileWorkQueue other = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		assertNull(other.poll(0, TimeUnit.SECONDS));
+		assertEquals(1, processing().length);
+	}
+
+	@Test
+	public void completeOnlyOnce() {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		WorkItem item = new WorkItem("run", "flow", "1", "{}");
+		assertTrue(queue.complete(item));
+		assertFalse(queue.complete(item));
+		assertTrue(queue.complete(new WorkItem("run", "flow", "1", "{}")));
+		queue.clear("run");
+		assertTrue(queue.complete(item));
+	}
+
+	@Test
+	public void republishedItemIsCountedOnce() throws Exception {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		WorkItem item = new WorkItem("1", "run", "flow", "1", "{}");
+		queue.publish(item);
+		//上一级任务重新执行后再次发布相同ID的任务
+		queue.publish(new WorkItem("1", "run", "flow", "1", "{}"));
+		assertEquals(1, queue.getPending("run"));
+		WorkItem first = queue.poll(1, TimeUnit.SECONDS);
+		WorkItem second = queue.poll(1, TimeUnit.SECONDS);
+		assertEquals(first.getId(), second.getId());
+		assertFalse(queue.isCompleted(first));
+		assertTrue(queue.complete(first));
+		assertTrue(queue.isCompleted(second));
+		assertFalse(queue.complete(second));
+		assertEquals(0, queue.getPending("run"));
+		assertEquals(1, queue.getCompleted("run"));
+	}
+
+	@Test
+	public void countersAndCancel() throws Exception {
+		FileWorkQueue queue = new FileWorkQueue(folder.getRoot(), VISIBILITY_TIMEOUT);
+		assertEquals(0, queue.getPending("run"));
+		for (int i = 0; i < 3; i++) {
+			queue.publish(new WorkItem("run", "flow", "1", "{}"));
+		}
+		assertTrue(queue.complete(queue.poll(1, TimeUnit.SECONDS)));
+		assertEquals(2, queue.getPending("run"));
+		assertEquals(1, queue.getCompleted("run"));
+		assertEquals(0, queue.getPending("other"));
+
+		assertFalse(queue.isCancelled("run"));
+		queue.cancel("run");
+		assertTrue(queue.isCancelled("run"));
+		assertFalse(queue.isCancelled("other"));
+
+		queue.clear("run");
+		assertEquals(0, queue.getPending("run"));
+		assertEquals(0, queue.getCompleted("run"));
+		assertFalse(queue.isCancelled("run"));
+	}
+
+	private File[] processing() {
+		return new File(folder.getRoot(), "processing").listFiles();
+	}
+}
@@ -0,0 +1,152 @@
+package org.spiderflow.core.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * 需要Redis,通过-Dspider.test.redis.host、-Dspider.test.redis.port指定,未指定或连接不上时跳过
+ * 使用15号库,每个测试前清空,不要指定存有其他数据的Redis
+ */
+public class RedisWorkQueueTest {
+
+	private static final String HOST = System.getProperty("spider.test.redis.host");
+
+	private static final int PORT = Integer.getInteger("spider.test.redis.port", 6379);
+
+	private static final int DATABASE = 15;
+
+	private static final long VISIBILITY_TIMEOUT = 500;
+
+	private final List<RedisWorkQueue> queues = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		Assume.assumeNotNull(HOST);
+		try (Jedis jedis = new Jedis(HOST, PORT)) {
+			jedis.select(DATABASE);
+			jedis.flushDB();
+		} catch (JedisConnectionException e) {
+			Assume.assumeNoException("Redis不可用", e);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		queues.forEach(RedisWorkQueue::close);
+	}
+
+	@Test
+	public void pollAndAck() throws Exception {
+		RedisWorkQueue queue = queue();
+		WorkItem published = new WorkItem("run", "flow", "1", "{\"page\":1}");
+		queue.publish(published);
+		WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+		assertNotNull(item);
+		assertEquals(published.getId(), item.getId());
+		assertEquals("{\"page\":1}", item.getVariables());
+		assertNotNull(item.getReceipt());
+		queue.ack(item);
+		assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void unacknowledgedItemIsRedelivered() throws Exception {
+		RedisWorkQueue queue = queue();
+		WorkItem published = new WorkItem("run", "flow", "1", "{}");
+		queue.publish(published);
+		assertNotNull(queue.poll(1, TimeUnit.SECONDS));
+
+		//领取任务的实例停止后超时,由其他实例重新领取
+		Thread.sleep(VISIBILITY_TIMEOUT * 2);
+		RedisWorkQueue other = queue();
+		WorkItem redelivered = other.poll(100, TimeUnit.MILLISECONDS);
+		assertNotNull(redelivered);
+		assertEquals(published.getId(), redelivered.getId());
+		other.ack(redelivered);
+		assertNull(queue().poll(100, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void touchedItemIsNotRedelivered() throws Exception {
+		RedisWorkQueue queue = queue();
+		queue.publish(new WorkItem("run", "flow", "1", "{}"));
+		WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+		for (int i = 0; i < 4; i++) {
+			Thread.sleep(VISIBILITY_TIMEOUT / 3);
+			queue.touch(item);
+		}
+		assertNull(queue().poll(100, TimeUnit.MILLISECONDS));
+		queue.ack(item);
+	}
+
+	@Test
+	public void completeOnlyOnce() {
+		RedisWorkQueue queue = queue();
+		WorkItem item = new WorkItem("run", "flow", "1", "{}");
+		assertTrue(queue.complete(item));
+		assertFalse(queue.complete(item));
+		queue.clear("run");
+		assertTrue(queue.complete(item));
+	}
+
+	@Test
+	public void republishedItemIsCountedOnce() throws Exception {
+		RedisWorkQueue queue = queue();
+		queue.publish(new WorkItem("1", "run", "flow", "1", "{}"));
+		//上一级任务重新执行后再次发布相同ID的任务
+		queue.publish(new WorkItem("1", "run", "flow", "1", "{}"));
+		assertEquals(1, queue.getPending("run"));
+		WorkItem first = queue.poll(1, TimeUnit.SECONDS);
+		WorkItem second = queue.poll(1, TimeUnit.SECONDS);
+		assertEquals(first.getId(), second.getId());
+		assertFalse(queue.isCompleted(first));
+		assertTrue(queue.complete(first));
+		assertTrue(queue.isCompleted(second));
+		assertFalse(queue.complete(second));
+		assertEquals(0, queue.getPending("run"));
+		assertEquals(1, queue.getCompleted("run"));
+		queue.ack(first);
+		queue.ack(second);
+	}
+
+	@Test
+	public void countersAndCancel() throws Exception {
+		RedisWorkQueue queue = queue();
+		assertEquals(0, queue.getPending("run"));
+		for (int i = 0; i < 3; i++) {
+			queue.publish(new WorkItem("run", "flow", "1", "{}"));
+		}
+		WorkItem item = queue.poll(1, TimeUnit.SECONDS);
+		assertTrue(queue.complete(item));
+		queue.ack(item);
+		assertEquals(2, queue.getPending("run"));
+		assertEquals(1, queue.getCompleted("run"));
+		queue.cancel("run");
+		assertTrue(queue.isCancelled("run"));
+		queue.clear("run");
+		assertEquals(0, queue.getPending("run"));
+		assertEquals(0, queue.getCompleted("run"));
+		assertFalse(queue.isCancelled("run"));
+	}
+
+	private RedisWorkQueue queue() {
+		RedisWorkQueue queue = new RedisWorkQueue(HOST, PORT, DATABASE, null, VISIBILITY_TIMEOUT);
+		queues.add(queue);
+		return queue;
+	}
+}
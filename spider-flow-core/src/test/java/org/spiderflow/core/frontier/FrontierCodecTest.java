@@ -0,0 +1,69 @@
+package org.spiderflow.core.frontier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FrontierCodecTest {
+
+	@Test
+	public void roundTripsSupportedTypes() {
+		Map<String, Object> nested = new LinkedHashMap<>();
+		nested.put("list", Arrays.asList(1, "a", null, Arrays.asList(2L, true)));
+		Map<String, Object> variables = new LinkedHashMap<>();
+		variables.put("string", "中文 text");
+		variables.put("integer", 1);
+		variables.put("long", 2L);
+		variables.put("double", 1.5);
+		variables.put("boolean", false);
+		variables.put("date", new Date(1000L));
+		variables.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+		variables.put("bigDecimal", new BigDecimal("1.25"));
+		variables.put("null", null);
+		variables.put("map", nested);
+
+		FrontierItem item = FrontierCodec.decode(FrontierCodec.encode("节点1", variables));
+		assertEquals("节点1", item.getNodeId());
+		assertEquals(variables, item.getVariables());
+		//保持变量的顺序
+		assertEquals(Arrays.asList(variables.keySet().toArray()), Arrays.asList(item.getVariables().keySet().toArray()));
+	}
+
+	@Test
+	public void narrowsNumberTypes() {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("short", (short) 3);
+		variables.put("float", 1.5f);
+		Map<String, Object> decoded = FrontierCodec.decode(FrontierCodec.encode("1", variables)).getVariables();
+		assertEquals(3, decoded.get("short"));
+		assertEquals(1.5, decoded.get("float"));
+	}
+
+	@Test
+	public void unknownTypesAreEncodedAsString() {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("value", new StringBuilder("text"));
+		Map<String, Object> decoded = FrontierCodec.decode(FrontierCodec.encode("1", variables)).getVariables();
+		assertEquals("text", decoded.get("value"));
+	}
+
+	@Test
+	public void emptyVariables() {
+		FrontierItem item = FrontierCodec.decode(FrontierCodec.encode("1", new HashMap<>()));
+		assertTrue(item.getVariables().isEmpty());
+		List<Object> empty = Arrays.asList();
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("list", empty);
+		assertEquals(empty, FrontierCodec.decode(FrontierCodec.encode("1", variables)).getVariables().get("list"));
+	}
+}
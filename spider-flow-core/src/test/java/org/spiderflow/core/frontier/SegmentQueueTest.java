@@ -0,0 +1,120 @@
+package org.spiderflow.core.frontier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentQueueTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void firstInFirstOutAcrossSegments() throws IOException {
+		File directory = new File(folder.getRoot(), "queue");
+		SegmentQueue queue = new SegmentQueue(directory, "test", 64);
+		for (int i = 0; i < 100; i++) {
+			queue.add(bytes("item-" + i));
+		}
+		assertEquals(100, queue.size());
+		assertTrue(segments(directory) > 1);
+		for (int i = 0; i < 100; i++) {
+			assertEquals("item-" + i, text(queue.poll()));
+		}
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+		//读取完毕的段被删除,只保留最后一个段复用
+		assertEquals(1, segments(directory));
+		queue.clear();
+	}
+
+	@Test
+	public void interleavedAddAndPoll() throws IOException {
+		SegmentQueue queue = new SegmentQueue(folder.getRoot(), "test", 64);
+		int added = 0;
+		int polled = 0;
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 7; i++) {
+				queue.add(bytes("item-" + added++));
+			}
+			for (int i = 0; i < 5; i++) {
+				assertEquals("item-" + polled++, text(queue.poll()));
+			}
+		}
+		assertEquals(added - polled, queue.size());
+		while (polled < added) {
+			assertEquals("item-" + polled++, text(queue.poll()));
+		}
+		assertNull(queue.poll());
+		queue.add(bytes("again"));
+		assertEquals("again", text(queue.poll()));
+		queue.clear();
+	}
+
+	@Test
+	public void recordLargerThanSegment() throws IOException {
+		SegmentQueue queue = new SegmentQueue(folder.getRoot(), "test", 16);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			builder.append(i);
+		}
+		queue.add(bytes("small"));
+		queue.add(bytes(builder.toString()));
+		assertEquals("small", text(queue.poll()));
+		assertEquals(builder.toString(), text(queue.poll()));
+		queue.clear();
+	}
+
+	@Test
+	public void forEachDoesNotConsume() throws IOException {
+		SegmentQueue queue = new SegmentQueue(folder.getRoot(), "test", 64);
+		for (int i = 0; i < 20; i++) {
+			queue.add(bytes("item-" + i));
+		}
+		queue.poll();
+		List<String> items = new ArrayList<>();
+		queue.forEach(data -> items.add(text(data)));
+		assertEquals(19, items.size());
+		assertEquals("item-1", items.get(0));
+		assertEquals("item-19", items.get(18));
+		assertEquals(19, queue.size());
+		assertEquals("item-1", text(queue.poll()));
+		queue.clear();
+	}
+
+	@Test
+	public void clearDeletesFiles() throws IOException {
+		File directory = new File(folder.getRoot(), "queue");
+		SegmentQueue queue = new SegmentQueue(directory, "test", 64);
+		for (int i = 0; i < 20; i++) {
+			queue.add(bytes("item-" + i));
+		}
+		queue.clear();
+		assertEquals(0, queue.size());
+		assertNull(queue.poll());
+		assertEquals(0, segments(directory));
+	}
+
+	private static int segments(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(".seg"));
+		return files == null ? 0 : files.length;
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String text(byte[] data) {
+		return new String(data, StandardCharsets.UTF_8);
+	}
+}
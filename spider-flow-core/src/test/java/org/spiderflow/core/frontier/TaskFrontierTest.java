@@ -0,0 +1,237 @@
+package org.spiderflow.core.frontier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.spiderflow.core.expression.DefaultExpressionEngine;
+import org.spiderflow.core.utils.ExpressionUtils;
+import org.spiderflow.model.SpiderNode;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TaskFrontierTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@BeforeClass
+	public static void setUp() {
+		DefaultExpressionEngine engine = new DefaultExpressionEngine();
+		ReflectionTestUtils.setField(engine, "functionExecutors", Collections.emptyList());
+		ReflectionTestUtils.setField(engine, "functionExtensions", Collections.emptyList());
+		ReflectionTestUtils.setField(ExpressionUtils.class, "engine", engine);
+	}
+
+	@Test
+	public void limitsAndRefillCount() {
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		assertFalse(frontier.isFull(10));
+		assertTrue(frontier.isFull(11));
+		assertEquals(0, frontier.getRefillCount(5));
+		SpiderNode node = node("1");
+		for (int i = 0; i < 20; i++) {
+			assertTrue(frontier.offer(node, variables("i", i)));
+		}
+		//内存中11个任务,未降到上限的一半
+		assertEquals(0, frontier.getRefillCount(31));
+		//内存中5个任务,读回至上限
+		assertEquals(5, frontier.getRefillCount(25));
+		assertEquals(10, frontier.getRefillCount(20));
+		frontier.clear();
+	}
+
+	@Test
+	public void pollsInOfferOrder() {
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		SpiderNode node = node("1");
+		for (int i = 0; i < 50; i++) {
+			frontier.offer(node, variables("i", i));
+		}
+		assertEquals(50, frontier.size());
+		List<FrontierItem> items = frontier.poll(30);
+		assertEquals(30, items.size());
+		assertEquals("1", items.get(0).getNodeId());
+		assertEquals(0, items.get(0).getVariables().get("i"));
+		assertEquals(29, items.get(29).getVariables().get("i"));
+		items = frontier.poll(30);
+		assertEquals(20, items.size());
+		assertEquals(49, items.get(19).getVariables().get("i"));
+		assertTrue(frontier.isEmpty());
+		frontier.clear();
+	}
+
+	@Test
+	public void pollsByPriority() {
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_PRIORITY, "${p}");
+		SpiderNode node = node("1");
+		frontier.offer(node, variables("p", 1));
+		frontier.offer(node, variables("p", 5));
+		frontier.offer(node, variables("p", 1));
+		frontier.offer(node, variables("p", 200));
+		List<Object> priorities = new ArrayList<>();
+		for (FrontierItem item : frontier.poll(10)) {
+			priorities.add(item.getVariables().get("p"));
+		}
+		assertEquals(4, priorities.size());
+		assertEquals(200, priorities.get(0));
+		assertEquals(5, priorities.get(1));
+		assertEquals(1, priorities.get(2));
+		frontier.clear();
+	}
+
+	@Test
+	public void pollsHostsInTurn() {
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_HOST, null);
+		SpiderNode node = node("1");
+		node.getJsonProperty().put("url", "${url}");
+		for (int i = 0; i < 3; i++) {
+			frontier.offer(node, variables("url", "http://www.a.com/" + i));
+		}
+		frontier.offer(node, variables("url", "http://www.b.com/0"));
+		List<FrontierItem> items = frontier.poll(2);
+		assertNotEquals(host(items.get(0)), host(items.get(1)));
+		frontier.clear();
+	}
+
+	@Test
+	public void keepsTaskWhenDownstreamNodeReferencesDroppedVariable() {
+		SpiderNode node = node("1");
+		SpiderNode next = node("2");
+		SpiderNode last = node("3");
+		node.addNextNode(next);
+		next.addNextNode(last);
+		last.getJsonProperty().put("value", "${resp.html}");
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		Map<String, Object> variables = variables("resp", new Object());
+		variables.put("page", 1);
+		//两级之后的节点引用了无法序列化的resp
+		assertFalse(frontier.offer(node, variables));
+		assertTrue(frontier.isEmpty());
+		frontier.clear();
+	}
+
+	@Test
+	public void keepsTaskWhenDownstreamNodeReadsElements() {
+		SpiderNode node = node("1");
+		SpiderNode next = node("2");
+		node.addNextNode(next);
+		next.getJsonProperty().put("value", "${items[0]}");
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		Elements items = Jsoup.parse("<ul><li class=\"item\">1</li><li class=\"item\">2</li></ul>").select(".item");
+		//Elements是ArrayList,不能转为元素为null的列表写入磁盘
+		assertFalse(frontier.offer(node, variables("items", items)));
+		List<Object> list = new ArrayList<>();
+		list.add("a");
+		list.add(items.get(0));
+		assertFalse(frontier.offer(node, variables("items", list)));
+		assertTrue(frontier.isEmpty());
+		frontier.clear();
+	}
+
+	@Test
+	public void spillsWhenDroppedVariableIsNotReferenced() {
+		SpiderNode node = node("1");
+		SpiderNode next = node("2");
+		SpiderNode other = node("3");
+		node.addNextNode(next);
+		next.addNextNode(other);
+		//形成环时只遍历一次
+		other.addNextNode(node);
+		other.getJsonProperty().put("value", "${page + 1}");
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		Map<String, Object> variables = variables("resp", new Object());
+		variables.put("page", 1);
+		assertTrue(frontier.offer(node, variables));
+		Map<String, Object> restored = frontier.poll(1).get(0).getVariables();
+		assertEquals(1, restored.get("page"));
+		assertFalse(restored.containsKey("resp"));
+		frontier.clear();
+	}
+
+	@Test
+	public void variablesNotTransmittedAreNotChecked() {
+		SpiderNode node = node("1");
+		SpiderNode next = node("2");
+		node.addNextNode(next);
+		next.setTransmitVariable("1", "0");
+		next.getJsonProperty().put("value", "${resp.html}");
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		assertTrue(frontier.offer(node, variables("resp", new Object())));
+		frontier.clear();
+	}
+
+	@Test
+	public void edgeConditionsAreChecked() {
+		SpiderNode node = node("1");
+		SpiderNode next = node("2");
+		node.addNextNode(next);
+		next.setTransmitVariable("1", "0");
+		next.setCondition("1", "${resp.statusCode == 200}");
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		assertFalse(frontier.offer(node, variables("resp", new Object())));
+		frontier.clear();
+	}
+
+	@Test
+	public void subProcessDownstreamKeepsTask() {
+		SpiderNode node = node("1");
+		SpiderNode process = node("2");
+		process.getJsonProperty().put("shape", "process");
+		node.addNextNode(process);
+		TaskFrontier frontier = frontier(TaskFrontier.ORDER_FIFO, null);
+		assertFalse(frontier.offer(node, variables("resp", new Object())));
+		frontier.clear();
+	}
+
+	@Test
+	public void forEachAndClear() throws Exception {
+		File directory = new File(folder.getRoot(), "frontier");
+		TaskFrontier frontier = new TaskFrontier(directory, 10, 256, TaskFrontier.ORDER_FIFO, null);
+		SpiderNode node = node("1");
+		for (int i = 0; i < 5; i++) {
+			frontier.offer(node, variables("i", i));
+		}
+		List<Object> values = new ArrayList<>();
+		frontier.forEach((nodeId, variables) -> values.add(variables.get("i")));
+		assertEquals(5, values.size());
+		assertEquals(5, frontier.size());
+		assertTrue(directory.exists());
+		frontier.clear();
+		assertTrue(frontier.isEmpty());
+		assertFalse(directory.exists());
+	}
+
+	private TaskFrontier frontier(String order, String priorityExpression) {
+		return new TaskFrontier(new File(folder.getRoot(), "frontier"), 10, 256, order, priorityExpression);
+	}
+
+	private static SpiderNode node(String nodeId) {
+		SpiderNode node = new SpiderNode();
+		node.setNodeId(nodeId);
+		return node;
+	}
+
+	private static Map<String, Object> variables(String name, Object value) {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put(name, value);
+		return variables;
+	}
+
+	private static String host(FrontierItem item) {
+		return String.valueOf(item.getVariables().get("url")).replaceAll("^http://([^/]+)/.*$", "$1");
+	}
+}
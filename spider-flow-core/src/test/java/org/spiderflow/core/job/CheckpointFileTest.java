@@ -0,0 +1,148 @@
+package org.spiderflow.core.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.alibaba.fastjson.JSONObject;
+
+public class CheckpointFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void fileLocation() {
+		File file = CheckpointFile.getFile("/data/spider", "flow", 1);
+		assertEquals(new File("/data/spider/flow/checkpoints/1.ckpt"), file);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		File file = file();
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("page", 2);
+		variables.put("name", "中文");
+		CheckpointFile.write(file, writer -> {
+			writer.accept(record(CheckpointFile.TYPE_CONTEXT, null, variables));
+			writer.accept(record(CheckpointFile.TYPE_NODE, "1", variables));
+			writer.accept(record(CheckpointFile.TYPE_NEXT, "2", new HashMap<>()));
+		});
+		List<JSONObject> records = CheckpointFile.read(file);
+		assertEquals(3, records.size());
+		assertEquals(CheckpointFile.TYPE_CONTEXT, records.get(0).getString("type"));
+		assertEquals("1", records.get(1).getString("nodeId"));
+		assertEquals(2, records.get(1).getJSONObject("variables").getIntValue("page"));
+		assertEquals("中文", records.get(1).getJSONObject("variables").getString("name"));
+		assertEquals(CheckpointFile.TYPE_NEXT, records.get(2).getString("type"));
+	}
+
+	@Test
+	public void readsLastCompleteGroup() throws IOException {
+		File file = file();
+		for (int i = 0; i < 3; i++) {
+			int index = i;
+			CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_NODE, String.valueOf(index), new HashMap<>())));
+		}
+		List<JSONObject> records = CheckpointFile.read(file);
+		assertEquals(1, records.size());
+		assertEquals("2", records.get(0).getString("nodeId"));
+	}
+
+	@Test
+	public void interruptedGroupIsIgnored() throws IOException {
+		File file = file();
+		CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_NODE, "1", new HashMap<>())));
+		//写入中断:没有结束标记、最后一行不完整
+		append(file, "#begin 0\n{\"type\":\"node\",\"nodeId\":\"2\"}\n{\"type\":\"no");
+		List<JSONObject> records = CheckpointFile.read(file);
+		assertEquals(1, records.size());
+		assertEquals("1", records.get(0).getString("nodeId"));
+	}
+
+	@Test
+	public void groupWithWrongCountIsIgnored() throws IOException {
+		File file = file();
+		CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_NODE, "1", new HashMap<>())));
+		append(file, "#begin 0\n{\"type\":\"node\",\"nodeId\":\"2\"}\n#end 2\n");
+		assertEquals("1", CheckpointFile.read(file).get(0).getString("nodeId"));
+	}
+
+	@Test
+	public void failedWriteKeepsPreviousGroup() throws IOException {
+		File file = file();
+		CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_NODE, "1", new HashMap<>())));
+		try {
+			CheckpointFile.write(file, writer -> {
+				writer.accept(record(CheckpointFile.TYPE_NODE, "2", new HashMap<>()));
+				throw new UncheckedIOException(new IOException("disk full"));
+			});
+			fail();
+		} catch (IOException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+		List<JSONObject> records = CheckpointFile.read(file);
+		assertEquals(1, records.size());
+		assertEquals("1", records.get(0).getString("nodeId"));
+	}
+
+	@Test
+	public void largeFileIsCompacted() throws IOException {
+		File file = file();
+		Map<String, Object> large = new HashMap<>();
+		large.put("value", StringUtils.repeat('a', 17 * 1024 * 1024));
+		CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_CONTEXT, null, large)));
+		assertTrue(file.length() > 16 * 1024 * 1024);
+		CheckpointFile.write(file, writer -> writer.accept(record(CheckpointFile.TYPE_NODE, "1", new HashMap<>())));
+		//只保留最新一组记录
+		assertTrue(file.length() < 1024);
+		assertEquals("1", CheckpointFile.read(file).get(0).getString("nodeId"));
+		assertFalse(new File(file.getParentFile(), file.getName() + ".tmp").exists());
+	}
+
+	@Test
+	public void missingFile() throws IOException {
+		File file = file();
+		assertNull(CheckpointFile.read(file));
+		CheckpointFile.write(file, writer -> {
+		});
+		assertTrue(CheckpointFile.read(file).isEmpty());
+		CheckpointFile.delete(file);
+		assertFalse(file.exists());
+		assertNull(CheckpointFile.read(file));
+	}
+
+	private File file() {
+		return CheckpointFile.getFile(folder.getRoot().getAbsolutePath(), "flow", 1);
+	}
+
+	private static Map<String, Object> record(String type, String nodeId, Map<String, Object> variables) {
+		Map<String, Object> record = new HashMap<>();
+		record.put("type", type);
+		record.put("nodeId", nodeId);
+		record.put("variables", variables);
+		return record;
+	}
+
+	private static void append(File file, String text) throws IOException {
+		try (FileOutputStream fos = new FileOutputStream(file, true)) {
+			fos.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package org.spiderflow.core.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.model.SpiderFlow;
+import org.spiderflow.core.service.SpiderFlowService;
+import org.spiderflow.model.SpiderNode;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RunAdmissionTest {
+
+	/**
+	 * 流程ID -> 优先级,未配置的为普通
+	 */
+	private final Map<String, String> priorities = new HashMap<>();
+
+	/**
+	 * 阻塞运行直到释放
+	 */
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private RunAdmission admission;
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		if (admission != null) {
+			ReflectionTestUtils.invokeMethod(admission, "destroy");
+		}
+	}
+
+	@Test
+	public void concurrencyIsBounded() throws Exception {
+		RunAdmission admission = admission(2, 10);
+		CountDownLatch started = new CountDownLatch(2);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(admission.submit(flow("flow" + i), blocking(started)));
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals(2, admission.getMaxConcurrent());
+		assertEquals(2, admission.getRunningCount());
+		assertEquals(2, admission.getQueuedCount());
+		release.countDown();
+		awaitIdle(admission);
+	}
+
+	@Test
+	public void rejectsWhenQueueIsFull() throws Exception {
+		RunAdmission admission = admission(1, 2);
+		block(admission);
+		assertTrue(admission.submit(flow("a"), () -> {}));
+		assertTrue(admission.submit(flow("b"), () -> {}));
+		assertFalse(admission.submit(flow("c"), () -> {}));
+		assertEquals(2, admission.getQueuedCount());
+		assertEquals(1, admission.getRejectedCount());
+		release.countDown();
+		awaitIdle(admission);
+	}
+
+	@Test
+	public void runsByPriorityThenSubmitOrder() throws Exception {
+		priorities.put("high", "high");
+		priorities.put("low", "low");
+		RunAdmission admission = admission(1, 10);
+		block(admission);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch done = new CountDownLatch(4);
+		for (String id : Arrays.asList("low", "normal1", "high", "normal2")) {
+			admission.submit(flow(id), () -> {
+				order.add(id);
+				done.countDown();
+			});
+		}
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("high", "normal1", "normal2", "low"), order);
+	}
+
+	@Test
+	public void waitingScheduledRunIsNotDuplicated() throws Exception {
+		RunAdmission admission = admission(1, 10);
+		block(admission);
+		assertTrue(admission.submitScheduled(flow("a"), () -> {}));
+		assertFalse(admission.submitScheduled(flow("a"), () -> {}));
+		//手动运行不受影响
+		assertTrue(admission.submit(flow("a"), () -> {}));
+		assertTrue(admission.submitScheduled(flow("b"), () -> {}));
+		assertEquals(3, admission.getQueuedCount());
+		release.countDown();
+		awaitIdle(admission);
+		//上次触发开始运行后可以再次触发
+		assertTrue(admission.submitScheduled(flow("a"), () -> {}));
+		awaitIdle(admission);
+	}
+
+	@Test
+	public void waitingResumeIsNotDuplicated() throws Exception {
+		RunAdmission admission = admission(1, 10);
+		block(admission);
+		assertTrue(admission.submitResume(flow("a"), 1, () -> {}));
+		assertTrue(admission.isResuming(1));
+		assertFalse(admission.submitResume(flow("a"), 1, () -> {}));
+		assertTrue(admission.submitResume(flow("a"), 2, () -> {}));
+		assertEquals(2, admission.getQueuedCount());
+		release.countDown();
+		awaitIdle(admission);
+		//恢复执行完毕后可以再次恢复
+		assertFalse(admission.isResuming(1));
+		assertTrue(admission.submitResume(flow("a"), 1, () -> {}));
+		awaitIdle(admission);
+	}
+
+	@Test
+	public void failedRunReleasesSlot() throws Exception {
+		RunAdmission admission = admission(1, 10);
+		CountDownLatch done = new CountDownLatch(1);
+		assertTrue(admission.submit(flow("a"), () -> {
+			throw new IllegalStateException("test");
+		}));
+		assertTrue(admission.submit(flow("b"), done::countDown));
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		awaitIdle(admission);
+	}
+
+	private RunAdmission admission(int maxConcurrent, int queueSize) {
+		SpiderFlowService spiderFlowService = mock(SpiderFlowService.class);
+		when(spiderFlowService.getCompiledFlow(anyString())).thenAnswer(invocation -> {
+			SpiderNode root = new SpiderNode();
+			String priority = priorities.get(invocation.<String>getArgument(0));
+			if (priority != null) {
+				root.getJsonProperty().put(Spider.RUN_PRIORITY, priority);
+			}
+			return root;
+		});
+		admission = new RunAdmission();
+		ReflectionTestUtils.setField(admission, "spiderFlowService", spiderFlowService);
+		ReflectionTestUtils.setField(admission, "maxConcurrent", maxConcurrent);
+		ReflectionTestUtils.setField(admission, "queueSize", queueSize);
+		ReflectionTestUtils.invokeMethod(admission, "init");
+		return admission;
+	}
+
+	/**
+	 * 占用唯一的运行名额,之后提交的运行都进入队列
+	 */
+	private void block(RunAdmission admission) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		assertTrue(admission.submit(flow("blocker"), blocking(started)));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+	}
+
+	private Runnable blocking(CountDownLatch started) {
+		return () -> {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+	}
+
+	private static void awaitIdle(RunAdmission admission) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((admission.getRunningCount() > 0 || admission.getQueuedCount() > 0) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, admission.getRunningCount());
+		assertEquals(0, admission.getQueuedCount());
+	}
+
+	private static SpiderFlow flow(String id) {
+		SpiderFlow spiderFlow = new SpiderFlow();
+		spiderFlow.setId(id);
+		spiderFlow.setName(id);
+		return spiderFlow;
+	}
+}
@@ -0,0 +1,48 @@
+package org.spiderflow.core.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import us.codecraft.xsoup.Xsoup;
+
+public class ExtractUtilsTest {
+
+	private static final String HTML = "<div class=\"list\">"
+			+ "<div class=\"item\"><a href=\"/1\">one</a><span>x</span><p><a href=\"/p1\">p</a></p></div>"
+			+ "<div class=\"item\"><a href=\"/2\">two</a><p>para <b>bold</b></p></div>"
+			+ "</div>"
+			+ "<div class=\"other\"><a href=\"/o\">other</a></div>";
+
+	@Test
+	public void xpathOverElementsMatchesReparsedCollection() {
+		Document document = Jsoup.parse(HTML);
+		Elements items = document.select(".item");
+		List<String> xpaths = Arrays.asList(
+				"//a/@href", "//a/text()", "a/@href", "p/a/@href", "//p/a/@href", "div//a/@href",
+				"/html/body/a/@href", "//body/a/@href", "/html/body/p/text()", "/html/body//b/text()",
+				"//p/b/text()", "//div[@class='item']/a/@href", "//a[@href='/2']/text()", "//span/text()");
+		for (String xpath : xpaths) {
+			//以前在集合html重新解析出的文档上执行
+			Document reparsed = Jsoup.parse(items.html());
+			assertEquals(xpath, Xsoup.select(reparsed, xpath).list(), ExtractUtils.getValuesByXPath(items, xpath));
+			assertEquals(xpath, Xsoup.select(reparsed, xpath).get(), ExtractUtils.getValueByXPath(items, xpath));
+		}
+	}
+
+	@Test
+	public void xpathDoesNotLeaveTheCollection() {
+		Document document = Jsoup.parse(HTML);
+		Elements items = document.select(".item");
+		assertEquals(Arrays.asList("/1", "/p1", "/2"), ExtractUtils.getValuesByXPath(items, "a/@href"));
+		//元素本身及其祖先不参与匹配
+		assertEquals(0, ExtractUtils.getValuesByXPath(items, "div/a/@href").size());
+		assertEquals(0, ExtractUtils.getValuesByXPath(items, "//div//a/@href").size());
+	}
+}
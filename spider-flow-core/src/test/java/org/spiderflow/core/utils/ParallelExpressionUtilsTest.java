@@ -0,0 +1,110 @@
+package org.spiderflow.core.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.spiderflow.core.expression.DefaultExpressionEngine;
+import org.spiderflow.core.utils.ParallelExpressionUtils.Result;
+import org.spiderflow.model.SpiderNode;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ParallelExpressionUtilsTest {
+
+	@BeforeClass
+	public static void setUp() {
+		DefaultExpressionEngine engine = new DefaultExpressionEngine();
+		ReflectionTestUtils.setField(engine, "functionExecutors", Collections.emptyList());
+		ReflectionTestUtils.setField(engine, "functionExtensions", Collections.emptyList());
+		ReflectionTestUtils.setField(ExpressionUtils.class, "engine", engine);
+	}
+
+	@Test
+	public void independentResultsKeepDeclaredOrder() {
+		List<String> expressions = Arrays.asList("${a + 1}", "${a + 2}", "${a * 10}", "${a - 1}");
+		for (int parallelism : new int[]{1, 4}) {
+			Result[] results = ParallelExpressionUtils.execute(expressions, null, variables(), parallelism);
+			assertEquals(2, results[0].getValue());
+			assertEquals(3, results[1].getValue());
+			assertEquals(10, results[2].getValue());
+			assertEquals(0, results[3].getValue());
+		}
+	}
+
+	@Test
+	public void laterExpressionsSeeEarlierResults() {
+		List<String> expressions = Arrays.asList("${a + 1}", "${x * 2}", "${a}", "${y + z}");
+		List<String> names = Arrays.asList("x", "y", "z", "w");
+		Map<String, Object> variables = variables();
+		Result[] results = ParallelExpressionUtils.execute(expressions, names, variables, 4);
+		assertEquals(2, results[0].getValue());
+		assertEquals(4, results[1].getValue());
+		assertEquals(1, results[2].getValue());
+		assertEquals(5, results[3].getValue());
+		//传入的变量不会被修改
+		assertFalse(variables.containsKey("x"));
+	}
+
+	@Test
+	public void sameNameIsAssignedInOrder() {
+		List<String> expressions = Arrays.asList("${1}", "${x + 1}", "${x + 1}");
+		List<String> names = Arrays.asList("x", "x", "x");
+		Result[] results = ParallelExpressionUtils.execute(expressions, names, variables(), 4);
+		assertEquals(1, results[0].getValue());
+		assertEquals(2, results[1].getValue());
+		assertEquals(3, results[2].getValue());
+	}
+
+	@Test
+	public void earlierReadIsNotOverwrittenByLaterAssignment() {
+		List<String> expressions = Arrays.asList("${a}", "${100}");
+		List<String> names = Arrays.asList("b", "a");
+		Result[] results = ParallelExpressionUtils.execute(expressions, names, variables(), 4);
+		assertEquals(1, results[0].getValue());
+		assertEquals(100, results[1].getValue());
+	}
+
+	@Test
+	public void resultsAfterErrorAreSkipped() {
+		List<String> expressions = Arrays.asList("${a + 1}", "${a.missing()}", "${x + 1}");
+		List<String> names = Arrays.asList("x", "y", "z");
+		Result[] results = ParallelExpressionUtils.execute(expressions, names, variables(), 4);
+		assertEquals(2, results[0].getValue());
+		assertNotNull(results[1].getError());
+		assertNull(results[2]);
+	}
+
+	@Test
+	public void errorsAreReportedPerExpression() {
+		List<String> expressions = Arrays.asList("${a + 1}", "${a.missing()}", "${a + 3}");
+		Result[] results = ParallelExpressionUtils.execute(expressions, null, variables(), 4);
+		assertEquals(2, results[0].getValue());
+		assertNotNull(results[1].getError());
+		assertEquals(4, results[2].getValue());
+	}
+
+	@Test
+	public void parallelismFromNode() {
+		SpiderNode node = new SpiderNode();
+		assertEquals(1, ParallelExpressionUtils.getParallelism(node));
+		node.getJsonProperty().put(ParallelExpressionUtils.PARALLELISM, "0");
+		assertEquals(1, ParallelExpressionUtils.getParallelism(node));
+		node.getJsonProperty().put(ParallelExpressionUtils.PARALLELISM, "4");
+		assertEquals(4, ParallelExpressionUtils.getParallelism(node));
+	}
+
+	private static Map<String, Object> variables() {
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("a", 1);
+		return variables;
+	}
+}
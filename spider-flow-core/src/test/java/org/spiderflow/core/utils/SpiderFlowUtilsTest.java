@@ -0,0 +1,32 @@
+package org.spiderflow.core.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.spiderflow.model.SpiderNode;
+
+public class SpiderFlowUtilsTest {
+
+	/**
+	 * 编辑器保存的流程图:根节点(id为1)没有JsonProperty
+	 */
+	private static final String XML = "<mxGraphModel><root>"
+			+ "<mxCell id=\"0\"><JsonProperty as=\"data\">{&quot;spiderName&quot;:&quot;test&quot;}</JsonProperty></mxCell>"
+			+ "<mxCell id=\"1\" parent=\"0\"/>"
+			+ "<mxCell id=\"2\" value=\"开始\" parent=\"1\" vertex=\"1\"><JsonProperty as=\"data\">{&quot;shape&quot;:&quot;start&quot;}</JsonProperty></mxCell>"
+			+ "<mxCell id=\"3\" value=\"等待\" parent=\"1\" vertex=\"1\"><JsonProperty as=\"data\">{&quot;shape&quot;:&quot;forkJoin&quot;}</JsonProperty></mxCell>"
+			+ "<mxCell id=\"4\" value=\"\" parent=\"1\" source=\"2\" target=\"3\" edge=\"1\"><JsonProperty as=\"data\">{&quot;condition&quot;:&quot;&quot;}</JsonProperty></mxCell>"
+			+ "</root></mxGraphModel>";
+
+	@Test
+	public void loadsFlowWithRootCellWithoutProperty() {
+		SpiderNode root = SpiderFlowUtils.loadXMLFromString(XML);
+		Map<String, SpiderNode> nodeMap = SpiderFlowUtils.getNodeMap(root);
+		assertEquals(Collections.singletonList("3"), nodeMap.get("2").getJoinNodeIds());
+		assertEquals(Arrays.asList("3"), nodeMap.get("3").getJoinNodeIds());
+	}
+}
@@ -3,6 +3,7 @@ package org.spiderflow.controller;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.spiderflow.core.model.DataSource;
@@ -57,6 +58,14 @@ public class DataSourceController {
 		dataSourceService.removeById(id);
 	}
 	
+	/**
+	 * 获取已创建连接池的统计信息(活动连接、等待线程、等待时间分布)
+	 */
+	@RequestMapping("/stats")
+	public JsonBean<List<Map<String, Object>>> stats(){
+		return new JsonBean<>(DataSourceUtils.getStatistics());
+	}
+	
 	@RequestMapping("/test")
 	public JsonBean<Void> test(DataSource dataSource){
 		if(StringUtils.isBlank(dataSource.getDriverClassName())){
@@ -15,7 +15,8 @@ import org.spiderflow.executor.FunctionExecutor;
 import org.spiderflow.executor.FunctionExtension;
 import org.spiderflow.executor.PluginConfig;
 import org.spiderflow.io.Line;
-import org.spiderflow.io.RandomAccessFileReader;
+import org.spiderflow.io.LogArchives;
+import org.spiderflow.io.MappedLogReader;
 import org.spiderflow.model.Grammer;
 import org.spiderflow.model.JsonBean;
 import org.spiderflow.model.Plugin;
@@ -23,6 +24,8 @@ import org.spiderflow.model.Shape;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -31,14 +34,12 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 /**
  * 爬虫Controller
@@ -149,8 +150,11 @@ public class SpiderFlowController {
 	}
 	
 	@RequestMapping("/run")
-	public void run(String id){
-		spiderFlowService.run(id);
+	public JsonBean<Boolean> run(String id){
+		if(!spiderFlowService.run(id)){
+			return new JsonBean<>(0, "运行队列已满或爬虫不存在");
+		}
+		return new JsonBean<>(true);
 	}
 	
 	@RequestMapping("/cron")
@@ -164,29 +168,57 @@ public class SpiderFlowController {
 	}
 
 	@RequestMapping("/log/download")
-	public ResponseEntity<FileSystemResource> download(String id, String taskId)  {
+	public ResponseEntity<Resource> download(String id, String taskId) throws IOException {
 		if (StringUtils.isBlank(taskId) || NumberUtils.toInt(taskId,0) == 0) {
 			Integer maxId = spiderFlowService.getFlowMaxTaskId(id);
 			taskId = maxId == null ? "" : maxId.toString();
 		}
 		File file = new File(workspace, id + File.separator + "logs" + File.separator + taskId + ".log");
+		List<File> archives = LogArchives.list(file);
+		Resource resource;
+		if (archives.isEmpty()) {
+			resource = new FileSystemResource(file);
+		} else {
+			//依次解压已归档的日志，最后拼接当前日志
+			List<InputStream> streams = new ArrayList<>();
+			for (File archive : archives) {
+				//未压缩的归档在列出后可能已压缩完成并被删除
+				if (!LogArchives.isCompressed(archive) && archive.exists()) {
+					streams.add(new FileInputStream(archive));
+				} else {
+					streams.add(new GZIPInputStream(new BufferedInputStream(new FileInputStream(LogArchives.compressed(archive)))));
+				}
+			}
+			if (file.exists()) {
+				streams.add(new FileInputStream(file));
+			}
+			resource = new InputStreamResource(new SequenceInputStream(Collections.enumeration(streams)));
+		}
 		return ResponseEntity.ok()
 				.header("Content-Disposition","attachment; filename=spider.log")
 				.contentType(MediaType.parseMediaType("application/octet-stream"))
-				.body(new FileSystemResource(file));
+				.body(resource);
 	}
 
+	/**
+	 * 读取日志，指定line时按行号分页，否则从index位置向前/向后读取(可搜索)
+	 */
 	@RequestMapping("/log")
-	public JsonBean<List<Line>> log(String id, String taskId, String keywords, Long index, Integer count, Boolean reversed, Boolean matchcase, Boolean regx) {
+	public JsonBean<List<Line>> log(String id, String taskId, String keywords, Long index, Long line, Integer count, Boolean reversed, Boolean matchcase, Boolean regx) {
 		if (StringUtils.isBlank(taskId)) {
 			Integer maxId = spiderFlowService.getFlowMaxTaskId(id);
 			taskId = maxId == null ? "" : maxId.toString();
 		}
 		File logFile = new File(workspace, id + File.separator + "logs" + File.separator + taskId + ".log");
-		try (RandomAccessFileReader reader = new RandomAccessFileReader(new RandomAccessFile(logFile,"r"), index == null ? -1 : index, reversed == null || reversed)){
-			return new JsonBean<>(reader.readLine(count == null ? 10 : count,keywords,matchcase != null && matchcase,regx != null && regx));
-		} catch(FileNotFoundException e){
+		if (!logFile.exists() && LogArchives.list(logFile).isEmpty()) {
 			return new JsonBean<>(0,"日志文件不存在");
+		}
+		int n = count == null ? 10 : count;
+		try (MappedLogReader reader = new MappedLogReader(logFile)){
+			if (line != null) {
+				return new JsonBean<>(reader.readLines(line, n));
+			}
+			return new JsonBean<>(reader.readLine(index == null ? -1 : index, reversed == null || reversed, n, keywords, matchcase != null && matchcase, regx != null && regx));
 		} catch (IOException e) {
 			logger.error("读取日志文件出错",e);
 			return new JsonBean<>(-1,"读取日志文件出错");
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spiderflow.context.SpiderContext;
 import org.spiderflow.core.Spider;
+import org.spiderflow.core.job.RunAdmission;
 import org.spiderflow.core.job.SpiderJob;
 import org.spiderflow.core.job.SpiderJobContext;
 import org.spiderflow.core.model.SpiderFlow;
@@ -44,6 +45,9 @@ public class SpiderRestController {
 	@Autowired
 	private TaskService taskService;
 
+	@Autowired
+	private RunAdmission runAdmission;
+
 	/**
 	 * 异步运行
 	 * @param id
@@ -59,9 +63,13 @@ public class SpiderRestController {
 		task.setFlowId(flow.getId());
 		task.setBeginTime(new Date());
 		taskService.save(task);
-		Spider.executorInstance.submit(()->{
+		boolean accepted = runAdmission.submit(flow, ()->{
 			spiderJob.run(flow,task,null);
 		});
+		if(!accepted){
+			taskService.removeById(task.getId());
+			return new JsonBean<>(0, "运行队列已满");
+		}
 		return new JsonBean<>(task.getId());
 	}
 
@@ -80,6 +88,45 @@ public class SpiderRestController {
 
 	}
 
+	/**
+	 * 从检查点恢复运行任务(正常关闭或手动停止时保存检查点)
+	 * @param taskId
+	 */
+	@RequestMapping("/resume/{taskId}")
+	public JsonBean<Integer> resume(@PathVariable("taskId")Integer taskId){
+		Task task = taskService.getById(taskId);
+		if(task == null){
+			return new JsonBean<>(0,"任务不存在！");
+		}
+		//等待恢复的任务尚未开始运行,也视为运行中
+		if(SpiderJob.getSpiderContext(taskId) != null || runAdmission.isResuming(taskId)){
+			return new JsonBean<>(0,"任务正在运行中！");
+		}
+		SpiderFlow flow = spiderFlowService.getById(task.getFlowId());
+		if(flow == null || !spider.hasCheckpoint(flow.getId(), taskId)){
+			return new JsonBean<>(0,"没有可恢复的检查点！");
+		}
+		if(!runAdmission.submitResume(flow, taskId, ()->{
+			spiderJob.resume(flow,task);
+		})){
+			return new JsonBean<>(0,runAdmission.isResuming(taskId) ? "任务正在运行中！" : "运行队列已满！");
+		}
+		return new JsonBean<>(task.getId());
+	}
+
+	/**
+	 * 查询运行中任务的性能分析(各节点执行次数、排队及执行耗时、请求状态码等)
+	 * @param taskId
+	 */
+	@RequestMapping("/profile/{taskId}")
+	public JsonBean<Map<String,Object>> profile(@PathVariable("taskId")Integer taskId){
+		SpiderContext context = SpiderJob.getSpiderContext(taskId);
+		if(context == null){
+			return new JsonBean<>(0,"任务不存在！");
+		}
+		return new JsonBean<>(spider.getProfile(context));
+	}
+
 	/**
 	 * 查询任务状态
 	 * @param taskId
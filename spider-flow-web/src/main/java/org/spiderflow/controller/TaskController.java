@@ -4,8 +4,12 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.spiderflow.context.SpiderContext;
+import org.spiderflow.core.Spider;
+import org.spiderflow.core.job.RunAdmission;
 import org.spiderflow.core.job.SpiderJob;
+import org.spiderflow.core.model.SpiderFlow;
 import org.spiderflow.core.model.Task;
+import org.spiderflow.core.service.SpiderFlowService;
 import org.spiderflow.core.service.TaskService;
 import org.spiderflow.model.JsonBean;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/task")
 public class TaskController {
@@ -20,6 +27,18 @@ public class TaskController {
 	@Autowired
 	private TaskService taskService;
 
+	@Autowired
+	private SpiderFlowService spiderFlowService;
+
+	@Autowired
+	private Spider spider;
+
+	@Autowired
+	private SpiderJob spiderJob;
+
+	@Autowired
+	private RunAdmission runAdmission;
+
 	@RequestMapping("/list")
 	public IPage<Task> list(@RequestParam(name = "page", defaultValue = "1") Integer page, @RequestParam(name = "limit", defaultValue = "1") Integer size,String flowId){
 		return taskService.page(new Page<>(page,size),new QueryWrapper<Task>().eq("flow_id",flowId).last("order by isnull(end_time) desc,end_time desc"));
@@ -39,6 +58,70 @@ public class TaskController {
 		return new JsonBean<>(context != null);
 	}
 
+	/**
+	 * 获取运行中任务的性能分析
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping("/profile")
+	public JsonBean<Map<String, Object>> profile(Integer id){
+		SpiderContext context = SpiderJob.getSpiderContext(id);
+		if(context == null){
+			return new JsonBean<>(0, "任务未在运行中");
+		}
+		return new JsonBean<>(spider.getProfile(context));
+	}
+
+	/**
+	 * 获取任务的调用链(OTLP/JSON格式),运行中的任务返回已结束的Span
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping("/trace")
+	public JsonBean<Map<String, Object>> trace(Integer id) throws IOException {
+		SpiderContext context = SpiderJob.getSpiderContext(id);
+		Map<String, Object> trace = null;
+		if(context != null){
+			trace = spider.getTrace(context);
+		}else{
+			Task task = taskService.getById(id);
+			if(task != null){
+				trace = spider.getTrace(task.getFlowId(), id);
+			}
+		}
+		if(trace == null){
+			return new JsonBean<>(0, "该任务未记录调用链");
+		}
+		return new JsonBean<>(trace);
+	}
+
+	/**
+	 * 从检查点恢复执行任务
+	 * @param id
+	 * @return
+	 */
+	@RequestMapping("/resume")
+	public JsonBean<Boolean> resume(Integer id){
+		Task task = taskService.getById(id);
+		if(task == null){
+			return new JsonBean<>(0, "任务不存在");
+		}
+		//等待恢复的任务尚未开始运行,也视为运行中
+		if(SpiderJob.getSpiderContext(id) != null || runAdmission.isResuming(id)){
+			return new JsonBean<>(0, "任务正在运行中");
+		}
+		SpiderFlow flow = spiderFlowService.getById(task.getFlowId());
+		if(flow == null || !spider.hasCheckpoint(flow.getId(), id)){
+			return new JsonBean<>(0, "没有可恢复的检查点");
+		}
+		if(!runAdmission.submitResume(flow, id, ()->{
+			spiderJob.resume(flow,task);
+		})){
+			return new JsonBean<>(0, runAdmission.isResuming(id) ? "任务正在运行中" : "运行队列已满");
+		}
+		return new JsonBean<>(true);
+	}
+
 	@RequestMapping("/remove")
 	public JsonBean<Boolean> remove(Integer id){
 		//删除任务记录之前先停止
@@ -1,52 +1,74 @@
 package org.spiderflow.logback;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.FileAppender;
-import ch.qos.logback.core.spi.DeferredProcessingAware;
-import ch.qos.logback.core.status.ErrorStatus;
 import org.spiderflow.context.SpiderContext;
 import org.spiderflow.context.SpiderContextHolder;
 import org.spiderflow.core.job.SpiderJobContext;
+import org.spiderflow.core.job.TaskLogBuffer;
+import org.spiderflow.core.job.TaskLogWriter;
 
-import java.io.IOException;
-import java.io.OutputStream;
-
+/**
+ * 任务日志输出
+ * 任务中的日志编码后放入任务的缓冲区，由写线程批量写入，其余日志写入默认文件
+ */
 public class SpiderFlowFileAppender extends FileAppender<ILoggingEvent> {
 
+    /**
+     * 每个任务的缓冲队列大小
+     */
+    private int queueSize = 8192;
+
+    /**
+     * 最长刷新间隔(毫秒)
+     */
+    private long flushInterval = 200;
+
+    /**
+     * 队列已满时，小于等于该级别的日志直接丢弃，默认只丢弃DEBUG及TRACE
+     */
+    private Level dropLevel = Level.DEBUG;
+
+    /**
+     * 队列已满时，高于dropLevel的日志最长等待时间(毫秒)
+     */
+    private long maxBlockMillis = 1000;
+
+    @Override
+    public void start() {
+        TaskLogWriter writer = TaskLogWriter.getInstance();
+        writer.setQueueSize(queueSize);
+        writer.setFlushInterval(flushInterval);
+        super.start();
+    }
+
     @Override
     protected void subAppend(ILoggingEvent event) {
         SpiderContext context = SpiderContextHolder.get();
-        OutputStream os = getOutputStream();
-        if (context instanceof SpiderJobContext) {
-            SpiderJobContext jobContext = (SpiderJobContext) context;
-            os = jobContext.getOutputstream();
-        }
-        try {
-            if (event instanceof DeferredProcessingAware) {
-                ((DeferredProcessingAware) event).prepareForDeferredProcessing();
-            }
-            byte[] byteArray = this.encoder.encode(event);
-            writeBytes(os, byteArray);
-
-        } catch (IOException ioe) {
-            this.started = false;
-            addStatus(new ErrorStatus("IO failure in appender", this, ioe));
+        TaskLogBuffer buffer = context instanceof SpiderJobContext ? ((SpiderJobContext) context).getLogBuffer() : null;
+        if (buffer == null) {
+            super.subAppend(event);
+            return;
         }
+        //在当前线程编码，写线程只负责合并写入
+        byte[] byteArray = this.encoder.encode(event);
+        buffer.offer(byteArray, event.getLevel().toInt() > dropLevel.toInt() ? maxBlockMillis : 0);
     }
 
-    private void writeBytes(OutputStream os, byte[] byteArray) throws IOException {
-        if (byteArray == null || byteArray.length == 0)
-            return;
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
 
-        lock.lock();
-        try {
-            os.write(byteArray);
-            if (isImmediateFlush()) {
-                os.flush();
-            }
-        } finally {
-            lock.unlock();
-        }
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public void setDropLevel(String dropLevel) {
+        this.dropLevel = Level.toLevel(dropLevel, Level.DEBUG);
     }
 
+    public void setMaxBlockMillis(long maxBlockMillis) {
+        this.maxBlockMillis = maxBlockMillis;
+    }
 }
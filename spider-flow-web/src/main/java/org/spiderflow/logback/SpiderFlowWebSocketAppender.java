@@ -8,11 +8,6 @@ import org.spiderflow.context.SpiderContextHolder;
 import org.spiderflow.model.SpiderLog;
 import org.spiderflow.model.SpiderWebSocketContext;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-
 public class SpiderFlowWebSocketAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
 	@Override
@@ -20,13 +15,9 @@ public class SpiderFlowWebSocketAppender extends UnsynchronizedAppenderBase<ILog
 		SpiderContext context = SpiderContextHolder.get();
 		if(context instanceof SpiderWebSocketContext){
 			SpiderWebSocketContext socketContext = (SpiderWebSocketContext) context;
-			Object[] argumentArray = event.getArgumentArray();
-			List<Object> arguments = argumentArray == null ? Collections.emptyList()  : new ArrayList<>(Arrays.asList(argumentArray));
 			ThrowableProxy throwableProxy = (ThrowableProxy) event.getThrowableProxy();
-			if(throwableProxy != null){
-				arguments.add(throwableProxy.getThrowable());
-			}
-			socketContext.log(new SpiderLog(event.getLevel().levelStr.toLowerCase(),event.getMessage(),arguments));
+			Throwable throwable = throwableProxy == null ? null : throwableProxy.getThrowable();
+			socketContext.log(new SpiderLog(event.getLevel().levelStr.toLowerCase(),event.getMessage(),event.getArgumentArray(),throwable));
 		}
 	}
 }
@@ -1,11 +1,9 @@
 package org.spiderflow.model;
 
-import com.alibaba.fastjson.JSON;
 import org.apache.commons.lang3.time.DateFormatUtils;
 import org.spiderflow.context.SpiderContext;
-import org.spiderflow.core.serializer.FastJsonSerializer;
+import org.spiderflow.websocket.WebSocketEventSender;
 
-import javax.websocket.Session;
 import java.util.Date;
 
 /**
@@ -17,14 +15,14 @@ public class SpiderWebSocketContext extends SpiderContext {
 
     private static final long serialVersionUID = -1205530535069540245L;
 
-    private Session session;
+    private WebSocketEventSender sender;
 
     private boolean debug;
 
     private Object lock = new Object();
 
-    public SpiderWebSocketContext(Session session) {
-        this.session = session;
+    public SpiderWebSocketContext(WebSocketEventSender sender) {
+        this.sender = sender;
     }
 
     public boolean isDebug() {
@@ -44,16 +42,11 @@ public class SpiderWebSocketContext extends SpiderContext {
         write(new WebSocketEvent<>("log", DateFormatUtils.format(new Date(), "yyyy-MM-dd HH:mm:ss.SSS"), log));
     }
 
+    /**
+     * 事件放入发送队列，由发送线程异步序列化并合并发送
+     */
     public <T> void write(WebSocketEvent<T> event) {
-        try {
-            String message = JSON.toJSONString(event, FastJsonSerializer.serializeConfig);
-            if(session.isOpen()){
-                synchronized (session){
-                    session.getBasicRemote().sendText(message);
-                }
-            }
-        } catch (Throwable ignored) {
-        }
+        sender.offer(event);
     }
 
     @Override
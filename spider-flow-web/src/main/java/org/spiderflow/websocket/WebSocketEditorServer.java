@@ -12,6 +12,7 @@ import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * WebSocket通讯编辑服务
@@ -24,21 +25,38 @@ public class WebSocketEditorServer {
 
     public static Spider spider;
 
+    /**
+     * 推送性能分析的间隔(毫秒)
+     */
+    private static final long PROFILE_INTERVAL = 1000;
+
     private SpiderWebSocketContext context;
 
+    private WebSocketEventSender sender;
+
     @OnMessage
     public void onMessage(String message, Session session) {
         JSONObject event = JSON.parseObject(message);
         String eventType = event.getString("eventType");
         boolean isDebug = "debug".equalsIgnoreCase(eventType);
         if ("test".equalsIgnoreCase(eventType) || isDebug) {
-            context = new SpiderWebSocketContext(session);
+            if (sender == null) {
+                sender = new WebSocketEventSender(session);
+            }
+            context = new SpiderWebSocketContext(sender);
             context.setDebug(isDebug);
             context.setRunning(true);
             new Thread(() -> {
                 String xml = event.getString("message");
                 if (xml != null) {
-                    spider.runWithTest(SpiderFlowUtils.loadXMLFromString(xml), context);
+                    SpiderWebSocketContext current = context;
+                    ScheduledFuture<?> profile = sender.schedule(() -> current.write(new WebSocketEvent<>("profile", spider.getProfile(current))), PROFILE_INTERVAL);
+                    try {
+                        spider.runWithTest(SpiderFlowUtils.loadXMLFromString(xml), context);
+                    } finally {
+                        profile.cancel(false);
+                    }
+                    context.write(new WebSocketEvent<>("profile", spider.getProfile(current)));
                     context.write(new WebSocketEvent<>("finish", null));
                 } else {
                     context.write(new WebSocketEvent<>("error", "xml不正确！"));
@@ -55,7 +73,12 @@ public class WebSocketEditorServer {
 
     @OnClose
     public void onClose(Session session) {
-        context.setRunning(false);
-        context.stop();
+        if (sender != null) {
+            sender.close();
+        }
+        if (context != null) {
+            context.setRunning(false);
+            context.stop();
+        }
     }
 }
@@ -0,0 +1,226 @@
+package org.spiderflow.websocket;
+
+import com.alibaba.fastjson.JSON;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spiderflow.context.SpiderContextHolder;
+import org.spiderflow.core.serializer.FastJsonSerializer;
+import org.spiderflow.model.WebSocketEvent;
+
+import javax.websocket.Session;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebSocket事件发送器
+ * 事件先放入有界队列，由发送线程按固定间隔把多个事件合并为一帧异步发送，
+ * 浏览器处理不过来时优先丢弃最早的日志事件，避免拖慢爬虫线程
+ *
+ * @author jmxd
+ */
+public class WebSocketEventSender {
+
+	private static Logger logger = LoggerFactory.getLogger(WebSocketEventSender.class);
+
+	/**
+	 * 发送线程,只有该线程从队列中取出事件,不能在该线程中等待队列空闲
+	 */
+	private static volatile Thread senderThread;
+
+	/**
+	 * 所有会话共用的发送线程
+	 */
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(() -> {
+			senderThread = Thread.currentThread();
+			//避免发送线程继承爬虫上下文
+			SpiderContextHolder.remove();
+			runnable.run();
+		}, "spider-flow-websocket-sender");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * 发送间隔(毫秒)
+	 */
+	private static final long INTERVAL = 50;
+
+	/**
+	 * 队列大小
+	 */
+	private static final int CAPACITY = 4096;
+
+	/**
+	 * 每帧最多包含的事件数
+	 */
+	private static final int MAX_BATCH = 512;
+
+	private static final String LOG_EVENT = "log";
+
+	/**
+	 * 只需保留最新一条的事件(如性能分析快照),队列中已有时直接替换,不会等待
+	 */
+	private static final Set<String> SNAPSHOT_EVENTS = Collections.singleton("profile");
+
+	private final Session session;
+
+	private final ArrayDeque<WebSocketEvent<?>> queue = new ArrayDeque<>();
+
+	/**
+	 * 是否有正在发送中的帧
+	 */
+	private final AtomicBoolean sending = new AtomicBoolean();
+
+	private final ScheduledFuture<?> future;
+
+	private long dropped;
+
+	public WebSocketEventSender(Session session) {
+		this.session = session;
+		this.future = SCHEDULER.scheduleWithFixedDelay(this::flush, INTERVAL, INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 放入事件，队列已满时丢弃最早的日志事件，没有可丢弃的日志时等待(快照事件及发送线程中放入的事件不等待)
+	 */
+	public void offer(WebSocketEvent<?> event) {
+		synchronized (queue) {
+			if (SNAPSHOT_EVENTS.contains(event.getEventType())) {
+				offerSnapshot(event);
+				return;
+			}
+			while (queue.size() >= CAPACITY && session.isOpen()) {
+				if (dropOldestLog() || LOG_EVENT.equals(event.getEventType())) {
+					if (queue.size() >= CAPACITY) {
+						//队列中全是其他事件，丢弃当前日志
+						dropped++;
+						return;
+					}
+					break;
+				}
+				if (Thread.currentThread() == senderThread) {
+					//在发送线程中等待会使队列永远无法被取出
+					dropped++;
+					return;
+				}
+				try {
+					queue.wait(INTERVAL);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			if (session.isOpen()) {
+				queue.addLast(event);
+			}
+		}
+	}
+
+	/**
+	 * 替换队列中未发送的同类快照,队列已满且没有可丢弃的日志时丢弃本次快照,等待下一次
+	 */
+	private void offerSnapshot(WebSocketEvent<?> event) {
+		if (!session.isOpen()) {
+			return;
+		}
+		queue.removeIf(queued -> event.getEventType().equals(queued.getEventType()));
+		if (queue.size() < CAPACITY || dropOldestLog()) {
+			queue.addLast(event);
+		} else {
+			dropped++;
+		}
+	}
+
+	private boolean dropOldestLog() {
+		for (Iterator<WebSocketEvent<?>> iterator = queue.iterator(); iterator.hasNext(); ) {
+			if (LOG_EVENT.equals(iterator.next().getEventType())) {
+				iterator.remove();
+				dropped++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void flush() {
+		if (!session.isOpen()) {
+			close();
+			return;
+		}
+		//上一帧尚未发送完毕时，本次的事件合并到下一帧
+		if (!sending.compareAndSet(false, true)) {
+			return;
+		}
+		List<WebSocketEvent<?>> events;
+		synchronized (queue) {
+			if (queue.isEmpty()) {
+				sending.set(false);
+				return;
+			}
+			events = new ArrayList<>(Math.min(queue.size(), MAX_BATCH));
+			while (!queue.isEmpty() && events.size() < MAX_BATCH) {
+				events.add(queue.pollFirst());
+			}
+			if (dropped > 0) {
+				logger.debug("客户端处理过慢，已丢弃{}条日志", dropped);
+				dropped = 0;
+			}
+			queue.notifyAll();
+		}
+		//逐条序列化后拼接为数组,无法序列化的事件(如参数中的对象已被修改)只丢弃该条,不影响同一帧中的其他事件
+		StringBuilder message = new StringBuilder("[");
+		for (WebSocketEvent<?> event : events) {
+			String json;
+			try {
+				json = JSON.toJSONString(event, FastJsonSerializer.serializeConfig);
+			} catch (Throwable t) {
+				logger.warn("序列化{}事件出错,已丢弃该事件", event.getEventType(), t);
+				continue;
+			}
+			if (message.length() > 1) {
+				message.append(',');
+			}
+			message.append(json);
+		}
+		if (message.length() == 1) {
+			sending.set(false);
+			return;
+		}
+		message.append(']');
+		try {
+			session.getAsyncRemote().sendText(message.toString(), result -> sending.set(false));
+		} catch (Throwable t) {
+			sending.set(false);
+		}
+	}
+
+	/**
+	 * 在发送线程中定时执行(如定时推送性能分析)
+	 * @param period	间隔(毫秒)
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long period) {
+		return SCHEDULER.scheduleWithFixedDelay(() -> {
+			if (session.isOpen()) {
+				task.run();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public void close() {
+		future.cancel(false);
+		synchronized (queue) {
+			queue.clear();
+			queue.notifyAll();
+		}
+	}
+}
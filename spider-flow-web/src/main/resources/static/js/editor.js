@@ -892,8 +892,7 @@ function runSpider(debug){
 							message : editor.getXML()
 						}));
 					},
-					onmessage : function(e){
-						var event = JSON.parse(e.data);
+					onmessage : function(event){
 						var eventType = event.eventType;
 						var message = event.message;
 						if(eventType == 'finish'){
@@ -1018,6 +1017,8 @@ function runSpider(debug){
 							}
 							LogViewer.append(texts);
 							LogViewer.scrollTo(-1);
+						}else if(eventType == 'profile'){
+							renderProfile(message);
 						}else if(eventType == 'debug'){
 							$(".btn-resume").removeClass('disabled');
 							var type = message.event;
@@ -1071,6 +1072,32 @@ function runSpider(debug){
 		})
 	});
 }
+//渲染性能分析(各节点执行次数、排队及执行耗时、请求状态码等)
+function renderProfile(profile){
+	var $tab = $(".test-window-container .output-container .layui-tab");
+	var $item = $tab.find('.layui-tab-item[data-output=profile]');
+	if($item.length == 0){
+		$tab.find(".layui-tab-title").append('<li>性能分析</li>');
+		$item = $('<div class="layui-tab-item" data-output="profile"></div>').appendTo($tab.find(".layui-tab-content"));
+	}
+	var $table = $('<table class="layui-table" lay-size="sm"><thead><tr><th>节点</th><th>执行次数</th><th>出错</th><th>平均排队(ms)</th><th>平均执行(ms)</th><th>最大执行(ms)</th><th>表达式耗时(ms)</th><th>状态码</th><th>下载字节</th><th>排队任务</th></tr></thead><tbody></tbody></table>');
+	var backlog = profile.backlog || {};
+	var nodes = profile.nodes || {};
+	for(var nodeId in nodes){
+		var node = nodes[nodeId];
+		var statuses = [];
+		for(var status in node.statuses || {}){
+			statuses.push(status + ':' + node.statuses[status]);
+		}
+		var values = [node.nodeName || nodeId, node.executions, node.errors, node.queueWait.avg.toFixed(2), node.execution.avg.toFixed(2), node.execution.max.toFixed(2), node.expressionTime.toFixed(2), statuses.join(' '), node.bytes || '', backlog[node.nodeName || nodeId] || 0];
+		var $tr = $('<tr></tr>');
+		for(var i = 0;i < values.length;i++){
+			$('<td></td>').text(values[i]).appendTo($tr);
+		}
+		$table.find('tbody').append($tr);
+	}
+	$item.empty().append('<div>运行时长:' + (profile.duration / 1000).toFixed(1) + 's,磁盘队列任务数:' + profile.frontier + '</div>').append($table);
+}
 function bindTooltip(content,selector){
 	var dom = document.createElement('div');
 	var $target = $(selector);
@@ -1135,7 +1162,14 @@ function createWebSocket(options){
 		socket = new WebSocket(options.url || (location.origin.replace("http",'ws') + '/ws'));
 	}
 	socket.onopen = options.onopen;
-	socket.onmessage = options.onmessage;
+	socket.onmessage = function(e){
+		//服务端会把一段时间内的多个事件合并为一帧(数组)发送
+		var data = JSON.parse(e.data);
+		var events = Array.isArray(data) ? data : [data];
+		for(var i = 0,len = events.length;i < len;i++){
+			options.onmessage && options.onmessage(events[i]);
+		}
+	};
 	socket.onerror = options.onerror || function(){
 		layer.layer.msg('WebSocket错误');
 	}